@@ -0,0 +1,51 @@
+package com._4point.aem.fluentforms.api;
+
+import java.util.Objects;
+
+/**
+ * Typed name of an attribute.  Using an AttributeKey (rather than a String name and one of the getXxxAttributeAsYyy()
+ * methods) lets the compiler check the type of the attribute's value.
+ *
+ * AttributeKeys are normally declared as constants, for example:
+ * <pre>
+ * public static final AttributeKey&lt;ContentDigest&gt; CONTENT_DIGEST = AttributeKey.of("contentDigest", ContentDigest.class);
+ * </pre>
+ *
+ * @param <T> type of the attribute's value
+ */
+public final class AttributeKey<T> {
+	private final String name;
+	private final Class<T> type;
+
+	private AttributeKey(String name, Class<T> type) {
+		this.name = Objects.requireNonNull(name, "Attribute name cannot be null.");
+		this.type = Objects.requireNonNull(type, "Attribute type cannot be null.");
+	}
+
+	public static <T> AttributeKey<T> of(String name, Class<T> type) {
+		return new AttributeKey<>(name, type);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public Class<T> getType() {
+		return type;
+	}
+
+	/**
+	 * Returns value as this key's type, or null if value is not of this key's type.
+	 *
+	 * @param value
+	 * @return
+	 */
+	/* package */ T cast(Object value) {
+		return type.isInstance(value) ? type.cast(value) : null;
+	}
+
+	@Override
+	public String toString() {
+		return name + " (" + type.getSimpleName() + ")";
+	}
+}
@@ -0,0 +1,79 @@
+package com._4point.aem.fluentforms.api;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Digest (hash) of a Document's contents along with the length of those contents.
+ *
+ * Instances are immutable and are suitable for use as cache or de-duplication keys.  Two ContentDigests are equal if
+ * they were computed with the same algorithm over contents of the same length and have the same digest value.
+ */
+public final class ContentDigest {
+	private final String algorithm;
+	private final byte[] digest;
+	private final long length;
+
+	public ContentDigest(String algorithm, byte[] digest, long length) {
+		this.algorithm = Objects.requireNonNull(algorithm, "Digest algorithm cannot be null.");
+		this.digest = Objects.requireNonNull(digest, "Digest cannot be null.").clone();
+		this.length = length;
+	}
+
+	/**
+	 * Returns the name of the MessageDigest algorithm used to compute this digest (e.g. "SHA-256").
+	 *
+	 * @return
+	 */
+	public String getAlgorithm() {
+		return algorithm;
+	}
+
+	public byte[] getDigest() {
+		return digest.clone();
+	}
+
+	/**
+	 * Returns the length (in bytes) of the contents that were digested.
+	 *
+	 * @return
+	 */
+	public long getLength() {
+		return length;
+	}
+
+	/**
+	 * Returns the digest value as a lower case hexadecimal string.
+	 *
+	 * @return
+	 */
+	public String toHexString() {
+		StringBuilder sb = new StringBuilder(digest.length * 2);
+		for (byte b : digest) {
+			sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return sb.toString();
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(digest);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof ContentDigest)) {
+			return false;
+		}
+		ContentDigest other = (ContentDigest) obj;
+		return length == other.length && algorithm.equals(other.algorithm) && Arrays.equals(digest, other.digest);
+	}
+
+	@Override
+	public String toString() {
+		return algorithm + ":" + toHexString() + " (" + length + " bytes)";
+	}
+}
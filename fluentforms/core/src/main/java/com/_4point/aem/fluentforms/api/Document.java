@@ -4,6 +4,10 @@ import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Optional;
 
 public interface Document extends AutoCloseable, Closeable, HasAttributes {
 
@@ -21,6 +25,57 @@ public interface Document extends AutoCloseable, Closeable, HasAttributes {
 
 	InputStream getInputStream() throws IOException;
 
+	/**
+	 * Returns a read-only view of the Document's contents.  Implementations avoid copying the contents where possible, so this
+	 * is the preferred way to inspect or forward the bytes of a Document.
+	 * 
+	 * Each call returns a new buffer with its own position and limit. 
+	 * 
+	 * @return read-only buffer positioned at the start of the Document's contents
+	 * @throws IOException
+	 */
+	default ByteBuffer asReadOnlyBuffer() throws IOException {
+		return ByteBuffer.wrap(getInlineData()).asReadOnlyBuffer();
+	}
+
+	/**
+	 * Writes the Document's contents to a channel.  Implementations use the most efficient mechanism available
+	 * (e.g. FileChannel.transferTo() for Documents that are backed by a file).
+	 * 
+	 * @param target channel to write to.  It is not closed.
+	 * @return number of bytes written
+	 * @throws IOException
+	 */
+	default long transferTo(WritableByteChannel target) throws IOException {
+		ByteBuffer buffer = asReadOnlyBuffer();
+		long count = buffer.remaining();
+		while (buffer.hasRemaining()) {
+			target.write(buffer);
+		}
+		return count;
+	}
+
+	/**
+	 * Writes the Document's contents to an OutputStream.  Implementations use the most efficient mechanism available
+	 * (e.g. a single bulk write for Documents that are held in memory).
+	 * 
+	 * @param target stream to write to.  It is not closed.
+	 * @return number of bytes written
+	 * @throws IOException
+	 */
+	default long transferTo(OutputStream target) throws IOException {
+		long count = 0;
+		try (InputStream is = getInputStream()) {
+			byte[] buffer = new byte[8192];
+			int len;
+			while ((len = is.read(buffer)) != -1) {
+				target.write(buffer, 0, len);
+				count += len;
+			}
+		}
+		return count;
+	}
+
 	int getMaxInlineSize();
 
 	long length() throws IOException;
@@ -42,5 +97,23 @@ public interface Document extends AutoCloseable, Closeable, HasAttributes {
 		return this;
 	}
 	
+	/**
+	 * Returns the digest of the Document's contents, if one is available.  Documents created by the
+	 * SimpleDocumentFactoryImpl compute it while the contents are being read (or on first request, for contents that
+	 * are already in memory or on disk).
+	 * 
+	 * @return
+	 */
+	public default Optional<ContentDigest> getContentDigest() {
+		return getOptionalAttribute(CONTENT_DIGEST);
+	}
+
 	public static String CONTENT_TYPE_PDF = "application/pdf";
+	
+	/**
+	 * Name of the attribute that holds the Document's ContentDigest.
+	 */
+	public static String CONTENT_DIGEST_ATTRIBUTE = "com._4point.aem.fluentforms.contentDigest";
+	
+	public static AttributeKey<ContentDigest> CONTENT_DIGEST = AttributeKey.of(CONTENT_DIGEST_ATTRIBUTE, ContentDigest.class);
 }
\ No newline at end of file
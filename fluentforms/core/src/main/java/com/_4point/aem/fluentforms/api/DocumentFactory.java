@@ -3,9 +3,11 @@ package com._4point.aem.fluentforms.api;
 import java.io.File;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 
 import com._4point.aem.fluentforms.impl.AdobeDocumentFactoryImpl;
+import com._4point.aem.fluentforms.impl.OffHeapDocumentFactoryImpl;
 
 public interface DocumentFactory {
 
@@ -19,6 +21,27 @@ public interface DocumentFactory {
 
 	public Document create(InputStream is);
 
+	/**
+	 * Creates a Document from part of a buffer (e.g. one part of a multipart body).  The buffer's position and limit
+	 * are ignored and are not changed.
+	 * 
+	 * Implementations may share the buffer's storage rather than copying it, so its contents must not be modified
+	 * while the Document is in use.
+	 * 
+	 * @param buffer buffer containing the Document's contents
+	 * @param offset index of the first byte of the Document's contents within buffer
+	 * @param length number of bytes in the Document's contents
+	 * @return
+	 * @throws IllegalArgumentException if offset and length do not lie within the buffer's capacity.
+	 */
+	public default Document create(ByteBuffer buffer, int offset, int length) {
+		ByteBuffer source = buffer.duplicate();
+		source.limit(offset + length).position(offset);
+		byte[] data = new byte[length];
+		source.get(data);
+		return create(data);
+	}
+
 //  Removed because this won't work with the client version of this library.  This may be re-instated later
 //	as part of a separate class however until its requirement is proven, we're going to leave it out.
 //	
@@ -36,4 +59,14 @@ public interface DocumentFactory {
 		return AdobeDocumentFactoryImpl.getFactory();
 	}
 
+	/**
+	 * Returns a DocumentFactory that keeps Document contents outside of the Java heap.  The memory used by these
+	 * Documents is released as soon as they are closed (or disposed).
+	 * 
+	 * @return
+	 */
+	public static DocumentFactory getOffHeap() {
+		return OffHeapDocumentFactoryImpl.getFactory();
+	}
+
 }
\ No newline at end of file
@@ -17,6 +17,19 @@ public interface HasAttributes {
 	// TODO: Should make this private but that requires Java 11
 	static final BiFunction<String, String, ? extends NoSuchElementException> exceptionSupplier = (name, type)->new NoSuchElementException("No such attribute found (" + name + ") of type '" + type + "'.");
 
+	default <T> Optional<T> getOptionalAttribute(AttributeKey<T> key) {
+		return Optional.ofNullable(key.cast(this.getAttribute(key.getName())));
+	}
+
+	default <T> T getMandatoryAttribute(AttributeKey<T> key) {
+		return getOptionalAttribute(key).orElseThrow(()->HasAttributes.exceptionSupplier.apply(key.getName(), key.getType().getSimpleName()));
+	}
+
+	default <T> HasAttributes setAttribute(AttributeKey<T> key, T val) {
+		this.setAttribute(key.getName(), val);
+		return this;
+	}
+
 	default Optional<Boolean> getOptionalAttributeAsBoolean(String name){
 		Object attributeValue = this.getAttribute(name);
 		return attributeValue instanceof Boolean ? Optional.of((Boolean) attributeValue) : Optional.empty();
@@ -61,6 +74,20 @@ public interface HasAttributes {
 		return this;
 	}
 
+	default Optional<ContentDigest> getOptionalAttributeAsContentDigest(String name) {
+		Object attributeValue = this.getAttribute(name);
+		return attributeValue instanceof ContentDigest ? Optional.of((ContentDigest) attributeValue) : Optional.empty();
+	}
+
+	default ContentDigest getMandatoryAttributeAsContentDigest(String name) {
+		return getOptionalAttributeAsContentDigest(name).orElseThrow(()->HasAttributes.exceptionSupplier.apply(name, "ContentDigest"));
+	}
+
+	default HasAttributes setAttributeAsContentDigest(String name, ContentDigest val) {
+		this.setAttribute(name, val);
+		return this;
+	}
+
 	default Optional<Float> getOptionalAttributeAsFloat(String name) {
 		Object attributeValue = this.getAttribute(name);
 		return attributeValue instanceof Float ? Optional.of((Float) attributeValue) : Optional.empty();
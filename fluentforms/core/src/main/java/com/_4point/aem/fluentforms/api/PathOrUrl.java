@@ -5,6 +5,9 @@ import java.net.URL;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -24,6 +27,17 @@ public class PathOrUrl {
 	private static final int CRX_URL_PROTOCOL_LENGTH = CRX_URL_PROTOCOL.length();
 	private static final String CRX_URL_SUBSTITUTE = "file:";
 	private static final int CRX_URL_SUBSTITUTE_LENGTH = CRX_URL_SUBSTITUTE.length();
+	private static final int INTERN_CACHE_SIZE = 256;
+	// PathOrUrl objects are immutable, so the same instance can be returned for the same string.  The strings being
+	// parsed are usually template locations and content roots, so there are not many distinct ones.
+	private static final Map<String, PathOrUrl> internCache = Collections.synchronizedMap(new LinkedHashMap<String, PathOrUrl>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, PathOrUrl> eldest) {
+			return size() > INTERN_CACHE_SIZE;
+		}
+	});
 	
 	private final Path path;
 	private final URL url;
@@ -166,6 +180,16 @@ public class PathOrUrl {
 		if (trimmedPathOrUrl.isEmpty()) {
 			throw new IllegalArgumentException("Empty Path or Url provided.");
 		}
+		PathOrUrl result = internCache.get(trimmedPathOrUrl);
+		if (result == null) {
+			result = parse(trimmedPathOrUrl, pathOrUrl);
+			internCache.put(trimmedPathOrUrl, result);
+		}
+		return result;
+	}
+
+	// Exposed for testing.
+	/* package */ static PathOrUrl parse(final String trimmedPathOrUrl, final String pathOrUrl) {
 		if (trimmedPathOrUrl.length() > CRX_URL_PROTOCOL_LENGTH && CRX_URL_PROTOCOL.equalsIgnoreCase(trimmedPathOrUrl.substring(0, CRX_URL_PROTOCOL_LENGTH))) {
 			// We've encountered a crx URL
 			// substitute http: for crx: so that we can validate this as an URL
@@ -175,17 +199,44 @@ public class PathOrUrl {
 				throw new IllegalArgumentException("Bad CRX URL provided. '" + pathOrUrl + "'.", e);
 			}
 		}
+		if (schemeLength(trimmedPathOrUrl) < 2) {
+			// No scheme (or just a Windows drive letter), so this cannot be an URL.  Going straight to the Path avoids
+			// the cost of constructing (and throwing) a MalformedURLException.
+			return toPath(trimmedPathOrUrl, pathOrUrl);
+		}
 		try {
 			// Unix allows colons in file paths, this means that on Unix URLs can be valid file Paths but not vice versa.
 			// So we try creating the URL first, if that fails then try the path. 
 			return new PathOrUrl(new URL(trimmedPathOrUrl));
 		} catch (MalformedURLException e) {
-			try {
-				return new PathOrUrl(Paths.get(trimmedPathOrUrl));
-			} catch (InvalidPathException e2) {
-				throw new IllegalArgumentException("Bad Path or URL provided. '" + pathOrUrl + "'.", e2);
+			return toPath(trimmedPathOrUrl, pathOrUrl);
+		}
+	}
+
+	private static PathOrUrl toPath(final String trimmedPathOrUrl, final String pathOrUrl) {
+		try {
+			return new PathOrUrl(Paths.get(trimmedPathOrUrl));
+		} catch (InvalidPathException e) {
+			throw new IllegalArgumentException("Bad Path or URL provided. '" + pathOrUrl + "'.", e);
+		}
+	}
+
+	// Returns the length of the URL scheme at the start of the string (using the same rules as java.net.URL), or 0 if
+	// the string does not start with a scheme.
+	private static int schemeLength(final String str) {
+		if (str.isEmpty() || !Character.isLetter(str.charAt(0))) {
+			return 0;
+		}
+		for (int i = 1; i < str.length(); i++) {
+			char c = str.charAt(i);
+			if (c == ':') {
+				return i;
+			}
+			if (!Character.isLetterOrDigit(c) && c != '.' && c != '+' && c != '-') {
+				return 0;
 			}
 		}
+		return 0;
 	}
 
 	/**
@@ -1,8 +1,11 @@
 package com._4point.aem.fluentforms.api.output;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import com._4point.aem.fluentforms.api.Document;
+import com._4point.aem.fluentforms.api.output.OutputService.OutputServiceException;
 
 public interface BatchResult {
 
@@ -10,4 +13,14 @@ public interface BatchResult {
 
 	Document getMetaDataDoc();
 
+	/**
+	 * Returns the errors for any records that could not be generated, keyed by record name.  Those records have no entry
+	 * in getGeneratedDocs().
+	 * 
+	 * @return
+	 */
+	default Map<String, OutputServiceException> getFailures() {
+		return Collections.emptyMap();
+	}
+
 }
\ No newline at end of file
@@ -0,0 +1,94 @@
+package com._4point.aem.fluentforms.api.output;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+
+import com._4point.aem.fluentforms.api.Document;
+import com._4point.aem.fluentforms.api.output.OutputService.OutputServiceException;
+
+/**
+ * Receives the results of a streaming batch as they are generated, so that the whole batch never needs to be held in
+ * memory.
+ *
+ * Calls to a sink are never made concurrently (they are all made by the thread that started the batch), so sinks do
+ * not need to be thread-safe.  While a sink is busy, no more than a bounded number of further records are rendered, so
+ * a slow sink slows down the batch rather than letting results pile up.
+ *
+ */
+@FunctionalInterface
+public interface BatchSink {
+
+	/**
+	 * Receives a generated document.  Documents are received in the order they are completed, which may differ from the
+	 * order of the records.
+	 *
+	 * @param name name of the data record (or template, if the batch has no data).
+	 * @param doc generated document.
+	 * @throws IOException if the document cannot be handled.  This stops the batch.
+	 */
+	void accept(String name, Document doc) throws IOException;
+
+	/**
+	 * Receives the error for a record that could not be generated.  The rest of the batch continues.
+	 *
+	 * @param name name of the data record (or template, if the batch has no data).
+	 * @param e
+	 */
+	default void failed(String name, OutputServiceException e) {
+	}
+
+	/**
+	 * Receives the metadata document once all the records have been handled.
+	 *
+	 * @param metaDataDoc
+	 * @throws IOException
+	 */
+	default void complete(Document metaDataDoc) throws IOException {
+	}
+
+	/**
+	 * Creates a sink that writes each document to a file named after its record (name + suffix) in a directory.  Each
+	 * document is closed once it has been written.
+	 *
+	 * @param dir directory to write to.  It must exist.
+	 * @param suffix suffix added to each record name (e.g. ".pdf").
+	 * @return
+	 */
+	public static BatchSink toDirectory(Path dir, String suffix) {
+		Path normalizedDir = Objects.requireNonNull(dir, "dir cannot be null.").toAbsolutePath().normalize();
+		Objects.requireNonNull(suffix, "suffix cannot be null.");
+		return (name, doc)->{
+			Path file = normalizedDir.resolve(name + suffix).normalize();
+			if (!normalizedDir.equals(file.getParent())) {
+				throw new IOException("Record name '" + name + "' does not produce a file in '" + normalizedDir + "'.");
+			}
+			try (Document d = doc; OutputStream os = Files.newOutputStream(file)) {
+				d.transferTo(os);
+			}
+		};
+	}
+
+	/**
+	 * Creates a sink that writes each document to its own OutputStream.  Each stream is closed (along with the document)
+	 * once the document has been written.
+	 *
+	 * @param streamFactory opens the stream for a record name.
+	 * @return
+	 */
+	public static BatchSink toOutputStreams(OutputStreamFactory streamFactory) {
+		Objects.requireNonNull(streamFactory, "streamFactory cannot be null.");
+		return (name, doc)->{
+			try (Document d = doc; OutputStream os = streamFactory.open(name)) {
+				d.transferTo(os);
+			}
+		};
+	}
+
+	@FunctionalInterface
+	public static interface OutputStreamFactory {
+		OutputStream open(String name) throws IOException;
+	}
+}
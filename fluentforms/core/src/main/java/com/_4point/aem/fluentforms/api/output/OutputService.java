@@ -7,6 +7,7 @@ import java.util.AbstractMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 import com._4point.aem.fluentforms.api.Document;
@@ -30,6 +31,18 @@ public interface OutputService {
 	// TODO:  Generate overloaded methods
 	BatchResult generatePDFOutputBatch(Map<String, PathOrUrl> templates, Map<String, Document> data, PDFOutputOptions pdfOutputOptions, BatchOptions batchOptions) throws OutputServiceException;
 
+	/**
+	 * Generates one PDF per record and passes each one to the sink as soon as it is generated, rather than returning
+	 * them all at the end.
+	 * 
+	 * The default implementation throws UnsupportedOperationException.
+	 * 
+	 * @return the metadata document and the failures (the generated documents are only passed to the sink).
+	 */
+	default BatchResult streamPDFOutputBatch(Map<String, PathOrUrl> templates, Map<String, Document> data, PDFOutputOptions pdfOutputOptions, BatchSink sink) throws OutputServiceException {
+		throw new UnsupportedOperationException(getClass().getName() + " does not support streamPDFOutputBatch().");
+	}
+
 	Document generatePrintedOutput(Document template, Document data, PrintedOutputOptions printedOutputOptions) throws OutputServiceException;
 
 	Document generatePrintedOutput(Path templateFilename, Document data, PrintedOutputOptions printedOutputOptions) throws OutputServiceException, FileNotFoundException;
@@ -43,6 +56,18 @@ public interface OutputService {
 	// TODO:  Generate overloaded methods
 	BatchResult generatePrintedOutputBatch(Map<String, PathOrUrl> templates, Map<String, Document> data, PrintedOutputOptions printedOutputOptions, BatchOptions batchOptions) throws OutputServiceException;
 
+	/**
+	 * Generates one printed output document per record and passes each one to the sink as soon as it is generated,
+	 * rather than returning them all at the end.
+	 * 
+	 * The default implementation throws UnsupportedOperationException.
+	 * 
+	 * @return the metadata document and the failures (the generated documents are only passed to the sink).
+	 */
+	default BatchResult streamPrintedOutputBatch(Map<String, PathOrUrl> templates, Map<String, Document> data, PrintedOutputOptions printedOutputOptions, BatchSink sink) throws OutputServiceException {
+		throw new UnsupportedOperationException(getClass().getName() + " does not support streamPrintedOutputBatch().");
+	}
+
 	@SuppressWarnings("serial")
 	public static class OutputServiceException extends Exception {
 
@@ -114,6 +139,52 @@ public interface OutputService {
 		public Document executeOn(URL template, Document data) throws OutputServiceException;
 
 		public Document executeOn(Document template, Document data) throws OutputServiceException;
+
+		/**
+		 * Generates the PDF on a background executor.  The future completes exceptionally with any exception that
+		 * executeOn() would have thrown.
+		 * 
+		 * The default implementations call executeOn() on the calling thread and return a future that has already
+		 * completed.
+		 */
+		public default CompletableFuture<Document> executeOnAsync(PathOrUrl template, Document data) {
+			try {
+				return CompletableFuture.completedFuture(executeOn(template, data));
+			} catch (Exception e) {
+				return failedFuture(e);
+			}
+		}
+
+		public default CompletableFuture<Document> executeOnAsync(Path template, Document data) {
+			try {
+				return CompletableFuture.completedFuture(executeOn(template, data));
+			} catch (Exception e) {
+				return failedFuture(e);
+			}
+		}
+
+		public default CompletableFuture<Document> executeOnAsync(URL template, Document data) {
+			try {
+				return CompletableFuture.completedFuture(executeOn(template, data));
+			} catch (Exception e) {
+				return failedFuture(e);
+			}
+		}
+
+		public default CompletableFuture<Document> executeOnAsync(Document template, Document data) {
+			try {
+				return CompletableFuture.completedFuture(executeOn(template, data));
+			} catch (Exception e) {
+				return failedFuture(e);
+			}
+		}
+
+		// CompletableFuture.failedFuture() requires Java 9.
+		static CompletableFuture<Document> failedFuture(Exception e) {
+			CompletableFuture<Document> future = new CompletableFuture<>();
+			future.completeExceptionally(e);
+			return future;
+		}
 	}
 
 	public static interface GeneratePrintedOutputArgumentBuilder extends PrintedOutputOptionsSetter, Transformable<GeneratePrintedOutputArgumentBuilder> {
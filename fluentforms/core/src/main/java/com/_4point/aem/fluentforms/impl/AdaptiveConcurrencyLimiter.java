@@ -0,0 +1,306 @@
+package com._4point.aem.fluentforms.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Limits the number of calls made to an AEM service at once, adjusting the limit according to how quickly the service
+ * responds.
+ *
+ * The limit is adjusted using AIMD (additive increase, multiplicative decrease).  The limiter keeps track of each
+ * operation's latency when the service is not under pressure (the lowest latency seen recently for that operation).
+ * While calls complete within LATENCY_TOLERANCE times their operation's latency, and the limit is actually being used,
+ * the limit grows by roughly one for each limit's worth of calls.  When a call takes longer than that, the limit is cut
+ * by BACKOFF_RATIO.  It is only cut once for each group of calls that were running at the same time, so a single slow
+ * period doesn't collapse the limit.
+ *
+ * Operations are named by the caller and should group calls that take about the same time when the service is idle
+ * (e.g. renders of the same template).  If quick and lengthy calls shared a baseline, the lengthy calls would always be
+ * treated as slow and the limit would drift down to the minimum under a steady mixed load.
+ *
+ * Calls that arrive while the limit is reached wait in a queue.  Calls are rejected (and counted) if the queue is full
+ * or they wait for longer than the maximum wait.
+ *
+ * The Limiting*AdapterWrapper classes apply a limiter to the Output, Forms and DocAssurance services.  A single limiter
+ * can be shared between wrappers that call the same AEM instance.
+ *
+ */
+public class AdaptiveConcurrencyLimiter {
+	private static final Logger log = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+
+	public static final int DEFAULT_INITIAL_LIMIT = Runtime.getRuntime().availableProcessors();
+	public static final int DEFAULT_MAX_LIMIT = 4 * DEFAULT_INITIAL_LIMIT;
+	public static final int DEFAULT_MAX_QUEUE = 256;
+	public static final long DEFAULT_MAX_WAIT_MILLIS = 30000;
+
+	/**
+	 * A call is treated as slow if it takes longer than this multiple of the service's unloaded latency.
+	 */
+	public static final double LATENCY_TOLERANCE = 2.0;
+	/**
+	 * The limit is multiplied by this when a call is slow.
+	 */
+	public static final double BACKOFF_RATIO = 0.9;
+	/**
+	 * An operation's unloaded latency is re-measured over each window of this many calls, so that it can rise if the
+	 * service becomes permanently slower.
+	 */
+	public static final int BASELINE_WINDOW = 100;
+
+	private final int minLimit;
+	private final int maxLimit;
+	private final int maxQueue;
+	private final long maxWaitNanos;
+	private final LongSupplier nanoTime;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition permitAvailable = lock.newCondition();
+	private double limit;				// Guarded by lock.
+	private int inFlight = 0;			// Guarded by lock.
+	private int queueDepth = 0;			// Guarded by lock.
+	private final Map<String, Baseline> baselines = new HashMap<>();	// Guarded by lock.
+	private long lastDecreaseNanos;		// Guarded by lock.
+	private final AtomicLong rejectedCount = new AtomicLong();
+
+	/**
+	 * A call made through the limiter.
+	 *
+	 * @param <T> type returned by the call.
+	 * @param <E> exception thrown by the call.
+	 */
+	@FunctionalInterface
+	public interface Call<T, E extends Exception> {
+		T call() throws E;
+	}
+
+	// An operation's unloaded latency.  Guarded by lock.
+	private static class Baseline {
+		private long baselineNanos = Long.MAX_VALUE;
+		private long windowMinNanos = Long.MAX_VALUE;
+		private int windowCount = 0;
+
+		private void update(long latencyNanos) {
+			baselineNanos = Math.min(baselineNanos, latencyNanos);
+			windowMinNanos = Math.min(windowMinNanos, latencyNanos);
+			if (++windowCount >= BASELINE_WINDOW) {
+				baselineNanos = windowMinNanos;
+				windowMinNanos = Long.MAX_VALUE;
+				windowCount = 0;
+			}
+		}
+
+		private boolean isSlow(long latencyNanos) {
+			return latencyNanos > baselineNanos * LATENCY_TOLERANCE;
+		}
+	}
+
+	/**
+	 * Thrown when a call is rejected because the queue is full or the call waited too long.
+	 */
+	@SuppressWarnings("serial")
+	public static class LimitExceededException extends Exception {
+		public LimitExceededException(String message) {
+			super(message);
+		}
+	}
+
+	public AdaptiveConcurrencyLimiter() {
+		this(DEFAULT_INITIAL_LIMIT, 1, DEFAULT_MAX_LIMIT, DEFAULT_MAX_QUEUE, DEFAULT_MAX_WAIT_MILLIS);
+	}
+
+	/**
+	 * Creates a limiter.
+	 *
+	 * @param initialLimit number of calls allowed at once to start with.
+	 * @param minLimit the limit is never cut below this.
+	 * @param maxLimit the limit never grows above this.
+	 * @param maxQueue maximum number of calls that can wait for the limit (0 to reject calls immediately).
+	 * @param maxWaitMillis maximum time a call waits for the limit before being rejected.
+	 */
+	public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, int maxQueue, long maxWaitMillis) {
+		this(initialLimit, minLimit, maxLimit, maxQueue, maxWaitMillis, System::nanoTime);
+	}
+
+	// Exposed for testing.
+	/* package */ AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, int maxQueue, long maxWaitMillis, LongSupplier nanoTime) {
+		if (minLimit < 1) {
+			throw new IllegalArgumentException("minLimit must be at least 1 (" + minLimit + ").");
+		}
+		if (maxLimit < minLimit) {
+			throw new IllegalArgumentException("maxLimit (" + maxLimit + ") cannot be less than minLimit (" + minLimit + ").");
+		}
+		if (initialLimit < minLimit || initialLimit > maxLimit) {
+			throw new IllegalArgumentException("initialLimit (" + initialLimit + ") must be between minLimit (" + minLimit + ") and maxLimit (" + maxLimit + ").");
+		}
+		if (maxQueue < 0) {
+			throw new IllegalArgumentException("maxQueue cannot be negative (" + maxQueue + ").");
+		}
+		if (maxWaitMillis < 0) {
+			throw new IllegalArgumentException("maxWaitMillis cannot be negative (" + maxWaitMillis + ").");
+		}
+		this.limit = initialLimit;
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.maxQueue = maxQueue;
+		this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+		this.nanoTime = nanoTime;
+		this.lastDecreaseNanos = nanoTime.getAsLong();
+	}
+
+	/**
+	 * Makes a call once the limit allows it.  All calls made this way share a single operation's latency.
+	 *
+	 * @param call
+	 * @return the result of the call.
+	 * @throws E the exception thrown by the call.
+	 * @throws LimitExceededException if the call is rejected without being made.
+	 */
+	public <T, E extends Exception> T execute(Call<T, E> call) throws E, LimitExceededException {
+		return execute("", call);
+	}
+
+	/**
+	 * Makes a call once the limit allows it, comparing its latency with that of earlier calls for the same operation.
+	 *
+	 * @param operation name of the operation, e.g. the service method and template name.
+	 * @param call
+	 * @return the result of the call.
+	 * @throws E the exception thrown by the call.
+	 * @throws LimitExceededException if the call is rejected without being made.
+	 */
+	public <T, E extends Exception> T execute(String operation, Call<T, E> call) throws E, LimitExceededException {
+		Objects.requireNonNull(operation, "operation cannot be null.");
+		acquire();
+		long startNanos = nanoTime.getAsLong();
+		boolean succeeded = false;
+		try {
+			T result = call.call();
+			succeeded = true;
+			return result;
+		} finally {
+			release(operation, startNanos, nanoTime.getAsLong(), succeeded);
+		}
+	}
+
+	private void acquire() throws LimitExceededException {
+		lock.lock();
+		try {
+			if (inFlight < currentLimit()) {
+				inFlight++;
+				return;
+			}
+			if (queueDepth >= maxQueue) {
+				throw reject("Too many calls waiting (" + queueDepth + ") with " + inFlight + " in progress.");
+			}
+			queueDepth++;
+			try {
+				long remainingNanos = maxWaitNanos;
+				while (inFlight >= currentLimit()) {
+					if (remainingNanos <= 0) {
+						throw reject("Timed out waiting for one of " + currentLimit() + " calls in progress to complete.");
+					}
+					remainingNanos = permitAvailable.awaitNanos(remainingNanos);
+				}
+				inFlight++;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw reject("Interrupted while waiting for a call to complete.");
+			} finally {
+				queueDepth--;
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	// Adjusts the limit according to the call's latency and lets waiting calls proceed.
+	private void release(String operation, long startNanos, long endNanos, boolean succeeded) {
+		lock.lock();
+		try {
+			boolean limitUsed = inFlight * 2 >= currentLimit();
+			inFlight--;
+			long latencyNanos = endNanos - startNanos;
+			Baseline baseline = baselines.computeIfAbsent(operation, k->new Baseline());
+			if (succeeded) {
+				// Calls that fail quickly (e.g. rejected by AEM) say nothing about how long a render takes.
+				baseline.update(latencyNanos);
+			}
+			if (baseline.isSlow(latencyNanos)) {
+				// Only cut the limit once for the calls that were running when it was last cut.
+				if (startNanos > lastDecreaseNanos) {
+					limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+					lastDecreaseNanos = endNanos;
+					log.debug("{} call took {}ms, reducing the limit to {}.", operation, TimeUnit.NANOSECONDS.toMillis(latencyNanos), currentLimit());
+				}
+			} else if (succeeded && limitUsed) {
+				limit = Math.min(maxLimit, limit + 1.0 / limit);
+			}
+			if (inFlight < currentLimit()) {
+				permitAvailable.signalAll();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	// Must be called while holding the lock.
+	private LimitExceededException reject(String message) {
+		rejectedCount.incrementAndGet();
+		return new LimitExceededException(message);
+	}
+
+	// Must be called while holding the lock.
+	private int currentLimit() {
+		return (int)limit;
+	}
+
+	/**
+	 * Returns the number of calls currently allowed at once.
+	 *
+	 * @return
+	 */
+	public int getLimit() {
+		lock.lock();
+		try {
+			return currentLimit();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public int getInFlight() {
+		lock.lock();
+		try {
+			return inFlight;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of calls waiting for the limit.
+	 *
+	 * @return
+	 */
+	public int getQueueDepth() {
+		lock.lock();
+		try {
+			return queueDepth;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public long getRejectedCount() {
+		return rejectedCount.get();
+	}
+}
@@ -4,6 +4,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 
 import org.apache.sling.api.resource.ResourceResolver;
@@ -201,6 +202,15 @@ public enum AdobeDocumentFactoryImpl implements DocumentFactory {
 			return doc.getInputStream();
 		}
 
+		/* (non-Javadoc)
+		 * @see com._4point.aem.fluentforms.api.Document#asReadOnlyBuffer()
+		 */
+		@Override
+		public ByteBuffer asReadOnlyBuffer() throws IOException {
+			// Adobe's getInlineData() hands back its internal array, so wrapping it avoids making a copy.
+			return ByteBuffer.wrap(doc.getInlineData()).asReadOnlyBuffer();
+		}
+
 		/* (non-Javadoc)
 		 * @see com._4point.aem.fluentforms.api.Document#getMaxInlineSize()
 		 */
@@ -268,4 +278,25 @@ public enum AdobeDocumentFactoryImpl implements DocumentFactory {
 		}
 	}
 
+	/**
+	 * Returns an Adobe Document that can be passed to an Adobe service.  Unlike getAdobeDocument(), a Document created
+	 * by another DocumentFactory (e.g. a template read into memory by the client code) is copied into a new Adobe
+	 * Document rather than returned as null.
+	 * 
+	 * @param doc
+	 * @return
+	 * @throws IOException if doc's contents cannot be read.
+	 */
+	public static com.adobe.aemfd.docmanager.Document toAdobeDocument(Document doc) throws IOException {
+		if (doc == null || doc instanceof AdobeDocumentImpl) {
+			return getAdobeDocument(doc);
+		}
+		com.adobe.aemfd.docmanager.Document adobeDoc = new com.adobe.aemfd.docmanager.Document(doc.getInlineData());
+		String contentType = doc.getContentType();
+		if (contentType != null) {
+			adobeDoc.setContentType(contentType);
+		}
+		return adobeDoc;
+	}
+
 }
@@ -0,0 +1,82 @@
+package com._4point.aem.fluentforms.impl;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Compact map of attribute names to values, used by the Document implementations in place of a TreeMap.
+ *
+ * Most Documents never have any attributes and the rest usually have only a few, so the entries are kept in a single
+ * array of alternating names and values that is searched linearly.  The array is not allocated until the first
+ * attribute is set.  Names are compared by identity before equals(), so lookups using constant names (such as those
+ * in AttributeKeys) are cheap.
+ */
+/* package */ final class AttributeStore {
+	private static final int INITIAL_CAPACITY = 4;		// Number of attributes the array holds when first allocated.
+
+	private Object[] entries = null;	// name0, value0, name1, value1, ...
+	private int size = 0;
+
+	/* package */ Object get(String name) {
+		int index = indexOf(name);
+		return index < 0 ? null : entries[index + 1];
+	}
+
+	/**
+	 * Sets an attribute.  Setting an attribute to null removes it.
+	 *
+	 * @param name
+	 * @param value
+	 */
+	/* package */ void put(String name, Object value) {
+		Objects.requireNonNull(name, "Attribute name cannot be null.");
+		if (value == null) {
+			remove(name);
+			return;
+		}
+		int index = indexOf(name);
+		if (index >= 0) {
+			entries[index + 1] = value;
+			return;
+		}
+		if (entries == null) {
+			entries = new Object[INITIAL_CAPACITY * 2];
+		} else if (size * 2 == entries.length) {
+			entries = Arrays.copyOf(entries, entries.length * 2);
+		}
+		entries[size * 2] = name;
+		entries[size * 2 + 1] = value;
+		size++;
+	}
+
+	/* package */ void remove(String name) {
+		int index = indexOf(name);
+		if (index >= 0) {
+			// Move the last entry into the vacated slot.
+			int last = (size - 1) * 2;
+			entries[index] = entries[last];
+			entries[index + 1] = entries[last + 1];
+			entries[last] = null;
+			entries[last + 1] = null;
+			size--;
+		}
+	}
+
+	/* package */ int size() {
+		return size;
+	}
+
+	private int indexOf(String name) {
+		for (int i = 0; i < size * 2; i += 2) {
+			if (entries[i] == name) {
+				return i;
+			}
+		}
+		for (int i = 0; i < size * 2; i += 2) {
+			if (entries[i].equals(name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+}
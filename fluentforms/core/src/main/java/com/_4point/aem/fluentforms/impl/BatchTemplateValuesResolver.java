@@ -0,0 +1,253 @@
+package com._4point.aem.fluentforms.impl;
+
+import java.io.FileNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import com._4point.aem.fluentforms.api.PathOrUrl;
+
+/**
+ * Determines the TemplateValues for a whole batch of templates in one pass, so that a bulk job can check all of its
+ * templates up front rather than finding out about a missing one part way through.
+ *
+ * Templates are grouped by the directory they end up in (the content root that TemplateValues.determineTemplateValues()
+ * would produce).  Each distinct directory is checked once and, if it exists, each distinct template in it is checked
+ * once.  These file system checks are performed in parallel.  The results are the same as calling
+ * TemplateValues.determineTemplateValues() for each template.
+ *
+ * Only Path templates are resolved.  URL and crx: templates are passed to AEM as-is by the services, so they are
+ * reported separately as pass-through templates.
+ *
+ */
+public class BatchTemplateValuesResolver {
+
+	private final UsageContext usageContext;
+	private final int threads;
+	private final Predicate<Path> isDirectory;
+	private final Predicate<Path> isRegularFile;
+
+	/**
+	 * Creates a batch resolver.
+	 *
+	 * @param usageContext templates are only checked for existence when this is SERVER_SIDE.
+	 * @param threads maximum number of file system checks performed at once.
+	 */
+	public BatchTemplateValuesResolver(UsageContext usageContext, int threads) {
+		this(usageContext, threads, Files::isDirectory, Files::isRegularFile);
+	}
+
+	// Exposed for testing.
+	/* package */ BatchTemplateValuesResolver(UsageContext usageContext, int threads, Predicate<Path> isDirectory, Predicate<Path> isRegularFile) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("threads must be at least 1 (" + threads + ").");
+		}
+		this.usageContext = Objects.requireNonNull(usageContext, "usageContext cannot be null.");
+		this.threads = threads;
+		this.isDirectory = isDirectory;
+		this.isRegularFile = isRegularFile;
+	}
+
+	/**
+	 * Resolves a collection of templates.  The results are keyed by the PathOrUrl objects passed in.
+	 *
+	 * @param templates
+	 * @param contentRoot content root shared by all the templates (may be null).
+	 * @return
+	 */
+	public Result<PathOrUrl> resolve(Collection<PathOrUrl> templates, PathOrUrl contentRoot) {
+		Map<PathOrUrl, PathOrUrl> keyed = new LinkedHashMap<>();
+		for (PathOrUrl template : Objects.requireNonNull(templates, "templates cannot be null.")) {
+			keyed.put(Objects.requireNonNull(template, "templates cannot contain null."), template);
+		}
+		return resolve(keyed, contentRoot);
+	}
+
+	/**
+	 * Resolves a map of templates (e.g. the templates of a batch job, keyed by name).  The results use the same keys.
+	 *
+	 * @param templates
+	 * @param contentRoot content root shared by all the templates (may be null).
+	 * @return
+	 */
+	public <K> Result<K> resolve(Map<K, PathOrUrl> templates, PathOrUrl contentRoot) {
+		Objects.requireNonNull(templates, "templates cannot be null.");
+		Map<K, TemplateValues> candidates = new LinkedHashMap<>();
+		Map<K, PathOrUrl> passThrough = new LinkedHashMap<>();
+		for (Map.Entry<K, PathOrUrl> entry : templates.entrySet()) {
+			PathOrUrl template = Objects.requireNonNull(entry.getValue(), "templates cannot contain null.");
+			if (template.isPath()) {
+				candidates.put(entry.getKey(), determineTemplateValues(template.getPath(), contentRoot));
+			} else {
+				passThrough.put(entry.getKey(), template);
+			}
+		}
+
+		Map<Path, Boolean> found = usageContext == UsageContext.SERVER_SIDE ? checkTemplates(candidates.values()) : Collections.emptyMap();
+
+		Map<K, TemplateValues> resolved = new LinkedHashMap<>();
+		Map<K, FileNotFoundException> missing = new LinkedHashMap<>();
+		for (Map.Entry<K, TemplateValues> entry : candidates.entrySet()) {
+			Path file = templateFile(entry.getValue());
+			if (file == null || found.getOrDefault(file, Boolean.TRUE)) {
+				resolved.put(entry.getKey(), entry.getValue());
+			} else {
+				missing.put(entry.getKey(), new FileNotFoundException("Unable to find template (" + file.toString() + ")."));
+			}
+		}
+		return new Result<>(resolved, missing, passThrough);
+	}
+
+	private static TemplateValues determineTemplateValues(Path template, PathOrUrl contentRoot) {
+		try {
+			// Client side, so that only the content root calculation is done here.  Existence is checked afterwards.
+			return TemplateValues.determineTemplateValues(template, contentRoot, UsageContext.CLIENT_SIDE);
+		} catch (FileNotFoundException e) {
+			// This should never happen.
+			throw new IllegalStateException("Client side template resolution should not check for existence.", e);
+		}
+	}
+
+	// Returns the file that determineTemplateValues() would check for, or null if it would not check.
+	private static Path templateFile(TemplateValues tvs) {
+		PathOrUrl contentRoot = tvs.getContentRoot();
+		return contentRoot != null && contentRoot.isPath() ? contentRoot.getPath().resolve(tvs.getTemplate()) : null;
+	}
+
+	// Checks that each distinct directory exists, then that each distinct template within the existing directories exists.
+	private Map<Path, Boolean> checkTemplates(Collection<TemplateValues> candidates) {
+		Map<Path, List<Path>> filesByDir = new LinkedHashMap<>();
+		for (TemplateValues tvs : candidates) {
+			Path file = templateFile(tvs);
+			if (file != null) {
+				List<Path> files = filesByDir.computeIfAbsent(tvs.getContentRoot().getPath(), d->new ArrayList<>());
+				if (!files.contains(file)) {
+					files.add(file);
+				}
+			}
+		}
+		if (filesByDir.isEmpty()) {
+			return Collections.emptyMap();
+		}
+
+		int fileCount = filesByDir.values().stream().mapToInt(List::size).sum();
+		Map<Path, Boolean> found = new ConcurrentHashMap<>();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, fileCount), daemonThreadFactory());
+		try {
+			Map<Path, Boolean> dirs = checkAll(executor, filesByDir.keySet(), isDirectory);
+			List<Path> files = new ArrayList<>();
+			for (Map.Entry<Path, List<Path>> entry : filesByDir.entrySet()) {
+				if (dirs.get(entry.getKey())) {
+					files.addAll(entry.getValue());
+				} else {
+					entry.getValue().forEach(f->found.put(f, Boolean.FALSE));	// No need to check files in a missing directory.
+				}
+			}
+			found.putAll(checkAll(executor, files, isRegularFile));
+		} finally {
+			executor.shutdownNow();
+		}
+		return found;
+	}
+
+	private static Map<Path, Boolean> checkAll(ExecutorService executor, Collection<Path> paths, Predicate<Path> check) {
+		Map<Path, Future<Boolean>> futures = new HashMap<>();
+		for (Path path : paths) {
+			futures.put(path, executor.submit(()->check.test(path)));
+		}
+		Map<Path, Boolean> results = new HashMap<>();
+		for (Map.Entry<Path, Future<Boolean>> entry : futures.entrySet()) {
+			results.put(entry.getKey(), getResult(entry.getValue()));
+		}
+		return results;
+	}
+
+	private static Boolean getResult(Future<Boolean> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while checking templates.", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Error while checking templates.", e.getCause());
+		}
+	}
+
+	private static ThreadFactory daemonThreadFactory() {
+		AtomicInteger threadNumber = new AtomicInteger();
+		return r->{
+			Thread thread = new Thread(r, "FluentForms template resolver worker " + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	/**
+	 * Results of resolving a batch of templates.
+	 *
+	 * @param <K> key type
+	 */
+	public static class Result<K> {
+		private final Map<K, TemplateValues> resolved;
+		private final Map<K, FileNotFoundException> missing;
+		private final Map<K, PathOrUrl> passThrough;
+
+		private Result(Map<K, TemplateValues> resolved, Map<K, FileNotFoundException> missing, Map<K, PathOrUrl> passThrough) {
+			this.resolved = Collections.unmodifiableMap(resolved);
+			this.missing = Collections.unmodifiableMap(missing);
+			this.passThrough = Collections.unmodifiableMap(passThrough);
+		}
+
+		/**
+		 * Returns the TemplateValues for each Path template that was found (or was not checked).
+		 *
+		 * @return
+		 */
+		public Map<K, TemplateValues> getResolved() {
+			return resolved;
+		}
+
+		/**
+		 * Returns the exception that TemplateValues.determineTemplateValues() would have thrown for each Path template
+		 * that was not found.
+		 *
+		 * @return
+		 */
+		public Map<K, FileNotFoundException> getMissing() {
+			return missing;
+		}
+
+		/**
+		 * Returns the URL and crx: templates, which are not resolved.
+		 *
+		 * @return
+		 */
+		public Map<K, PathOrUrl> getPassThrough() {
+			return passThrough;
+		}
+
+		/**
+		 * Returns true if no templates are missing.
+		 *
+		 * @return
+		 */
+		public boolean isComplete() {
+			return missing.isEmpty();
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package com._4point.aem.fluentforms.impl;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An InputStream that reads directly from a ByteBuffer (heap, direct or memory-mapped) without copying the buffer's contents.
+ * 
+ * The stream consumes the buffer that is passed in, so callers should pass in a duplicate() if they need to preserve the
+ * original buffer's position.  An optional action is run (once) when the stream is closed, so that the owner of the buffer
+ * knows when the stream no longer needs it.
+ *
+ */
+/* package */ final class ByteBufferInputStream extends InputStream {
+	private final ByteBuffer buffer;
+	private int mark;
+	private Runnable onClose;		// null once the stream has been closed.
+
+	/* package */ ByteBufferInputStream(ByteBuffer buffer) {
+		this(buffer, null);
+	}
+
+	/* package */ ByteBufferInputStream(ByteBuffer buffer, Runnable onClose) {
+		super();
+		this.buffer = buffer;
+		this.mark = buffer.position();
+		this.onClose = onClose;
+	}
+
+	@Override
+	public int read() {
+		return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) {
+		if (len == 0) {
+			return 0;
+		}
+		if (!buffer.hasRemaining()) {
+			return -1;
+		}
+		int count = Math.min(len, buffer.remaining());
+		buffer.get(b, off, count);
+		return count;
+	}
+
+	@Override
+	public long skip(long n) {
+		int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+		buffer.position(buffer.position() + count);
+		return count;
+	}
+
+	@Override
+	public int available() {
+		return buffer.remaining();
+	}
+
+	@Override
+	public boolean markSupported() {
+		return true;
+	}
+
+	@Override
+	public synchronized void mark(int readlimit) {
+		this.mark = buffer.position();
+	}
+
+	@Override
+	public synchronized void reset() {
+		buffer.position(this.mark);
+	}
+
+	@Override
+	public synchronized void close() {
+		if (onClose != null) {
+			Runnable action = onClose;
+			onClose = null;
+			action.run();
+		}
+	}
+}
@@ -0,0 +1,228 @@
+package com._4point.aem.fluentforms.impl;
+
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com._4point.aem.fluentforms.api.PathOrUrl;
+
+/**
+ * TemplateValuesResolver that remembers the TemplateValues determined for each (template, content root, usage context)
+ * combination for a fixed time-to-live.  This avoids re-checking that the template exists (two file system calls,
+ * which are expensive on network file systems) on every render.
+ *
+ * Failed resolutions (i.e. templates that were not found) are not cached, so a template that is added later is
+ * picked up straight away.  A template that is deleted is still reported as found until its entry expires unless
+ * watching is enabled, in which case the directories containing cached templates are monitored using a WatchService
+ * and their entries are discarded as soon as anything in them changes.  Note that some file systems (NFS in
+ * particular) do not deliver change notifications reliably, so the time-to-live remains in effect either way.
+ *
+ */
+public class CachingTemplateValuesResolver implements TemplateValuesResolver, Closeable {
+	private static final Logger log = LoggerFactory.getLogger(CachingTemplateValuesResolver.class);
+
+	/**
+	 * Maximum number of entries held.  Once it is reached, expired entries are discarded and, if that is not enough, the
+	 * cache is emptied.
+	 */
+	public static final int MAX_ENTRIES = 1024;
+
+	private final TemplateValuesResolver delegate;
+	private final long ttlNanos;
+	private final LongSupplier clock;
+	private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong invalidationCount = new AtomicLong();		// Incremented before entries are discarded.
+	private final WatchService watchService;		// null if watching is not enabled.
+	private final Map<Path, WatchKey> watchedDirs = new ConcurrentHashMap<>();
+
+	/**
+	 * Creates a resolver that caches results for the given time-to-live.
+	 *
+	 * @param ttl
+	 */
+	public CachingTemplateValuesResolver(Duration ttl) {
+		this(TemplateValuesResolver.DIRECT, ttl, null, System::nanoTime);
+	}
+
+	/**
+	 * Creates a resolver that caches results for the given time-to-live and discards them early if the template's
+	 * directory changes.
+	 *
+	 * @param ttl
+	 * @param watchForChanges
+	 * @throws IOException if a WatchService cannot be created.
+	 */
+	public CachingTemplateValuesResolver(Duration ttl, boolean watchForChanges) throws IOException {
+		this(TemplateValuesResolver.DIRECT, ttl, watchForChanges ? FileSystems.getDefault().newWatchService() : null, System::nanoTime);
+	}
+
+	// Exposed for testing.
+	/* package */ CachingTemplateValuesResolver(TemplateValuesResolver delegate, Duration ttl, WatchService watchService, LongSupplier clock) {
+		this.delegate = Objects.requireNonNull(delegate, "delegate resolver cannot be null.");
+		this.ttlNanos = Objects.requireNonNull(ttl, "ttl cannot be null.").toNanos();
+		this.clock = clock;
+		this.watchService = watchService;
+		if (watchService != null) {
+			Thread watcher = new Thread(this::watch, "FluentForms template watcher");
+			watcher.setDaemon(true);
+			watcher.start();
+		}
+	}
+
+	@Override
+	public TemplateValues resolve(Path template, PathOrUrl contentRoot, UsageContext usageContext) throws FileNotFoundException {
+		Key key = new Key(template, contentRoot, usageContext);
+		long now = clock.getAsLong();
+		Entry entry = entries.get(key);
+		if (entry != null && now - entry.created < ttlNanos) {
+			hitCount.incrementAndGet();
+			return entry.values;
+		}
+		missCount.incrementAndGet();
+		long invalidations = invalidationCount.get();
+		TemplateValues values = delegate.resolve(template, contentRoot, usageContext);
+		if (entries.size() >= MAX_ENTRIES) {
+			entries.values().removeIf(e->now - e.created >= ttlNanos);
+			if (entries.size() >= MAX_ENTRIES) {
+				entries.clear();
+			}
+		}
+		PathOrUrl resolvedContentRoot = values.getContentRoot();
+		Path watchedDir = resolvedContentRoot != null && resolvedContentRoot.isPath() ? resolvedContentRoot.getPath().toAbsolutePath() : null;
+		if (watchedDir != null) {
+			watch(watchedDir);
+		}
+		Entry newEntry = new Entry(values, now, watchedDir);
+		entries.put(key, newEntry);
+		// If entries were discarded while we were resolving, our result may already be out of date.  Since the count is
+		// incremented before entries are discarded, either we see the new count here or our entry gets discarded.
+		if (invalidationCount.get() != invalidations) {
+			entries.remove(key, newEntry);
+		}
+		return values;
+	}
+
+	/**
+	 * Discards all cached entries.
+	 */
+	public void invalidateAll() {
+		invalidationCount.incrementAndGet();
+		entries.clear();
+	}
+
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Stops watching for changes (if watching was enabled).
+	 */
+	@Override
+	public void close() throws IOException {
+		if (watchService != null) {
+			watchService.close();
+		}
+	}
+
+	// Registers a directory with the WatchService (if watching is enabled and the directory isn't already registered).
+	private void watch(Path dir) {
+		if (watchService == null || watchedDirs.containsKey(dir)) {
+			return;
+		}
+		watchedDirs.computeIfAbsent(dir, d->{
+			try {
+				return d.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+			} catch (IOException | ClosedWatchServiceException e) {
+				log.debug("Unable to watch template directory '" + d + "'.", e);
+				return null;	// Not watched, we'll rely on the ttl.
+			}
+		});
+	}
+
+	// Body of the watcher thread.  Discards the entries for any directory that changes.
+	private void watch() {
+		try {
+			while (true) {
+				WatchKey key = watchService.take();
+				key.pollEvents();
+				Path dir = (Path)key.watchable();
+				invalidationCount.incrementAndGet();
+				entries.values().removeIf(e->dir.equals(e.watchedDir));
+				if (!key.reset()) {
+					watchedDirs.remove(dir);
+				}
+			}
+		} catch (ClosedWatchServiceException | InterruptedException e) {
+			// The resolver has been closed, so stop watching.
+		}
+	}
+
+	private static class Key {
+		private final Path template;
+		private final String contentRoot;		// String form, so that URL.equals() (which may perform DNS lookups) is never called.
+		private final boolean contentRootIsPath;
+		private final UsageContext usageContext;
+
+		private Key(Path template, PathOrUrl contentRoot, UsageContext usageContext) {
+			this.template = template;
+			this.contentRoot = contentRoot != null ? contentRoot.toString() : null;
+			this.contentRootIsPath = contentRoot != null && contentRoot.isPath();
+			this.usageContext = usageContext;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(template, contentRoot, usageContext);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return Objects.equals(template, other.template) && Objects.equals(contentRoot, other.contentRoot)
+					&& contentRootIsPath == other.contentRootIsPath && usageContext == other.usageContext;
+		}
+	}
+
+	private static class Entry {
+		private final TemplateValues values;
+		private final long created;
+		private final Path watchedDir;
+
+		private Entry(TemplateValues values, long created, Path watchedDir) {
+			this.values = values;
+			this.created = created;
+			this.watchedDir = watchedDir;
+		}
+	}
+}
@@ -0,0 +1,181 @@
+package com._4point.aem.fluentforms.impl;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com._4point.aem.fluentforms.api.Document;
+import com._4point.aem.fluentforms.api.PathOrUrl;
+
+/**
+ * Supplies the contents of crx: locations (e.g. crx:/content/dam/formsanddocuments/sample.xdp) outside of AEM.
+ *
+ * crx: locations normally only have meaning inside AEM.  A client that keeps a copy of the relevant part of the
+ * repository (a directory that is synchronized with it, or an in-memory store) can install a CrxResolver using
+ * CrxUrlHandler.enableCrxProtocol(CrxResolver) so that crx: URLs can be read locally, for instance to check that a
+ * template exists, or to hash or cache it, before sending a request to the server.
+ *
+ */
+@FunctionalInterface
+public interface CrxResolver {
+
+	/**
+	 * Reads the contents of a crx: location.
+	 *
+	 * @param crxPath repository path (e.g. /content/dam/formsanddocuments/sample.xdp), with or without the crx: prefix.
+	 * @return
+	 * @throws FileNotFoundException if there is nothing at the location.
+	 * @throws IOException if the contents cannot be read.
+	 */
+	byte[] read(String crxPath) throws IOException;
+
+	/**
+	 * Returns true if there is something at the crx: location.
+	 *
+	 * @param crxPath repository path, with or without the crx: prefix.
+	 * @return
+	 */
+	default boolean exists(String crxPath) {
+		try {
+			read(crxPath);
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Creates a resolver that reads crx: locations from a local mirror of the repository, i.e. crx:/content/dam/x.xdp is
+	 * read from &lt;mirrorDir&gt;/content/dam/x.xdp.  Contents are cached in memory (up to maxCacheBytes) and re-read if
+	 * the file changes.
+	 *
+	 * @param mirrorDir
+	 * @param maxCacheBytes
+	 * @return
+	 */
+	public static MirrorDirectory mirror(Path mirrorDir, long maxCacheBytes) {
+		return new MirrorDirectory(mirrorDir, new TemplateCache(maxCacheBytes, TemplateCache.DEFAULT_LOADER, SimpleDocumentFactoryImpl.getFactory()));
+	}
+
+	/**
+	 * Creates an empty resolver that holds contents in memory.
+	 *
+	 * @return
+	 */
+	public static InMemory inMemory() {
+		return new InMemory();
+	}
+
+	/**
+	 * Converts a crx: location into a repository path relative to the root, e.g. "crx:/content/dam/x.xdp" becomes
+	 * "content/dam/x.xdp".
+	 *
+	 * @param crxPath
+	 * @return
+	 */
+	public static String relativePath(String crxPath) {
+		String path = Objects.requireNonNull(crxPath, "crxPath cannot be null.").trim();
+		if (path.regionMatches(true, 0, "crx:", 0, 4)) {
+			path = path.substring(4);
+		}
+		int start = 0;
+		while (start < path.length() && path.charAt(start) == '/') {
+			start++;
+		}
+		return path.substring(start);
+	}
+
+	/**
+	 * Resolves crx: locations against a local directory that mirrors the repository.
+	 */
+	public static class MirrorDirectory implements CrxResolver {
+		private final Path mirrorDir;
+		private final TemplateCache contentCache;
+
+		private MirrorDirectory(Path mirrorDir, TemplateCache contentCache) {
+			this.mirrorDir = Objects.requireNonNull(mirrorDir, "mirrorDir cannot be null.").toAbsolutePath().normalize();
+			this.contentCache = contentCache;
+		}
+
+		@Override
+		public byte[] read(String crxPath) throws IOException {
+			Path file = toFile(crxPath);
+			Optional<Document> contents = contentCache.get(PathOrUrl.from(file));
+			if (!contents.isPresent()) {
+				throw new FileNotFoundException("Unable to find '" + crxPath + "' in '" + mirrorDir + "'.");
+			}
+			return contents.get().getInlineData();
+		}
+
+		@Override
+		public boolean exists(String crxPath) {
+			try {
+				return Files.isRegularFile(toFile(crxPath));
+			} catch (FileNotFoundException e) {
+				return false;
+			}
+		}
+
+		/**
+		 * Returns the mirror file for a crx: location.
+		 *
+		 * @param crxPath
+		 * @return
+		 * @throws FileNotFoundException if the location is outside of the mirror directory.
+		 */
+		public Path toFile(String crxPath) throws FileNotFoundException {
+			Path file = mirrorDir.resolve(relativePath(crxPath)).normalize();
+			if (!file.startsWith(mirrorDir)) {
+				throw new FileNotFoundException("'" + crxPath + "' is outside of the mirror directory.");
+			}
+			return file;
+		}
+
+		public Path getMirrorDir() {
+			return mirrorDir;
+		}
+
+		public TemplateCache getContentCache() {
+			return contentCache;
+		}
+	}
+
+	/**
+	 * Holds crx: contents in memory.
+	 */
+	public static class InMemory implements CrxResolver {
+		private final Map<String, byte[]> contents = new ConcurrentHashMap<>();
+
+		private InMemory() {
+		}
+
+		@Override
+		public byte[] read(String crxPath) throws IOException {
+			byte[] result = contents.get(relativePath(crxPath));
+			if (result == null) {
+				throw new FileNotFoundException("Unable to find '" + crxPath + "'.");
+			}
+			return result.clone();
+		}
+
+		@Override
+		public boolean exists(String crxPath) {
+			return contents.containsKey(relativePath(crxPath));
+		}
+
+		public InMemory put(String crxPath, byte[] content) {
+			contents.put(relativePath(crxPath), Objects.requireNonNull(content, "content cannot be null.").clone());
+			return this;
+		}
+
+		public InMemory remove(String crxPath) {
+			contents.remove(relativePath(crxPath));
+			return this;
+		}
+	}
+}
@@ -1,37 +1,101 @@
 package com._4point.aem.fluentforms.impl;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLStreamHandler;
+import java.util.Optional;
 
 /**
  * This class is required to enable the use if "crx:" as a protocol with the java.net.URL object.  It instantiates and
  * registers an URLStreamHandler for the "crx:" protocol.  Once that is done, we can turn url strings that contain crx:// into
  * URL objects. 
+ * 
+ * By default, crx: URLs cannot be opened (they should only be used by AEM).  If a CrxResolver is provided, crx: URLs are
+ * opened by reading their contents from that resolver (e.g. from a local mirror of the repository).
  *
  */
 public class CrxUrlHandler {
 	
 	private static boolean crxProtocolInstalled = false;
+	private static volatile CrxResolver crxResolver = null;		// null if crx: URLs cannot be opened.
 
 	public static void enableCrxProtocol() {
 		if (!crxProtocolInstalled) {	// Only do this once.
 			URL.setURLStreamHandlerFactory(protocol -> "crx".equals(protocol) ? new URLStreamHandler() {
 			    protected URLConnection openConnection(URL url) throws IOException {
-			        return new URLConnection(url) {
-			            public void connect() throws IOException {
-			            	// This should never happen!
-			                throw new UnsupportedOperationException("Attempt to connect to URL using crx protocol detected.  crx: URLs should only be used by AEM!");
-			            }
-			        };
+			        return new CrxUrlConnection(url);
 			    }
 			} : null);
 			crxProtocolInstalled = true;
 		}
 	}
 
+	/**
+	 * Enables the crx: protocol and allows crx: URLs to be opened using the resolver provided.
+	 * 
+	 * @param resolver resolver to read crx: URLs with, or null to disallow opening crx: URLs.
+	 */
+	public static void enableCrxProtocol(CrxResolver resolver) {
+		enableCrxProtocol();
+		setCrxResolver(resolver);
+	}
+
 	public static boolean isCrxProtocolInstalled() {
 		return crxProtocolInstalled;
 	}
+
+	/**
+	 * Replaces the resolver used to open crx: URLs.
+	 * 
+	 * @param resolver resolver to read crx: URLs with, or null to disallow opening crx: URLs.
+	 */
+	public static void setCrxResolver(CrxResolver resolver) {
+		crxResolver = resolver;
+	}
+
+	public static Optional<CrxResolver> getCrxResolver() {
+		return Optional.ofNullable(crxResolver);
+	}
+
+	private static class CrxUrlConnection extends URLConnection {
+		private byte[] contents = null;
+
+		private CrxUrlConnection(URL url) {
+			super(url);
+		}
+
+		@Override
+		public void connect() throws IOException {
+			if (connected) {
+				return;
+			}
+			CrxResolver resolver = crxResolver;
+			if (resolver == null) {
+				// This should never happen!
+				throw new UnsupportedOperationException("Attempt to connect to URL using crx protocol detected.  crx: URLs should only be used by AEM!");
+			}
+			String authority = url.getAuthority();
+			contents = resolver.read(authority != null && !authority.isEmpty() ? "/" + authority + url.getPath() : url.getPath());
+			connected = true;
+		}
+
+		@Override
+		public InputStream getInputStream() throws IOException {
+			connect();
+			return new ByteArrayInputStream(contents);
+		}
+
+		@Override
+		public long getContentLengthLong() {
+			try {
+				connect();
+				return contents.length;
+			} catch (IOException e) {
+				return -1;
+			}
+		}
+	}
 }
@@ -0,0 +1,85 @@
+package com._4point.aem.fluentforms.impl;
+
+import java.nio.ByteBuffer;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of direct (off-heap) ByteBuffers.
+ *
+ * Buffers are handed out in power-of-two size classes so that a released buffer can be reused by any later request
+ * that falls into the same class.  Java offers no supported way to free direct memory on demand, so releasing a
+ * buffer returns it to the pool where it is immediately available for reuse.  Buffers that are larger than the largest
+ * size class, or that would push the pool over its retention limit, are dropped and left for the garbage collector.
+ */
+/* package */ final class DirectBufferPool {
+	private static final int MIN_SIZE_CLASS_SHIFT = 12;		// 4K
+	private static final int MAX_SIZE_CLASS_SHIFT = 26;		// 64M
+
+	private final long maxRetainedBytes;
+	@SuppressWarnings("unchecked")
+	private final Deque<ByteBuffer>[] sizeClasses = new Deque[MAX_SIZE_CLASS_SHIFT - MIN_SIZE_CLASS_SHIFT + 1];
+	private final AtomicLong retainedBytes = new AtomicLong();
+
+	/* package */ DirectBufferPool(long maxRetainedBytes) {
+		this.maxRetainedBytes = maxRetainedBytes;
+		for (int i = 0; i < sizeClasses.length; i++) {
+			sizeClasses[i] = new ConcurrentLinkedDeque<>();
+		}
+	}
+
+	/**
+	 * Returns a direct buffer with position 0 and a limit of size.  The buffer's capacity may be larger than size.
+	 *
+	 * @param size
+	 * @return
+	 */
+	/* package */ ByteBuffer acquire(int size) {
+		int sizeClass = sizeClass(size);
+		if (sizeClass < 0) {
+			return ByteBuffer.allocateDirect(size);
+		}
+		ByteBuffer buffer = sizeClasses[sizeClass].pollFirst();
+		if (buffer == null) {
+			buffer = ByteBuffer.allocateDirect(1 << (sizeClass + MIN_SIZE_CLASS_SHIFT));
+		} else {
+			retainedBytes.addAndGet(-buffer.capacity());
+			buffer.clear();
+		}
+		buffer.limit(size);
+		return buffer;
+	}
+
+	/**
+	 * Returns a buffer obtained from acquire() to the pool.  The caller must not use the buffer (or any views of it)
+	 * afterwards.
+	 *
+	 * @param buffer
+	 */
+	/* package */ void release(ByteBuffer buffer) {
+		int capacity = buffer.capacity();
+		int sizeClass = sizeClass(capacity);
+		if (sizeClass < 0 || capacity != 1 << (sizeClass + MIN_SIZE_CLASS_SHIFT)) {
+			return;		// Not one of ours, let the garbage collector have it.
+		}
+		if (retainedBytes.addAndGet(capacity) > maxRetainedBytes) {
+			retainedBytes.addAndGet(-capacity);
+			return;
+		}
+		sizeClasses[sizeClass].offerFirst(buffer);
+	}
+
+	/* package */ long getRetainedBytes() {
+		return retainedBytes.get();
+	}
+
+	// Returns the index of the smallest size class that can hold size bytes, or -1 if size is too large to be pooled.
+	private static int sizeClass(int size) {
+		if (size > 1 << MAX_SIZE_CLASS_SHIFT) {
+			return -1;
+		}
+		int shift = size <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(size - 1);
+		return Math.max(shift, MIN_SIZE_CLASS_SHIFT) - MIN_SIZE_CLASS_SHIFT;
+	}
+}
@@ -0,0 +1,218 @@
+package com._4point.aem.fluentforms.impl;
+
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com._4point.aem.fluentforms.api.Document;
+
+/**
+ * Content-addressed cache of Document contents.
+ *
+ * Documents that are created through an interner with identical contents (e.g. the same XDP template or XCI file
+ * sent on many requests) share a single immutable byte array rather than each holding its own copy.  Contents are
+ * identified by their SHA-256 digest.
+ *
+ * Cached contents are held through SoftReferences, so the garbage collector can reclaim them when memory is tight,
+ * and the total number of bytes cached is capped (least recently used contents are dropped first).  Contents larger
+ * than the cap are never cached.
+ *
+ * The TemplateCache and the Output profiles intern the templates and XCI files they hold through the default interner
+ * (see getDefault()), so the same contents loaded from different locations, or reloaded after a template is touched
+ * without changing, are only held once.
+ */
+public final class DocumentInterner {
+	private static final String DIGEST_ALGORITHM = "SHA-256";
+
+	public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+	private final long maxBytes;
+	private final Map<ByteBuffer, SoftReference<byte[]>> entries = new LinkedHashMap<>(16, 0.75f, true);	// Access order, for LRU eviction.
+	private long retainedBytes = 0;		// Guarded by entries.
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong evictionCount = new AtomicLong();
+
+	/**
+	 * Creates an interner.
+	 *
+	 * @param maxBytes maximum total number of bytes to be cached.
+	 */
+	public DocumentInterner(long maxBytes) {
+		if (maxBytes < 0) {
+			throw new IllegalArgumentException("Interner size cannot be negative (" + maxBytes + ").");
+		}
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Returns the interner shared by the TemplateCache and the Output profiles.  It holds up to DEFAULT_MAX_BYTES.
+	 *
+	 * @return
+	 */
+	public static DocumentInterner getDefault() {
+		return DefaultHolder.INSTANCE;
+	}
+
+	/**
+	 * Returns a Document containing data.  If a Document with the same contents has already been interned, the
+	 * returned Document shares its contents.
+	 *
+	 * @param data
+	 * @return
+	 */
+	public Document intern(byte[] data) {
+		return SimpleDocumentFactoryImpl.createShared(internBytes(data, true));
+	}
+
+	/**
+	 * Returns a Document with the same contents and content type as doc.  If a Document with the same contents has
+	 * already been interned, the returned Document shares its contents.
+	 *
+	 * @param doc
+	 * @return
+	 * @throws IOException
+	 */
+	public Document intern(Document doc) throws IOException {
+		Document result = intern(doc.getInlineData());
+		String contentType = doc.getContentType();
+		if (contentType != null) {
+			result.setContentType(contentType);
+		}
+		return result;
+	}
+
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	/**
+	 * Returns the number of cached contents that have been dropped to stay within the size cap or because they were
+	 * reclaimed by the garbage collector.
+	 *
+	 * @return
+	 */
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+
+	public int getEntryCount() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	public long getRetainedBytes() {
+		synchronized (entries) {
+			return retainedBytes;
+		}
+	}
+
+	/**
+	 * Removes all cached contents.  Documents that have already been created are unaffected.
+	 */
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+			retainedBytes = 0;
+		}
+	}
+
+	// Returns the shared copy of data, creating it if there isn't one.  If copy is false, the caller gives up data and
+	// it is cached as is.
+	/* package */ byte[] internBytes(byte[] data, boolean copy) {
+		ByteBuffer key = ByteBuffer.wrap(digest(data));
+		byte[] shared = lookup(key);
+		if (shared != null) {
+			hitCount.incrementAndGet();
+			return shared;
+		}
+		missCount.incrementAndGet();
+		byte[] contents = copy ? Arrays.copyOf(data, data.length) : data;		// Otherwise the caller may modify data after we return.
+		if (contents.length > maxBytes) {
+			return contents;
+		}
+		synchronized (entries) {
+			SoftReference<byte[]> existingRef = entries.get(key);
+			byte[] existing = existingRef != null ? existingRef.get() : null;
+			if (existing != null) {
+				return existing;			// Another thread interned the same contents while we were copying.
+			}
+			if (existingRef != null) {
+				remove(key);
+			}
+			entries.put(key, new SoftReference<>(contents));
+			retainedBytes += contents.length;
+			evict();
+		}
+		return contents;
+	}
+
+	private byte[] lookup(ByteBuffer key) {
+		synchronized (entries) {
+			SoftReference<byte[]> ref = entries.get(key);
+			if (ref == null) {
+				return null;
+			}
+			byte[] shared = ref.get();
+			if (shared == null) {
+				remove(key);		// Reclaimed by the garbage collector.
+			}
+			return shared;
+		}
+	}
+
+	// Drops the least recently used entries until the cache is within its size cap.  Called while holding the entries lock.
+	private void evict() {
+		Iterator<Map.Entry<ByteBuffer, SoftReference<byte[]>>> iterator = entries.entrySet().iterator();
+		while (retainedBytes > maxBytes && iterator.hasNext()) {
+			Map.Entry<ByteBuffer, SoftReference<byte[]>> eldest = iterator.next();
+			iterator.remove();
+			retainedBytes -= sizeOf(eldest.getKey());
+			evictionCount.incrementAndGet();
+		}
+	}
+
+	// Removes an entry.  Called while holding the entries lock.
+	private void remove(ByteBuffer key) {
+		if (entries.remove(key) != null) {
+			retainedBytes -= sizeOf(key);
+			evictionCount.incrementAndGet();
+		}
+	}
+
+	// The size of each entry is stored after the digest in its key, so that it is still available once the
+	// entry's contents have been reclaimed by the garbage collector.
+	private static long sizeOf(ByteBuffer key) {
+		return key.getInt(key.limit() - Integer.BYTES);
+	}
+
+	private static byte[] digest(byte[] data) {
+		byte[] hash = newDigest().digest(data);
+		return ByteBuffer.allocate(hash.length + Integer.BYTES).put(hash).putInt(data.length).array();
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance(DIGEST_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			// Every Java platform is required to support SHA-256.
+			throw new IllegalStateException("Unable to create " + DIGEST_ALGORITHM + " digest.", e);
+		}
+	}
+
+	private static class DefaultHolder {
+		private static final DocumentInterner INSTANCE = new DocumentInterner(DEFAULT_MAX_BYTES);
+	}
+}
@@ -0,0 +1,86 @@
+package com._4point.aem.fluentforms.impl;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com._4point.aem.fluentforms.api.Document;
+
+/**
+ * Reports Documents that are garbage collected without having been disposed.
+ *
+ * Each tracked Document is watched by a PhantomReference.  If the Document becomes unreachable before its Tracker is
+ * closed, a warning is logged and the leak is counted.  Nothing is cleaned up on the leak path: streams and buffers
+ * obtained from the Document may still be in use, so its resources are simply left for the garbage collector rather
+ * than being recycled.  Leaks are detected whenever a new Document is tracked or the counts are requested,
+ * so no background thread is required.  If debug logging is enabled, the warning includes the stack trace of the
+ * code that created the leaked Document.
+ */
+/* package */ final class DocumentLeakDetector {
+	private static final Logger log = LoggerFactory.getLogger(DocumentLeakDetector.class);
+
+	private final ReferenceQueue<Document> queue = new ReferenceQueue<>();
+	private final Set<Tracker> liveTrackers = ConcurrentHashMap.newKeySet();
+	private final AtomicLong leakCount = new AtomicLong();
+
+	/**
+	 * Start tracking a Document.
+	 *
+	 * @param document Document to be tracked.
+	 * @return a Tracker that must be closed when the Document is disposed.
+	 */
+	/* package */ Tracker track(Document document) {
+		reapLeaks();
+		Tracker tracker = new Tracker(document, log.isDebugEnabled() ? new Throwable("Document created here") : null);
+		liveTrackers.add(tracker);
+		return tracker;
+	}
+
+	/* package */ int getOutstandingCount() {
+		reapLeaks();
+		return liveTrackers.size();
+	}
+
+	/* package */ long getLeakCount() {
+		reapLeaks();
+		return leakCount.get();
+	}
+
+	private void reapLeaks() {
+		Reference<? extends Document> ref;
+		while ((ref = queue.poll()) != null) {
+			Tracker tracker = (Tracker)ref;
+			if (liveTrackers.remove(tracker)) {
+				leakCount.incrementAndGet();
+				if (tracker.createdAt != null) {
+					log.warn("Document was garbage collected without being disposed. Call close() or dispose() when a Document is no longer required.", tracker.createdAt);
+				} else {
+					log.warn("Document was garbage collected without being disposed. Call close() or dispose() when a Document is no longer required. Enable debug logging to see where it was created.");
+				}
+			}
+		}
+	}
+
+	/* package */ final class Tracker extends PhantomReference<Document> {
+		private final Throwable createdAt;
+
+		private Tracker(Document document, Throwable createdAt) {
+			super(document, queue);
+			this.createdAt = createdAt;
+		}
+
+		/**
+		 * Stop tracking the Document.  Called when the Document is disposed.
+		 */
+		/* package */ void close() {
+			liveTrackers.remove(this);
+			clear();
+		}
+	}
+}
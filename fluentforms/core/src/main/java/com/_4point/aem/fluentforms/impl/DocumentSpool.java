@@ -0,0 +1,366 @@
+package com._4point.aem.fluentforms.impl;
+
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Manages the temporary files that SimpleDocumentFactoryImpl Documents use when their contents are moved out of memory
+ * (either because they were too large to be held in memory or because passivate() was called).
+ *
+ * A spool writes its files to a single directory and limits the total number of bytes those files may occupy.  Each
+ * file is reference counted so that it is not deleted while an InputStream is still reading it.  Files are only tracked
+ * weakly, so a file whose Document is garbage collected without being disposed is deleted the next time the spool is
+ * used.  Any files that remain when the spool is closed are deleted.
+ *
+ * Spools must be closed by whoever owns them (e.g. when an OSGi bundle is deactivated).  The default spool is owned by
+ * this class: it writes to a temporary directory of its own, which is removed by closeDefault().  While there is a
+ * default spool, a single shutdown hook closes it if the JVM exits first.  closeDefault() removes the hook, so it does
+ * not keep this class loaded after the code that uses it has been shut down.
+ */
+public final class DocumentSpool implements Closeable {
+	/**
+	 * Quota that places no limit on the number of bytes that may be spooled.
+	 */
+	public static final long UNLIMITED = Long.MAX_VALUE;
+
+	private static final String FILE_PREFIX = "fluentforms";
+	private static final String FILE_SUFFIX = ".tmp";
+
+	private static volatile DocumentSpool defaultSpool = null;
+	private static Thread exitHook = null;		// Guarded by DocumentSpool.class, null if there is no default spool.
+
+	private final Path directory;
+	private final boolean ownDirectory;		// If true, the directory is deleted when the spool is closed.
+	private final long maxBytes;
+	private final AtomicLong usedBytes = new AtomicLong();
+	private final Set<TrackedFile> files = ConcurrentHashMap.newKeySet();
+	private final ReferenceQueue<SpoolFile> abandoned = new ReferenceQueue<>();
+	private volatile boolean closed = false;
+
+	/**
+	 * Creates a spool.
+	 *
+	 * @param directory directory where the spool files will be created.  It must already exist.
+	 * @param maxBytes maximum number of bytes that the spool files may occupy (or UNLIMITED).
+	 * @throws FileNotFoundException if the directory does not exist.
+	 */
+	public DocumentSpool(Path directory, long maxBytes) throws FileNotFoundException {
+		this(directory, maxBytes, false);
+	}
+
+	private DocumentSpool(Path directory, long maxBytes, boolean ownDirectory) throws FileNotFoundException {
+		Objects.requireNonNull(directory, "Spool directory cannot be null.");
+		if (!Files.isDirectory(directory)) {
+			throw new FileNotFoundException("Unable to find spool directory (" + directory + ").");
+		}
+		if (maxBytes < 0) {
+			throw new IllegalArgumentException("Spool quota cannot be negative (" + maxBytes + ").");
+		}
+		this.directory = directory;
+		this.ownDirectory = ownDirectory;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Creates a spool in a new temporary directory (within java.io.tmpdir).  The directory is deleted when the spool is
+	 * closed.
+	 *
+	 * @param maxBytes maximum number of bytes that the spool files may occupy (or UNLIMITED).
+	 * @return
+	 * @throws IOException if the directory cannot be created.
+	 */
+	public static DocumentSpool createTemporary(long maxBytes) throws IOException {
+		return new DocumentSpool(Files.createTempDirectory(FILE_PREFIX + "-spool"), maxBytes, true);
+	}
+
+	/**
+	 * Returns the spool used by SimpleDocumentFactoryImpl Documents.  Unless setDefault() has been called, this is an
+	 * unlimited temporary spool (see createTemporary()).
+	 *
+	 * @return
+	 */
+	public static DocumentSpool getDefault() {
+		DocumentSpool spool = defaultSpool;
+		if (spool == null) {
+			synchronized (DocumentSpool.class) {
+				spool = defaultSpool;
+				if (spool == null) {
+					try {
+						spool = defaultSpool = createTemporary(UNLIMITED);
+						addExitHook();
+					} catch (IOException e) {
+						throw new IllegalStateException("Unable to create default document spool.", e);
+					}
+				}
+			}
+		}
+		return spool;
+	}
+
+	/**
+	 * Closes the default spool (deleting its files) and forgets it, so that the next call to getDefault() creates a new
+	 * one.  Call this when the code that uses this library is shut down (e.g. when an OSGi bundle is deactivated).
+	 */
+	public static void closeDefault() {
+		DocumentSpool spool;
+		synchronized (DocumentSpool.class) {
+			spool = defaultSpool;
+			defaultSpool = null;
+			removeExitHook();
+		}
+		if (spool != null) {
+			spool.close();
+		}
+	}
+
+	/**
+	 * Replaces the spool used by SimpleDocumentFactoryImpl Documents.  The default spool becomes owned by this class, so
+	 * it is closed by closeDefault(), by a later call to setDefault() or when the JVM exits.  The spool that it replaces
+	 * is closed, so Documents that were spooled to it are no longer readable.
+	 *
+	 * @param spool
+	 */
+	public static void setDefault(DocumentSpool spool) {
+		Objects.requireNonNull(spool, "Spool cannot be null.");
+		DocumentSpool replaced;
+		synchronized (DocumentSpool.class) {
+			replaced = defaultSpool;
+			defaultSpool = spool;
+			addExitHook();
+		}
+		if (replaced != null && replaced != spool) {
+			replaced.close();
+		}
+	}
+
+	// Must be called while holding the DocumentSpool.class lock.
+	private static void addExitHook() {
+		if (exitHook == null) {
+			Thread hook = new Thread(DocumentSpool::closeOnExit, "FluentForms document spool cleanup");
+			Runtime.getRuntime().addShutdownHook(hook);
+			exitHook = hook;
+		}
+	}
+
+	// Must be called while holding the DocumentSpool.class lock.
+	private static void removeExitHook() {
+		if (exitHook != null) {
+			try {
+				Runtime.getRuntime().removeShutdownHook(exitHook);
+			} catch (IllegalStateException e) {
+				// The JVM is already shutting down, so the hook is running (or has run).
+			}
+			exitHook = null;
+		}
+	}
+
+	// Runs from the shutdown hook.  Does not take the lock, in case a thread holding it is blocked by the shutdown.
+	private static void closeOnExit() {
+		DocumentSpool spool = defaultSpool;
+		if (spool != null) {
+			spool.close();
+		}
+	}
+
+	public Path getDirectory() {
+		return directory;
+	}
+
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	/**
+	 * Returns the number of bytes currently occupied by this spool's files.
+	 *
+	 * @return
+	 */
+	public long getUsedBytes() {
+		deleteAbandonedFiles();
+		return usedBytes.get();
+	}
+
+	/**
+	 * Returns the number of files currently in this spool.
+	 *
+	 * @return
+	 */
+	public int getFileCount() {
+		deleteAbandonedFiles();
+		return files.size();
+	}
+
+	/**
+	 * Deletes all of this spool's files (and the directory, if the spool created it).  Documents that are still using
+	 * them will no longer be readable.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		files.forEach(TrackedFile::delete);
+		if (ownDirectory) {
+			try {
+				Files.deleteIfExists(directory);
+			} catch (IOException e) {
+				// Nothing we can do, the directory will be left behind.
+			}
+		}
+	}
+
+	// Deletes the files whose SpoolFile has been garbage collected without being released.
+	private void deleteAbandonedFiles() {
+		Reference<? extends SpoolFile> ref;
+		while ((ref = abandoned.poll()) != null) {
+			((TrackedFile)ref).delete();
+		}
+	}
+
+	/**
+	 * Creates a new, empty, spool file with a reference count of one.
+	 *
+	 * @return
+	 * @throws IOException
+	 */
+	/* package */ SpoolFile newFile() throws IOException {
+		deleteAbandonedFiles();
+		if (closed) {
+			throw new IOException("Document spool has been closed (" + directory + ").");
+		}
+		return new SpoolFile(Files.createTempFile(directory, FILE_PREFIX, FILE_SUFFIX));
+	}
+
+	// The spool's record of a file.  It only refers to the SpoolFile weakly, so that the file can be deleted if the
+	// SpoolFile is garbage collected without being released.
+	private final class TrackedFile extends WeakReference<SpoolFile> {
+		private final Path path;
+		private long size = 0;		// Guarded by this.
+
+		private TrackedFile(SpoolFile file, Path path) {
+			super(file, abandoned);
+			this.path = path;
+			files.add(this);
+		}
+
+		private synchronized void reserve(long bytes) throws IOException {
+			if (usedBytes.addAndGet(bytes) > maxBytes) {
+				usedBytes.addAndGet(-bytes);
+				throw new IOException("Document spool quota of " + maxBytes + " bytes has been exceeded (" + directory + ").");
+			}
+			size += bytes;
+		}
+
+		private synchronized void delete() {
+			if (files.remove(this)) {
+				usedBytes.addAndGet(-size);
+				try {
+					Files.deleteIfExists(path);
+				} catch (IOException e) {
+					// Nothing we can do, the file will be left behind.
+				}
+			}
+		}
+	}
+
+	/**
+	 * A file within a DocumentSpool.  The file is deleted once every reference to it has been released.
+	 */
+	/* package */ final class SpoolFile {
+		private final Path path;
+		private final TrackedFile tracked;
+		private int refCount = 1;
+
+		private SpoolFile(Path path) {
+			this.path = path;
+			this.tracked = new TrackedFile(this, path);
+		}
+
+		/* package */ Path getPath() {
+			return path;
+		}
+
+		/* package */ synchronized void retain() {
+			if (refCount <= 0) {
+				throw new IllegalStateException("Spool file has already been released (" + path + ").");
+			}
+			refCount++;
+		}
+
+		/* package */ synchronized void release() {
+			if (refCount > 0 && --refCount == 0) {
+				delete();
+			}
+		}
+
+		/**
+		 * Returns an OutputStream that writes to the file.  Writes that would exceed the spool's quota fail with
+		 * an IOException.
+		 *
+		 * @return
+		 * @throws IOException
+		 */
+		/* package */ OutputStream newOutputStream() throws IOException {
+			return new FilterOutputStream(Files.newOutputStream(path)) {
+				@Override
+				public void write(int b) throws IOException {
+					tracked.reserve(1);
+					out.write(b);
+				}
+
+				@Override
+				public void write(byte[] b, int off, int len) throws IOException {
+					tracked.reserve(len);
+					out.write(b, off, len);
+				}
+			};
+		}
+
+		/**
+		 * Returns an InputStream that reads the file.  The stream holds a reference to the file until it is closed.
+		 *
+		 * @return
+		 * @throws IOException
+		 */
+		/* package */ InputStream newInputStream() throws IOException {
+			retain();
+			try {
+				return new FilterInputStream(Files.newInputStream(path)) {
+					private boolean released = false;
+
+					@Override
+					public void close() throws IOException {
+						try {
+							super.close();
+						} finally {
+							if (!released) {
+								released = true;
+								release();
+							}
+						}
+					}
+				};
+			} catch (IOException e) {
+				release();
+				throw e;
+			}
+		}
+
+		private synchronized void delete() {
+			refCount = 0;
+			tracked.delete();
+		}
+	}
+}
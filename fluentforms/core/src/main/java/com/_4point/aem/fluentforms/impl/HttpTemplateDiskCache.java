@@ -0,0 +1,384 @@
+package com._4point.aem.fluentforms.impl;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com._4point.aem.fluentforms.api.PathOrUrl;
+
+/**
+ * Disk cache of templates fetched from http(s) URLs.
+ *
+ * Each time a template is requested, the cache revalidates its copy with the server using a conditional GET
+ * (If-None-Match with the ETag and/or If-Modified-Since with the Last-Modified time it was given).  If the server
+ * responds 304 (Not Modified), the copy on disk is used, so unchanged templates are never downloaded twice.  Otherwise
+ * the new contents are stored on disk, replacing the old copy.  The least recently used templates are deleted once the
+ * total size of the templates on disk exceeds the limit.  The cache directory is re-read on construction, so cached
+ * templates survive restarts.
+ *
+ * This class is a TemplateCache.Loader so that it can sit underneath a TemplateCache, which is consulted by the Output
+ * and Forms services before the adapter is called:
+ * <pre>
+ * new OutputServiceImpl(adapter, usageContext, TemplateValuesResolver.DIRECT, new TemplateCache(memoryBytes, new HttpTemplateDiskCache(dir, diskBytes)));
+ * </pre>
+ * Locations that are not http(s) URLs are passed on to TemplateCache.DEFAULT_LOADER.
+ *
+ */
+public class HttpTemplateDiskCache implements TemplateCache.Loader {
+	private static final Logger log = LoggerFactory.getLogger(HttpTemplateDiskCache.class);
+
+	private static final String BODY_SUFFIX = ".body";
+	private static final String METADATA_SUFFIX = ".properties";
+	private static final String URL_PROPERTY = "url";
+	private static final String ETAG_PROPERTY = "etag";
+	private static final String LAST_MODIFIED_PROPERTY = "lastModified";
+	private static final String DIGEST_PROPERTY = "digest";
+	private static final String DIGEST_ALGORITHM = "SHA-256";
+	private static final int CONNECT_TIMEOUT_MILLIS = 10000;
+	private static final int READ_TIMEOUT_MILLIS = 60000;
+
+	private final Path dir;
+	private final long maxBytes;
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);	// Access order, guarded by entries.
+	private long totalBytes = 0;	// Guarded by entries.
+	private final AtomicLong revalidatedCount = new AtomicLong();
+	private final AtomicLong downloadCount = new AtomicLong();
+	private final AtomicLong evictionCount = new AtomicLong();
+
+	/**
+	 * Creates a cache that stores templates in a directory.
+	 *
+	 * @param dir directory to store templates in.  It is created if it does not exist.
+	 * @param maxBytes maximum total size of the templates stored.
+	 * @throws IOException if the directory cannot be created or read.
+	 */
+	public HttpTemplateDiskCache(Path dir, long maxBytes) throws IOException {
+		if (maxBytes <= 0) {
+			throw new IllegalArgumentException("maxBytes must be greater than zero (" + maxBytes + ").");
+		}
+		this.dir = Files.createDirectories(Objects.requireNonNull(dir, "dir cannot be null."));
+		this.maxBytes = maxBytes;
+		loadEntries();
+	}
+
+	@Override
+	public String version(PathOrUrl location) throws IOException {
+		if (!isHttp(location)) {
+			return TemplateCache.DEFAULT_LOADER.version(location);
+		}
+		return fetchEntry(location.getUrl()).version();
+	}
+
+	@Override
+	public byte[] load(PathOrUrl location) throws IOException {
+		if (!isHttp(location)) {
+			return TemplateCache.DEFAULT_LOADER.load(location);
+		}
+		Entry entry;
+		synchronized (entries) {
+			entry = entries.get(location.getUrl().toString());
+		}
+		if (entry == null) {
+			entry = fetchEntry(location.getUrl());
+		}
+		try {
+			return Files.readAllBytes(entry.body);
+		} catch (NoSuchFileException e) {
+			// Evicted between fetching and reading, so fetch it again.
+			return Files.readAllBytes(fetchEntry(location.getUrl()).body);
+		}
+	}
+
+	/**
+	 * Returns the location on disk of an up-to-date copy of the template at an http(s) URL, fetching or revalidating
+	 * it as required.
+	 *
+	 * @param url
+	 * @return
+	 * @throws IOException
+	 */
+	public Path fetch(URL url) throws IOException {
+		return fetchEntry(url).body;
+	}
+
+	private Entry fetchEntry(URL url) throws IOException {
+		String key = url.toString();
+		Entry cached;
+		synchronized (entries) {
+			cached = entries.get(key);
+		}
+		return fetchEntry(url, cached);
+	}
+
+	// Fetches the template, revalidating the cached entry (if it is not null).
+	private Entry fetchEntry(URL url, Entry cached) throws IOException {
+		String key = url.toString();
+		URLConnection connection = url.openConnection();
+		if (!(connection instanceof HttpURLConnection)) {
+			throw new IllegalArgumentException("Not an http(s) URL (" + key + ").");
+		}
+		HttpURLConnection httpConnection = (HttpURLConnection)connection;
+		try {
+			httpConnection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+			httpConnection.setReadTimeout(READ_TIMEOUT_MILLIS);
+			if (cached != null && cached.etag != null) {
+				httpConnection.setRequestProperty("If-None-Match", cached.etag);
+			}
+			if (cached != null && cached.lastModified != null) {
+				httpConnection.setRequestProperty("If-Modified-Since", cached.lastModified);
+			}
+			int responseCode = httpConnection.getResponseCode();
+			if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+				if (Files.exists(cached.body)) {
+					revalidatedCount.incrementAndGet();
+					return cached;
+				}
+				// The copy we revalidated has gone (e.g. deleted from the cache directory), so drop the entry and
+				// fetch the template again without the validators.
+				discard(cached);
+				return fetchEntry(url, null);
+			} else if (responseCode == HttpURLConnection.HTTP_NOT_FOUND || responseCode == HttpURLConnection.HTTP_GONE) {
+				throw new FileNotFoundException("Unable to find template (" + key + ").");
+			} else if (responseCode != HttpURLConnection.HTTP_OK) {
+				throw new IOException("Unexpected response (" + responseCode + ") while fetching template (" + key + ").");
+			}
+			downloadCount.incrementAndGet();
+			return store(key, httpConnection);
+		} finally {
+			httpConnection.disconnect();
+		}
+	}
+
+	// Writes the response body and metadata to disk and adds them to the index.
+	private Entry store(String key, HttpURLConnection connection) throws IOException {
+		String baseName = hex(digest(key.getBytes(StandardCharsets.UTF_8)));
+		Path body = dir.resolve(baseName + BODY_SUFFIX);
+		Path metadata = dir.resolve(baseName + METADATA_SUFFIX);
+		Path tempBody = Files.createTempFile(dir, baseName, ".tmp");
+		try {
+			MessageDigest digest = newMessageDigest();
+			try (InputStream is = new DigestInputStream(connection.getInputStream(), digest); OutputStream os = Files.newOutputStream(tempBody)) {
+				byte[] buffer = new byte[8192];
+				int count;
+				while ((count = is.read(buffer)) >= 0) {
+					os.write(buffer, 0, count);
+				}
+			}
+			Entry entry = new Entry(key, body, metadata, connection.getHeaderField("ETag"), connection.getHeaderField("Last-Modified"), hex(digest.digest()), Files.size(tempBody));
+			synchronized (entries) {
+				remove(key);
+				Files.move(tempBody, body, StandardCopyOption.REPLACE_EXISTING);
+				entry.writeMetadata();
+				add(entry);
+			}
+			return entry;
+		} finally {
+			Files.deleteIfExists(tempBody);
+		}
+	}
+
+	// Must be called while holding the lock on entries.
+	private void add(Entry entry) {
+		entries.put(entry.url, entry);
+		totalBytes += entry.size;
+		Iterator<Entry> eldest = entries.values().iterator();
+		while (totalBytes > maxBytes && eldest.hasNext()) {
+			Entry evicted = eldest.next();
+			if (evicted == entry) {
+				continue;		// Always keep the entry just added, even if it is too big on its own.
+			}
+			eldest.remove();
+			totalBytes -= evicted.size;
+			evicted.delete();
+			evictionCount.incrementAndGet();
+		}
+	}
+
+	// Removes an entry from the index (unless it has already been replaced) and deletes its files.
+	private void discard(Entry entry) {
+		synchronized (entries) {
+			if (entries.get(entry.url) == entry) {
+				remove(entry.url);
+				entry.delete();
+			}
+		}
+	}
+
+	// Must be called while holding the lock on entries.
+	private void remove(String key) {
+		Entry previous = entries.remove(key);
+		if (previous != null) {
+			totalBytes -= previous.size;
+		}
+	}
+
+	// Rebuilds the index from the files in the cache directory, least recently stored first.
+	private void loadEntries() throws IOException {
+		List<Entry> found = new ArrayList<>();
+		try (DirectoryStream<Path> metadataFiles = Files.newDirectoryStream(dir, "*" + METADATA_SUFFIX)) {
+			for (Path metadata : metadataFiles) {
+				String fileName = metadata.getFileName().toString();
+				Path body = dir.resolve(fileName.substring(0, fileName.length() - METADATA_SUFFIX.length()) + BODY_SUFFIX);
+				try {
+					found.add(Entry.readMetadata(metadata, body));
+				} catch (IOException | RuntimeException e) {
+					log.debug("Discarding unreadable cache entry '" + metadata + "'.", e);
+					Files.deleteIfExists(metadata);
+					Files.deleteIfExists(body);
+				}
+			}
+		}
+		found.sort(Comparator.comparingLong(e->e.storedMillis));
+		synchronized (entries) {
+			for (Entry entry : found) {
+				add(entry);
+			}
+		}
+	}
+
+	public long getRevalidatedCount() {
+		return revalidatedCount.get();
+	}
+
+	public long getDownloadCount() {
+		return downloadCount.get();
+	}
+
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+
+	public long getTotalBytes() {
+		synchronized (entries) {
+			return totalBytes;
+		}
+	}
+
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	private static boolean isHttp(PathOrUrl location) {
+		if (!location.isUrl()) {
+			return false;
+		}
+		String protocol = location.getUrl().getProtocol().toLowerCase(Locale.ROOT);
+		return "http".equals(protocol) || "https".equals(protocol);
+	}
+
+	private static MessageDigest newMessageDigest() {
+		try {
+			return MessageDigest.getInstance(DIGEST_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			// Every Java platform is required to support SHA-256
+			throw new IllegalStateException("Unable to create " + DIGEST_ALGORITHM + " MessageDigest.", e);
+		}
+	}
+
+	private static byte[] digest(byte[] bytes) {
+		return newMessageDigest().digest(bytes);
+	}
+
+	private static String hex(byte[] bytes) {
+		StringBuilder sb = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return sb.toString();
+	}
+
+	private static class Entry {
+		private final String url;
+		private final Path body;
+		private final Path metadata;
+		private final String etag;				// null if the server did not provide one.
+		private final String lastModified;		// null if the server did not provide one.
+		private final String digest;
+		private final long size;
+		private final long storedMillis;
+
+		private Entry(String url, Path body, Path metadata, String etag, String lastModified, String digest, long size) {
+			this(url, body, metadata, etag, lastModified, digest, size, System.currentTimeMillis());
+		}
+
+		private Entry(String url, Path body, Path metadata, String etag, String lastModified, String digest, long size, long storedMillis) {
+			this.url = url;
+			this.body = body;
+			this.metadata = metadata;
+			this.etag = etag;
+			this.lastModified = lastModified;
+			this.digest = digest;
+			this.size = size;
+			this.storedMillis = storedMillis;
+		}
+
+		// The template's version.  Prefer the server's validators, but fall back to the contents' digest.
+		private String version() {
+			return etag != null ? etag : lastModified != null ? lastModified : digest;
+		}
+
+		private void writeMetadata() throws IOException {
+			Properties properties = new Properties();
+			properties.setProperty(URL_PROPERTY, url);
+			properties.setProperty(DIGEST_PROPERTY, digest);
+			if (etag != null) {
+				properties.setProperty(ETAG_PROPERTY, etag);
+			}
+			if (lastModified != null) {
+				properties.setProperty(LAST_MODIFIED_PROPERTY, lastModified);
+			}
+			try (Writer writer = Files.newBufferedWriter(metadata, StandardCharsets.UTF_8)) {
+				properties.store(writer, null);
+			}
+		}
+
+		private static Entry readMetadata(Path metadata, Path body) throws IOException {
+			Properties properties = new Properties();
+			try (Reader reader = Files.newBufferedReader(metadata, StandardCharsets.UTF_8)) {
+				properties.load(reader);
+			}
+			String url = Objects.requireNonNull(properties.getProperty(URL_PROPERTY), "Missing url property.");
+			String digest = Objects.requireNonNull(properties.getProperty(DIGEST_PROPERTY), "Missing digest property.");
+			return new Entry(url, body, metadata, properties.getProperty(ETAG_PROPERTY), properties.getProperty(LAST_MODIFIED_PROPERTY), digest,
+					Files.size(body), Files.getLastModifiedTime(metadata).toMillis());
+		}
+
+		private void delete() {
+			try {
+				Files.deleteIfExists(metadata);
+				Files.deleteIfExists(body);
+			} catch (IOException e) {
+				log.debug("Unable to delete cached template '" + body + "'.", e);
+			}
+		}
+	}
+}
@@ -0,0 +1,324 @@
+package com._4point.aem.fluentforms.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.Objects;
+
+import com._4point.aem.fluentforms.api.ContentDigest;
+import com._4point.aem.fluentforms.api.Document;
+import com._4point.aem.fluentforms.api.DocumentFactory;
+
+/**
+ * DocumentFactory that keeps Document contents in direct (off-heap) memory.
+ *
+ * The memory comes from a pool and is handed back to the pool once a Document has been closed or disposed and every
+ * InputStream obtained from it has been closed, so large documents do not linger in the heap waiting for the garbage
+ * collector.  The buffers returned by asReadOnlyBuffer() cannot be tracked, so once asReadOnlyBuffer() has been called
+ * the Document's memory is never returned to the pool; it is freed by the garbage collector when the last buffer is
+ * no longer reachable.
+ *
+ * Documents larger than the largest pooled size (64 MB) use unpooled direct memory.  Disposing them does not free the
+ * memory immediately; it is freed by the garbage collector, so the JVM's direct memory limit (-XX:MaxDirectMemorySize)
+ * must leave room for them.
+ *
+ * Documents that are never disposed are reported by a leak detector, see getLeakedDocumentCount().  Their memory is
+ * left for the garbage collector rather than being returned to the pool, since streams obtained from them may still be
+ * reading it.
+ *
+ * Documents created from files are created by the SimpleDocumentFactoryImpl.  Their contents stay in the file rather
+ * than in the heap, and they hold no mapping of it; the file is only memory-mapped if asReadOnlyBuffer() is called.
+ */
+public enum OffHeapDocumentFactoryImpl implements DocumentFactory {
+
+	INSTANCE;
+
+	/**
+	 * Maximum number of bytes of released memory that are kept in the pool for reuse.
+	 */
+	public static final long MAX_POOLED_BYTES = 64L * 1024 * 1024;
+
+	private static final int INITIAL_BUFFER_SIZE = 8192;
+	private static final int MAX_BUFFER_SIZE = Integer.MAX_VALUE - 8;
+
+	private static final DirectBufferPool pool = new DirectBufferPool(MAX_POOLED_BYTES);
+	private static final DocumentLeakDetector leakDetector = new DocumentLeakDetector();
+
+	public static DocumentFactory getFactory() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Returns the number of Documents that have been created by this factory and have not yet been disposed.
+	 *
+	 * @return
+	 */
+	public static int getOutstandingDocumentCount() {
+		return leakDetector.getOutstandingCount();
+	}
+
+	/**
+	 * Returns the number of Documents that have been garbage collected without being disposed.
+	 *
+	 * @return
+	 */
+	public static long getLeakedDocumentCount() {
+		return leakDetector.getLeakCount();
+	}
+
+	/* (non-Javadoc)
+	 * @see com._4point.aem.fluentforms.api.DocumentFactory#create(byte[])
+	 */
+	@Override
+	public Document create(byte[] data) {
+		ByteBuffer buffer = pool.acquire(data.length);
+		buffer.put(data);
+		buffer.flip();
+		return new OffHeapDocumentImpl(buffer);
+	}
+
+	/* (non-Javadoc)
+	 * @see com._4point.aem.fluentforms.api.DocumentFactory#create(java.nio.ByteBuffer, int, int)
+	 */
+	@Override
+	public Document create(ByteBuffer buffer, int offset, int length) {
+		ByteBuffer source = buffer.duplicate();
+		source.limit(offset + length).position(offset);
+		ByteBuffer target = pool.acquire(length);
+		target.put(source);
+		target.flip();
+		return new OffHeapDocumentImpl(target);
+	}
+
+	/* (non-Javadoc)
+	 * @see com._4point.aem.fluentforms.api.DocumentFactory#create(java.io.File, boolean)
+	 */
+	@Override
+	public Document create(File file, boolean ownFile) {
+		return SimpleDocumentFactoryImpl.INSTANCE.create(file, ownFile);
+	}
+
+	/* (non-Javadoc)
+	 * @see com._4point.aem.fluentforms.api.DocumentFactory#create(java.io.File)
+	 */
+	@Override
+	public Document create(File file) {
+		return SimpleDocumentFactoryImpl.INSTANCE.create(file);
+	}
+
+	/* (non-Javadoc)
+	 * @see com._4point.aem.fluentforms.api.DocumentFactory#create(java.nio.file.Path)
+	 */
+	@Override
+	public Document create(Path file) {
+		return SimpleDocumentFactoryImpl.INSTANCE.create(file);
+	}
+
+	/* (non-Javadoc)
+	 * @see com._4point.aem.fluentforms.api.DocumentFactory#create(java.io.InputStream)
+	 */
+	@Override
+	public Document create(InputStream is) {
+		Objects.requireNonNull(is, "InputStream cannot be null.");
+		ByteBuffer buffer = pool.acquire(INITIAL_BUFFER_SIZE);
+		try (InputStream in = is) {
+			byte[] chunk = new byte[INITIAL_BUFFER_SIZE];
+			int len;
+			while ((len = in.read(chunk)) != -1) {
+				if (buffer.remaining() < len) {
+					buffer = grow(buffer, len);
+				}
+				buffer.put(chunk, 0, len);
+			}
+		} catch (IOException e) {
+			pool.release(buffer);
+			// Convert to runtime exception.
+			throw new IllegalArgumentException("I/O Error while reading inputstream.", e);
+		}
+		buffer.flip();
+		return new OffHeapDocumentImpl(buffer);
+	}
+
+	// Replaces a buffer with a larger one that has room for at least another required bytes.
+	private static ByteBuffer grow(ByteBuffer buffer, int required) throws IOException {
+		long minimumSize = (long)buffer.position() + required;
+		if (minimumSize > MAX_BUFFER_SIZE) {
+			throw new IOException("InputStream is too large to be held in memory (more than " + MAX_BUFFER_SIZE + " bytes).");
+		}
+		ByteBuffer newBuffer = pool.acquire((int)Math.min(Math.max((long)buffer.capacity() * 2, minimumSize), MAX_BUFFER_SIZE));
+		buffer.flip();
+		newBuffer.put(buffer);
+		pool.release(buffer);
+		return newBuffer;
+	}
+
+	/* (non-Javadoc)
+	 * @see com._4point.aem.fluentforms.api.DocumentFactory#create(java.lang.String)
+	 */
+	@Override
+	public Document create(String jcrPath) {
+		return SimpleDocumentFactoryImpl.INSTANCE.create(jcrPath);
+	}
+
+	/* (non-Javadoc)
+	 * @see com._4point.aem.fluentforms.api.DocumentFactory#create(java.net.URL)
+	 */
+	@Override
+	public Document create(URL url) {
+		return SimpleDocumentFactoryImpl.INSTANCE.create(url);
+	}
+
+	/* (non-Javadoc)
+	 * @see com._4point.aem.fluentforms.api.DocumentFactory#create(com.adobe.aemfd.docmanager.Document)
+	 */
+	@Override
+	public Document create(com.adobe.aemfd.docmanager.Document document) {
+		return SimpleDocumentFactoryImpl.INSTANCE.create(document);
+	}
+
+	// A pooled buffer that is shared by a Document and the InputStreams it hands out.  Each user holds a reference, and
+	// the buffer is returned to the pool when the last reference is released, unless views of it have escaped through
+	// asReadOnlyBuffer(), in which case it is left for the garbage collector.
+	private static final class SharedBuffer {
+		private final ByteBuffer buffer;
+		private int refCount = 1;			// The Document's reference.  Guarded by this.
+		private boolean escaped = false;	// Guarded by this.
+
+		private SharedBuffer(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		private synchronized void retain() {
+			refCount++;
+		}
+
+		private synchronized void release() {
+			if (--refCount == 0 && !escaped) {
+				pool.release(buffer);
+			}
+		}
+
+		// Returns a view that can outlive every reference, so the buffer must never be reused.
+		private synchronized ByteBuffer escape() {
+			escaped = true;
+			return buffer.duplicate();
+		}
+
+		// Returns a view of the contents.  Each caller gets its own position and limit.  Only valid while the caller
+		// holds a reference.
+		private ByteBuffer view() {
+			return buffer.duplicate();
+		}
+	}
+
+	// Document implementation whose contents live in a pooled direct ByteBuffer.
+	private static class OffHeapDocumentImpl extends SimpleDocumentFactoryImpl.AbstractDocumentImpl {
+		private SharedBuffer data;		// null once the Document has been disposed.
+		private final DocumentLeakDetector.Tracker tracker;
+
+		private OffHeapDocumentImpl(ByteBuffer data) {
+			this.data = new SharedBuffer(data);
+			this.tracker = leakDetector.track(this);
+		}
+
+		// Returns the contents with an extra reference that the caller must release, or null if the Document has been disposed.
+		private synchronized SharedBuffer retainData() {
+			if (data != null) {
+				data.retain();
+			}
+			return data;
+		}
+
+		@Override
+		public synchronized void dispose() {
+			if (data != null) {
+				tracker.close();
+				data.release();
+				data = null;
+			}
+		}
+
+		@Override
+		public byte[] getInlineData() throws IOException {
+			SharedBuffer shared = retainData();
+			if (shared == null) {
+				return new byte[0];
+			}
+			try {
+				ByteBuffer buffer = shared.view();
+				byte[] result = new byte[buffer.remaining()];
+				buffer.get(result);
+				return result;
+			} finally {
+				shared.release();
+			}
+		}
+
+		// The stream keeps the buffer out of the pool until it is closed.
+		@Override
+		public InputStream getInputStream() throws IOException {
+			SharedBuffer shared = retainData();
+			if (shared == null) {
+				return new ByteBufferInputStream(ByteBuffer.allocate(0));
+			}
+			return new ByteBufferInputStream(shared.view(), shared::release);
+		}
+
+		@Override
+		public synchronized ByteBuffer asReadOnlyBuffer() throws IOException {
+			return data == null ? ByteBuffer.allocate(0).asReadOnlyBuffer() : data.escape().asReadOnlyBuffer();
+		}
+
+		@Override
+		ContentDigest computeContentDigest() throws IOException {
+			SharedBuffer shared = retainData();
+			if (shared == null) {
+				return SimpleDocumentFactoryImpl.digestOf(digestAlgorithm, ByteBuffer.allocate(0));
+			}
+			try {
+				return SimpleDocumentFactoryImpl.digestOf(digestAlgorithm, shared.view());
+			} finally {
+				shared.release();
+			}
+		}
+
+		@Override
+		public long transferTo(WritableByteChannel target) throws IOException {
+			SharedBuffer shared = retainData();
+			if (shared == null) {
+				return 0;
+			}
+			try {
+				ByteBuffer buffer = shared.view();
+				long count = buffer.remaining();
+				while (buffer.hasRemaining()) {
+					target.write(buffer);
+				}
+				return count;
+			} finally {
+				shared.release();
+			}
+		}
+
+		@Override
+		public long transferTo(OutputStream target) throws IOException {
+			return transferTo(Channels.newChannel(target));
+		}
+
+		@Override
+		public synchronized long length() throws IOException {
+			return data == null ? 0 : data.buffer.remaining();
+		}
+
+		@Override
+		public void passivate() throws IOException {
+			// Do nothing, the data already resides outside of the heap.
+		}
+	}
+}
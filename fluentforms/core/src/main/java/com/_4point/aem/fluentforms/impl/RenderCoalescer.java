@@ -0,0 +1,226 @@
+package com._4point.aem.fluentforms.impl;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com._4point.aem.fluentforms.api.ContentDigest;
+import com._4point.aem.fluentforms.api.Document;
+import com._4point.aem.fluentforms.api.DocumentFactory;
+
+/**
+ * Coalesces identical renders that are in progress at the same time (sometimes called "single flight").
+ *
+ * The first caller with a given key performs the render and receives the Document it produced.  Callers that arrive
+ * with the same key while it is in progress wait for it rather than starting their own, and each of them receives its
+ * own Document (created by the coalescer's DocumentFactory) over the shared result, or the same exception.  The result
+ * is only read for them if there are any.  Once the render completes, the key is forgotten, so later callers start a
+ * new render.  Nothing is cached; see RenderResultCache for that.
+ *
+ * Keys are built using RenderResultCache.key(), so they cover the template, the data and every option.  Building a key
+ * reads any Document that doesn't already have a ContentDigest, so requests are only coalesced if that is cheap (see
+ * canCoalesce()): each Document already has a digest (e.g. a SimpleDocumentFactoryImpl Document that has been read from
+ * a stream) or is small enough that hashing it costs little next to a render.  The second case is what lets requests be
+ * coalesced on the server, where Documents never have ContentDigests.
+ *
+ */
+public class RenderCoalescer {
+
+	private final ConcurrentHashMap<ContentDigest, InFlight> inFlight = new ConcurrentHashMap<>();
+	/**
+	 * Largest Document (in bytes) that is read to build a key, if it doesn't already have a ContentDigest.
+	 */
+	public static final long DEFAULT_MAX_KEYED_LENGTH = 1024 * 1024;
+
+	private final DocumentFactory documentFactory;
+	private final long maxKeyedLength;
+	private final AtomicLong renderCount = new AtomicLong();
+	private final AtomicLong coalescedCount = new AtomicLong();
+
+	/**
+	 * Creates a RenderCoalescer that gives callers who share a render Documents created by DocumentFactory.getDefault().
+	 */
+	public RenderCoalescer() {
+		this(DocumentFactory.getDefault());
+	}
+
+	/**
+	 * Creates a RenderCoalescer.
+	 *
+	 * @param documentFactory DocumentFactory used to create the Documents given to callers who share another caller's
+	 * render.
+	 */
+	public RenderCoalescer(DocumentFactory documentFactory) {
+		this(documentFactory, DEFAULT_MAX_KEYED_LENGTH);
+	}
+
+	/**
+	 * Creates a RenderCoalescer.
+	 *
+	 * @param documentFactory DocumentFactory used to create the Documents given to callers who share another caller's
+	 * render.
+	 * @param maxKeyedLength largest Document (in bytes) that is read to build a key, if it doesn't already have a
+	 * ContentDigest.  Requests with larger Documents are not coalesced.
+	 */
+	public RenderCoalescer(DocumentFactory documentFactory, long maxKeyedLength) {
+		if (maxKeyedLength < 0) {
+			throw new IllegalArgumentException("maxKeyedLength cannot be negative (" + maxKeyedLength + ").");
+		}
+		this.documentFactory = Objects.requireNonNull(documentFactory, "documentFactory cannot be null.");
+		this.maxKeyedLength = maxKeyedLength;
+	}
+
+	/**
+	 * Returns true if a key can be built cheaply from the Documents, i.e. each one is null, already has a ContentDigest
+	 * that RenderResultCache.KeyBuilder can use or is no longer than maxKeyedLength.  Documents are not read to find
+	 * this out (although a Document that is read from a stream may need to read the stream to determine its length).
+	 *
+	 * @param docs
+	 * @return
+	 */
+	public boolean canCoalesce(Document... docs) {
+		for (Document doc : docs) {
+			if (doc != null && !canKey(doc)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean canKey(Document doc) {
+		if (RenderResultCache.KeyBuilder.hasKnownDigest(doc)) {
+			return true;
+		}
+		try {
+			long length = doc.length();		// Reading a stream computes its digest, so check again if it's too long.
+			return length <= maxKeyedLength || RenderResultCache.KeyBuilder.hasKnownDigest(doc);
+		} catch (IOException e) {
+			return false;		// Let the render report the problem.
+		}
+	}
+
+	/**
+	 * Performs a render, or waits for an identical one that is already in progress.
+	 *
+	 * @param key identifies the render.
+	 * @param render performs the render.
+	 * @return a Document containing the result.  The caller that performed the render receives the Document it
+	 * returned and every other caller receives its own Document.
+	 * @throws Exception the exception thrown by the render (whichever caller performed it), an IOException if the
+	 * result cannot be read for a caller who shared it, or an InterruptedException if the caller is interrupted while
+	 * waiting.
+	 */
+	public Document render(ContentDigest key, Callable<Document> render) throws Exception {
+		Objects.requireNonNull(key, "key cannot be null.");
+		Objects.requireNonNull(render, "render cannot be null.");
+		InFlight created = new InFlight();
+		InFlight joined = inFlight.compute(key, (k, existing)->{
+			if (existing == null) {
+				return created;
+			}
+			existing.followers.incrementAndGet();
+			return existing;
+		});
+		if (joined != created) {
+			coalescedCount.incrementAndGet();
+			return toDocument(await(joined.future));
+		}
+		renderCount.incrementAndGet();
+		Document result;
+		try {
+			result = render.call();
+		} catch (Throwable e) {
+			inFlight.remove(key, created);
+			created.future.completeExceptionally(e);
+			throw e;
+		}
+		inFlight.remove(key, created);		// No one can join once it has been removed.
+		if (created.followers.get() > 0) {
+			try {
+				created.future.complete(SharedResult.from(result));
+			} catch (Throwable e) {
+				created.future.completeExceptionally(e);
+			}
+		}
+		return result;
+	}
+
+	// The shared contents are never modified, so SimpleDocuments can share them rather than copy them.
+	private Document toDocument(SharedResult result) {
+		Document doc = documentFactory == SimpleDocumentFactoryImpl.getFactory() ? SimpleDocumentFactoryImpl.createShared(result.contents) : documentFactory.create(result.contents);
+		if (result.contentType != null) {
+			doc.setContentType(result.contentType);
+		}
+		return doc;
+	}
+
+	private static SharedResult await(CompletableFuture<SharedResult> future) throws Exception {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw e;
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Exception) {
+				throw (Exception)cause;
+			} else if (cause instanceof Error) {
+				throw (Error)cause;
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns the number of renders that were performed.
+	 *
+	 * @return
+	 */
+	public long getRenderCount() {
+		return renderCount.get();
+	}
+
+	/**
+	 * Returns the number of callers that shared a render performed for another caller.
+	 *
+	 * @return
+	 */
+	public long getCoalescedCount() {
+		return coalescedCount.get();
+	}
+
+	/**
+	 * Returns the number of renders currently in progress.
+	 *
+	 * @return
+	 */
+	public int getInFlightCount() {
+		return inFlight.size();
+	}
+
+	private static class InFlight {
+		private final CompletableFuture<SharedResult> future = new CompletableFuture<>();
+		private final AtomicInteger followers = new AtomicInteger();		// Callers waiting for this render.
+	}
+
+	// The contents of a result, read once so that every caller who shared it can be given a Document over them.
+	private static class SharedResult {
+		private final String contentType;
+		private final byte[] contents;
+
+		private SharedResult(String contentType, byte[] contents) {
+			this.contentType = contentType;
+			this.contents = contents;
+		}
+
+		private static SharedResult from(Document result) throws IOException {
+			Objects.requireNonNull(result, "Render returned a null Document.");
+			return new SharedResult(result.getContentType(), result.getInlineData());
+		}
+	}
+}
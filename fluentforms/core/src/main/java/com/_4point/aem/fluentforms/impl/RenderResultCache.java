@@ -0,0 +1,712 @@
+package com._4point.aem.fluentforms.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com._4point.aem.fluentforms.api.ContentDigest;
+import com._4point.aem.fluentforms.api.Document;
+import com._4point.aem.fluentforms.api.DocumentFactory;
+import com._4point.aem.fluentforms.api.PathOrUrl;
+
+/**
+ * Cache of rendered documents (e.g. PDFs produced by the Output and Forms services), keyed by a digest of everything
+ * that went into producing them.
+ *
+ * Keys are built using a KeyBuilder, which digests the name of the operation, the template (its location and version,
+ * or its contents), the data and every option that affects the result.  Two requests with the same key are assumed to
+ * produce the same result, so the second one can be answered from the cache without calling AEM.
+ *
+ * Results are held in memory and the least recently used are discarded once their total size exceeds the limit.  If
+ * the cache is given a directory, results discarded from memory are written there instead (up to a second limit) and
+ * are read back if they are requested again.  Results on disk are kept across restarts.
+ *
+ * Templates passed by location are keyed by their resolved location and their version (see TemplateCache.Loader), so a
+ * changed template gets a new key.  Templates that cannot be versioned (e.g. crx: templates) cannot be cached.  The
+ * version doesn't cover the fragments and images a template references, so use invalidateOn() to discard results when
+ * those change.
+ *
+ * Results are returned in Documents created by the cache's DocumentFactory, so on the server they are Adobe Documents
+ * that can be passed on to other AEM services.
+ *
+ */
+public class RenderResultCache {
+	private static final Logger log = LoggerFactory.getLogger(RenderResultCache.class);
+
+	public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+	private static final String DIGEST_ALGORITHM = "SHA-256";
+	private static final String RESULT_SUFFIX = ".result2";
+	private static final String OLD_RESULT_SUFFIX = ".result";		// Written without the template, so can't be used.
+	private static final String URL_SEPARATOR = "/";
+
+	private final long maxBytes;
+	private final Path dir;				// null if there is no disk tier.
+	private final long maxDiskBytes;
+	private final DocumentFactory documentFactory;
+	private final LinkedHashMap<ContentDigest, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);		// Access order, so the eldest is least recently used.
+	private long totalBytes = 0;		// Guarded by entries.
+	private final LinkedHashMap<String, DiskEntry> diskEntries = new LinkedHashMap<>(16, 0.75f, true);		// Access order, guarded by diskEntries.
+	private long totalDiskBytes = 0;	// Guarded by diskEntries.
+	private final List<XdpDependencyIndex> indexes = new CopyOnWriteArrayList<>();
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong diskHitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong evictionCount = new AtomicLong();
+
+	public RenderResultCache() {
+		this(DEFAULT_MAX_BYTES);
+	}
+
+	/**
+	 * Creates a cache that only holds results in memory and returns them in Documents created by
+	 * DocumentFactory.getDefault().
+	 *
+	 * @param maxBytes maximum total size of the results held in memory.
+	 */
+	public RenderResultCache(long maxBytes) {
+		this(maxBytes, DocumentFactory.getDefault());
+	}
+
+	/**
+	 * Creates a cache that only holds results in memory.
+	 *
+	 * @param maxBytes maximum total size of the results held in memory.
+	 * @param documentFactory DocumentFactory used to create the Documents returned by get().
+	 */
+	public RenderResultCache(long maxBytes, DocumentFactory documentFactory) {
+		if (maxBytes <= 0) {
+			throw new IllegalArgumentException("maxBytes must be greater than zero (" + maxBytes + ").");
+		}
+		this.maxBytes = maxBytes;
+		this.dir = null;
+		this.maxDiskBytes = 0;
+		this.documentFactory = Objects.requireNonNull(documentFactory, "documentFactory cannot be null.");
+	}
+
+	/**
+	 * Creates a cache that writes results discarded from memory to a directory and returns results in Documents created
+	 * by DocumentFactory.getDefault().
+	 *
+	 * @param maxBytes maximum total size of the results held in memory.
+	 * @param dir directory to store results in.  It is created if it does not exist.
+	 * @param maxDiskBytes maximum total size of the results stored on disk.
+	 * @throws IOException if the directory cannot be created or read.
+	 */
+	public RenderResultCache(long maxBytes, Path dir, long maxDiskBytes) throws IOException {
+		this(maxBytes, dir, maxDiskBytes, DocumentFactory.getDefault());
+	}
+
+	/**
+	 * Creates a cache that writes results discarded from memory to a directory.
+	 *
+	 * @param maxBytes maximum total size of the results held in memory.
+	 * @param dir directory to store results in.  It is created if it does not exist.
+	 * @param maxDiskBytes maximum total size of the results stored on disk.
+	 * @param documentFactory DocumentFactory used to create the Documents returned by get().
+	 * @throws IOException if the directory cannot be created or read.
+	 */
+	public RenderResultCache(long maxBytes, Path dir, long maxDiskBytes, DocumentFactory documentFactory) throws IOException {
+		if (maxBytes <= 0) {
+			throw new IllegalArgumentException("maxBytes must be greater than zero (" + maxBytes + ").");
+		}
+		if (maxDiskBytes <= 0) {
+			throw new IllegalArgumentException("maxDiskBytes must be greater than zero (" + maxDiskBytes + ").");
+		}
+		this.maxBytes = maxBytes;
+		this.dir = Files.createDirectories(Objects.requireNonNull(dir, "dir cannot be null."));
+		this.maxDiskBytes = maxDiskBytes;
+		this.documentFactory = Objects.requireNonNull(documentFactory, "documentFactory cannot be null.");
+		loadDiskEntries();
+	}
+
+	/**
+	 * Starts building the key for an operation.
+	 *
+	 * @param operation name of the operation (e.g. "generatePDFOutput"), so that different operations given the same
+	 * arguments have different keys.
+	 * @return
+	 */
+	public static KeyBuilder key(String operation) {
+		return new KeyBuilder().add("operation", Objects.requireNonNull(operation, "operation cannot be null."));
+	}
+
+	/**
+	 * Starts building the key for an operation on a template passed by location.  The template is resolved against the
+	 * content root the way AEM resolves it, and the key includes its current version, so results produced from an
+	 * earlier version of the template are no longer found.
+	 *
+	 * @param operation name of the operation (e.g. "generatePDFOutput").
+	 * @param urlOrFileName template location, as passed to AEM.
+	 * @param contentRoot content root passed to AEM, or null.
+	 * @return the KeyBuilder, or an empty Optional if the template's version cannot be determined (in which case the
+	 * result must not be cached).
+	 */
+	public static Optional<KeyBuilder> key(String operation, String urlOrFileName, PathOrUrl contentRoot) {
+		Objects.requireNonNull(urlOrFileName, "urlOrFileName cannot be null.");
+		PathOrUrl location = resolve(urlOrFileName, contentRoot);
+		if (location == null) {
+			return Optional.empty();
+		}
+		try {
+			String version = TemplateCache.DEFAULT_LOADER.version(location);
+			if (version == null) {
+				return Optional.empty();
+			}
+			KeyBuilder key = key(operation).add("templateLocation", location).add("templateVersion", version);
+			key.templateFile = location.isPath() ? normalize(location.getPath()) : null;
+			return Optional.of(key);
+		} catch (IOException e) {
+			log.debug("Unable to determine the version of template '" + location + "'.", e);
+			return Optional.empty();
+		}
+	}
+
+	// Returns the template's location, or null if it's a crx: location (which only AEM can read).
+	private static PathOrUrl resolve(String urlOrFileName, PathOrUrl contentRoot) {
+		PathOrUrl template = PathOrUrl.from(urlOrFileName);
+		if (template.isCrxUrl()) {
+			return null;
+		}
+		if (contentRoot == null || template.isUrl() || template.getPath().isAbsolute()) {
+			return template;
+		} else if (contentRoot.isPath()) {
+			return PathOrUrl.from(contentRoot.getPath().resolve(template.getPath()));
+		} else if (contentRoot.isUrl()) {
+			return PathOrUrl.from(TemplateValues.stripTrailingSlash(contentRoot.getUrl().toString()) + URL_SEPARATOR + urlOrFileName);
+		} else {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the result cached for a key.
+	 *
+	 * @param key
+	 * @return a new Document containing the cached result, or an empty Optional if there is none.
+	 */
+	public Optional<Document> get(ContentDigest key) {
+		Objects.requireNonNull(key, "key cannot be null.");
+		Entry entry;
+		synchronized (entries) {
+			entry = entries.get(key);
+		}
+		if (entry == null && dir != null) {
+			entry = readFromDisk(key);
+			if (entry != null) {
+				diskHitCount.incrementAndGet();
+				putInMemory(key, entry);
+			}
+		}
+		if (entry == null) {
+			missCount.incrementAndGet();
+			return Optional.empty();
+		}
+		hitCount.incrementAndGet();
+		return Optional.of(toDocument(entry));
+	}
+
+	/**
+	 * Caches the result for a key that wasn't produced from a template file (e.g. the template was passed as a Document).
+	 *
+	 * @param key
+	 * @param result
+	 * @return the result passed in.
+	 * @throws IOException if the result cannot be read.
+	 */
+	public Document put(ContentDigest key, Document result) throws IOException {
+		return put(key, result, null);
+	}
+
+	/**
+	 * Caches the result for a key, recording the template file it was produced from so that the result can be discarded
+	 * when the template, or a fragment or image it references, changes (see invalidateOn()).
+	 *
+	 * @param key
+	 * @param result
+	 * @param templateFile template file the result was produced from (see KeyBuilder.getTemplateFile()), or null.
+	 * @return the result passed in.
+	 * @throws IOException if the result cannot be read.
+	 */
+	public Document put(ContentDigest key, Document result, Path templateFile) throws IOException {
+		Objects.requireNonNull(key, "key cannot be null.");
+		Objects.requireNonNull(result, "result cannot be null.");
+		if (result.length() > maxBytes) {
+			return result;		// Too big to ever fit.
+		}
+		Path template = templateFile != null ? normalize(templateFile) : null;
+		putInMemory(key, new Entry(result.getContentType(), result.getInlineData(), template));
+		if (template != null) {
+			// Make sure the indexes know about the template, so that they report it when its fragments change.
+			for (XdpDependencyIndex index : indexes) {
+				if (template.startsWith(index.getContentRoot())) {
+					index.getDependencies(template);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Discards all cached results (including those on disk).
+	 */
+	public void invalidateAll() {
+		synchronized (entries) {
+			entries.clear();
+			totalBytes = 0;
+		}
+		if (dir != null) {
+			synchronized (diskEntries) {
+				for (String name : diskEntries.keySet()) {
+					deleteQuietly(dir.resolve(name + RESULT_SUFFIX));
+				}
+				diskEntries.clear();
+				totalDiskBytes = 0;
+			}
+		}
+	}
+
+	/**
+	 * Discards the results produced from any of the template files given (including those on disk).  Results whose
+	 * template was not a file are also discarded, since those templates can reference the same fragments and images.
+	 *
+	 * @param changed template files (absolute), e.g. as reported by an XdpDependencyIndex.
+	 */
+	public void invalidate(Set<Path> changed) {
+		Objects.requireNonNull(changed, "changed cannot be null.");
+		synchronized (entries) {
+			Iterator<Entry> it = entries.values().iterator();
+			while (it.hasNext()) {
+				Entry entry = it.next();
+				if (entry.template == null || changed.contains(entry.template)) {
+					totalBytes -= entry.contents.length;
+					it.remove();
+				}
+			}
+		}
+		if (dir != null) {
+			synchronized (diskEntries) {
+				Iterator<Map.Entry<String, DiskEntry>> it = diskEntries.entrySet().iterator();
+				while (it.hasNext()) {
+					Map.Entry<String, DiskEntry> next = it.next();
+					if (next.getValue().template == null || changed.contains(next.getValue().template)) {
+						totalDiskBytes -= next.getValue().size;
+						it.remove();
+						deleteQuietly(dir.resolve(next.getKey() + RESULT_SUFFIX));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Discards the results affected whenever the index reports that a template, fragment or image under its content
+	 * root has changed.  Templates are added to the index as their results are cached.
+	 *
+	 * @param index
+	 */
+	public void invalidateOn(XdpDependencyIndex index) {
+		indexes.add(Objects.requireNonNull(index, "index cannot be null."));
+		index.addInvalidationListener(this::invalidate);
+	}
+
+	// The cached contents are never modified, so SimpleDocuments can share them rather than copy them.
+	private Document toDocument(Entry entry) {
+		Document doc = documentFactory == SimpleDocumentFactoryImpl.getFactory() ? SimpleDocumentFactoryImpl.createShared(entry.contents) : documentFactory.create(entry.contents);
+		if (entry.contentType != null) {
+			doc.setContentType(entry.contentType);
+		}
+		return doc;
+	}
+
+	private void putInMemory(ContentDigest key, Entry entry) {
+		List<Map.Entry<ContentDigest, Entry>> evicted = new ArrayList<>();
+		synchronized (entries) {
+			Entry previous = entries.remove(key);
+			if (previous != null) {
+				totalBytes -= previous.contents.length;
+			}
+			entries.put(key, entry);
+			totalBytes += entry.contents.length;
+			Iterator<Map.Entry<ContentDigest, Entry>> eldest = entries.entrySet().iterator();
+			while (totalBytes > maxBytes) {
+				Map.Entry<ContentDigest, Entry> next = eldest.next();
+				totalBytes -= next.getValue().contents.length;
+				eldest.remove();
+				evicted.add(next);
+				evictionCount.incrementAndGet();
+			}
+		}
+		if (dir != null) {
+			// Written outside the lock so that other requests are not held up by the disk.
+			for (Map.Entry<ContentDigest, Entry> e : evicted) {
+				writeToDisk(e.getKey(), e.getValue());
+			}
+		}
+	}
+
+	private Entry readFromDisk(ContentDigest key) {
+		String name = key.toHexString();
+		synchronized (diskEntries) {
+			if (diskEntries.get(name) == null) {
+				return null;
+			}
+		}
+		try (DataInputStream is = new DataInputStream(Files.newInputStream(dir.resolve(name + RESULT_SUFFIX)))) {
+			String contentType = is.readUTF();
+			String template = is.readUTF();
+			ByteArrayOutputStream os = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int count;
+			while ((count = is.read(buffer)) >= 0) {
+				os.write(buffer, 0, count);
+			}
+			return new Entry(contentType.isEmpty() ? null : contentType, os.toByteArray(), toTemplate(template));
+		} catch (NoSuchFileException e) {
+			removeFromDisk(name);		// Evicted between checking and reading.
+			return null;
+		} catch (IOException e) {
+			log.debug("Discarding unreadable cached result '" + name + "'.", e);
+			removeFromDisk(name);
+			return null;
+		}
+	}
+
+	private void writeToDisk(ContentDigest key, Entry entry) {
+		String name = key.toHexString();
+		synchronized (diskEntries) {
+			if (diskEntries.containsKey(name)) {
+				return;		// Already on disk (it was read back from there).
+			}
+		}
+		Path file = dir.resolve(name + RESULT_SUFFIX);
+		try {
+			Path temp = Files.createTempFile(dir, name, ".tmp");
+			try {
+				try (DataOutputStream os = new DataOutputStream(Files.newOutputStream(temp))) {
+					os.writeUTF(entry.contentType != null ? entry.contentType : "");
+					os.writeUTF(entry.template != null ? entry.template.toString() : "");
+					os.write(entry.contents);
+				}
+				long size = Files.size(temp);
+				synchronized (diskEntries) {
+					Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+					addToDisk(name, new DiskEntry(size, entry.template));
+				}
+			} finally {
+				Files.deleteIfExists(temp);
+			}
+		} catch (IOException e) {
+			log.debug("Unable to write cached result '" + name + "' to disk.", e);
+		}
+	}
+
+	// Must be called while holding the lock on diskEntries.
+	private void addToDisk(String name, DiskEntry entry) {
+		DiskEntry previous = diskEntries.put(name, entry);
+		totalDiskBytes += entry.size - (previous != null ? previous.size : 0);
+		Iterator<Map.Entry<String, DiskEntry>> eldest = diskEntries.entrySet().iterator();
+		while (totalDiskBytes > maxDiskBytes && eldest.hasNext()) {
+			Map.Entry<String, DiskEntry> next = eldest.next();
+			eldest.remove();
+			totalDiskBytes -= next.getValue().size;
+			deleteQuietly(dir.resolve(next.getKey() + RESULT_SUFFIX));
+			evictionCount.incrementAndGet();
+		}
+	}
+
+	private void removeFromDisk(String name) {
+		synchronized (diskEntries) {
+			DiskEntry entry = diskEntries.remove(name);
+			if (entry != null) {
+				totalDiskBytes -= entry.size;
+			}
+		}
+		deleteQuietly(dir.resolve(name + RESULT_SUFFIX));
+	}
+
+	// Rebuilds the disk index from the files in the directory, least recently written first.
+	private void loadDiskEntries() throws IOException {
+		List<Path> found = new ArrayList<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*{" + RESULT_SUFFIX + "," + OLD_RESULT_SUFFIX + "}")) {
+			for (Path file : files) {
+				if (file.getFileName().toString().endsWith(OLD_RESULT_SUFFIX)) {
+					deleteQuietly(file);
+				} else {
+					found.add(file);
+				}
+			}
+		}
+		found.sort(Comparator.comparingLong(RenderResultCache::lastModifiedMillis));
+		synchronized (diskEntries) {
+			for (Path file : found) {
+				String fileName = file.getFileName().toString();
+				try (DataInputStream is = new DataInputStream(Files.newInputStream(file))) {
+					is.readUTF();		// Content type.
+					addToDisk(fileName.substring(0, fileName.length() - RESULT_SUFFIX.length()), new DiskEntry(Files.size(file), toTemplate(is.readUTF())));
+				} catch (IOException e) {
+					log.debug("Discarding unreadable cached result '" + fileName + "'.", e);
+					deleteQuietly(file);
+				}
+			}
+		}
+	}
+
+	private static Path toTemplate(String template) {
+		return template.isEmpty() ? null : Paths.get(template);
+	}
+
+	private static Path normalize(Path path) {
+		return path.toAbsolutePath().normalize();
+	}
+
+	private static long lastModifiedMillis(Path file) {
+		try {
+			return Files.getLastModifiedTime(file).toMillis();
+		} catch (IOException e) {
+			return 0;
+		}
+	}
+
+	private static void deleteQuietly(Path file) {
+		try {
+			Files.deleteIfExists(file);
+		} catch (IOException e) {
+			log.debug("Unable to delete cached result '" + file + "'.", e);
+		}
+	}
+
+	/**
+	 * Returns the number of requests answered from the cache (from memory or disk).
+	 *
+	 * @return
+	 */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * Returns the number of requests answered from the disk tier.
+	 *
+	 * @return
+	 */
+	public long getDiskHitCount() {
+		return diskHitCount.get();
+	}
+
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	/**
+	 * Returns the number of results discarded from memory or disk to stay within the limits.
+	 *
+	 * @return
+	 */
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+
+	/**
+	 * Returns the fraction of requests that were answered from the cache, or 0 if there have been no requests.
+	 *
+	 * @return
+	 */
+	public double getHitRatio() {
+		long hits = hitCount.get();
+		long total = hits + missCount.get();
+		return total == 0 ? 0.0 : (double)hits / total;
+	}
+
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	public long getTotalBytes() {
+		synchronized (entries) {
+			return totalBytes;
+		}
+	}
+
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	public int getDiskSize() {
+		synchronized (diskEntries) {
+			return diskEntries.size();
+		}
+	}
+
+	public long getTotalDiskBytes() {
+		synchronized (diskEntries) {
+			return totalDiskBytes;
+		}
+	}
+
+	private static MessageDigest newMessageDigest() {
+		try {
+			return MessageDigest.getInstance(DIGEST_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			// Every Java platform is required to support SHA-256.
+			throw new IllegalStateException("Unable to create " + DIGEST_ALGORITHM + " MessageDigest.", e);
+		}
+	}
+
+	/**
+	 * Builds a cache key by digesting a sequence of named values.  Each value is written along with its name and
+	 * length, so that values can't run into each other, and null is distinct from every other value.
+	 *
+	 * Documents are identified by their contents.  If a Document already has a SHA-256 ContentDigest, that is used rather
+	 * than reading the Document again.
+	 */
+	public static final class KeyBuilder {
+		private static final byte NULL_VALUE = 0;
+		private static final byte STRING_VALUE = 1;
+		private static final byte DOCUMENT_VALUE = 2;
+
+		private final MessageDigest digest = newMessageDigest();
+		private long length = 0;
+		private Path templateFile = null;
+
+		private KeyBuilder() {
+		}
+
+		/**
+		 * Adds a value.  Values are identified by their toString(), so they must have one that describes them completely
+		 * (e.g. Strings, Booleans, enums, Paths, URLs, Locales).
+		 *
+		 * @param name
+		 * @param value value to add, or null.
+		 * @return
+		 */
+		public KeyBuilder add(String name, Object value) {
+			addName(name);
+			if (value == null) {
+				update(NULL_VALUE, new byte[0]);
+			} else {
+				update(STRING_VALUE, value.toString().getBytes(StandardCharsets.UTF_8));
+			}
+			return this;
+		}
+
+		/**
+		 * Adds a Document, identified by its contents.
+		 *
+		 * @param name
+		 * @param doc Document to add, or null.
+		 * @return
+		 * @throws IOException if the Document cannot be read.
+		 */
+		public KeyBuilder add(String name, Document doc) throws IOException {
+			if (doc == null) {
+				return add(name, (Object)null);
+			}
+			addName(name);
+			update(DOCUMENT_VALUE, contentDigest(doc));
+			return this;
+		}
+
+		/**
+		 * Returns the template file that this key was started with (see RenderResultCache.key(String, String, PathOrUrl)),
+		 * so that it can be passed to put().
+		 *
+		 * @return the template file, or null if the template is not a file.
+		 */
+		public Path getTemplateFile() {
+			return templateFile;
+		}
+
+		public ContentDigest build() {
+			return new ContentDigest(DIGEST_ALGORITHM, digest.digest(), length);
+		}
+
+		private void addName(String name) {
+			update(STRING_VALUE, Objects.requireNonNull(name, "name cannot be null.").getBytes(StandardCharsets.UTF_8));
+		}
+
+		private void update(byte type, byte[] value) {
+			digest.update(type);
+			digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(value.length).array());
+			digest.update(value);
+			length += 1 + Integer.BYTES + value.length;
+		}
+
+		// Returns true if the Document already has a ContentDigest that can be used, without computing one.
+		/* package */ static boolean hasKnownDigest(Document doc) {
+			Optional<ContentDigest> known = SimpleDocumentFactoryImpl.knownContentDigest(doc);
+			return known.isPresent() && DIGEST_ALGORITHM.equals(known.get().getAlgorithm());
+		}
+
+		// Returns true if the Document's own ContentDigest can be used rather than reading it.
+		private static boolean hasUsableDigest(Document doc) {
+			Optional<ContentDigest> existing = doc.getContentDigest();
+			return existing.isPresent() && DIGEST_ALGORITHM.equals(existing.get().getAlgorithm());
+		}
+
+		private static byte[] contentDigest(Document doc) throws IOException {
+			if (hasUsableDigest(doc)) {
+				return doc.getContentDigest().get().getDigest();
+			}
+			MessageDigest contentDigest = newMessageDigest();
+			try (InputStream is = doc.getInputStream()) {
+				byte[] buffer = new byte[8192];
+				int count;
+				while ((count = is.read(buffer)) >= 0) {
+					contentDigest.update(buffer, 0, count);
+				}
+			}
+			return contentDigest.digest();
+		}
+	}
+
+	private static class Entry {
+		private final String contentType;
+		private final byte[] contents;
+		private final Path template;		// null if the result wasn't produced from a template file.
+
+		private Entry(String contentType, byte[] contents, Path template) {
+			this.contentType = contentType;
+			this.contents = contents;
+			this.template = template;
+		}
+	}
+
+	private static class DiskEntry {
+		private final long size;
+		private final Path template;		// null if the result wasn't produced from a template file.
+
+		private DiskEntry(long size, Path template) {
+			this.size = size;
+			this.template = template;
+		}
+	}
+}
@@ -1,21 +1,30 @@
 package com._4point.aem.fluentforms.impl;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
-import java.util.Map;
-import java.util.TreeMap;
+import java.util.Objects;
+import java.util.Optional;
 
 // import org.apache.sling.api.resource.ResourceResolver;
 
+import com._4point.aem.fluentforms.api.ContentDigest;
 import com._4point.aem.fluentforms.api.Document;
 import com._4point.aem.fluentforms.api.DocumentFactory;
 
@@ -24,16 +33,57 @@ public enum SimpleDocumentFactoryImpl implements DocumentFactory {
 	
 	INSTANCE;
 	
+	/**
+	 * Documents created from an InputStream keep up to this many bytes in memory (unless changed using setMaxInlineSize()),
+	 * anything larger is spilled to a temporary file.
+	 */
+	public static final int DEFAULT_MAX_INLINE_SIZE = 65536;
+
+	/**
+	 * MessageDigest algorithm used to compute each Document's ContentDigest (unless changed using setDigestAlgorithm()).
+	 */
+	public static final String DEFAULT_DIGEST_ALGORITHM = "SHA-256";
+
+	private static final int COPY_BUFFER_SIZE = 8192;
+
+	private static volatile String digestAlgorithm = DEFAULT_DIGEST_ALGORITHM;
+
 	public static DocumentFactory getFactory() {
 		return INSTANCE;
 	}
 
+	/**
+	 * Changes the algorithm used to compute ContentDigests for Documents created after this call.  Any algorithm
+	 * supported by an installed security provider may be used, so faster non-cryptographic hashes can be plugged in
+	 * by registering a provider for them.
+	 * 
+	 * @param algorithm MessageDigest algorithm name
+	 * @throws IllegalArgumentException if the algorithm is not available.
+	 */
+	public static void setDigestAlgorithm(String algorithm) {
+		newMessageDigest(Objects.requireNonNull(algorithm, "Digest algorithm cannot be null."));		// Make sure it is available.
+		digestAlgorithm = algorithm;
+	}
+
+	public static String getDigestAlgorithm() {
+		return digestAlgorithm;
+	}
+
+	private static MessageDigest newMessageDigest(String algorithm) {
+		try {
+			return MessageDigest.getInstance(algorithm);
+		} catch (NoSuchAlgorithmException e) {
+			// Convert to runtime exception.
+			throw new IllegalArgumentException("Digest algorithm is not available (" + algorithm + ").", e);
+		}
+	}
+
 	/* (non-Javadoc)
 	 * @see com._4point.aem.fluentforms.api.DocumentFactory#create(byte[])
 	 */
 	@Override
 	public Document create(byte[] data) {
-		return new SimpleDocumentImpl(data);
+		return new SimpleDocumentImpl(Arrays.copyOf(data, data.length));
 	}
 
 	/* (non-Javadoc)
@@ -41,7 +91,7 @@ public enum SimpleDocumentFactoryImpl implements DocumentFactory {
 	 */
 	@Override
 	public Document create(File file, boolean ownFile) {
-		return new SimpleDocumentImpl(file, ownFile);
+		return new FileDocumentImpl(file.toPath(), ownFile);
 	}
 
 	/* (non-Javadoc)
@@ -49,7 +99,7 @@ public enum SimpleDocumentFactoryImpl implements DocumentFactory {
 	 */
 	@Override
 	public Document create(File file) {
-		return new SimpleDocumentImpl(file);
+		return new FileDocumentImpl(file.toPath(), false);
 	}
 
 	/* (non-Javadoc)
@@ -57,7 +107,7 @@ public enum SimpleDocumentFactoryImpl implements DocumentFactory {
 	 */
 	@Override
 	public Document create(Path path) {
-		return new SimpleDocumentImpl(path.toFile());
+		return new FileDocumentImpl(path, false);
 	}
 	
 	/* (non-Javadoc)
@@ -65,7 +115,17 @@ public enum SimpleDocumentFactoryImpl implements DocumentFactory {
 	 */
 	@Override
 	public Document create(InputStream is) {
-		return new SimpleDocumentImpl(is);
+		return new StreamDocumentImpl(is);
+	}
+
+	/* (non-Javadoc)
+	 * @see com._4point.aem.fluentforms.api.DocumentFactory#create(java.nio.ByteBuffer, int, int)
+	 */
+	@Override
+	public Document create(ByteBuffer buffer, int offset, int length) {
+		ByteBuffer slice = buffer.duplicate();
+		slice.limit(offset + length).position(offset);
+		return new BufferDocumentImpl(slice.slice().asReadOnlyBuffer());
 	}
 
 //  Removed because this won't work with the client version of this library.  This may be re-instated later
@@ -103,138 +163,490 @@ public enum SimpleDocumentFactoryImpl implements DocumentFactory {
 		return new SimpleDocumentImpl(url);
 	}
 
-	// Simplistic implementation of Document interface.
-	private static class SimpleDocumentImpl implements Document {
-		int maxInlineSize;		// Currently has no effect.  Just here to satisfy interface.
-		byte[] inlineData;
+	// Computes the ContentDigest of a buffer's remaining contents.  Consumes the buffer.
+	/* package */ static ContentDigest digestOf(String algorithm, ByteBuffer contents) {
+		long length = contents.remaining();
+		MessageDigest digest = newMessageDigest(algorithm);
+		digest.update(contents);
+		return new ContentDigest(algorithm, digest.digest(), length);
+	}
+
+	// Returns the Document's ContentDigest if it is available without reading the Document's contents, i.e. it has been
+	// set, computed while the contents were ingested or already computed on request.  Other Document implementations
+	// don't compute digests, so theirs is returned as is.
+	/* package */ static Optional<ContentDigest> knownContentDigest(Document doc) {
+		return doc instanceof AbstractDocumentImpl ? Optional.ofNullable(((AbstractDocumentImpl)doc).knownContentDigest()) : doc.getContentDigest();
+	}
+
+	// Creates a Document whose contents are data, without copying it.  Used by DocumentInterner to share the same
+	// contents between Documents, so data must never be modified afterwards.
+	/* package */ static Document createShared(byte[] data) {
+		return new SimpleDocumentImpl(data);
+	}
+
+	// Attribute, content type and maxInlineSize handling that is common to all the Document implementations below
+	// (and to the ones in OffHeapDocumentFactoryImpl).
+	/* package */ static abstract class AbstractDocumentImpl implements Document {
+		int maxInlineSize = DEFAULT_MAX_INLINE_SIZE;		// Only used by Documents that are read from an InputStream.
 		String contentType;
-		Map<String, Object> attributes = new TreeMap<>();
-		
-		private SimpleDocumentImpl(byte[] data) {
-			this.inlineData = Arrays.copyOf(data, data.length);
+		final AttributeStore attributes = new AttributeStore();
+		final String digestAlgorithm = SimpleDocumentFactoryImpl.digestAlgorithm;
+		// Kept out of the AttributeStore (which is not thread-safe) because it is computed by getAttribute(), which
+		// concurrent readers may call.
+		private volatile ContentDigest contentDigest;
+
+		@Override
+		public void close() throws IOException {
+			this.dispose();
 		}
 
-		private SimpleDocumentImpl(File file, boolean ownFile) {
-			// We ignore the ownFile parameter because we don't care.  We are going to just read it in anyway.
-			try {
-				this.inlineData = readToByteArray(new FileInputStream(file));
-			} catch (FileNotFoundException e) {
-				// Convert to runtime exception.
-				throw new IllegalArgumentException("File not found. (" + file.toString() + ").", e);
+		@Override
+		public void copyToFile(File arg0) throws IOException {
+			try (FileChannel target = FileChannel.open(arg0.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				transferTo(target);
 			}
 		}
 
-		private SimpleDocumentImpl(File file) {
-			try {
-				this.inlineData = readToByteArray(new FileInputStream(file));
-			} catch (FileNotFoundException e) {
-				// Convert to runtime exception.
-				throw new IllegalArgumentException("File not found. (" + file.toString() + ").", e);
+		@Override
+		public Object getAttribute(String name) {
+			Object value = attributes.get(name);
+			if (value == null && CONTENT_DIGEST_ATTRIBUTE.equals(name)) {
+				value = lazyContentDigest();
+			}
+			return value;
+		}
+
+		// Returns the ContentDigest, computing it (once) if it has not been computed yet.  Returns null if the contents
+		// are unreadable.
+		private ContentDigest lazyContentDigest() {
+			ContentDigest digest = this.contentDigest;
+			if (digest == null) {
+				synchronized (this) {
+					digest = this.contentDigest;
+					if (digest == null) {
+						try {
+							digest = this.contentDigest = computeContentDigest();
+						} catch (IOException e) {
+							// Contents are unreadable, so there is no digest.
+						}
+					}
+				}
 			}
+			return digest;
+		}
+
+		// Returns the ContentDigest if it can be had without reading the contents, otherwise null.
+		ContentDigest knownContentDigest() {
+			Object value = attributes.get(CONTENT_DIGEST_ATTRIBUTE);
+			return value instanceof ContentDigest ? (ContentDigest)value : contentDigest;
+		}
+
+		// Computes the ContentDigest the first time it is requested.  Documents that compute it while their contents
+		// are being ingested override this.
+		ContentDigest computeContentDigest() throws IOException {
+			return digestOf(digestAlgorithm, asReadOnlyBuffer());
 		}
 
-		private SimpleDocumentImpl(InputStream is) {
-			this.inlineData = readToByteArray(is);
+		@Override
+		public String getContentType() throws IOException {
+			return this.contentType;
+		}
+
+		@Override
+		public int getMaxInlineSize() {
+			return maxInlineSize;
+		}
+
+		@Override
+		public void removeAttribute(String name) {
+			this.attributes.remove(name);
+		}
+
+		@Override
+		public void setAttribute(String name, Object val) {
+			this.attributes.put(name, val);
+		}
+
+		@Override
+		public void setContentType(String contentType) {
+			this.contentType = contentType;
+		}
+
+		@Override
+		public void setMaxInlineSize(int maxInlineSize) {
+			this.maxInlineSize = maxInlineSize;
+		}
+	}
+
+	// Simplistic implementation of Document interface.  The contents are held in memory until passivate() is called,
+	// after which they are held in a file in the default DocumentSpool.
+	private static class SimpleDocumentImpl extends AbstractDocumentImpl {
+		byte[] inlineData;					// null while the contents are spooled to disk.
+		DocumentSpool.SpoolFile spoolFile = null;	// Populated while the contents are spooled to disk.
+		long length;
+		
+		// Uses data without copying it.  Nothing modifies inlineData's contents, so data may be shared with other Documents.
+		private SimpleDocumentImpl(byte[] data) {
+			this.inlineData = data;
+			this.length = data.length;
+		}
+
+		// Used by subclasses that populate the contents in load().
+		private SimpleDocumentImpl() {
+			this.inlineData = new byte[0];
+			this.length = 0;
 		}
 
 		private SimpleDocumentImpl(URL url) {
 			throw new UnsupportedOperationException("constructing from URL is not supported at this time.");
 		}
 
+		// Called before the contents are accessed.  Subclasses that populate the contents lazily override this.
+		void load() throws IOException {
+			// Do nothing, the contents were supplied to the constructor.
+		}
+
+		// Moves the contents to a spool file.
+		void spool(byte[] buffer, int count, InputStream remainder) throws IOException {
+			DocumentSpool.SpoolFile file = DocumentSpool.getDefault().newFile();
+			try (OutputStream os = file.newOutputStream()) {
+				os.write(buffer, 0, count);
+				long total = count;
+				if (remainder != null) {
+					byte[] copyBuffer = buffer.length >= COPY_BUFFER_SIZE ? buffer : new byte[COPY_BUFFER_SIZE];
+					int len;
+					while ((len = remainder.read(copyBuffer)) != -1) {
+						os.write(copyBuffer, 0, len);
+						total += len;
+					}
+				}
+				this.length = total;
+			} catch (IOException e) {
+				file.release();
+				throw e;
+			}
+			this.spoolFile = file;
+			this.inlineData = null;
+		}
+
 		@Override
-		public void close() throws IOException {
-			this.dispose();
+		public synchronized void dispose() {
+			if (spoolFile != null) {
+				spoolFile.release();	// Any open InputStreams keep the file alive until they are closed.
+				spoolFile = null;
+			}
+			this.inlineData = new byte[0]; 
+			this.length = 0;
 		}
 
 		@Override
-		public void copyToFile(File arg0) throws IOException {
-			// TODO: Implement this at some future date.
-			throw new UnsupportedOperationException("copyToFile is not supported at this time.");
+		public synchronized byte[] getInlineData() throws IOException {
+			load();
+			return spoolFile != null ? Files.readAllBytes(spoolFile.getPath()) : Arrays.copyOf(this.inlineData, this.inlineData.length);
 		}
 
 		@Override
-		public void dispose() {
-			this.inlineData = new byte[0]; 
+		public synchronized InputStream getInputStream() throws IOException {
+			load();
+			return spoolFile != null ? spoolFile.newInputStream() : new ByteArrayInputStream(this.inlineData);
 		}
 
 		@Override
-		public Object getAttribute(String name) {
-			return attributes.get(name);
+		public synchronized ByteBuffer asReadOnlyBuffer() throws IOException {
+			load();
+			if (spoolFile != null) {
+				try (FileChannel channel = FileChannel.open(spoolFile.getPath(), StandardOpenOption.READ)) {
+					if (length > Integer.MAX_VALUE) {
+						throw new IOException("Document is too large to be memory-mapped (" + length + " bytes).");
+					}
+					return channel.map(MapMode.READ_ONLY, 0, length).asReadOnlyBuffer();
+				}
+			}
+			return ByteBuffer.wrap(this.inlineData).asReadOnlyBuffer();
 		}
 
 		@Override
-		public String getContentType() throws IOException {
-			return this.contentType;
+		public synchronized long transferTo(WritableByteChannel target) throws IOException {
+			load();
+			if (spoolFile != null) {
+				return transferFile(spoolFile.getPath(), target);
+			}
+			ByteBuffer buffer = ByteBuffer.wrap(this.inlineData);
+			while (buffer.hasRemaining()) {
+				target.write(buffer);
+			}
+			return this.inlineData.length;
+		}
+
+		@Override
+		public synchronized long transferTo(OutputStream target) throws IOException {
+			load();
+			if (spoolFile != null) {
+				return transferFile(spoolFile.getPath(), Channels.newChannel(target));
+			}
+			target.write(this.inlineData);
+			return this.inlineData.length;
+		}
+
+		@Override
+		public synchronized long length() throws IOException {
+			load();
+			return this.length;
+		}
+
+		@Override
+		public synchronized void passivate() throws IOException {
+			load();
+			if (spoolFile == null && this.inlineData.length > 0) {
+				spool(this.inlineData, this.inlineData.length, null);
+			}
+		}
+		
+	}
+
+	// Document implementation that is backed by a file on disk.  The file is read each time the contents are accessed,
+	// so the contents are never copied onto the heap unless getInlineData() is called.  The Document does not take a
+	// snapshot of the file, so the file must not be modified while the Document is in use.  Only asReadOnlyBuffer()
+	// memory-maps the file, and the Document itself never holds on to a mapping, so an owned file can be deleted on
+	// dispose() (on Windows, the deletion is deferred until exit if a caller still holds a mapped buffer).
+	private static class FileDocumentImpl extends AbstractDocumentImpl {
+		private final Path file;
+		private final boolean ownFile;
+		private boolean disposed = false;
+
+		private FileDocumentImpl(Path file, boolean ownFile) {
+			if (!Files.isRegularFile(file)) {
+				// Convert to runtime exception.
+				throw new IllegalArgumentException("File not found. (" + file.toString() + ").", new FileNotFoundException(file.toString()));
+			}
+			this.file = file;
+			this.ownFile = ownFile;
+		}
+
+		private synchronized boolean isDisposed() {
+			return disposed;
+		}
+
+		@Override
+		public synchronized void dispose() {
+			if (disposed) {
+				return;
+			}
+			this.disposed = true;
+			if (ownFile) {
+				try {
+					Files.deleteIfExists(file);
+				} catch (IOException e) {
+					// The file is still in use (e.g. mapped by a caller on Windows), so try again when the JVM exits.
+					file.toFile().deleteOnExit();
+				}
+			}
 		}
 
 		@Override
 		public byte[] getInlineData() throws IOException {
-			return Arrays.copyOf(this.inlineData, this.inlineData.length);
+			return isDisposed() ? new byte[0] : Files.readAllBytes(file);
 		}
 
 		@Override
 		public InputStream getInputStream() throws IOException {
-			return new ByteArrayInputStream(getInlineData());
+			return isDisposed() ? new ByteArrayInputStream(new byte[0]) : Files.newInputStream(file);
 		}
 
+		// Returns a read-only mapping of the file's contents.  Each caller gets its own mapping.
 		@Override
-		public int getMaxInlineSize() {
-			return maxInlineSize;
+		public ByteBuffer asReadOnlyBuffer() throws IOException {
+			if (isDisposed()) {
+				return ByteBuffer.allocate(0).asReadOnlyBuffer();
+			}
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+				long size = channel.size();
+				if (size > Integer.MAX_VALUE) {
+					throw new IOException("File is too large to be memory-mapped (" + file.toString() + ").");
+				}
+				return channel.map(MapMode.READ_ONLY, 0, size).asReadOnlyBuffer();
+			}
+		}
+
+		@Override
+		public long transferTo(WritableByteChannel target) throws IOException {
+			return isDisposed() ? 0 : transferFile(file, target);
+		}
+
+		@Override
+		public long transferTo(OutputStream target) throws IOException {
+			return transferTo(Channels.newChannel(target));
 		}
 
 		@Override
 		public long length() throws IOException {
-			return this.inlineData.length;
+			return isDisposed() ? 0 : Files.size(file);
 		}
 
 		@Override
 		public void passivate() throws IOException {
-			// Do nothing.
+			// Do nothing, the data already resides on disk.
+		}
+	}
+
+	// Document implementation that is a read-only view of (part of) a ByteBuffer.  The buffer's storage is shared with
+	// whoever supplied it, so the contents are never copied unless getInlineData() is called.
+	private static class BufferDocumentImpl extends AbstractDocumentImpl {
+		private ByteBuffer data;		// Read-only, null once the Document has been disposed.
+
+		private BufferDocumentImpl(ByteBuffer data) {
+			this.data = data;
+		}
+
+		// Returns a view of the contents.  Each caller gets its own position and limit.
+		private synchronized ByteBuffer getData() {
+			return data == null ? ByteBuffer.allocate(0).asReadOnlyBuffer() : data.duplicate();
 		}
 
 		@Override
-		public void removeAttribute(String name) {
-			this.attributes.remove(name);
+		public synchronized void dispose() {
+			this.data = null;
 		}
 
 		@Override
-		public void setAttribute(String name, Object val) {
-			this.attributes.put(name, val);
+		public byte[] getInlineData() throws IOException {
+			ByteBuffer buffer = getData();
+			byte[] result = new byte[buffer.remaining()];
+			buffer.get(result);
+			return result;
 		}
 
 		@Override
-		public void setContentType(String contentType) {
-			this.contentType = contentType;
+		public InputStream getInputStream() throws IOException {
+			return new ByteBufferInputStream(getData());
 		}
 
 		@Override
-		public void setMaxInlineSize(int maxInlineSize) {
-			this.maxInlineSize = maxInlineSize;
+		public ByteBuffer asReadOnlyBuffer() throws IOException {
+			return getData();
 		}
 
-		private static byte[] readToByteArray(InputStream is) {
-			ByteArrayOutputStream bos = new ByteArrayOutputStream();
-			try {
-				transfer(is, bos);
-			} catch (IOException e) {
-				// Convert to runtime exception.
-				throw new IllegalArgumentException("I/O Error while reading inputstream.", e);
+		@Override
+		public long transferTo(WritableByteChannel target) throws IOException {
+			ByteBuffer buffer = getData();
+			long count = buffer.remaining();
+			while (buffer.hasRemaining()) {
+				target.write(buffer);
 			}
-			return bos.toByteArray();
+			return count;
 		}
 
-		private static void transfer(InputStream in, OutputStream out) throws IOException {
-			byte[] buffer = new byte[1024];
-			int len;
+		@Override
+		public long transferTo(OutputStream target) throws IOException {
+			return transferTo(Channels.newChannel(target));
+		}
 
-			// read bytes from the input stream and store them in buffer
-			while ((len = in.read(buffer)) != -1) {
-				// write bytes from the buffer into output stream
-				out.write(buffer, 0, len);
-			}
+		@Override
+		public synchronized long length() throws IOException {
+			return data == null ? 0 : data.remaining();
 		}
 
+		@Override
+		public void passivate() throws IOException {
+			// Do nothing, the contents belong to the shared buffer.
+		}
+	}
+
+	// Document implementation that is backed by an InputStream.  The stream is not read until the Document's contents are
+	// first accessed.  At that point, up to maxInlineSize bytes are kept in memory and anything larger is spilled to the
+	// default DocumentSpool.  The source stream is closed once it has been read.  If reading the stream fails, every
+	// later access to the contents fails too (rather than the Document looking empty).
+	private static class StreamDocumentImpl extends SimpleDocumentImpl {
+		private static final int MAX_BUFFER_SIZE = Integer.MAX_VALUE - 8;
+
+		private InputStream source;			// null once the stream has been read.
+		private ContentDigest ingestDigest = null;	// Computed while the stream is read.
+		private Exception loadFailure = null;		// Populated if the stream could not be read.
 		
+		private StreamDocumentImpl(InputStream is) {
+			super();
+			this.source = Objects.requireNonNull(is, "InputStream cannot be null.");
+		}
+
+		// Reads the source stream (if it hasn't already been read).
+		@Override
+		synchronized void load() throws IOException {
+			if (loadFailure != null) {
+				throw new IOException("Unable to read the Document's contents.", loadFailure);
+			}
+			if (source == null) {
+				return;
+			}
+			MessageDigest digest = newMessageDigest(digestAlgorithm);
+			try (InputStream is = new DigestInputStream(source, digest)) {
+				long limit = (long)Math.max(0, maxInlineSize) + 1;		// One byte more than we can keep inline.
+				byte[] buffer = new byte[(int)Math.min(COPY_BUFFER_SIZE, limit)];
+				int count = 0;
+				int len;
+				while ((len = is.read(buffer, count, buffer.length - count)) != -1) {
+					count += len;
+					if (count == buffer.length) {
+						if (count >= limit || count >= MAX_BUFFER_SIZE) {
+							spool(buffer, count, is);
+							ingestDigest = new ContentDigest(digestAlgorithm, digest.digest(), this.length);
+							return;
+						}
+						buffer = Arrays.copyOf(buffer, (int)Math.min(Math.min((long)buffer.length * 2, limit), MAX_BUFFER_SIZE));
+					}
+				}
+				this.inlineData = count == buffer.length ? buffer : Arrays.copyOf(buffer, count);
+				this.length = count;
+				ingestDigest = new ContentDigest(digestAlgorithm, digest.digest(), count);
+			} catch (IOException | RuntimeException e) {
+				loadFailure = e;
+				throw e;
+			} finally {
+				source = null;
+			}
+		}
+
+		@Override
+		synchronized ContentDigest knownContentDigest() {
+			ContentDigest known = super.knownContentDigest();
+			return known != null ? known : ingestDigest;
+		}
+
+		@Override
+		synchronized ContentDigest computeContentDigest() throws IOException {
+			load();
+			return ingestDigest != null ? ingestDigest : super.computeContentDigest();
+		}
+
+		@Override
+		public synchronized void dispose() {
+			try {
+				if (source != null) {
+					source.close();
+				}
+			} catch (IOException e) {
+				// Nothing we can do, just carry on.
+			}
+			source = null;
+			super.dispose();
+		}
+	}
+
+	// Copies a file to a channel using FileChannel.transferTo(), which lets the operating system perform the copy where it can.
+	// The copy stops early if the file shrinks while it is being copied (transferTo() then returns 0), and the number of
+	// bytes actually copied is returned.
+	private static long transferFile(Path file, WritableByteChannel target) throws IOException {
+		try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = source.size();
+			long position = 0;
+			while (position < size) {
+				long count = source.transferTo(position, size - position, target);
+				if (count <= 0) {
+					break;
+				}
+				position += count;
+			}
+			return position;
+		}
 	}
 
 	@Override
@@ -0,0 +1,342 @@
+package com._4point.aem.fluentforms.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com._4point.aem.fluentforms.api.Document;
+import com._4point.aem.fluentforms.api.DocumentFactory;
+import com._4point.aem.fluentforms.api.PathOrUrl;
+
+/**
+ * In-memory cache of template (XDP) contents.
+ *
+ * When the Output service is given a template location, AEM reads the template from disk (or over the network) on
+ * every call.  If the service is given a TemplateCache, it instead passes AEM a Document containing the cached template
+ * contents (using the generatePDFOutput(Document, ...) and generatePrintedOutput(Document, ...) methods).  The
+ * Documents are created by the cache's DocumentFactory, which should be the one used by the AEM service (by default,
+ * DocumentFactory.getDefault()), so that they can be passed to AEM without being copied.
+ *
+ * The cache is only useful server side.  The Forms service does not use it, because AEM's FormsService can only
+ * render templates from a file, so a template Document would be written to a temporary file on every call.  Likewise,
+ * a template Document passed through the REST client is uploaded on every call.
+ *
+ * Entries are keyed by the template's resolved location (i.e. the content root plus the template filename) and
+ * remember the version of the template they were loaded from (the last modified time and size for files, the ETag or
+ * Last-Modified header for http(s) URLs).  The version is checked on each request, so a template that changes is
+ * reloaded the next time it is used.  Fragments are still resolved by AEM using the content root, so only templates
+ * with a content root are served from the cache.
+ *
+ * The least recently used templates are discarded when the total size of the cached templates exceeds the limit.
+ * Templates that cannot be cached (crx: URLs, URLs that do not provide a version, locations that cannot be read)
+ * return an empty Optional and the caller falls back to passing the location to AEM.
+ *
+ * Template contents are interned (by default through DocumentInterner.getDefault()), so identical templates at
+ * different locations, and templates that are reloaded without having changed, share a single copy.
+ *
+ */
+public class TemplateCache {
+	private static final Logger log = LoggerFactory.getLogger(TemplateCache.class);
+
+	public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+	private static final String URL_SEPARATOR = "/";
+
+	private final long maxBytes;
+	private final Loader loader;
+	private final DocumentFactory documentFactory;
+	private final DocumentInterner interner;
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);	// Access order, so the eldest is least recently used.
+	private long totalBytes = 0;		// Guarded by entries
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong evictionCount = new AtomicLong();
+
+	/**
+	 * Loads and versions templates.  Supplying a Loader allows templates to be fetched from other locations (or in other
+	 * ways) than the default, which reads files and http(s) URLs directly.
+	 */
+	@FunctionalInterface
+	public interface Loader {
+		/**
+		 * Returns a string that changes whenever the template at the location changes (e.g. a last modified time or an
+		 * ETag), or null if the template at this location cannot be cached.
+		 *
+		 * @param location
+		 * @return
+		 * @throws IOException
+		 */
+		String version(PathOrUrl location) throws IOException;
+
+		/**
+		 * Reads the template at the location.  The cache keeps the returned array, so the Loader must not modify it
+		 * afterwards.
+		 *
+		 * @param location
+		 * @return
+		 * @throws IOException
+		 */
+		default byte[] load(PathOrUrl location) throws IOException {
+			if (location.isPath()) {
+				return Files.readAllBytes(location.getPath());
+			}
+			try (InputStream is = location.getUrl().openStream()) {
+				ByteArrayOutputStream os = new ByteArrayOutputStream();
+				byte[] buffer = new byte[8192];
+				int count;
+				while ((count = is.read(buffer)) >= 0) {
+					os.write(buffer, 0, count);
+				}
+				return os.toByteArray();
+			}
+		}
+	}
+
+	/**
+	 * Default Loader.  Versions files by their last modified time and size and http(s) URLs by their ETag (or
+	 * Last-Modified header) obtained using a HEAD request.
+	 */
+	public static final Loader DEFAULT_LOADER = TemplateCache::defaultVersion;
+
+	public TemplateCache() {
+		this(DEFAULT_MAX_BYTES);
+	}
+
+	public TemplateCache(long maxBytes) {
+		this(maxBytes, DEFAULT_LOADER);
+	}
+
+	public TemplateCache(long maxBytes, Loader loader) {
+		this(maxBytes, loader, DocumentFactory.getDefault());
+	}
+
+	public TemplateCache(long maxBytes, Loader loader, DocumentFactory documentFactory) {
+		this(maxBytes, loader, documentFactory, DocumentInterner.getDefault());
+	}
+
+	/**
+	 * Creates a TemplateCache.
+	 *
+	 * @param maxBytes maximum total size of the cached templates.
+	 * @param loader Loader used to version and read templates.
+	 * @param documentFactory DocumentFactory used to create the Documents returned.
+	 * @param interner interner that template contents are shared through.
+	 */
+	public TemplateCache(long maxBytes, Loader loader, DocumentFactory documentFactory, DocumentInterner interner) {
+		if (maxBytes <= 0) {
+			throw new IllegalArgumentException("maxBytes must be greater than zero (" + maxBytes + ").");
+		}
+		this.maxBytes = maxBytes;
+		this.loader = Objects.requireNonNull(loader, "loader cannot be null.");
+		this.documentFactory = Objects.requireNonNull(documentFactory, "documentFactory cannot be null.");
+		this.interner = Objects.requireNonNull(interner, "interner cannot be null.");
+	}
+
+	/**
+	 * Returns the template described by the TemplateValues produced by a TemplateValuesResolver.
+	 *
+	 * @param templateValues
+	 * @return the template's contents, or an empty Optional if the template cannot be cached.
+	 */
+	public Optional<Document> get(TemplateValues templateValues) {
+		PathOrUrl contentRoot = templateValues.getContentRoot();
+		if (contentRoot == null) {
+			return Optional.empty();
+		} else if (contentRoot.isPath()) {
+			return get(PathOrUrl.from(contentRoot.getPath().resolve(templateValues.getTemplate())));
+		} else if (contentRoot.isUrl()) {
+			return get(PathOrUrl.from(TemplateValues.stripTrailingSlash(contentRoot.getUrl().toString()) + URL_SEPARATOR + templateValues.getTemplate().toString()));
+		} else {
+			return Optional.empty();	// crx: templates can only be read by AEM.
+		}
+	}
+
+	/**
+	 * Returns the template at a location.
+	 *
+	 * @param location
+	 * @return the template's contents, or an empty Optional if the template cannot be cached.
+	 */
+	public Optional<Document> get(PathOrUrl location) {
+		Objects.requireNonNull(location, "location cannot be null.");
+		if (location.isCrxUrl()) {
+			return Optional.empty();
+		}
+		String key = location.toString();
+		try {
+			String version = loader.version(location);
+			if (version == null) {
+				return Optional.empty();
+			}
+			Entry entry;
+			synchronized (entries) {
+				entry = entries.get(key);
+			}
+			if (entry != null && entry.version.equals(version)) {
+				hitCount.incrementAndGet();
+				return Optional.of(toDocument(entry.contents));
+			}
+			missCount.incrementAndGet();
+			byte[] contents = interner.internBytes(loader.load(location), false);
+			put(key, new Entry(version, contents));
+			return Optional.of(toDocument(contents));
+		} catch (IOException e) {
+			log.debug("Unable to cache template '" + key + "'.", e);
+			return Optional.empty();
+		}
+	}
+
+	// The cached contents are never modified, so SimpleDocuments can share them rather than copy them.
+	private Document toDocument(byte[] contents) {
+		return documentFactory == SimpleDocumentFactoryImpl.getFactory() ? SimpleDocumentFactoryImpl.createShared(contents) : documentFactory.create(contents);
+	}
+
+	private void put(String key, Entry entry) {
+		synchronized (entries) {
+			Entry previous = entries.remove(key);
+			if (previous != null) {
+				totalBytes -= previous.contents.length;
+			}
+			if (entry.contents.length > maxBytes) {
+				return;		// Too big to ever fit.
+			}
+			entries.put(key, entry);
+			totalBytes += entry.contents.length;
+			Iterator<Entry> eldest = entries.values().iterator();
+			while (totalBytes > maxBytes) {
+				totalBytes -= eldest.next().contents.length;
+				eldest.remove();
+				evictionCount.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Discards all cached templates.
+	 */
+	public void invalidateAll() {
+		synchronized (entries) {
+			entries.clear();
+			totalBytes = 0;
+		}
+	}
+
+	/**
+	 * Discards the cached template for a location (if there is one).
+	 *
+	 * @param location
+	 */
+	public void invalidate(PathOrUrl location) {
+		synchronized (entries) {
+			Entry entry = entries.remove(location.toString());
+			if (entry != null) {
+				totalBytes -= entry.contents.length;
+			}
+		}
+	}
+
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+
+	/**
+	 * Returns the fraction of requests (for cacheable templates) that were served from the cache, or 0 if there have
+	 * been no requests.
+	 *
+	 * @return
+	 */
+	public double getHitRatio() {
+		long hits = hitCount.get();
+		long total = hits + missCount.get();
+		return total == 0 ? 0.0 : (double)hits / total;
+	}
+
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	public long getTotalBytes() {
+		synchronized (entries) {
+			return totalBytes;
+		}
+	}
+
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	private static String defaultVersion(PathOrUrl location) throws IOException {
+		Path path = location.isPath() ? location.getPath() : fileUrlToPath(location.getUrl());
+		if (path != null) {
+			if (!Files.isRegularFile(path)) {
+				throw new FileNotFoundException("Unable to find template (" + path.toString() + ").");
+			}
+			BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+			return attributes.lastModifiedTime().toMillis() + ":" + attributes.size();
+		}
+		URLConnection connection = location.getUrl().openConnection();
+		if (!(connection instanceof HttpURLConnection)) {
+			return null;		// We only know how to version files and http(s) URLs.
+		}
+		HttpURLConnection httpConnection = (HttpURLConnection)connection;
+		try {
+			httpConnection.setRequestMethod("HEAD");
+			if (httpConnection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+				return null;
+			}
+			String etag = httpConnection.getHeaderField("ETag");
+			return etag != null ? etag : httpConnection.getHeaderField("Last-Modified");
+		} finally {
+			httpConnection.disconnect();
+		}
+	}
+
+	private static Path fileUrlToPath(URL url) {
+		if (!"file".equalsIgnoreCase(url.getProtocol())) {
+			return null;
+		}
+		try {
+			return Paths.get(url.toURI());
+		} catch (URISyntaxException | IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	private static class Entry {
+		private final String version;
+		private final byte[] contents;
+
+		private Entry(String version, byte[] contents) {
+			this.version = version;
+			this.contents = contents;
+		}
+	}
+}
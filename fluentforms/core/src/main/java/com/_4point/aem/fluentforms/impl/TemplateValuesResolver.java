@@ -0,0 +1,21 @@
+package com._4point.aem.fluentforms.impl;
+
+import java.io.FileNotFoundException;
+import java.nio.file.Path;
+
+import com._4point.aem.fluentforms.api.PathOrUrl;
+
+/**
+ * Strategy used by the Forms and Output services to turn a template Path and content root into the final TemplateValues.
+ * 
+ * The DIRECT resolver calls TemplateValues.determineTemplateValues() every time.  CachingTemplateValuesResolver
+ * remembers the results so that the template's existence is not re-checked on every render.
+ *
+ */
+@FunctionalInterface
+public interface TemplateValuesResolver {
+
+	public static final TemplateValuesResolver DIRECT = TemplateValues::determineTemplateValues;
+
+	TemplateValues resolve(Path template, PathOrUrl contentRoot, UsageContext usageContext) throws FileNotFoundException;
+}
@@ -0,0 +1,340 @@
+package com._4point.aem.fluentforms.impl;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com._4point.aem.fluentforms.api.Document;
+import com._4point.aem.fluentforms.api.PathOrUrl;
+import com._4point.aem.fluentforms.api.forms.FormsService;
+import com._4point.aem.fluentforms.api.output.OutputService;
+
+/**
+ * Warms up the Output and Forms services by rendering every template under a content root once.
+ *
+ * The first render of each template after AEM starts is much slower than subsequent renders (classes are loaded, fonts
+ * and the template are read and cached, etc.).  The runner walks the content root, skips any XDPs that are used as
+ * fragments by other XDPs (see XdpDependencyIndex) and renders the rest on a bounded thread pool using the supplied
+ * sample data (by default, no data, which produces an empty form).  When it is done, it logs and publishes a Report
+ * containing the time taken to render each template.
+ *
+ * Failures are recorded in the report rather than stopping the warm-up.
+ *
+ */
+public class TemplateWarmUpRunner {
+	private static final Logger log = LoggerFactory.getLogger(TemplateWarmUpRunner.class);
+
+	private static final String XDP_EXTENSION = ".xdp";
+	private static final Function<Path, Document> NO_DATA = t->null;
+
+	private final OutputService outputService;		// null if the Output service is not warmed up.
+	private final FormsService formsService;		// null if the Forms service is not warmed up.
+	private final int threads;
+	private final Function<Path, Document> sampleData;
+	private volatile Report report = null;
+	private volatile Thread warmUpThread = null;	// Thread started by the most recent call to start().
+
+	/**
+	 * Creates a runner that renders templates with no data.
+	 *
+	 * @param outputService service used to generate PDF output, or null to not warm up the Output service.
+	 * @param formsService service used to render PDF forms, or null to not warm up the Forms service.
+	 * @param threads maximum number of templates rendered at once.
+	 */
+	public TemplateWarmUpRunner(OutputService outputService, FormsService formsService, int threads) {
+		this(outputService, formsService, threads, NO_DATA);
+	}
+
+	/**
+	 * Creates a runner that renders templates with sample data.
+	 *
+	 * @param outputService service used to generate PDF output, or null to not warm up the Output service.
+	 * @param formsService service used to render PDF forms, or null to not warm up the Forms service.
+	 * @param threads maximum number of templates rendered at once.
+	 * @param sampleData returns the data to render a template (given its location relative to the content root) with.
+	 * The function may return null, in which case the template is rendered without data.
+	 */
+	public TemplateWarmUpRunner(OutputService outputService, FormsService formsService, int threads, Function<Path, Document> sampleData) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("threads must be at least 1 (" + threads + ").");
+		}
+		this.outputService = outputService;
+		this.formsService = formsService;
+		this.threads = threads;
+		this.sampleData = Objects.requireNonNull(sampleData, "sampleData cannot be null.");
+	}
+
+	/**
+	 * Warms up all the templates under the content root and waits until that is done.
+	 *
+	 * @param contentRoot
+	 * @return the warm-up report
+	 * @throws IOException if the content root cannot be read.
+	 * @throws InterruptedException if interrupted while waiting for the templates to render.
+	 */
+	public Report run(Path contentRoot) throws IOException, InterruptedException {
+		long start = System.nanoTime();
+		List<Path> templates = findTemplates(Objects.requireNonNull(contentRoot, "contentRoot cannot be null."));
+		log.info("Warming up " + templates.size() + " templates in '" + contentRoot + "' using " + threads + " threads.");
+		ExecutorService executor = Executors.newFixedThreadPool(threads, daemonThreadFactory());
+		try {
+			List<Future<Result>> futures = new ArrayList<>(templates.size());
+			for (Path template : templates) {
+				futures.add(executor.submit(()->warmUp(contentRoot, template)));
+			}
+			List<Result> results = new ArrayList<>(futures.size());
+			for (Future<Result> future : futures) {
+				try {
+					results.add(future.get());
+				} catch (ExecutionException e) {
+					// warmUp() catches everything, so this should never happen.
+					throw new IllegalStateException("Unexpected exception while warming up templates.", e.getCause());
+				}
+			}
+			Report result = new Report(contentRoot, results, System.nanoTime() - start);
+			this.report = result;
+			log.info(result.toString());
+			return result;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Starts warming up all the templates under the content root on a background (daemon) thread.
+	 *
+	 * @param contentRoot
+	 * @return future that completes with the warm-up report, or is cancelled if the warm-up is stopped.
+	 */
+	public CompletableFuture<Report> start(Path contentRoot) {
+		Objects.requireNonNull(contentRoot, "contentRoot cannot be null.");
+		CompletableFuture<Report> future = new CompletableFuture<>();
+		Thread thread = new Thread(()->{
+			try {
+				future.complete(run(contentRoot));
+			} catch (InterruptedException e) {
+				log.info("Template warm-up stopped.");
+				future.cancel(false);
+			} catch (IOException | RuntimeException e) {
+				log.error("Template warm-up failed.", e);
+				future.completeExceptionally(e);
+			}
+		}, "FluentForms template warm-up");
+		thread.setDaemon(true);
+		this.warmUpThread = thread;
+		thread.start();
+		return future;
+	}
+
+	/**
+	 * Stops the warm-up started by the most recent call to start() (if it is still running).  Templates being rendered
+	 * are interrupted, the remaining templates are not rendered and the future returned by start() is cancelled.
+	 */
+	public void stop() {
+		Thread thread = this.warmUpThread;
+		if (thread != null) {
+			thread.interrupt();
+		}
+	}
+
+	/**
+	 * Returns true once a warm-up has completed.
+	 *
+	 * @return
+	 */
+	public boolean isComplete() {
+		return report != null;
+	}
+
+	/**
+	 * Returns the report from the most recently completed warm-up.
+	 *
+	 * @return
+	 */
+	public Optional<Report> getReport() {
+		return Optional.ofNullable(report);
+	}
+
+	// Returns the locations (relative to the content root) of all the XDPs that are not used as fragments.
+	private static List<Path> findTemplates(Path contentRoot) throws IOException {
+		List<Path> xdps;
+		try (Stream<Path> files = Files.walk(contentRoot)) {
+			xdps = files.filter(Files::isRegularFile)
+						.filter(f->f.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(XDP_EXTENSION))
+						.sorted()
+						.collect(Collectors.toList());
+		}
+		XdpDependencyIndex index = new XdpDependencyIndex(contentRoot);
+		Set<Path> fragments = new HashSet<>();
+		for (Path xdp : xdps) {
+			fragments.addAll(index.getDependencies(xdp));
+		}
+		List<Path> templates = new ArrayList<>();
+		for (Path xdp : xdps) {
+			if (!fragments.contains(xdp.toAbsolutePath().normalize())) {
+				templates.add(contentRoot.relativize(xdp));
+			}
+		}
+		return templates;
+	}
+
+	private Result warmUp(Path contentRoot, Path template) {
+		PathOrUrl contentRootLocation = PathOrUrl.from(contentRoot);
+		long outputNanos = Result.NOT_RUN;
+		long formsNanos = Result.NOT_RUN;
+		try {
+			if (outputService != null) {
+				long start = System.nanoTime();
+				try (Document result = outputService.generatePDFOutput().setContentRoot(contentRootLocation).executeOn(template, sampleData.apply(template))) {
+					outputNanos = System.nanoTime() - start;
+				}
+			}
+			if (formsService != null) {
+				long start = System.nanoTime();
+				try (Document result = formsService.renderPDFForm().setContentRoot(contentRootLocation).executeOn(template, sampleData.apply(template))) {
+					formsNanos = System.nanoTime() - start;
+				}
+			}
+			return new Result(template, outputNanos, formsNanos, null);
+		} catch (Exception e) {
+			log.warn("Unable to warm up template '" + template + "'.", e);
+			return new Result(template, outputNanos, formsNanos, e.getMessage() != null ? e.getMessage() : e.getClass().getName());
+		}
+	}
+
+	private static ThreadFactory daemonThreadFactory() {
+		AtomicInteger threadNumber = new AtomicInteger();
+		return r->{
+			Thread thread = new Thread(r, "FluentForms template warm-up worker " + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	/**
+	 * Outcome of warming up the templates under a content root.
+	 */
+	public static class Report {
+		private final Path contentRoot;
+		private final List<Result> results;
+		private final long elapsedNanos;
+
+		private Report(Path contentRoot, List<Result> results, long elapsedNanos) {
+			this.contentRoot = contentRoot;
+			this.results = Collections.unmodifiableList(results);
+			this.elapsedNanos = elapsedNanos;
+		}
+
+		public Path getContentRoot() {
+			return contentRoot;
+		}
+
+		public List<Result> getResults() {
+			return results;
+		}
+
+		public long getElapsed(TimeUnit unit) {
+			return unit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+		}
+
+		public long getFailureCount() {
+			return results.stream().filter(Result::isFailed).count();
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder("Template warm-up of '").append(contentRoot).append("' completed in ")
+					.append(getElapsed(TimeUnit.MILLISECONDS)).append("ms (").append(results.size()).append(" templates, ")
+					.append(getFailureCount()).append(" failures).");
+			for (Result result : results) {
+				sb.append(System.lineSeparator()).append("  ").append(result);
+			}
+			return sb.toString();
+		}
+	}
+
+	/**
+	 * Outcome of warming up a single template.
+	 */
+	public static class Result {
+		private static final long NOT_RUN = -1;
+
+		private final Path template;
+		private final long outputNanos;
+		private final long formsNanos;
+		private final String failure;		// null if successful
+
+		private Result(Path template, long outputNanos, long formsNanos, String failure) {
+			this.template = template;
+			this.outputNanos = outputNanos;
+			this.formsNanos = formsNanos;
+			this.failure = failure;
+		}
+
+		/**
+		 * Returns the template location, relative to the content root.
+		 *
+		 * @return
+		 */
+		public Path getTemplate() {
+			return template;
+		}
+
+		/**
+		 * Returns the time taken by the Output service, or an empty Optional if it was not run (or failed).
+		 *
+		 * @param unit
+		 * @return
+		 */
+		public Optional<Long> getOutputLatency(TimeUnit unit) {
+			return outputNanos == NOT_RUN ? Optional.empty() : Optional.of(unit.convert(outputNanos, TimeUnit.NANOSECONDS));
+		}
+
+		/**
+		 * Returns the time taken by the Forms service, or an empty Optional if it was not run (or failed).
+		 *
+		 * @param unit
+		 * @return
+		 */
+		public Optional<Long> getFormsLatency(TimeUnit unit) {
+			return formsNanos == NOT_RUN ? Optional.empty() : Optional.of(unit.convert(formsNanos, TimeUnit.NANOSECONDS));
+		}
+
+		public boolean isFailed() {
+			return failure != null;
+		}
+
+		public Optional<String> getFailure() {
+			return Optional.ofNullable(failure);
+		}
+
+		@Override
+		public String toString() {
+			return template + ": output=" + getOutputLatency(TimeUnit.MILLISECONDS).map(l->l + "ms").orElse("n/a")
+					+ ", forms=" + getFormsLatency(TimeUnit.MILLISECONDS).map(l->l + "ms").orElse("n/a")
+					+ (failure != null ? ", FAILED (" + failure + ")" : "");
+		}
+	}
+}
@@ -0,0 +1,357 @@
+package com._4point.aem.fluentforms.impl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Index of the fragments and images that the templates under a content root depend on.
+ *
+ * AEM resolves fragment and image references relative to the content root (see TemplateValues), so a cache of
+ * anything produced from a template is only valid while none of the files in the template's fragment closure change.
+ * The content root that a template is rendered with is the directory containing it (TemplateValues appends the
+ * template's parent directory to the configured content root), so the references of a template in a subdirectory,
+ * and of the fragments it uses, are resolved against that subdirectory.  The content root passed to this index is
+ * only used to locate templates and files given as relative paths.
+ *
+ * This index records, for each XDP it has seen and each content root it was resolved against, the files it references
+ * directly (found using XdpReferenceScanner).  From that it can determine the full (transitive) set of files a template
+ * depends on and, in reverse, exactly which templates are affected when a shared fragment or image changes.
+ *
+ * XDPs are scanned on first use and re-scanned whenever their last modified time changes.  Caching layers register a
+ * listener to be told which files are affected whenever invalidate() is called.  invalidate() can be called by
+ * whatever learns of a change or, if watching is enabled, the directories containing the indexed files are monitored
+ * using a WatchService and invalidate() is called for each file that is created, modified or deleted.  As with
+ * CachingTemplateValuesResolver, some file systems (NFS in particular) do not deliver change notifications reliably.
+ *
+ */
+public class XdpDependencyIndex implements Closeable {
+	private static final Logger log = LoggerFactory.getLogger(XdpDependencyIndex.class);
+
+	private static final String XDP_EXTENSION = ".xdp";
+
+	private final Path contentRoot;
+	private final Map<Key, Node> nodes = new HashMap<>();	// Guarded by this
+	private final List<Consumer<Set<Path>>> listeners = new CopyOnWriteArrayList<>();
+	private final WatchService watchService;		// null if watching is not enabled.
+	private final Set<Path> watchedDirs = new HashSet<>();	// Guarded by this
+
+	public XdpDependencyIndex(Path contentRoot) {
+		this(contentRoot, null);
+	}
+
+	/**
+	 * Creates an index that calls invalidate() when the files in it change.
+	 *
+	 * @param contentRoot
+	 * @param watchForChanges
+	 * @throws IOException if a WatchService cannot be created.
+	 */
+	public XdpDependencyIndex(Path contentRoot, boolean watchForChanges) throws IOException {
+		this(contentRoot, watchForChanges ? FileSystems.getDefault().newWatchService() : null);
+	}
+
+	private XdpDependencyIndex(Path contentRoot, WatchService watchService) {
+		this.contentRoot = normalize(Objects.requireNonNull(contentRoot, "contentRoot cannot be null."));
+		this.watchService = watchService;
+		if (watchService != null) {
+			Thread watcher = new Thread(this::watch, "FluentForms fragment watcher");
+			watcher.setDaemon(true);
+			watcher.start();
+		}
+	}
+
+	public Path getContentRoot() {
+		return contentRoot;
+	}
+
+	/**
+	 * Returns all the files (fragments and images) that a template depends on, directly or through other fragments.
+	 * Files that are referenced but do not exist are included, since creating them changes the rendered result.
+	 *
+	 * @param template template location (relative to the content root or absolute)
+	 * @return
+	 */
+	public synchronized Set<Path> getDependencies(Path template) {
+		Path start = resolve(template);
+		Path root = templateRoot(start);
+		Set<Path> dependencies = new LinkedHashSet<>();
+		Deque<Path> pending = new ArrayDeque<>();
+		pending.add(start);
+		while (!pending.isEmpty()) {
+			for (Path reference : references(new Key(pending.remove(), root))) {
+				if (!reference.equals(start) && dependencies.add(reference)) {
+					pending.add(reference);
+				}
+			}
+		}
+		return dependencies;
+	}
+
+	/**
+	 * Returns the templates (and fragments) already in the index that depend on a file, directly or through other
+	 * fragments.
+	 *
+	 * @param file fragment or image location (relative to the content root or absolute)
+	 * @return
+	 */
+	public synchronized Set<Path> getDependents(Path file) {
+		return dependents(resolve(file));
+	}
+
+	/**
+	 * Records that a file has changed (or been deleted).  Its references are re-scanned when next needed and any
+	 * listeners are told which files are affected.
+	 *
+	 * @param file changed location (relative to the content root or absolute)
+	 * @return the file itself plus every indexed file that depends on it, i.e. everything a cache should discard.
+	 */
+	public Set<Path> invalidate(Path file) {
+		Path changed = resolve(file);
+		Set<Path> affected = new LinkedHashSet<>();
+		affected.add(changed);
+		synchronized (this) {
+			affected.addAll(dependents(changed));
+			nodes.keySet().removeIf(key->key.file.equals(changed));
+		}
+		Set<Path> result = Collections.unmodifiableSet(affected);
+		for (Consumer<Set<Path>> listener : listeners) {
+			listener.accept(result);
+		}
+		return result;
+	}
+
+	/**
+	 * Discards everything in the index.
+	 */
+	public synchronized void invalidateAll() {
+		nodes.clear();
+	}
+
+	/**
+	 * Registers a listener that is called with the affected files each time invalidate() is called.
+	 *
+	 * @param listener
+	 */
+	public void addInvalidationListener(Consumer<Set<Path>> listener) {
+		listeners.add(Objects.requireNonNull(listener, "listener cannot be null."));
+	}
+
+	public void removeInvalidationListener(Consumer<Set<Path>> listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Stops watching for changes (if watching was enabled).
+	 */
+	@Override
+	public void close() throws IOException {
+		if (watchService != null) {
+			watchService.close();
+		}
+	}
+
+	// Registers a file's directory with the WatchService (if watching is enabled and the directory isn't already
+	// registered).  Directories that don't exist yet can't be watched.  Must be called while holding the lock.
+	private void watchDirectoryOf(Path file) {
+		Path dir = file.getParent();
+		if (watchService == null || dir == null || watchedDirs.contains(dir) || !Files.isDirectory(dir)) {
+			return;
+		}
+		try {
+			dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+			watchedDirs.add(dir);
+		} catch (IOException | ClosedWatchServiceException e) {
+			log.debug("Unable to watch directory '" + dir + "'.", e);
+		}
+	}
+
+	// Body of the watcher thread.  Invalidates each file that changes.
+	private void watch() {
+		try {
+			while (true) {
+				WatchKey key = watchService.take();
+				Path dir = (Path)key.watchable();
+				Set<Path> changed = new LinkedHashSet<>();
+				for (WatchEvent<?> event : key.pollEvents()) {
+					if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+						changed.addAll(indexedFilesIn(dir));	// Events were lost, so assume everything in the directory changed.
+					} else {
+						changed.add(dir.resolve((Path)event.context()));
+					}
+				}
+				if (!key.reset()) {
+					synchronized (this) {
+						watchedDirs.remove(dir);
+					}
+				}
+				changed.forEach(this::invalidate);
+			}
+		} catch (ClosedWatchServiceException | InterruptedException e) {
+			// The index has been closed, so stop watching.
+		}
+	}
+
+	private synchronized List<Path> indexedFilesIn(Path dir) {
+		Set<Path> files = new LinkedHashSet<>();
+		for (Key key : nodes.keySet()) {
+			if (dir.equals(key.file.getParent())) {
+				files.add(key.file);
+			}
+		}
+		return new ArrayList<>(files);
+	}
+
+	// Must be called while holding the lock.
+	private Set<Path> dependents(Path file) {
+		Set<Path> dependents = new LinkedHashSet<>();
+		Set<Key> visited = new HashSet<>();
+		Deque<Key> pending = new ArrayDeque<>();
+		addReferrers(file, null, visited, pending);
+		while (!pending.isEmpty()) {
+			Key current = pending.remove();
+			if (!current.file.equals(file)) {
+				dependents.add(current.file);
+			}
+			addReferrers(current.file, current.root, visited, pending);
+		}
+		return dependents;
+	}
+
+	// Queues the (unvisited) XDPs that reference a file.  If root is not null, only XDPs whose references were resolved
+	// against that content root are queued, since those are the only ones that reach the file through the XDP being
+	// followed.  Must be called while holding the lock.
+	private void addReferrers(Path file, Path root, Set<Key> visited, Deque<Key> pending) {
+		for (Map.Entry<Key, Node> entry : nodes.entrySet()) {
+			Key key = entry.getKey();
+			if ((root == null || root.equals(key.root)) && entry.getValue().references.contains(file) && visited.add(key)) {
+				pending.add(key);
+			}
+		}
+	}
+
+	// Returns the direct references of a file (resolved against the key's content root), scanning it if it has not
+	// been seen or has changed since it was scanned.  Must be called while holding the lock.
+	private Set<Path> references(Key key) {
+		Path file = key.file;
+		watchDirectoryOf(file);
+		if (!file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(XDP_EXTENSION)) {
+			return Collections.emptySet();		// Images (and anything else) don't reference other files.
+		}
+		FileTime lastModified;
+		try {
+			lastModified = Files.getLastModifiedTime(file);
+		} catch (IOException e) {
+			nodes.remove(key);
+			return Collections.emptySet();		// Doesn't exist (yet).
+		}
+		Node node = nodes.get(key);
+		if (node == null || !node.lastModified.equals(lastModified)) {
+			node = new Node(lastModified, scan(file, key.root));
+			nodes.put(key, node);
+		}
+		return node.references;
+	}
+
+	private Set<Path> scan(Path file, Path root) {
+		Set<Path> references = new LinkedHashSet<>();
+		try (InputStream is = Files.newInputStream(file)) {
+			XdpReferenceScanner.References found = XdpReferenceScanner.scan(is);
+			addResolved(references, found.getFragments(), root);
+			addResolved(references, found.getImages(), root);
+		} catch (IOException e) {
+			log.debug("Unable to scan '" + file + "' for references.", e);
+		}
+		return Collections.unmodifiableSet(references);
+	}
+
+	private static void addResolved(Set<Path> references, Set<String> locations, Path root) {
+		for (String location : locations) {
+			try {
+				references.add(normalize(root.resolve(root.getFileSystem().getPath(location))));
+			} catch (InvalidPathException e) {
+				log.debug("Ignoring reference to invalid path '" + location + "'.", e);
+			}
+		}
+	}
+
+	private Path resolve(Path location) {
+		return normalize(contentRoot.resolve(Objects.requireNonNull(location, "location cannot be null.")));
+	}
+
+	// The content root that a template is rendered with, following TemplateValues.determineTemplateValues(): the
+	// configured content root plus the template's parent directory, i.e. the directory containing the template.
+	private Path templateRoot(Path template) {
+		Path parent = template.getParent();
+		return parent != null ? parent : contentRoot;
+	}
+
+	private static Path normalize(Path path) {
+		return path.toAbsolutePath().normalize();
+	}
+
+	// An XDP, and the content root that its references are resolved against.
+	private static class Key {
+		private final Path file;
+		private final Path root;
+
+		private Key(Path file, Path root) {
+			this.file = file;
+			this.root = root;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key)obj;
+			return file.equals(other.file) && root.equals(other.root);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(file, root);
+		}
+	}
+
+	private static class Node {
+		private final FileTime lastModified;
+		private final Set<Path> references;
+
+		private Node(FileTime lastModified, Set<Path> references) {
+			this.lastModified = lastModified;
+			this.references = references;
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package com._4point.aem.fluentforms.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Extracts the external references (fragments and images) from an XDP template.
+ *
+ * The template is read using a streaming (StAX) parser, so it is never held in memory as a DOM.  Fragment references
+ * are the usehref attributes on any element (minus the "#som(...)" or "#id" portion that selects an object within the
+ * fragment) and image references are the href attributes on image elements.  References within the same template
+ * (i.e. those that start with "#") and references to absolute URLs are ignored, since they do not depend on the content
+ * root.
+ *
+ */
+public final class XdpReferenceScanner {
+	private static final String USEHREF_ATTRIBUTE = "usehref";
+	private static final String HREF_ATTRIBUTE = "href";
+	private static final String IMAGE_ELEMENT = "image";
+
+	private static final XMLInputFactory xmlInputFactory = createXmlInputFactory();
+
+	private XdpReferenceScanner() {
+	}
+
+	/**
+	 * Scans an XDP.  The stream is not closed.
+	 *
+	 * @param xdp
+	 * @return the references found
+	 * @throws IOException if the XDP cannot be read or is not well formed.
+	 */
+	public static References scan(InputStream xdp) throws IOException {
+		Set<String> fragments = new LinkedHashSet<>();
+		Set<String> images = new LinkedHashSet<>();
+		try {
+			XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(xdp);
+			try {
+				while (reader.hasNext()) {
+					if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+						continue;
+					}
+					for (int i = 0; i < reader.getAttributeCount(); i++) {
+						String attributeName = reader.getAttributeLocalName(i);
+						if (USEHREF_ATTRIBUTE.equals(attributeName)) {
+							addReference(fragments, reader.getAttributeValue(i));
+						} else if (HREF_ATTRIBUTE.equals(attributeName) && IMAGE_ELEMENT.equals(reader.getLocalName())) {
+							addReference(images, reader.getAttributeValue(i));
+						}
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException e) {
+			throw new IOException("Unable to scan XDP for references.", e);
+		}
+		return new References(fragments, images);
+	}
+
+	private static void addReference(Set<String> references, String href) {
+		int hashIndex = href.indexOf('#');
+		String location = (hashIndex >= 0 ? href.substring(0, hashIndex) : href).trim();
+		if (!location.isEmpty() && !isAbsoluteUrl(location)) {
+			references.add(location);
+		}
+	}
+
+	// A scheme of more than one character (a single character is a Windows drive letter).
+	private static boolean isAbsoluteUrl(String location) {
+		int colonIndex = location.indexOf(':');
+		int slashIndex = location.indexOf('/');
+		return colonIndex > 1 && (slashIndex < 0 || slashIndex > colonIndex);
+	}
+
+	private static XMLInputFactory createXmlInputFactory() {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		// XDPs do not use DTDs, so disable them (and external entities) to avoid any XXE issues.
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		return factory;
+	}
+
+	/**
+	 * References found in an XDP.  The locations are as they appear in the XDP, i.e. relative to the content root.
+	 */
+	public static final class References {
+		private final Set<String> fragments;
+		private final Set<String> images;
+
+		private References(Set<String> fragments, Set<String> images) {
+			this.fragments = Collections.unmodifiableSet(fragments);
+			this.images = Collections.unmodifiableSet(images);
+		}
+
+		public Set<String> getFragments() {
+			return fragments;
+		}
+
+		public Set<String> getImages() {
+			return images;
+		}
+	}
+}
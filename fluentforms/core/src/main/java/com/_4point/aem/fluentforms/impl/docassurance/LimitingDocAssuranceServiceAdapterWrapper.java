@@ -0,0 +1,161 @@
+package com._4point.aem.fluentforms.impl.docassurance;
+
+import java.util.List;
+import java.util.Objects;
+
+import com._4point.aem.fluentforms.api.Document;
+import com._4point.aem.fluentforms.api.docassurance.DocAssuranceService.DocAssuranceServiceException;
+import com._4point.aem.fluentforms.api.docassurance.EncryptionOptions;
+import com._4point.aem.fluentforms.api.docassurance.ReaderExtensionOptions;
+import com._4point.aem.fluentforms.impl.AdaptiveConcurrencyLimiter;
+import com._4point.aem.fluentforms.impl.AdaptiveConcurrencyLimiter.LimitExceededException;
+import com.adobe.fd.docassurance.client.api.SignatureOptions;
+import com.adobe.fd.encryption.client.EncryptionTypeResult;
+import com.adobe.fd.readerextensions.client.GetUsageRightsResult;
+import com.adobe.fd.signatures.client.types.FieldMDPOptionSpec;
+import com.adobe.fd.signatures.client.types.PDFDocumentVerificationInfo;
+import com.adobe.fd.signatures.client.types.PDFSeedValueOptionSpec;
+import com.adobe.fd.signatures.client.types.PDFSignature;
+import com.adobe.fd.signatures.client.types.PDFSignatureField;
+import com.adobe.fd.signatures.client.types.PDFSignatureFieldProperties;
+import com.adobe.fd.signatures.client.types.PDFSignatureVerificationInfo;
+import com.adobe.fd.signatures.client.types.PositionRectangle;
+import com.adobe.fd.signatures.client.types.VerificationTime;
+import com.adobe.fd.signatures.pdf.inputs.UnlockOptions;
+import com.adobe.fd.signatures.pdf.inputs.ValidationPreferences;
+import com.adobe.fd.signatures.pki.client.types.common.RevocationCheckStyle;
+
+/**
+ * Limits the number of DocAssurance service calls made at once using an AdaptiveConcurrencyLimiter.  Calls that are
+ * rejected by the limiter throw a DocAssuranceServiceException.
+ *
+ */
+public class LimitingDocAssuranceServiceAdapterWrapper implements TraditionalDocAssuranceService {
+
+	private final TraditionalDocAssuranceService docAssuranceService;
+	private final AdaptiveConcurrencyLimiter limiter;
+
+	public LimitingDocAssuranceServiceAdapterWrapper(TraditionalDocAssuranceService docAssuranceService, AdaptiveConcurrencyLimiter limiter) {
+		super();
+		this.docAssuranceService = Objects.requireNonNull(docAssuranceService, "docAssuranceService cannot be null.");
+		this.limiter = Objects.requireNonNull(limiter, "limiter cannot be null.");
+	}
+
+	@Override
+	public Document secureDocument(Document inDoc, EncryptionOptions encryptionOptions,
+			SignatureOptions signatureOptions, ReaderExtensionOptions readerExtensionOptions,
+			UnlockOptions unlockOptions) throws DocAssuranceServiceException {
+		return limit("DocAssurance.secureDocument", ()->docAssuranceService.secureDocument(inDoc, encryptionOptions, signatureOptions, readerExtensionOptions, unlockOptions));
+	}
+
+	@Override
+	public Document addInvisibleSignatureField(Document inDoc, String signatureFieldName,
+			FieldMDPOptionSpec fieldMDPOptionsSpec, PDFSeedValueOptionSpec seedValueOptionsSpec,
+			UnlockOptions unlockOptions) throws DocAssuranceServiceException {
+		return limit("DocAssurance.addInvisibleSignatureField", ()->docAssuranceService.addInvisibleSignatureField(inDoc, signatureFieldName, fieldMDPOptionsSpec, seedValueOptionsSpec, unlockOptions));
+	}
+
+	@Override
+	public Document addSignatureField(Document inDoc, String signatureFieldName, Integer pageNo,
+			PositionRectangle positionRectangle, FieldMDPOptionSpec fieldMDPOptionsSpec,
+			PDFSeedValueOptionSpec seedValueOptionsSpec, UnlockOptions unlockOptions)
+			throws DocAssuranceServiceException {
+		return limit("DocAssurance.addSignatureField", ()->docAssuranceService.addSignatureField(inDoc, signatureFieldName, pageNo, positionRectangle, fieldMDPOptionsSpec, seedValueOptionsSpec, unlockOptions));
+	}
+
+	@Override
+	public Document clearSignatureField(Document inDoc, String signatureFieldName, UnlockOptions unlockOptions)
+			throws DocAssuranceServiceException {
+		return limit("DocAssurance.clearSignatureField", ()->docAssuranceService.clearSignatureField(inDoc, signatureFieldName, unlockOptions));
+	}
+
+	@Override
+	public PDFSignatureField getCertifyingSignatureField(Document inDoc, UnlockOptions unlockOptions)
+			throws DocAssuranceServiceException {
+		return limit("DocAssurance.getCertifyingSignatureField", ()->docAssuranceService.getCertifyingSignatureField(inDoc, unlockOptions));
+	}
+
+	@Override
+	public PDFSignature getSignature(Document inDoc, String signatureFieldName, UnlockOptions unlockOptions)
+			throws DocAssuranceServiceException {
+		return limit("DocAssurance.getSignature", ()->docAssuranceService.getSignature(inDoc, signatureFieldName, unlockOptions));
+	}
+
+	@Override
+	public List<PDFSignatureField> getSignatureFieldList(Document inDoc, UnlockOptions unlockOptions)
+			throws DocAssuranceServiceException {
+		return limit("DocAssurance.getSignatureFieldList", ()->docAssuranceService.getSignatureFieldList(inDoc, unlockOptions));
+	}
+
+	@Override
+	public Document modifySignatureField(Document inDoc, String signatureFieldName,
+			PDFSignatureFieldProperties pdfSignatureFieldProperties, UnlockOptions unlockOptions)
+			throws DocAssuranceServiceException {
+		return limit("DocAssurance.modifySignatureField", ()->docAssuranceService.modifySignatureField(inDoc, signatureFieldName, pdfSignatureFieldProperties, unlockOptions));
+	}
+
+	@Override
+	public Document removeSignatureField(Document inDoc, String signatureFieldName, UnlockOptions unlockOptions)
+			throws DocAssuranceServiceException {
+		return limit("DocAssurance.removeSignatureField", ()->docAssuranceService.removeSignatureField(inDoc, signatureFieldName, unlockOptions));
+	}
+
+	@Override
+	public PDFSignatureVerificationInfo verify(Document inDoc, String signatureFieldName,
+			RevocationCheckStyle revocationCheckStyle, VerificationTime verificationTime,
+			ValidationPreferences dssPrefs) throws DocAssuranceServiceException {
+		return limit("DocAssurance.verify", ()->docAssuranceService.verify(inDoc, signatureFieldName, revocationCheckStyle, verificationTime, dssPrefs));
+	}
+
+	@Override
+	public EncryptionTypeResult getPDFEncryption(Document inDoc) throws DocAssuranceServiceException {
+		return limit("DocAssurance.getPDFEncryption", ()->docAssuranceService.getPDFEncryption(inDoc));
+	}
+
+	@Override
+	public Document removePDFCertificateSecurity(Document inDoc, String alias) throws DocAssuranceServiceException {
+		return limit("DocAssurance.removePDFCertificateSecurity", ()->docAssuranceService.removePDFCertificateSecurity(inDoc, alias));
+	}
+
+	@Override
+	public Document removePDFPasswordSecurity(Document inDoc, String password) throws DocAssuranceServiceException {
+		return limit("DocAssurance.removePDFPasswordSecurity", ()->docAssuranceService.removePDFPasswordSecurity(inDoc, password));
+	}
+
+	@Override
+	public PDFDocumentVerificationInfo verifyDocument(Document inDoc, RevocationCheckStyle revocationCheckStyle,
+			VerificationTime verificationTime, ValidationPreferences prefStore) throws DocAssuranceServiceException {
+		return limit("DocAssurance.verifyDocument", ()->docAssuranceService.verifyDocument(inDoc, revocationCheckStyle, verificationTime, prefStore));
+	}
+
+	@Override
+	public GetUsageRightsResult getCredentialUsageRights(String credentialAlias) throws DocAssuranceServiceException {
+		return limit("DocAssurance.getCredentialUsageRights", ()->docAssuranceService.getCredentialUsageRights(credentialAlias));
+	}
+
+	@Override
+	public GetUsageRightsResult getDocumentUsageRights(Document inDoc, UnlockOptions unlockOptions)
+			throws DocAssuranceServiceException {
+		return limit("DocAssurance.getDocumentUsageRights", ()->docAssuranceService.getDocumentUsageRights(inDoc, unlockOptions));
+	}
+
+	@Override
+	public Document removeUsageRights(Document inDoc, UnlockOptions unlockOptions) throws DocAssuranceServiceException {
+		return limit("DocAssurance.removeUsageRights", ()->docAssuranceService.removeUsageRights(inDoc, unlockOptions));
+	}
+
+	@Override
+	public Document applyDocumentTimeStamp(Document inDoc, VerificationTime verificationTime,
+			ValidationPreferences validationPreferences, UnlockOptions unlockOptions)
+			throws DocAssuranceServiceException {
+		return limit("DocAssurance.applyDocumentTimeStamp", ()->docAssuranceService.applyDocumentTimeStamp(inDoc, verificationTime, validationPreferences, unlockOptions));
+	}
+
+	private <T> T limit(String operation, AdaptiveConcurrencyLimiter.Call<T, DocAssuranceServiceException> call) throws DocAssuranceServiceException {
+		try {
+			return limiter.execute(operation, call);
+		} catch (LimitExceededException e) {
+			throw new DocAssuranceServiceException("DocAssurance service call rejected by the concurrency limiter. " + e.getMessage(), e);
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package com._4point.aem.fluentforms.impl.forms;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.Optional;
+
+import com._4point.aem.fluentforms.api.ContentDigest;
+import com._4point.aem.fluentforms.api.Document;
+import com._4point.aem.fluentforms.api.forms.FormsService.FormsServiceException;
+import com._4point.aem.fluentforms.api.forms.PDFFormRenderOptions;
+import com._4point.aem.fluentforms.api.forms.ValidationOptions;
+import com._4point.aem.fluentforms.api.forms.ValidationResult;
+import com._4point.aem.fluentforms.impl.RenderResultCache;
+import com.adobe.fd.forms.api.DataFormat;
+
+/**
+ * Answers repeated renderPDFForm() requests from a RenderResultCache.
+ *
+ * Requests are keyed by the template (its location and version, or its contents if it is passed as a Document), the
+ * data and every PDFFormRenderOptions setting.  Templates whose version can't be determined (e.g. crx: templates) are not
+ * cached.  Only renderPDFForm() is cached; all other calls are passed straight through.
+ *
+ * To use it, wrap the service that is passed to the FormsServiceImpl:
+ * <pre>
+ * new FormsServiceImpl(new CachingFormsServiceAdapterWrapper(adapter, new RenderResultCache()), usageContext);
+ * </pre>
+ *
+ */
+public class CachingFormsServiceAdapterWrapper implements TraditionalFormsService {
+
+	private final TraditionalFormsService formsService;
+	private final RenderResultCache cache;
+
+	public CachingFormsServiceAdapterWrapper(TraditionalFormsService formsService, RenderResultCache cache) {
+		super();
+		this.formsService = Objects.requireNonNull(formsService, "formsService cannot be null.");
+		this.cache = Objects.requireNonNull(cache, "cache cannot be null.");
+	}
+
+	@Override
+	public Document exportData(Document pdfOrXdp, DataFormat dataFormat) throws FormsServiceException {
+		return formsService.exportData(pdfOrXdp, dataFormat);
+	}
+
+	@Override
+	public Document importData(Document pdf, Document data) throws FormsServiceException {
+		return formsService.importData(pdf, data);
+	}
+
+	@Override
+	public Document renderPDFForm(String urlOrfilename, Document data, PDFFormRenderOptions pdfFormRenderOptions)
+			throws FormsServiceException {
+		try {
+			Optional<RenderResultCache.KeyBuilder> keyBuilder = RenderResultCache.key("renderPDFForm", urlOrfilename, pdfFormRenderOptions.getContentRoot());
+			if (!keyBuilder.isPresent()) {
+				return formsService.renderPDFForm(urlOrfilename, data, pdfFormRenderOptions);	// The template can't be versioned, so its results can't be cached.
+			}
+			ContentDigest key = addOptions(keyBuilder.get(), data, pdfFormRenderOptions).build();
+			Optional<Document> cached = cache.get(key);
+			return cached.isPresent() ? cached.get() : cache.put(key, formsService.renderPDFForm(urlOrfilename, data, pdfFormRenderOptions), keyBuilder.get().getTemplateFile());
+		} catch (IOException e) {
+			throw new FormsServiceException("Error while caching rendered form.", e);
+		}
+	}
+
+	@Override
+	public Document renderPDFForm(Document template, Document data, PDFFormRenderOptions pdfFormRenderOptions)
+			throws FormsServiceException {
+		try {
+			ContentDigest key = addOptions(RenderResultCache.key("renderPDFForm").add("template", template), data, pdfFormRenderOptions).build();
+			Optional<Document> cached = cache.get(key);
+			return cached.isPresent() ? cached.get() : cache.put(key, formsService.renderPDFForm(template, data, pdfFormRenderOptions));
+		} catch (IOException e) {
+			throw new FormsServiceException("Error while caching rendered form.", e);
+		}
+	}
+
+	@Override
+	public ValidationResult validate(String template, Document data, ValidationOptions validationOptions)
+			throws FormsServiceException {
+		return formsService.validate(template, data, validationOptions);
+	}
+
+	public RenderResultCache getCache() {
+		return cache;
+	}
+
+	// Also used by CoalescingFormsServiceAdapterWrapper, so that both use the same key.
+	/* package */ static RenderResultCache.KeyBuilder addOptions(RenderResultCache.KeyBuilder key, Document data, PDFFormRenderOptions options) throws IOException {
+		return key.add("data", data)
+				  .add("acrobatVersion", options.getAcrobatVersion())
+				  .add("cacheStrategy", options.getCacheStrategy())
+				  .add("contentRoot", options.getContentRoot())
+				  .add("debugDir", options.getDebugDir())
+				  .add("embedFonts", options.getEmbedFonts())
+				  .add("locale", options.getLocale())
+				  .add("renderAtClient", options.getRenderAtClient())
+				  .add("submitUrls", options.getSubmitUrls())
+				  .add("taggedPDF", options.getTaggedPDF())
+				  .add("xci", options.getXci());
+	}
+}
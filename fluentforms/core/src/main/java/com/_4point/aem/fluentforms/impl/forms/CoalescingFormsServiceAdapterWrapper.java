@@ -0,0 +1,91 @@
+package com._4point.aem.fluentforms.impl.forms;
+
+import java.util.Objects;
+import java.util.concurrent.Callable;
+
+import com._4point.aem.fluentforms.api.ContentDigest;
+import com._4point.aem.fluentforms.api.Document;
+import com._4point.aem.fluentforms.api.forms.FormsService.FormsServiceException;
+import com._4point.aem.fluentforms.api.forms.PDFFormRenderOptions;
+import com._4point.aem.fluentforms.api.forms.ValidationOptions;
+import com._4point.aem.fluentforms.api.forms.ValidationResult;
+import com._4point.aem.fluentforms.impl.RenderCoalescer;
+import com._4point.aem.fluentforms.impl.RenderResultCache;
+import com.adobe.fd.forms.api.DataFormat;
+
+/**
+ * Shares a single renderPDFForm() call between identical requests that are in progress at the same time (e.g. a burst
+ * of requests for the same blank form).
+ *
+ * Requests are identified using the same key as CachingFormsServiceAdapterWrapper.  Only renderPDFForm() requests whose
+ * Documents can be keyed cheaply (see RenderCoalescer.canCoalesce()) are coalesced; all other calls are passed straight
+ * through.
+ *
+ * To use it, wrap the service that is passed to the FormsServiceImpl (inside a CachingFormsServiceAdapterWrapper, if
+ * there is one, so that only cache misses are coalesced):
+ * <pre>
+ * new FormsServiceImpl(new CoalescingFormsServiceAdapterWrapper(adapter, new RenderCoalescer()), usageContext);
+ * </pre>
+ *
+ */
+public class CoalescingFormsServiceAdapterWrapper implements TraditionalFormsService {
+
+	private final TraditionalFormsService formsService;
+	private final RenderCoalescer coalescer;
+
+	public CoalescingFormsServiceAdapterWrapper(TraditionalFormsService formsService, RenderCoalescer coalescer) {
+		super();
+		this.formsService = Objects.requireNonNull(formsService, "formsService cannot be null.");
+		this.coalescer = Objects.requireNonNull(coalescer, "coalescer cannot be null.");
+	}
+
+	@Override
+	public Document exportData(Document pdfOrXdp, DataFormat dataFormat) throws FormsServiceException {
+		return formsService.exportData(pdfOrXdp, dataFormat);
+	}
+
+	@Override
+	public Document importData(Document pdf, Document data) throws FormsServiceException {
+		return formsService.importData(pdf, data);
+	}
+
+	@Override
+	public Document renderPDFForm(String urlOrfilename, Document data, PDFFormRenderOptions pdfFormRenderOptions)
+			throws FormsServiceException {
+		if (!coalescer.canCoalesce(data, pdfFormRenderOptions.getXci())) {
+			return formsService.renderPDFForm(urlOrfilename, data, pdfFormRenderOptions);
+		}
+		return coalesce(()->CachingFormsServiceAdapterWrapper.addOptions(RenderResultCache.key("renderPDFForm").add("templateLocation", urlOrfilename), data, pdfFormRenderOptions).build(),
+						()->formsService.renderPDFForm(urlOrfilename, data, pdfFormRenderOptions));
+	}
+
+	@Override
+	public Document renderPDFForm(Document template, Document data, PDFFormRenderOptions pdfFormRenderOptions)
+			throws FormsServiceException {
+		if (!coalescer.canCoalesce(template, data, pdfFormRenderOptions.getXci())) {
+			return formsService.renderPDFForm(template, data, pdfFormRenderOptions);
+		}
+		return coalesce(()->CachingFormsServiceAdapterWrapper.addOptions(RenderResultCache.key("renderPDFForm").add("template", template), data, pdfFormRenderOptions).build(),
+						()->formsService.renderPDFForm(template, data, pdfFormRenderOptions));
+	}
+
+	private Document coalesce(Callable<ContentDigest> key, Callable<Document> render) throws FormsServiceException {
+		try {
+			return coalescer.render(key.call(), render);
+		} catch (FormsServiceException | RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new FormsServiceException("Error while rendering form.", e);
+		}
+	}
+
+	@Override
+	public ValidationResult validate(String template, Document data, ValidationOptions validationOptions)
+			throws FormsServiceException {
+		return formsService.validate(template, data, validationOptions);
+	}
+
+	public RenderCoalescer getCoalescer() {
+		return coalescer;
+	}
+}
@@ -16,6 +16,7 @@ import com._4point.aem.fluentforms.api.forms.PDFFormRenderOptions;
 import com._4point.aem.fluentforms.api.forms.ValidationOptions;
 import com._4point.aem.fluentforms.api.forms.ValidationResult;
 import com._4point.aem.fluentforms.impl.TemplateValues;
+import com._4point.aem.fluentforms.impl.TemplateValuesResolver;
 import com._4point.aem.fluentforms.impl.UsageContext;
 import com.adobe.fd.forms.api.AcrobatVersion;
 import com.adobe.fd.forms.api.CacheStrategy;
@@ -26,11 +27,17 @@ public class FormsServiceImpl implements FormsService {
 	
 	private final TraditionalFormsService adobeFormsService;
 	private final UsageContext usageContext;
+	private final TemplateValuesResolver templateValuesResolver;
 
 	public FormsServiceImpl(TraditionalFormsService adobeFormsService, UsageContext usageContext) {
+		this(adobeFormsService, usageContext, TemplateValuesResolver.DIRECT);
+	}
+
+	public FormsServiceImpl(TraditionalFormsService adobeFormsService, UsageContext usageContext, TemplateValuesResolver templateValuesResolver) {
 		super();
 		this.adobeFormsService = new SafeFormsServiceAdapterWrapper(adobeFormsService);
 		this.usageContext = usageContext;
+		this.templateValuesResolver = Objects.requireNonNull(templateValuesResolver, "templateValuesResolver cannot be null.");
 	}
 
 	@Override
@@ -53,7 +60,7 @@ public class FormsServiceImpl implements FormsService {
 //		if (contentRoot != null && !contentRoot.isPath()) {
 //			throw new FormsServiceException("Content Root must be Path object if template is a Path. contentRoot='" + contentRoot.toString() + "', template='" + filename + "'.");
 //		}
-		TemplateValues tvs = TemplateValues.determineTemplateValues(filename, contentRoot, this.usageContext);
+		TemplateValues tvs = this.templateValuesResolver.resolve(filename, contentRoot, this.usageContext);
 		
 		PathOrUrl finalContentRoot = tvs.getContentRoot();
 		pdfFormRenderOptions.setContentRoot(finalContentRoot != null ? finalContentRoot : null);
@@ -0,0 +1,64 @@
+package com._4point.aem.fluentforms.impl.forms;
+
+import java.util.Objects;
+
+import com._4point.aem.fluentforms.api.Document;
+import com._4point.aem.fluentforms.api.forms.FormsService.FormsServiceException;
+import com._4point.aem.fluentforms.api.forms.PDFFormRenderOptions;
+import com._4point.aem.fluentforms.api.forms.ValidationOptions;
+import com._4point.aem.fluentforms.api.forms.ValidationResult;
+import com._4point.aem.fluentforms.impl.AdaptiveConcurrencyLimiter;
+import com._4point.aem.fluentforms.impl.AdaptiveConcurrencyLimiter.LimitExceededException;
+import com.adobe.fd.forms.api.DataFormat;
+
+/**
+ * Limits the number of Forms service calls made at once using an AdaptiveConcurrencyLimiter.  Calls that are
+ * rejected by the limiter throw a FormsServiceException.
+ * Each template named in a call is tracked as a separate operation, since templates take very different times to
+ * render.
+ *
+ */
+public class LimitingFormsServiceAdapterWrapper implements TraditionalFormsService {
+
+	private final TraditionalFormsService formsService;
+	private final AdaptiveConcurrencyLimiter limiter;
+
+	public LimitingFormsServiceAdapterWrapper(TraditionalFormsService formsService, AdaptiveConcurrencyLimiter limiter) {
+		super();
+		this.formsService = Objects.requireNonNull(formsService, "formsService cannot be null.");
+		this.limiter = Objects.requireNonNull(limiter, "limiter cannot be null.");
+	}
+
+	@Override
+	public Document exportData(Document pdfOrXdp, DataFormat dataFormat) throws FormsServiceException {
+		return limit("Forms.exportData", ()->formsService.exportData(pdfOrXdp, dataFormat));
+	}
+
+	@Override
+	public Document importData(Document pdf, Document data) throws FormsServiceException {
+		return limit("Forms.importData", ()->formsService.importData(pdf, data));
+	}
+
+	@Override
+	public Document renderPDFForm(String urlOrfilename, Document data, PDFFormRenderOptions pdfFormRenderOptions) throws FormsServiceException {
+		return limit("Forms.renderPDFForm:" + urlOrfilename, ()->formsService.renderPDFForm(urlOrfilename, data, pdfFormRenderOptions));
+	}
+
+	@Override
+	public Document renderPDFForm(Document template, Document data, PDFFormRenderOptions pdfFormRenderOptions) throws FormsServiceException {
+		return limit("Forms.renderPDFForm", ()->formsService.renderPDFForm(template, data, pdfFormRenderOptions));
+	}
+
+	@Override
+	public ValidationResult validate(String template, Document data, ValidationOptions validationOptions) throws FormsServiceException {
+		return limit("Forms.validate:" + template, ()->formsService.validate(template, data, validationOptions));
+	}
+
+	private <T> T limit(String operation, AdaptiveConcurrencyLimiter.Call<T, FormsServiceException> call) throws FormsServiceException {
+		try {
+			return limiter.execute(operation, call);
+		} catch (LimitExceededException e) {
+			throw new FormsServiceException("Forms service call rejected by the concurrency limiter. " + e.getMessage(), e);
+		}
+	}
+}
@@ -3,6 +3,9 @@ package com._4point.aem.fluentforms.impl.output;
 import static com._4point.aem.fluentforms.impl.BuilderUtils.setIfNotNull;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
@@ -12,6 +15,7 @@ import org.slf4j.LoggerFactory;
 
 import com._4point.aem.fluentforms.api.Document;
 import com._4point.aem.fluentforms.api.DocumentFactory;
+import com._4point.aem.fluentforms.api.PathOrUrl;
 import com._4point.aem.fluentforms.api.output.BatchOptions;
 import com._4point.aem.fluentforms.api.output.BatchResult;
 import com._4point.aem.fluentforms.api.output.OutputService.OutputServiceException;
@@ -42,7 +46,7 @@ public class AdobeOutputServiceAdapter implements TraditionalOutputService {
 	@Override
 	public Document generatePDFOutput(Document template, Document data, PDFOutputOptions pdfOutputOptions) throws OutputServiceException {
 		try {
-			return documentFactory.create(adobeOutputService.generatePDFOutput(AdobeDocumentFactoryImpl.getAdobeDocument(template), AdobeDocumentFactoryImpl.getAdobeDocument(data), toAdobePDFOutputOptions(pdfOutputOptions))).setContentTypeIfEmpty(Document.CONTENT_TYPE_PDF);
+			return documentFactory.create(adobeOutputService.generatePDFOutput(AdobeDocumentFactoryImpl.toAdobeDocument(template), AdobeDocumentFactoryImpl.getAdobeDocument(data), toAdobePDFOutputOptions(pdfOutputOptions))).setContentTypeIfEmpty(Document.CONTENT_TYPE_PDF);
 		} catch (com.adobe.fd.output.api.OutputServiceException | IOException e) {
 			throw new OutputServiceException(e);
 		}
@@ -60,15 +64,18 @@ public class AdobeOutputServiceAdapter implements TraditionalOutputService {
 	@Override
 	public BatchResult generatePDFOutputBatch(Map<String, String> templates, Map<String, Document> data, PDFOutputOptions pdfOutputOptions, BatchOptions batchOptions)
 			throws OutputServiceException {
-		// TODO Auto-generated method stub
-		return null;
+		try {
+			return toBatchResult(adobeOutputService.generatePDFOutputBatch(templates, toAdobeData(data), toAdobePDFOutputOptions(pdfOutputOptions), toAdobeBatchOptions(batchOptions)), Document.CONTENT_TYPE_PDF);
+		} catch (com.adobe.fd.output.api.OutputServiceException | IOException e) {
+			throw new OutputServiceException(e);
+		}
 	}
 
 	@Override
 	public Document generatePrintedOutput(Document template, Document data, PrintedOutputOptions printedOutputOptions) throws OutputServiceException {
 		try {
-			return documentFactory.create(adobeOutputService.generatePrintedOutput(AdobeDocumentFactoryImpl.getAdobeDocument(template), AdobeDocumentFactoryImpl.getAdobeDocument(data), toAdobePrintedOutputOptions(printedOutputOptions)));
-		} catch (com.adobe.fd.output.api.OutputServiceException e) {
+			return documentFactory.create(adobeOutputService.generatePrintedOutput(AdobeDocumentFactoryImpl.toAdobeDocument(template), AdobeDocumentFactoryImpl.getAdobeDocument(data), toAdobePrintedOutputOptions(printedOutputOptions)));
+		} catch (com.adobe.fd.output.api.OutputServiceException | IOException e) {
 			throw new OutputServiceException(e);
 		}
 	}
@@ -77,7 +84,7 @@ public class AdobeOutputServiceAdapter implements TraditionalOutputService {
 	public Document generatePrintedOutput(String urlOrFileName, Document data, PrintedOutputOptions printedOutputOptions) throws OutputServiceException {
 		try {
 			return documentFactory.create(adobeOutputService.generatePrintedOutput(urlOrFileName, AdobeDocumentFactoryImpl.getAdobeDocument(data), toAdobePrintedOutputOptions(printedOutputOptions)));
-		} catch (com.adobe.fd.output.api.OutputServiceException e) {
+		} catch (com.adobe.fd.output.api.OutputServiceException | IOException e) {
 			throw new OutputServiceException(e);
 		}
 	}
@@ -85,12 +92,68 @@ public class AdobeOutputServiceAdapter implements TraditionalOutputService {
 	@Override
 	public BatchResult generatePrintedOutputBatch(Map<String, String> templates, Map<String, Document> data, PrintedOutputOptions printedOutputOptions, BatchOptions batchOptions)
 			throws OutputServiceException {
-		// TODO Auto-generated method stub
-		return null;
+		try {
+			return toBatchResult(adobeOutputService.generatePrintedOutputBatch(templates, toAdobeData(data), toAdobePrintedOutputOptions(printedOutputOptions), toAdobeBatchOptions(batchOptions)), null);
+		} catch (com.adobe.fd.output.api.OutputServiceException | IOException e) {
+			throw new OutputServiceException(e);
+		}
+	}
+
+	private static Map<String, com.adobe.aemfd.docmanager.Document> toAdobeData(Map<String, Document> data) {
+		if (data == null) {
+			return null;
+		}
+		Map<String, com.adobe.aemfd.docmanager.Document> adobeData = new LinkedHashMap<>();
+		data.forEach((k, v)->adobeData.put(k, AdobeDocumentFactoryImpl.getAdobeDocument(v)));
+		return adobeData;
+	}
+
+	// Converts the Adobe results, setting the content type of the generated documents (if provided).
+	private BatchResult toBatchResult(com.adobe.fd.output.api.BatchResult adobeResult, String contentType) throws IOException {
+		List<Document> generatedDocs = new ArrayList<>();
+		for (com.adobe.aemfd.docmanager.Document adobeDoc : adobeResult.getGeneratedDocs()) {
+			Document doc = documentFactory.create(adobeDoc);
+			generatedDocs.add(contentType != null ? doc.setContentTypeIfEmpty(contentType) : doc);
+		}
+		com.adobe.aemfd.docmanager.Document adobeMetaDataDoc = adobeResult.getMetaDataDoc();
+		return BatchResultImpl.create(generatedDocs, adobeMetaDataDoc != null ? documentFactory.create(adobeMetaDataDoc) : null);
 	}
 
 	// Package visibility so that it can be used in unit testing.
-	/* package */ static com.adobe.fd.output.api.PDFOutputOptions toAdobePDFOutputOptions(PDFOutputOptions options) {
+	/* package */ static com.adobe.fd.output.api.BatchOptions toAdobeBatchOptions(BatchOptions options) {
+		com.adobe.fd.output.api.BatchOptions adobeOptions = new com.adobe.fd.output.api.BatchOptions();
+		setIfNotNull(adobeOptions::setGenerateManyFiles, options.getGenerateManyFiles());
+		return adobeOptions;
+	}
+
+	// Package visibility so that it can be used in unit testing.
+	/* package */ static com.adobe.fd.output.api.PDFOutputOptions toAdobePDFOutputOptions(PDFOutputOptions options) throws IOException {
+		if (options instanceof PDFOutputProfile.Options && !((PDFOutputProfile.Options)options).hasOverrides()) {
+			PDFOutputProfile profile = ((PDFOutputProfile.Options)options).getProfile();
+			log.debug("Using PDFOutputOptions from profile '{}'.", profile.getName());
+			return copyWithContentRoot(profile.toAdobeOptions(), options.getContentRoot());
+		}
+		return convertPDFOutputOptions(options);
+	}
+
+	// The profile's converted options are shared by concurrent renders, so each render gets its own copy.
+	private static com.adobe.fd.output.api.PDFOutputOptions copyWithContentRoot(com.adobe.fd.output.api.PDFOutputOptions from, PathOrUrl contentRoot) {
+		com.adobe.fd.output.api.PDFOutputOptions adobeOptions = new com.adobe.fd.output.api.PDFOutputOptions();
+		adobeOptions.setAcrobatVersion(from.getAcrobatVersion());
+		setIfNotNull((cr)->adobeOptions.setContentRoot(cr.toString()), contentRoot);
+		adobeOptions.setDebugDir(from.getDebugDir());
+		adobeOptions.setEmbedFonts(from.getEmbedFonts());
+		adobeOptions.setLinearizedPDF(from.getLinearizedPDF());
+		adobeOptions.setLocale(from.getLocale());
+		adobeOptions.setRetainPDFFormState(from.getRetainPDFFormState());
+		adobeOptions.setRetainUnsignedSignatureFields(from.getRetainUnsignedSignatureFields());
+		adobeOptions.setTaggedPDF(from.getTaggedPDF());
+		adobeOptions.setXci(from.getXci());
+		return adobeOptions;
+	}
+
+	// Also used by PDFOutputProfile, which converts its options once.
+	/* package */ static com.adobe.fd.output.api.PDFOutputOptions convertPDFOutputOptions(PDFOutputOptions options) throws IOException {
 		com.adobe.fd.output.api.PDFOutputOptions adobeOptions = new com.adobe.fd.output.api.PDFOutputOptions();
 		setIfNotNull(adobeOptions::setAcrobatVersion, options.getAcrobatVersion());
 		setIfNotNull((cr)->adobeOptions.setContentRoot(cr.toString()), options.getContentRoot());
@@ -101,23 +164,40 @@ public class AdobeOutputServiceAdapter implements TraditionalOutputService {
 		setIfNotNull(adobeOptions::setRetainPDFFormState, options.getRetainPDFFormState());
 		setIfNotNull(adobeOptions::setRetainUnsignedSignatureFields, options.getRetainUnsignedSignatureFields());
 		setIfNotNull(adobeOptions::setTaggedPDF, options.getTaggedPDF());
-		setIfNotNull((ad)->adobeOptions.setXci(AdobeDocumentFactoryImpl.getAdobeDocument(ad)), options.getXci());
-		log.info("AcrobatVersion=" + adobeOptions.getAcrobatVersion().toString());
-		log.info("ContentRoot=" + adobeOptions.getContentRoot());
-		log.info("DebugDir=" + adobeOptions.getDebugDir());
-		log.info("EmbedFonts=" + adobeOptions.getEmbedFonts());
-		log.info("LinearizedPdf=" + adobeOptions.getLinearizedPDF());
-		log.info("Locale=" + adobeOptions.getLocale());
-		log.info("RetainPDFFormState=" + adobeOptions.getRetainPDFFormState());
-		log.info("RetainUnsignedSignatureFields=" + adobeOptions.getRetainUnsignedSignatureFields());
-		log.info("TaggedPdf=" + adobeOptions.getTaggedPDF());
-		log.info("Xci is null=" + Boolean.toString(adobeOptions.getXci() == null));
+		adobeOptions.setXci(AdobeDocumentFactoryImpl.toAdobeDocument(options.getXci()));	// e.g. a profile's XCI is a SimpleDocument.
+		if (log.isDebugEnabled()) {
+			log.debug("PDFOutputOptions: AcrobatVersion={}, ContentRoot={}, DebugDir={}, EmbedFonts={}, LinearizedPdf={}, Locale={}, RetainPDFFormState={}, RetainUnsignedSignatureFields={}, TaggedPdf={}, Xci is null={}",
+					adobeOptions.getAcrobatVersion(), adobeOptions.getContentRoot(), adobeOptions.getDebugDir(), adobeOptions.getEmbedFonts(), adobeOptions.getLinearizedPDF(), adobeOptions.getLocale(),
+					adobeOptions.getRetainPDFFormState(), adobeOptions.getRetainUnsignedSignatureFields(), adobeOptions.getTaggedPDF(), adobeOptions.getXci() == null);
+		}
 		return adobeOptions;
-
 	}
 
 	// Package visibility so that it can be used in unit testing.
-	/* package */ static com.adobe.fd.output.api.PrintedOutputOptions toAdobePrintedOutputOptions(PrintedOutputOptions options) {
+	/* package */ static com.adobe.fd.output.api.PrintedOutputOptions toAdobePrintedOutputOptions(PrintedOutputOptions options) throws IOException {
+		if (options instanceof PrintedOutputProfile.Options && !((PrintedOutputProfile.Options)options).hasOverrides()) {
+			PrintedOutputProfile profile = ((PrintedOutputProfile.Options)options).getProfile();
+			log.debug("Using PrintedOutputOptions from profile '{}'.", profile.getName());
+			return copyWithContentRoot(profile.toAdobeOptions(), options.getContentRoot());
+		}
+		return convertPrintedOutputOptions(options);
+	}
+
+	// The profile's converted options are shared by concurrent renders, so each render gets its own copy.
+	private static com.adobe.fd.output.api.PrintedOutputOptions copyWithContentRoot(com.adobe.fd.output.api.PrintedOutputOptions from, PathOrUrl contentRoot) {
+		com.adobe.fd.output.api.PrintedOutputOptions adobeOptions = new com.adobe.fd.output.api.PrintedOutputOptions();
+		setIfNotNull((cr)->adobeOptions.setContentRoot(cr.toString()), contentRoot);
+		adobeOptions.setCopies(from.getCopies());
+		adobeOptions.setDebugDir(from.getDebugDir());
+		adobeOptions.setLocale(from.getLocale());
+		adobeOptions.setPaginationOverride(from.getPaginationOverride());
+		adobeOptions.setPrintConfig(from.getPrintConfig());
+		adobeOptions.setXci(from.getXci());
+		return adobeOptions;
+	}
+
+	// Also used by PrintedOutputProfile, which converts its options once.
+	/* package */ static com.adobe.fd.output.api.PrintedOutputOptions convertPrintedOutputOptions(PrintedOutputOptions options) throws IOException {
 		com.adobe.fd.output.api.PrintedOutputOptions adobeOptions = new com.adobe.fd.output.api.PrintedOutputOptions();
 		setIfNotNull((cr)->adobeOptions.setContentRoot(cr.toString()), options.getContentRoot());
 		setIfNotNull(adobeOptions::setCopies, options.getCopies());
@@ -125,15 +205,12 @@ public class AdobeOutputServiceAdapter implements TraditionalOutputService {
 		setIfNotNull((l)->adobeOptions.setLocale(l.toLanguageTag()), options.getLocale());
 		setIfNotNull(adobeOptions::setPaginationOverride, options.getPaginationOverride());
 		setIfNotNull(adobeOptions::setPrintConfig, toAdobePrintConfig(options.getPrintConfig()));
-		setIfNotNull((ad)->adobeOptions.setXci(AdobeDocumentFactoryImpl.getAdobeDocument(ad)), options.getXci());
-		log.info("ContentRoot=" + adobeOptions.getContentRoot());
-		log.info("Copies=" + adobeOptions.getCopies());
-		log.info("DebugDir=" + adobeOptions.getDebugDir());
-		log.info("Locale=" + adobeOptions.getLocale());
-		log.info("PaginationOverride=" + adobeOptions.getPaginationOverride());
-		log.info("PrintConfig=" + adobeOptions.getPrintConfig());
-		log.info("Xci is null=" + Boolean.toString(adobeOptions.getXci() == null));
-		
+		adobeOptions.setXci(AdobeDocumentFactoryImpl.toAdobeDocument(options.getXci()));	// e.g. a profile's XCI is a SimpleDocument.
+		if (log.isDebugEnabled()) {
+			log.debug("PrintedOutputOptions: ContentRoot={}, Copies={}, DebugDir={}, Locale={}, PaginationOverride={}, PrintConfig={}, Xci is null={}",
+					adobeOptions.getContentRoot(), adobeOptions.getCopies(), adobeOptions.getDebugDir(), adobeOptions.getLocale(),
+					adobeOptions.getPaginationOverride(), adobeOptions.getPrintConfig(), adobeOptions.getXci() == null);
+		}
 		return adobeOptions;
 	}
 	
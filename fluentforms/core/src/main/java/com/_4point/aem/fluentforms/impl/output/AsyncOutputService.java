@@ -0,0 +1,245 @@
+package com._4point.aem.fluentforms.impl.output;
+
+import java.io.Closeable;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com._4point.aem.fluentforms.api.Document;
+import com._4point.aem.fluentforms.api.PathOrUrl;
+import com._4point.aem.fluentforms.api.output.OutputService;
+import com._4point.aem.fluentforms.api.output.OutputService.GeneratePdfOutputArgumentBuilder;
+import com._4point.aem.fluentforms.api.output.PDFOutputOptions;
+import com._4point.aem.fluentforms.impl.TemplateValuesResolver;
+import com._4point.aem.fluentforms.impl.UsageContext;
+
+/**
+ * Non-blocking facade over the Output Service.  Each call returns a CompletableFuture straight away and the PDF is
+ * generated on a bounded executor, so callers don't need to tie up a thread of their own while AEM renders.
+ *
+ * The futures complete exceptionally with the same exceptions the blocking methods throw (OutputServiceException or
+ * FileNotFoundException), or with a RejectedExecutionException if the executor's queue is full and its rejection
+ * policy is ABORT.
+ *
+ * An AsyncOutputService created with its own executor (by specifying the number of threads) shuts that executor down
+ * when it is closed.  Executors passed in by the caller are the caller's to shut down.  The default executor is shared
+ * and is never shut down, but its threads are daemon threads that are discarded once idle, so it doesn't keep anything
+ * running.
+ *
+ */
+public class AsyncOutputService implements Closeable {
+
+	/**
+	 * Number of threads used by the default executor.
+	 */
+	public static final int DEFAULT_THREADS = Runtime.getRuntime().availableProcessors();
+	/**
+	 * Number of requests that can be waiting for a thread in the default executor.
+	 */
+	public static final int DEFAULT_QUEUE_LIMIT = 256;
+
+	private static final long IDLE_THREAD_TIMEOUT_SECONDS = 60;
+
+	/**
+	 * What to do with a request when all the executor's threads are busy and its queue is full.
+	 */
+	public enum RejectionPolicy {
+		/**
+		 * Fail the request (its future completes exceptionally with a RejectedExecutionException).
+		 */
+		ABORT(new ThreadPoolExecutor.AbortPolicy()),
+		/**
+		 * Generate the PDF on the caller's thread (so the call blocks, slowing the caller down).
+		 */
+		CALLER_RUNS(new ThreadPoolExecutor.CallerRunsPolicy());
+
+		private final RejectedExecutionHandler handler;
+
+		private RejectionPolicy(RejectedExecutionHandler handler) {
+			this.handler = handler;
+		}
+	}
+
+	private final OutputServiceImpl outputService;
+	private final Executor executor;
+	private final ExecutorService ownedExecutor;	// null unless the executor was created by this service.
+
+	/**
+	 * Creates an AsyncOutputService that uses the default executor (DEFAULT_THREADS threads, a queue of
+	 * DEFAULT_QUEUE_LIMIT requests, and the ABORT rejection policy).
+	 *
+	 * @param adobeOutputService
+	 * @param usageContext
+	 */
+	public AsyncOutputService(TraditionalOutputService adobeOutputService, UsageContext usageContext) {
+		this(adobeOutputService, usageContext, getDefaultExecutor());
+	}
+
+	/**
+	 * Creates an AsyncOutputService with its own bounded executor.
+	 *
+	 * @param adobeOutputService
+	 * @param usageContext
+	 * @param threads maximum number of PDFs generated at once.
+	 * @param queueLimit maximum number of requests waiting for a thread.
+	 * @param rejectionPolicy what to do with requests once the queue is full.
+	 */
+	public AsyncOutputService(TraditionalOutputService adobeOutputService, UsageContext usageContext, int threads, int queueLimit, RejectionPolicy rejectionPolicy) {
+		this(adobeOutputService, usageContext, newBoundedExecutor(threads, queueLimit, rejectionPolicy), true);
+	}
+
+	/**
+	 * Creates an AsyncOutputService that runs on the executor provided.  The executor is not shut down when this service
+	 * is closed.
+	 *
+	 * @param adobeOutputService
+	 * @param usageContext
+	 * @param executor
+	 */
+	public AsyncOutputService(TraditionalOutputService adobeOutputService, UsageContext usageContext, Executor executor) {
+		this(adobeOutputService, usageContext, executor, false);
+	}
+
+	private AsyncOutputService(TraditionalOutputService adobeOutputService, UsageContext usageContext, Executor executor, boolean ownsExecutor) {
+		this.executor = Objects.requireNonNull(executor, "executor cannot be null.");
+		this.ownedExecutor = ownsExecutor ? (ExecutorService) executor : null;
+		this.outputService = new OutputServiceImpl(adobeOutputService, usageContext, TemplateValuesResolver.DIRECT, null, BatchFanOut.getDefault(), executor);
+	}
+
+	public CompletableFuture<Document> generatePDFOutput(Document template, Document data, PDFOutputOptions pdfOutputOptions) {
+		PDFOutputOptions options = PDFOutputOptionsImpl.copyOf(Objects.requireNonNull(pdfOutputOptions, "pdfOutputOptions cannot be null!"));
+		return submit(executor, ()->outputService.generatePDFOutput(template, data, options));
+	}
+
+	public CompletableFuture<Document> generatePDFOutput(Path templateFileName, Document data, PDFOutputOptions pdfOutputOptions) {
+		PDFOutputOptions options = PDFOutputOptionsImpl.copyOf(Objects.requireNonNull(pdfOutputOptions, "pdfOutputOptions cannot be null!"));
+		return submit(executor, ()->outputService.generatePDFOutput(templateFileName, data, options));
+	}
+
+	public CompletableFuture<Document> generatePDFOutput(URL templateUrl, Document data, PDFOutputOptions pdfOutputOptions) {
+		PDFOutputOptions options = PDFOutputOptionsImpl.copyOf(Objects.requireNonNull(pdfOutputOptions, "pdfOutputOptions cannot be null!"));
+		return submit(executor, ()->outputService.generatePDFOutput(templateUrl, data, options));
+	}
+
+	public CompletableFuture<Document> generatePDFOutput(PathOrUrl template, Document data, PDFOutputOptions pdfOutputOptions) {
+		PDFOutputOptions options = PDFOutputOptionsImpl.copyOf(Objects.requireNonNull(pdfOutputOptions, "pdfOutputOptions cannot be null!"));
+		return submit(executor, ()->outputService.generatePDFOutput(template, data, options));
+	}
+
+	/**
+	 * Returns a builder whose executeOnAsync() methods run on this service's executor.
+	 *
+	 * @return
+	 */
+	public GeneratePdfOutputArgumentBuilder generatePDFOutput() {
+		return outputService.generatePDFOutput();
+	}
+
+	/**
+	 * Returns the blocking OutputService that this service wraps.
+	 *
+	 * @return
+	 */
+	public OutputService getOutputService() {
+		return outputService;
+	}
+
+	public Executor getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * Shuts down the executor if this service created it.  Requests already submitted are still completed, but new
+	 * requests are rejected.
+	 */
+	@Override
+	public void close() {
+		if (ownedExecutor != null) {
+			ownedExecutor.shutdown();
+		}
+	}
+
+	/**
+	 * Returns the shared executor used by default.  Its threads are daemon threads that are only started when needed and
+	 * are discarded once idle.  It is shared by every service that uses it, so it must not be shut down.
+	 *
+	 * @return
+	 */
+	public static Executor getDefaultExecutor() {
+		return DefaultHolder.EXECUTOR;
+	}
+
+	/**
+	 * Creates an executor that runs up to threads tasks at once and queues up to queueLimit more.  Its threads are only
+	 * started when needed and are discarded once idle.
+	 *
+	 * @param threads
+	 * @param queueLimit
+	 * @param rejectionPolicy
+	 * @return
+	 */
+	public static ThreadPoolExecutor newBoundedExecutor(int threads, int queueLimit, RejectionPolicy rejectionPolicy) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("threads must be at least 1 (" + threads + ").");
+		}
+		if (queueLimit < 1) {
+			throw new IllegalArgumentException("queueLimit must be at least 1 (" + queueLimit + ").");
+		}
+		Objects.requireNonNull(rejectionPolicy, "rejectionPolicy cannot be null.");
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, IDLE_THREAD_TIMEOUT_SECONDS, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(queueLimit), daemonThreadFactory(), rejectionPolicy.handler);
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	/**
+	 * Runs a task on an executor, returning a future that completes with its result or with the exception it throws.  If
+	 * the executor rejects the task, the future completes exceptionally with the RejectedExecutionException.
+	 *
+	 * @param executor
+	 * @param task
+	 * @return
+	 */
+	public static <T> CompletableFuture<T> submit(Executor executor, Callable<T> task) {
+		CompletableFuture<T> future = new CompletableFuture<>();
+		try {
+			executor.execute(()->{
+				if (future.isDone()) {
+					return;		// Cancelled while waiting in the queue.
+				}
+				try {
+					future.complete(task.call());
+				} catch (Throwable e) {
+					future.completeExceptionally(e);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	private static ThreadFactory daemonThreadFactory() {
+		AtomicInteger threadNumber = new AtomicInteger();
+		return r->{
+			Thread thread = new Thread(r, "FluentForms async output worker " + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	private static class DefaultHolder {
+		private static final Executor EXECUTOR = newBoundedExecutor(DEFAULT_THREADS, DEFAULT_QUEUE_LIMIT, RejectionPolicy.ABORT);
+	}
+}
@@ -0,0 +1,409 @@
+package com._4point.aem.fluentforms.impl.output;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import com._4point.aem.fluentforms.api.Document;
+import com._4point.aem.fluentforms.api.output.BatchResult;
+import com._4point.aem.fluentforms.api.output.BatchSink;
+import com._4point.aem.fluentforms.api.output.OutputService.OutputServiceException;
+import com._4point.aem.fluentforms.impl.SimpleDocumentFactoryImpl;
+
+/**
+ * Generates a batch of documents by rendering each record separately, in parallel, on a bounded executor.
+ *
+ * Each data record is rendered with the template that has the same name.  If there is only one template, it is used
+ * for every record.  If there is no data, each template is rendered once without data.  Records that fail are reported
+ * in BatchResult.getFailures() and do not stop the rest of the batch.  The generated documents are returned in the
+ * same order as the records (less any that failed).  No metadata document is produced.  Records are submitted to the
+ * executor as earlier ones complete, so a large batch never has more than a bounded number of records queued on it.
+ *
+ * Large batches can be streamed to a BatchSink instead, in which case each document is handed to the sink as soon as it
+ * is rendered and at most a bounded number of rendered documents are waiting for the sink at any time.  A metadata
+ * document describing each record is built up as the records complete and is passed to the sink at the end.
+ *
+ */
+public class BatchFanOut {
+
+	/**
+	 * Number of records rendered at once by the default instance.
+	 */
+	public static final int DEFAULT_PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+	private static final long IDLE_THREAD_TIMEOUT_SECONDS = 60;
+
+	private final ExecutorService executor;
+	private final int maxPending;		// Maximum number of records submitted to the executor (or waiting for the sink).
+
+	/**
+	 * Creates a BatchFanOut that renders up to parallelism records at once.  Its threads are only started when needed and
+	 * are discarded once idle.
+	 *
+	 * @param parallelism
+	 */
+	public BatchFanOut(int parallelism) {
+		this(newExecutor(parallelism), 2 * parallelism);
+	}
+
+	/**
+	 * Creates a BatchFanOut that renders records on the executor provided (which determines how many are rendered at once).
+	 *
+	 * @param executor
+	 */
+	public BatchFanOut(ExecutorService executor) {
+		this(executor, 2 * DEFAULT_PARALLELISM);
+	}
+
+	/**
+	 * Creates a BatchFanOut that renders records on the executor provided.  No more than maxPending records of a batch are
+	 * submitted to the executor (or, when streaming, waiting for the sink) at any time.
+	 *
+	 * @param executor
+	 * @param maxPending
+	 */
+	public BatchFanOut(ExecutorService executor, int maxPending) {
+		if (maxPending < 1) {
+			throw new IllegalArgumentException("maxPending must be at least 1 (" + maxPending + ").");
+		}
+		this.executor = Objects.requireNonNull(executor, "executor cannot be null.");
+		this.maxPending = maxPending;
+	}
+
+	/**
+	 * Returns a shared instance that renders up to DEFAULT_PARALLELISM records at once.
+	 *
+	 * @return
+	 */
+	public static BatchFanOut getDefault() {
+		return DefaultHolder.INSTANCE;
+	}
+
+	/**
+	 * Renders a single record.
+	 *
+	 * @param <T> template type
+	 */
+	@FunctionalInterface
+	public static interface Renderer<T> {
+		Document render(T template, Document data) throws Exception;
+	}
+
+	/**
+	 * Renders each record and waits for them all to complete.
+	 *
+	 * @param templates templates, keyed by name.
+	 * @param data data records, keyed by name (may be null or empty).
+	 * @param renderer
+	 * @return
+	 * @throws OutputServiceException if interrupted while waiting for the records to be rendered.  Records that have not
+	 * completed are cancelled and any documents that have been rendered are disposed.
+	 */
+	public <T> BatchResult generate(Map<String, T> templates, Map<String, Document> data, Renderer<T> renderer) throws OutputServiceException {
+		Objects.requireNonNull(renderer, "renderer cannot be null.");
+		List<Record<T>> records = records(templates, data);
+		List<Future<Document>> futures = new ArrayList<>(records.size());
+		List<Document> generatedDocs = new ArrayList<>();
+		Map<String, OutputServiceException> failures = new LinkedHashMap<>();
+		Undelivered undelivered = new Undelivered();		// Every rendered document, until the batch is returned.
+		boolean completed = false;
+		try {
+			int collected = 0;
+			for (int i = 0; i < records.size(); i++) {
+				if (i - collected >= maxPending) {
+					// Wait for the oldest record, so that the batch does not flood the (possibly shared) executor.
+					collect(records.get(collected).name, futures.get(collected), generatedDocs, failures);
+					collected++;
+				}
+				Record<T> record = records.get(i);
+				futures.add(executor.submit(()->renderTracked(record, renderer, undelivered)));
+			}
+			for (; collected < futures.size(); collected++) {
+				collect(records.get(collected).name, futures.get(collected), generatedDocs, failures);
+			}
+			completed = true;
+			return BatchResultImpl.create(generatedDocs, null, failures);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OutputServiceException("Interrupted while generating batch.", e);
+		} finally {
+			if (!completed) {
+				// Dispose of what has been rendered before cancelling, so that records still rendering dispose of their own results.
+				undelivered.abort();
+				futures.forEach(f->f.cancel(true));
+			}
+		}
+	}
+
+	private static void collect(String name, Future<Document> future, List<Document> generatedDocs, Map<String, OutputServiceException> failures) throws InterruptedException {
+		try {
+			generatedDocs.add(future.get());
+		} catch (ExecutionException e) {
+			failures.put(name, toOutputServiceException(name, e.getCause()));
+		} catch (CancellationException e) {
+			failures.put(name, new OutputServiceException("Record '" + name + "' was cancelled.", e));
+		}
+	}
+
+	/**
+	 * Renders each record and passes the results to a sink as they complete.  The sink is called on this thread.
+	 *
+	 * @param templates templates, keyed by name.
+	 * @param data data records, keyed by name (may be null or empty).
+	 * @param renderer
+	 * @param sink
+	 * @return a BatchResult containing the metadata document and the failures (but none of the generated documents).
+	 * @throws OutputServiceException if the sink fails or if interrupted.  Records that have not completed are cancelled
+	 * and any that have been rendered but not passed to the sink are disposed.
+	 */
+	public <T> BatchResult stream(Map<String, T> templates, Map<String, Document> data, Renderer<T> renderer, BatchSink sink) throws OutputServiceException {
+		Objects.requireNonNull(renderer, "renderer cannot be null.");
+		Objects.requireNonNull(sink, "sink cannot be null.");
+		List<Record<T>> records = records(templates, data);
+		CompletionService<Outcome> completionService = new ExecutorCompletionService<>(executor);
+		List<Future<Outcome>> pending = new ArrayList<>();
+		Map<String, OutputServiceException> failures = new LinkedHashMap<>();
+		MetaData metaData = new MetaData();
+		Undelivered undelivered = new Undelivered();
+		boolean completed = false;
+		try {
+			int inFlight = 0;
+			for (int i = 0; i < records.size(); i++) {
+				if (inFlight >= maxPending) {
+					deliver(completionService.take(), sink, failures, metaData, undelivered);	// Wait for the sink to catch up.
+					inFlight--;
+				}
+				Record<T> record = records.get(i);
+				int index = i;
+				pending.add(completionService.submit(()->renderOutcome(record, index, renderer, undelivered)));
+				inFlight++;
+			}
+			for (; inFlight > 0; inFlight--) {
+				deliver(completionService.take(), sink, failures, metaData, undelivered);
+			}
+			Document metaDataDoc = metaData.toDocument();
+			sink.complete(metaDataDoc);
+			completed = true;
+			return BatchResultImpl.create(Collections.emptyList(), metaDataDoc, failures);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OutputServiceException("Interrupted while generating batch.", e);
+		} catch (IOException | XMLStreamException e) {
+			throw new OutputServiceException("Error while streaming batch results.", e);
+		} finally {
+			if (!completed) {
+				// Dispose of what has been rendered before cancelling, so that records still rendering dispose of their own results.
+				undelivered.abort();
+				pending.forEach(f->f.cancel(true));
+			}
+		}
+	}
+
+	private static void deliver(Future<Outcome> future, BatchSink sink, Map<String, OutputServiceException> failures, MetaData metaData, Undelivered undelivered) throws InterruptedException, IOException, XMLStreamException {
+		Outcome outcome;
+		try {
+			outcome = future.get();
+		} catch (ExecutionException e) {
+			// This should never happen, renderOutcome() doesn't throw.
+			throw new IllegalStateException("Unexpected error while generating batch.", e.getCause());
+		}
+		if (outcome.failure != null) {
+			failures.put(outcome.name, outcome.failure);
+			metaData.add(outcome, -1);
+			sink.failed(outcome.name, outcome.failure);
+		} else {
+			metaData.add(outcome, outcome.doc.length());
+			undelivered.remove(outcome.doc);		// The sink is responsible for it from here on.
+			sink.accept(outcome.name, outcome.doc);
+		}
+	}
+
+	private static <T> Outcome renderOutcome(Record<T> record, int index, Renderer<T> renderer, Undelivered undelivered) {
+		try {
+			return new Outcome(record.name, index, renderTracked(record, renderer, undelivered), null);
+		} catch (Exception e) {
+			return new Outcome(record.name, index, null, toOutputServiceException(record.name, e));
+		}
+	}
+
+	// Renders a record and adds the result to undelivered.  If the batch has already been aborted, the result is disposed.
+	private static <T> Document renderTracked(Record<T> record, Renderer<T> renderer, Undelivered undelivered) throws Exception {
+		Document doc = render(record, renderer);
+		if (!undelivered.add(doc)) {
+			doc.dispose();
+			throw new OutputServiceException("Record '" + record.name + "' was cancelled.");
+		}
+		return doc;
+	}
+
+	/**
+	 * Pairs each data record with its template.
+	 *
+	 * @param templates
+	 * @param data
+	 * @return
+	 */
+	// Exposed for testing.
+	/* package */ static <T> List<Record<T>> records(Map<String, T> templates, Map<String, Document> data) {
+		Objects.requireNonNull(templates, "templates cannot be null.");
+		if (templates.isEmpty()) {
+			throw new IllegalArgumentException("At least one template must be provided.");
+		}
+		List<Record<T>> records = new ArrayList<>();
+		if (data == null || data.isEmpty()) {
+			templates.forEach((name, template)->records.add(new Record<>(name, template, null)));
+			return records;
+		}
+		T onlyTemplate = templates.size() == 1 ? templates.values().iterator().next() : null;
+		data.forEach((name, record)->records.add(new Record<>(name, templates.containsKey(name) ? templates.get(name) : onlyTemplate, record)));
+		return records;
+	}
+
+	private static <T> Document render(Record<T> record, Renderer<T> renderer) throws Exception {
+		if (record.template == null) {
+			throw new OutputServiceException("No template found for record '" + record.name + "'.");
+		}
+		return renderer.render(record.template, record.data);
+	}
+
+	private static OutputServiceException toOutputServiceException(String name, Throwable cause) {
+		return cause instanceof OutputServiceException ? (OutputServiceException) cause : new OutputServiceException("Error while generating record '" + name + "'.", cause);
+	}
+
+	private static ExecutorService newExecutor(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism must be at least 1 (" + parallelism + ").");
+		}
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(parallelism, parallelism, IDLE_THREAD_TIMEOUT_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), daemonThreadFactory());
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	private static ThreadFactory daemonThreadFactory() {
+		AtomicInteger threadNumber = new AtomicInteger();
+		return r->{
+			Thread thread = new Thread(r, "FluentForms batch worker " + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	// Exposed for testing.
+	/* package */ static class Record<T> {
+		/* package */ final String name;
+		/* package */ final T template;		// null if there's no template for this record.
+		/* package */ final Document data;
+
+		private Record(String name, T template, Document data) {
+			this.name = name;
+			this.template = template;
+			this.data = data;
+		}
+	}
+
+	private static class Outcome {
+		private final String name;
+		private final int index;
+		private final Document doc;					// null if the record failed.
+		private final OutputServiceException failure;	// null if the record succeeded.
+
+		private Outcome(String name, int index, Document doc, OutputServiceException failure) {
+			this.name = name;
+			this.index = index;
+			this.doc = doc;
+			this.failure = failure;
+		}
+	}
+
+	// Documents that have been rendered but not yet handed over (to the sink, or to generate()'s caller).  Once the batch
+	// is aborted they are disposed, and any rendered after that are refused.
+	private static class Undelivered {
+		private final Set<Document> docs = Collections.newSetFromMap(new IdentityHashMap<>());	// Guarded by this.
+		private boolean aborted = false;	// Guarded by this.
+
+		// Returns false if the batch has been aborted, in which case the caller must dispose of the document.
+		private synchronized boolean add(Document doc) {
+			if (aborted) {
+				return false;
+			}
+			docs.add(doc);
+			return true;
+		}
+
+		private synchronized void remove(Document doc) {
+			docs.remove(doc);
+		}
+
+		private synchronized void abort() {
+			aborted = true;
+			docs.forEach(Document::dispose);
+			docs.clear();
+		}
+	}
+
+	// Builds the metadata document incrementally, one record element per record in the order they complete.
+	private static class MetaData {
+		private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		private final XMLStreamWriter writer;
+
+		private MetaData() throws OutputServiceException {
+			try {
+				writer = XMLOutputFactory.newInstance().createXMLStreamWriter(buffer, StandardCharsets.UTF_8.name());
+				writer.writeStartDocument(StandardCharsets.UTF_8.name(), "1.0");
+				writer.writeStartElement("batchResult");
+			} catch (XMLStreamException e) {
+				throw new OutputServiceException("Unable to create batch metadata.", e);
+			}
+		}
+
+		private void add(Outcome outcome, long length) throws XMLStreamException {
+			writer.writeEmptyElement("record");
+			writer.writeAttribute("name", outcome.name);
+			writer.writeAttribute("index", Integer.toString(outcome.index));
+			if (outcome.failure != null) {
+				writer.writeAttribute("status", "failed");
+				writer.writeAttribute("message", String.valueOf(outcome.failure.getMessage()));
+			} else {
+				writer.writeAttribute("status", "generated");
+				writer.writeAttribute("length", Long.toString(length));
+			}
+		}
+
+		// Completes the metadata.  No more records can be added after this.
+		private Document toDocument() throws XMLStreamException {
+			writer.writeEndElement();
+			writer.writeEndDocument();
+			writer.close();
+			Document doc = SimpleDocumentFactoryImpl.getFactory().create(buffer.toByteArray());
+			doc.setContentType("application/xml");
+			return doc;
+		}
+	}
+
+	private static class DefaultHolder {
+		private static final BatchFanOut INSTANCE = new BatchFanOut(DEFAULT_PARALLELISM);
+	}
+}
@@ -1,24 +1,33 @@
 package com._4point.aem.fluentforms.impl.output;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import com._4point.aem.fluentforms.api.Document;
 import com._4point.aem.fluentforms.api.output.BatchResult;
+import com._4point.aem.fluentforms.api.output.OutputService.OutputServiceException;
 
 public class BatchResultImpl implements BatchResult {
 
 	public static BatchResultImpl create(List<Document> getGeneratedDocs, Document getMetaDataDoc) {
-		return new BatchResultImpl(getGeneratedDocs, getMetaDataDoc);
+		return new BatchResultImpl(getGeneratedDocs, getMetaDataDoc, Collections.emptyMap());
 	}
 
-	private BatchResultImpl(List<Document> getGeneratedDocs, Document getMetaDataDoc) {
+	public static BatchResultImpl create(List<Document> getGeneratedDocs, Document getMetaDataDoc, Map<String, OutputServiceException> failures) {
+		return new BatchResultImpl(getGeneratedDocs, getMetaDataDoc, Collections.unmodifiableMap(failures));
+	}
+
+	private BatchResultImpl(List<Document> getGeneratedDocs, Document getMetaDataDoc, Map<String, OutputServiceException> failures) {
 		super();
 		this.getGeneratedDocs = getGeneratedDocs;
 		this.getMetaDataDoc = getMetaDataDoc;
+		this.failures = failures;
 	}
 
 	private final List<Document> getGeneratedDocs;
 	private final Document getMetaDataDoc;
+	private final Map<String, OutputServiceException> failures;
 
 	@Override
 	public List<Document> getGeneratedDocs() {
@@ -29,4 +38,9 @@ public class BatchResultImpl implements BatchResult {
 	public Document getMetaDataDoc() {
 		return this.getMetaDataDoc;
 	}
+
+	@Override
+	public Map<String, OutputServiceException> getFailures() {
+		return this.failures;
+	}
 }
@@ -0,0 +1,107 @@
+package com._4point.aem.fluentforms.impl.output;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+import com._4point.aem.fluentforms.api.ContentDigest;
+import com._4point.aem.fluentforms.api.Document;
+import com._4point.aem.fluentforms.api.output.BatchOptions;
+import com._4point.aem.fluentforms.api.output.BatchResult;
+import com._4point.aem.fluentforms.api.output.OutputService.OutputServiceException;
+import com._4point.aem.fluentforms.api.output.PDFOutputOptions;
+import com._4point.aem.fluentforms.api.output.PrintedOutputOptions;
+import com._4point.aem.fluentforms.impl.RenderResultCache;
+
+/**
+ * Answers repeated generatePDFOutput() requests from a RenderResultCache.
+ *
+ * Requests are keyed by the template (its location and version, or its contents if it is passed as a Document), the
+ * data and every PDFOutputOptions setting.  Templates whose version can't be determined (e.g. crx: templates) are not
+ * cached.  Only generatePDFOutput() is cached; all other calls are passed straight through.
+ *
+ * To use it, wrap the service that is passed to the OutputServiceImpl:
+ * <pre>
+ * new OutputServiceImpl(new CachingOutputServiceAdapterWrapper(adapter, new RenderResultCache()), usageContext);
+ * </pre>
+ *
+ */
+public class CachingOutputServiceAdapterWrapper implements TraditionalOutputService {
+
+	private final TraditionalOutputService outputService;
+	private final RenderResultCache cache;
+
+	public CachingOutputServiceAdapterWrapper(TraditionalOutputService outputService, RenderResultCache cache) {
+		super();
+		this.outputService = Objects.requireNonNull(outputService, "outputService cannot be null.");
+		this.cache = Objects.requireNonNull(cache, "cache cannot be null.");
+	}
+
+	@Override
+	public Document generatePDFOutput(Document template, Document data, PDFOutputOptions pdfOutputOptions) throws OutputServiceException {
+		try {
+			ContentDigest key = addOptions(RenderResultCache.key("generatePDFOutput").add("template", template), data, pdfOutputOptions).build();
+			Optional<Document> cached = cache.get(key);
+			return cached.isPresent() ? cached.get() : cache.put(key, outputService.generatePDFOutput(template, data, pdfOutputOptions));
+		} catch (IOException e) {
+			throw new OutputServiceException("Error while caching PDF output.", e);
+		}
+	}
+
+	@Override
+	public Document generatePDFOutput(String urlOrFileName, Document data, PDFOutputOptions pdfOutputOptions) throws OutputServiceException {
+		try {
+			Optional<RenderResultCache.KeyBuilder> keyBuilder = RenderResultCache.key("generatePDFOutput", urlOrFileName, pdfOutputOptions.getContentRoot());
+			if (!keyBuilder.isPresent()) {
+				return outputService.generatePDFOutput(urlOrFileName, data, pdfOutputOptions);	// The template can't be versioned, so its results can't be cached.
+			}
+			ContentDigest key = addOptions(keyBuilder.get(), data, pdfOutputOptions).build();
+			Optional<Document> cached = cache.get(key);
+			return cached.isPresent() ? cached.get() : cache.put(key, outputService.generatePDFOutput(urlOrFileName, data, pdfOutputOptions), keyBuilder.get().getTemplateFile());
+		} catch (IOException e) {
+			throw new OutputServiceException("Error while caching PDF output.", e);
+		}
+	}
+
+	@Override
+	public BatchResult generatePDFOutputBatch(Map<String, String> templates, Map<String, Document> data, PDFOutputOptions pdfOutputOptions, BatchOptions batchOptions)
+			throws OutputServiceException {
+		return outputService.generatePDFOutputBatch(templates, data, pdfOutputOptions, batchOptions);
+	}
+
+	@Override
+	public Document generatePrintedOutput(Document template, Document data, PrintedOutputOptions printedOutputOptions) throws OutputServiceException {
+		return outputService.generatePrintedOutput(template, data, printedOutputOptions);
+	}
+
+	@Override
+	public Document generatePrintedOutput(String urlOrFileName, Document data, PrintedOutputOptions printedOutputOptions) throws OutputServiceException {
+		return outputService.generatePrintedOutput(urlOrFileName, data, printedOutputOptions);
+	}
+
+	@Override
+	public BatchResult generatePrintedOutputBatch(Map<String, String> templates, Map<String, Document> data, PrintedOutputOptions printedOutputOptions, BatchOptions batchOptions)
+			throws OutputServiceException {
+		return outputService.generatePrintedOutputBatch(templates, data, printedOutputOptions, batchOptions);
+	}
+
+	public RenderResultCache getCache() {
+		return cache;
+	}
+
+	// Also used by CoalescingOutputServiceAdapterWrapper, so that both use the same key.
+	/* package */ static RenderResultCache.KeyBuilder addOptions(RenderResultCache.KeyBuilder key, Document data, PDFOutputOptions options) throws IOException {
+		return key.add("data", data)
+				  .add("acrobatVersion", options.getAcrobatVersion())
+				  .add("contentRoot", options.getContentRoot())
+				  .add("debugDir", options.getDebugDir())
+				  .add("embedFonts", options.getEmbedFonts())
+				  .add("linearizedPDF", options.getLinearizedPDF())
+				  .add("locale", options.getLocale())
+				  .add("retainPDFFormState", options.getRetainPDFFormState())
+				  .add("retainUnsignedSignatureFields", options.getRetainUnsignedSignatureFields())
+				  .add("taggedPDF", options.getTaggedPDF())
+				  .add("xci", options.getXci());
+	}
+}
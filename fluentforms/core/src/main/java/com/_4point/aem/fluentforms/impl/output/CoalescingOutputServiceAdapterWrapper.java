@@ -0,0 +1,95 @@
+package com._4point.aem.fluentforms.impl.output;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+
+import com._4point.aem.fluentforms.api.ContentDigest;
+import com._4point.aem.fluentforms.api.Document;
+import com._4point.aem.fluentforms.api.output.BatchOptions;
+import com._4point.aem.fluentforms.api.output.BatchResult;
+import com._4point.aem.fluentforms.api.output.OutputService.OutputServiceException;
+import com._4point.aem.fluentforms.api.output.PDFOutputOptions;
+import com._4point.aem.fluentforms.api.output.PrintedOutputOptions;
+import com._4point.aem.fluentforms.impl.RenderCoalescer;
+import com._4point.aem.fluentforms.impl.RenderResultCache;
+
+/**
+ * Shares a single generatePDFOutput() call between identical requests that are in progress at the same time.
+ *
+ * Requests are identified using the same key as CachingOutputServiceAdapterWrapper.  Only generatePDFOutput() requests
+ * whose Documents can be keyed cheaply (see RenderCoalescer.canCoalesce()) are coalesced; all other calls are passed
+ * straight through.
+ *
+ * To use it, wrap the service that is passed to the OutputServiceImpl (inside a CachingOutputServiceAdapterWrapper, if
+ * there is one, so that only cache misses are coalesced):
+ * <pre>
+ * new OutputServiceImpl(new CoalescingOutputServiceAdapterWrapper(adapter, new RenderCoalescer()), usageContext);
+ * </pre>
+ *
+ */
+public class CoalescingOutputServiceAdapterWrapper implements TraditionalOutputService {
+
+	private final TraditionalOutputService outputService;
+	private final RenderCoalescer coalescer;
+
+	public CoalescingOutputServiceAdapterWrapper(TraditionalOutputService outputService, RenderCoalescer coalescer) {
+		super();
+		this.outputService = Objects.requireNonNull(outputService, "outputService cannot be null.");
+		this.coalescer = Objects.requireNonNull(coalescer, "coalescer cannot be null.");
+	}
+
+	@Override
+	public Document generatePDFOutput(Document template, Document data, PDFOutputOptions pdfOutputOptions) throws OutputServiceException {
+		if (!coalescer.canCoalesce(template, data, pdfOutputOptions.getXci())) {
+			return outputService.generatePDFOutput(template, data, pdfOutputOptions);
+		}
+		return coalesce(()->CachingOutputServiceAdapterWrapper.addOptions(RenderResultCache.key("generatePDFOutput").add("template", template), data, pdfOutputOptions).build(),
+						()->outputService.generatePDFOutput(template, data, pdfOutputOptions));
+	}
+
+	@Override
+	public Document generatePDFOutput(String urlOrFileName, Document data, PDFOutputOptions pdfOutputOptions) throws OutputServiceException {
+		if (!coalescer.canCoalesce(data, pdfOutputOptions.getXci())) {
+			return outputService.generatePDFOutput(urlOrFileName, data, pdfOutputOptions);
+		}
+		return coalesce(()->CachingOutputServiceAdapterWrapper.addOptions(RenderResultCache.key("generatePDFOutput").add("templateLocation", urlOrFileName), data, pdfOutputOptions).build(),
+						()->outputService.generatePDFOutput(urlOrFileName, data, pdfOutputOptions));
+	}
+
+	private Document coalesce(Callable<ContentDigest> key, Callable<Document> render) throws OutputServiceException {
+		try {
+			return coalescer.render(key.call(), render);
+		} catch (OutputServiceException | RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new OutputServiceException("Error while generating PDF output.", e);
+		}
+	}
+
+	@Override
+	public BatchResult generatePDFOutputBatch(Map<String, String> templates, Map<String, Document> data, PDFOutputOptions pdfOutputOptions, BatchOptions batchOptions)
+			throws OutputServiceException {
+		return outputService.generatePDFOutputBatch(templates, data, pdfOutputOptions, batchOptions);
+	}
+
+	@Override
+	public Document generatePrintedOutput(Document template, Document data, PrintedOutputOptions printedOutputOptions) throws OutputServiceException {
+		return outputService.generatePrintedOutput(template, data, printedOutputOptions);
+	}
+
+	@Override
+	public Document generatePrintedOutput(String urlOrFileName, Document data, PrintedOutputOptions printedOutputOptions) throws OutputServiceException {
+		return outputService.generatePrintedOutput(urlOrFileName, data, printedOutputOptions);
+	}
+
+	@Override
+	public BatchResult generatePrintedOutputBatch(Map<String, String> templates, Map<String, Document> data, PrintedOutputOptions printedOutputOptions, BatchOptions batchOptions)
+			throws OutputServiceException {
+		return outputService.generatePrintedOutputBatch(templates, data, printedOutputOptions, batchOptions);
+	}
+
+	public RenderCoalescer getCoalescer() {
+		return coalescer;
+	}
+}
@@ -0,0 +1,75 @@
+package com._4point.aem.fluentforms.impl.output;
+
+import java.util.Map;
+import java.util.Objects;
+
+import com._4point.aem.fluentforms.api.Document;
+import com._4point.aem.fluentforms.api.output.BatchOptions;
+import com._4point.aem.fluentforms.api.output.BatchResult;
+import com._4point.aem.fluentforms.api.output.OutputService.OutputServiceException;
+import com._4point.aem.fluentforms.api.output.PDFOutputOptions;
+import com._4point.aem.fluentforms.api.output.PrintedOutputOptions;
+import com._4point.aem.fluentforms.impl.AdaptiveConcurrencyLimiter;
+import com._4point.aem.fluentforms.impl.AdaptiveConcurrencyLimiter.LimitExceededException;
+
+/**
+ * Limits the number of Output service calls made at once using an AdaptiveConcurrencyLimiter.  Calls that are
+ * rejected by the limiter throw an OutputServiceException.
+ * Each template named in a call is tracked as a separate operation, since templates take very different times to
+ * render.
+ *
+ * To use it, wrap the service that is passed to the OutputServiceImpl:
+ * <pre>
+ * new OutputServiceImpl(new LimitingOutputServiceAdapterWrapper(adapter, new AdaptiveConcurrencyLimiter()), usageContext);
+ * </pre>
+ *
+ */
+public class LimitingOutputServiceAdapterWrapper implements TraditionalOutputService {
+
+	private final TraditionalOutputService outputService;
+	private final AdaptiveConcurrencyLimiter limiter;
+
+	public LimitingOutputServiceAdapterWrapper(TraditionalOutputService outputService, AdaptiveConcurrencyLimiter limiter) {
+		super();
+		this.outputService = Objects.requireNonNull(outputService, "outputService cannot be null.");
+		this.limiter = Objects.requireNonNull(limiter, "limiter cannot be null.");
+	}
+
+	@Override
+	public Document generatePDFOutput(Document template, Document data, PDFOutputOptions pdfOutputOptions) throws OutputServiceException {
+		return limit("Output.generatePDFOutput", ()->outputService.generatePDFOutput(template, data, pdfOutputOptions));
+	}
+
+	@Override
+	public Document generatePDFOutput(String urlOrFileName, Document data, PDFOutputOptions pdfOutputOptions) throws OutputServiceException {
+		return limit("Output.generatePDFOutput:" + urlOrFileName, ()->outputService.generatePDFOutput(urlOrFileName, data, pdfOutputOptions));
+	}
+
+	@Override
+	public BatchResult generatePDFOutputBatch(Map<String, String> templates, Map<String, Document> data, PDFOutputOptions pdfOutputOptions, BatchOptions batchOptions) throws OutputServiceException {
+		return limit("Output.generatePDFOutputBatch", ()->outputService.generatePDFOutputBatch(templates, data, pdfOutputOptions, batchOptions));
+	}
+
+	@Override
+	public Document generatePrintedOutput(Document template, Document data, PrintedOutputOptions printedOutputOptions) throws OutputServiceException {
+		return limit("Output.generatePrintedOutput", ()->outputService.generatePrintedOutput(template, data, printedOutputOptions));
+	}
+
+	@Override
+	public Document generatePrintedOutput(String urlOrFileName, Document data, PrintedOutputOptions printedOutputOptions) throws OutputServiceException {
+		return limit("Output.generatePrintedOutput:" + urlOrFileName, ()->outputService.generatePrintedOutput(urlOrFileName, data, printedOutputOptions));
+	}
+
+	@Override
+	public BatchResult generatePrintedOutputBatch(Map<String, String> templates, Map<String, Document> data, PrintedOutputOptions printedOutputOptions, BatchOptions batchOptions) throws OutputServiceException {
+		return limit("Output.generatePrintedOutputBatch", ()->outputService.generatePrintedOutputBatch(templates, data, printedOutputOptions, batchOptions));
+	}
+
+	private <T> T limit(String operation, AdaptiveConcurrencyLimiter.Call<T, OutputServiceException> call) throws OutputServiceException {
+		try {
+			return limiter.execute(operation, call);
+		} catch (LimitExceededException e) {
+			throw new OutputServiceException("Output service call rejected by the concurrency limiter. " + e.getMessage(), e);
+		}
+	}
+}
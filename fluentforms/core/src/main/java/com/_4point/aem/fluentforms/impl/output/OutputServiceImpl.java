@@ -4,38 +4,107 @@ import java.io.FileNotFoundException;
 import java.net.URL;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import com._4point.aem.fluentforms.api.Document;
 import com._4point.aem.fluentforms.api.PathOrUrl;
 import com._4point.aem.fluentforms.api.output.BatchOptions;
 import com._4point.aem.fluentforms.api.output.BatchResult;
+import com._4point.aem.fluentforms.api.output.BatchSink;
 import com._4point.aem.fluentforms.api.output.OutputService;
 import com._4point.aem.fluentforms.api.output.PDFOutputOptions;
 import com._4point.aem.fluentforms.api.output.PrintedOutputOptions;
+import com._4point.aem.fluentforms.impl.TemplateCache;
 import com._4point.aem.fluentforms.impl.TemplateValues;
+import com._4point.aem.fluentforms.impl.TemplateValuesResolver;
 import com._4point.aem.fluentforms.impl.UsageContext;
 import com.adobe.fd.output.api.AcrobatVersion;
 
 /**
  * Output Service implementation.
  * 
- * Batch methods are not implemented at this time.
+ * Batch methods that generate many files render each record separately, in parallel, using a BatchFanOut.  Batch
+ * methods that generate a single file are passed to AEM's batch API.  Streaming batch methods always generate many
+ * files.
  *
  */
 public class OutputServiceImpl implements OutputService {
 
 	private final TraditionalOutputService adobeOutputService;
 	private final UsageContext usageContext;
+	private final TemplateValuesResolver templateValuesResolver;
+	private final TemplateCache templateCache;	// null if templates are not cached.
+	private final BatchFanOut batchFanOut;
+	private final Executor asyncExecutor;		// Used by the builders' executeOnAsync() methods.
 
 	public OutputServiceImpl(TraditionalOutputService adobeOutputService, UsageContext usageContext) {
+		this(adobeOutputService, usageContext, TemplateValuesResolver.DIRECT);
+	}
+
+	public OutputServiceImpl(TraditionalOutputService adobeOutputService, UsageContext usageContext, TemplateValuesResolver templateValuesResolver) {
+		this(adobeOutputService, usageContext, templateValuesResolver, null);
+	}
+
+	/**
+	 * Creates an OutputService that passes templates to AEM from a TemplateCache (where possible) rather than passing
+	 * their locations.
+	 * 
+	 * A TemplateCache can only be used server side.  On the client side, passing the template's contents rather than its
+	 * location would upload the template to AEM on every call.
+	 * 
+	 * @param adobeOutputService
+	 * @param usageContext
+	 * @param templateValuesResolver
+	 * @param templateCache cache to use, or null to always pass template locations to AEM.
+	 * @throws IllegalArgumentException if a templateCache is provided and the usageContext is not SERVER_SIDE.
+	 */
+	public OutputServiceImpl(TraditionalOutputService adobeOutputService, UsageContext usageContext, TemplateValuesResolver templateValuesResolver, TemplateCache templateCache) {
+		this(adobeOutputService, usageContext, templateValuesResolver, templateCache, BatchFanOut.getDefault());
+	}
+
+	/**
+	 * Creates an OutputService that renders the records of batches that generate many files using the BatchFanOut provided.
+	 * 
+	 * @param adobeOutputService
+	 * @param usageContext
+	 * @param templateValuesResolver
+	 * @param templateCache cache to use, or null to always pass template locations to AEM.
+	 * @param batchFanOut
+	 */
+	public OutputServiceImpl(TraditionalOutputService adobeOutputService, UsageContext usageContext, TemplateValuesResolver templateValuesResolver, TemplateCache templateCache, BatchFanOut batchFanOut) {
+		this(adobeOutputService, usageContext, templateValuesResolver, templateCache, batchFanOut, AsyncOutputService.getDefaultExecutor());
+	}
+
+	/**
+	 * Creates an OutputService whose builders' executeOnAsync() methods run on the executor provided (rather than
+	 * AsyncOutputService's shared default executor).  The executor is not shut down by this service.
+	 * 
+	 * @param adobeOutputService
+	 * @param usageContext
+	 * @param templateValuesResolver
+	 * @param templateCache cache to use, or null to always pass template locations to AEM.
+	 * @param batchFanOut
+	 * @param asyncExecutor
+	 */
+	public OutputServiceImpl(TraditionalOutputService adobeOutputService, UsageContext usageContext, TemplateValuesResolver templateValuesResolver, TemplateCache templateCache, BatchFanOut batchFanOut, Executor asyncExecutor) {
 		super();
 		this.adobeOutputService = new SafeOutputServiceAdapterWrapper(adobeOutputService);
 		this.usageContext = usageContext;
+		this.templateValuesResolver = Objects.requireNonNull(templateValuesResolver, "templateValuesResolver cannot be null.");
+		if (templateCache != null && usageContext != UsageContext.SERVER_SIDE) {
+			throw new IllegalArgumentException("A TemplateCache can only be used server side (" + usageContext + ").");
+		}
+		this.templateCache = templateCache;
+		this.batchFanOut = Objects.requireNonNull(batchFanOut, "batchFanOut cannot be null.");
+		this.asyncExecutor = Objects.requireNonNull(asyncExecutor, "asyncExecutor cannot be null.");
 	}
 
 	@Override
@@ -52,16 +121,25 @@ public class OutputServiceImpl implements OutputService {
 //		if (contentRoot != null && !contentRoot.isPath()) {
 //			throw new FormsServiceException("Content Root must be Path object if template is a Path. contentRoot='" + contentRoot.toString() + "', template='" + filename + "'.");
 //		}
-		TemplateValues tvs = TemplateValues.determineTemplateValues(filename, contentRoot, this.usageContext);
+		TemplateValues tvs = this.templateValuesResolver.resolve(filename, contentRoot, this.usageContext);
 		
-		PathOrUrl finalContentRoot = tvs.getContentRoot();
-		pdfOutputOptions.setContentRoot(finalContentRoot != null ? finalContentRoot : null);
-		return this.generatePDFOutput(tvs.getTemplate().toString(), data, pdfOutputOptions);
+		// Set the content root on a copy, so that options shared between renders (e.g. a profile's) are left unchanged.
+		PDFOutputOptions options = PDFOutputOptionsImpl.copyOf(pdfOutputOptions);
+		options.setContentRoot(tvs.getContentRoot());
+		Optional<Document> cachedTemplate = templateCache != null ? templateCache.get(tvs) : Optional.empty();
+		if (cachedTemplate.isPresent()) {
+			return this.generatePDFOutput(cachedTemplate.get(), data, options);
+		}
+		return this.generatePDFOutput(tvs.getTemplate().toString(), data, options);
 	}
 
 	@Override
 	public Document generatePDFOutput(URL url, Document data, PDFOutputOptions pdfOutputOptions) throws OutputServiceException {
 		Objects.requireNonNull(url, "url cannot be null.");
+		Optional<Document> cachedTemplate = cachedTemplate(url, pdfOutputOptions != null ? pdfOutputOptions.getContentRoot() : null);
+		if (cachedTemplate.isPresent()) {
+			return this.generatePDFOutput(cachedTemplate.get(), data, pdfOutputOptions);
+		}
 		return this.generatePDFOutput(url.toString(), data, pdfOutputOptions);
 	}
 
@@ -92,8 +170,12 @@ public class OutputServiceImpl implements OutputService {
 	@Override
 	public BatchResult generatePDFOutputBatch(Map<String, PathOrUrl> templates, Map<String, Document> data, PDFOutputOptions pdfOutputOptions, BatchOptions batchOptions)
 			throws OutputServiceException {
-		// TODO Auto-generated method stub
-		return null;
+		Objects.requireNonNull(templates, "templates cannot be null.");
+		Objects.requireNonNull(pdfOutputOptions, "pdfOutputOptions cannot be null!");
+		if (generateManyFiles(batchOptions)) {
+			return batchFanOut.generate(templates, data, (template, record)->generatePDFOutput(template, record, pdfOutputOptions));
+		}
+		return this.adobeOutputService.generatePDFOutputBatch(toTemplateStrings(templates), data, pdfOutputOptions, batchOptions);
 	}
 
 	@Override
@@ -110,19 +192,34 @@ public class OutputServiceImpl implements OutputService {
 //		if (contentRoot != null && !contentRoot.isPath()) {
 //			throw new FormsServiceException("Content Root must be Path object if template is a Path. contentRoot='" + contentRoot.toString() + "', template='" + filename + "'.");
 //		}
-		TemplateValues tvs = TemplateValues.determineTemplateValues(templateFilename, contentRoot, this.usageContext);
+		TemplateValues tvs = this.templateValuesResolver.resolve(templateFilename, contentRoot, this.usageContext);
 		
-		PathOrUrl finalContentRoot = tvs.getContentRoot();
-		printedOutputOptions.setContentRoot(finalContentRoot != null ? finalContentRoot : null);
-		return this.generatePrintedOutput(tvs.getTemplate().toString(), data, printedOutputOptions);
+		// Set the content root on a copy, so that options shared between renders (e.g. a profile's) are left unchanged.
+		PrintedOutputOptions options = PrintedOutputOptionsImpl.copyOf(printedOutputOptions);
+		options.setContentRoot(tvs.getContentRoot());
+		Optional<Document> cachedTemplate = templateCache != null ? templateCache.get(tvs) : Optional.empty();
+		if (cachedTemplate.isPresent()) {
+			return this.generatePrintedOutput(cachedTemplate.get(), data, options);
+		}
+		return this.generatePrintedOutput(tvs.getTemplate().toString(), data, options);
 	}
 
 	@Override
 	public Document generatePrintedOutput(URL templateUrl, Document data, PrintedOutputOptions printedOutputOptions) throws OutputServiceException {
 		Objects.requireNonNull(templateUrl, "url cannot be null.");
+		Optional<Document> cachedTemplate = cachedTemplate(templateUrl, printedOutputOptions != null ? printedOutputOptions.getContentRoot() : null);
+		if (cachedTemplate.isPresent()) {
+			return this.generatePrintedOutput(cachedTemplate.get(), data, printedOutputOptions);
+		}
 		return this.generatePrintedOutput(templateUrl.toString(), data, printedOutputOptions);
 	}
 
+	// Fragments are resolved relative to the content root, so a template read from an URL can only be passed to AEM as
+	// a Document if there is one.
+	private Optional<Document> cachedTemplate(URL url, PathOrUrl contentRoot) {
+		return templateCache != null && contentRoot != null ? templateCache.get(PathOrUrl.from(url)) : Optional.empty();
+	}
+
 	@Override
 	public Document generatePrintedOutput(PathOrUrl template, Document data, PrintedOutputOptions printedOutputOptions) throws OutputServiceException, FileNotFoundException {
 		if (template.isPath()) {
@@ -150,8 +247,38 @@ public class OutputServiceImpl implements OutputService {
 	@Override
 	public BatchResult generatePrintedOutputBatch(Map<String, PathOrUrl> templates, Map<String, Document> data, PrintedOutputOptions printedOutputOptions,
 			BatchOptions batchOptions) throws OutputServiceException {
-		// TODO Auto-generated method stub
-		return null;
+		Objects.requireNonNull(templates, "templates cannot be null.");
+		Objects.requireNonNull(printedOutputOptions, "printedOutputOptions cannot be null!");
+		if (generateManyFiles(batchOptions)) {
+			return batchFanOut.generate(templates, data, (template, record)->generatePrintedOutput(template, record, printedOutputOptions));
+		}
+		return this.adobeOutputService.generatePrintedOutputBatch(toTemplateStrings(templates), data, printedOutputOptions, batchOptions);
+	}
+
+	@Override
+	public BatchResult streamPDFOutputBatch(Map<String, PathOrUrl> templates, Map<String, Document> data, PDFOutputOptions pdfOutputOptions, BatchSink sink)
+			throws OutputServiceException {
+		Objects.requireNonNull(templates, "templates cannot be null.");
+		Objects.requireNonNull(pdfOutputOptions, "pdfOutputOptions cannot be null!");
+		return batchFanOut.stream(templates, data, (template, record)->generatePDFOutput(template, record, pdfOutputOptions), sink);
+	}
+
+	@Override
+	public BatchResult streamPrintedOutputBatch(Map<String, PathOrUrl> templates, Map<String, Document> data, PrintedOutputOptions printedOutputOptions, BatchSink sink)
+			throws OutputServiceException {
+		Objects.requireNonNull(templates, "templates cannot be null.");
+		Objects.requireNonNull(printedOutputOptions, "printedOutputOptions cannot be null!");
+		return batchFanOut.stream(templates, data, (template, record)->generatePrintedOutput(template, record, printedOutputOptions), sink);
+	}
+
+	private static boolean generateManyFiles(BatchOptions batchOptions) {
+		return Boolean.TRUE.equals(Objects.requireNonNull(batchOptions, "batchOptions cannot be null.").getGenerateManyFiles());
+	}
+
+	private static Map<String, String> toTemplateStrings(Map<String, PathOrUrl> templates) {
+		Map<String, String> result = new LinkedHashMap<>();
+		templates.forEach((name, template)->result.put(name, Objects.requireNonNull(template, "templates cannot contain null.").toString()));
+		return result;
 	}
 
 	protected TraditionalOutputService getAdobeOutputService() {
@@ -241,6 +368,32 @@ public class OutputServiceImpl implements OutputService {
 		public Document executeOn(Document template, Document data) throws OutputServiceException {
 			return generatePDFOutput(template, data, this.pdfOutputOptions);
 		}
+
+		// The async methods use a copy of the options, so that the builder can be changed and reused straight away.
+
+		@Override
+		public CompletableFuture<Document> executeOnAsync(PathOrUrl template, Document data) {
+			PDFOutputOptions options = PDFOutputOptionsImpl.copyOf(this.pdfOutputOptions);
+			return AsyncOutputService.submit(asyncExecutor, ()->generatePDFOutput(template, data, options));
+		}
+
+		@Override
+		public CompletableFuture<Document> executeOnAsync(Path template, Document data) {
+			PDFOutputOptions options = PDFOutputOptionsImpl.copyOf(this.pdfOutputOptions);
+			return AsyncOutputService.submit(asyncExecutor, ()->generatePDFOutput(template, data, options));
+		}
+
+		@Override
+		public CompletableFuture<Document> executeOnAsync(URL template, Document data) {
+			PDFOutputOptions options = PDFOutputOptionsImpl.copyOf(this.pdfOutputOptions);
+			return AsyncOutputService.submit(asyncExecutor, ()->generatePDFOutput(template, data, options));
+		}
+
+		@Override
+		public CompletableFuture<Document> executeOnAsync(Document template, Document data) {
+			PDFOutputOptions options = PDFOutputOptionsImpl.copyOf(this.pdfOutputOptions);
+			return AsyncOutputService.submit(asyncExecutor, ()->generatePDFOutput(template, data, options));
+		}
 	}
 	
 	/**
@@ -21,6 +21,35 @@ public class PDFOutputOptionsImpl implements PDFOutputOptions {
 	private Boolean taggedPDF;
 	private Document xci;
 
+	/**
+	 * Creates a copy of a set of options, so that the copy can be modified without affecting the original.  Options
+	 * based on a PDFOutputProfile are copied cheaply, and the copy still refers to the profile.
+	 *
+	 * @param options
+	 * @return
+	 */
+	public static PDFOutputOptions copyOf(PDFOutputOptions options) {
+		if (options instanceof PDFOutputProfile.Options) {
+			return ((PDFOutputProfile.Options)options).copy();
+		}
+		PDFOutputOptionsImpl copy = new PDFOutputOptionsImpl();
+		copy(options, copy);
+		return copy;
+	}
+
+	/* package */ static void copy(PDFOutputOptions from, PDFOutputOptionsImpl to) {
+		to.acrobatVersion = from.getAcrobatVersion();
+		to.contentRoot = from.getContentRoot();
+		to.debugDir = from.getDebugDir();
+		to.embedFonts = from.getEmbedFonts();
+		to.linearizedPDF = from.getLinearizedPDF();
+		to.locale = from.getLocale();
+		to.retainPDFFormState = from.getRetainPDFFormState();
+		to.retainUnsignedSignatureFields = from.getRetainUnsignedSignatureFields();
+		to.taggedPDF = from.getTaggedPDF();
+		to.xci = from.getXci();
+	}
+
 	@Override
 	public AcrobatVersion getAcrobatVersion() {
 		return acrobatVersion;
@@ -0,0 +1,312 @@
+package com._4point.aem.fluentforms.impl.output;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Objects;
+
+import com._4point.aem.fluentforms.api.Document;
+import com._4point.aem.fluentforms.api.PathOrUrl;
+import com._4point.aem.fluentforms.api.output.PDFOutputOptions;
+import com._4point.aem.fluentforms.impl.DocumentInterner;
+import com.adobe.fd.output.api.AcrobatVersion;
+
+/**
+ * A named, immutable set of PDFOutputOptions that is shared by many renders (e.g. a "tagged" profile that embeds fonts
+ * and produces tagged PDFs).
+ *
+ * A profile is validated when it is created and is converted to Adobe's PDFOutputOptions the first time it is used by
+ * the AdobeOutputServiceAdapter.  After that, every render that uses the profile without changing it reuses the
+ * converted options.  The content root is left out of the converted options, because OutputServiceImpl resolves it
+ * for each render; each render gets its own copy of the converted options with its content root set.
+ *
+ * Renders use a profile through newOptions(), which returns a PDFOutputOptions that reads through to the profile.
+ * Setting an option on it records an override for that render only; the profile itself never changes.  Renders with
+ * overrides are converted as usual.
+ * <pre>
+ * static final PDFOutputProfile TAGGED = PDFOutputProfile.of("tagged", new PDFOutputOptionsImpl().setEmbedFonts(true).setTaggedPDF(true));
+ * ...
+ * outputService.generatePDFOutput(template, data, TAGGED.newOptions().setLocale(Locale.CANADA_FRENCH));
+ * </pre>
+ *
+ */
+public final class PDFOutputProfile {
+
+	private final String name;
+	private final PDFOutputOptionsImpl options;		// Never modified.
+	private volatile com.adobe.fd.output.api.PDFOutputOptions adobeOptions;	// Converted on first use.
+
+	private PDFOutputProfile(String name, PDFOutputOptionsImpl options) {
+		this.name = name;
+		this.options = options;
+	}
+
+	/**
+	 * Creates a profile from a set of options.  The options are copied, so later changes to them do not affect the
+	 * profile.  The XCI (if any) is read into memory through the default DocumentInterner, so that every render receives
+	 * the same contents and profiles with the same XCI share it.
+	 *
+	 * @param name name of the profile (used in log messages).
+	 * @param options
+	 * @return
+	 * @throws IllegalArgumentException if the name is empty or the XCI cannot be read.
+	 */
+	public static PDFOutputProfile of(String name, PDFOutputOptions options) {
+		if (Objects.requireNonNull(name, "name cannot be null.").trim().isEmpty()) {
+			throw new IllegalArgumentException("Profile name cannot be empty.");
+		}
+		PDFOutputOptionsImpl copy = new PDFOutputOptionsImpl();
+		PDFOutputOptionsImpl.copy(Objects.requireNonNull(options, "options cannot be null."), copy);
+		Document xci = options.getXci();
+		if (xci != null) {
+			try {
+				copy.setXci(DocumentInterner.getDefault().intern(xci));
+			} catch (IOException e) {
+				throw new IllegalArgumentException("Unable to read the XCI for profile '" + name + "'.", e);
+			}
+		}
+		return new PDFOutputProfile(name, copy);
+	}
+
+	/**
+	 * Returns a new set of options, based on this profile, that can be modified for a single render.
+	 *
+	 * @return
+	 */
+	public Options newOptions() {
+		return new Options(this, null);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public AcrobatVersion getAcrobatVersion() {
+		return options.getAcrobatVersion();
+	}
+
+	public PathOrUrl getContentRoot() {
+		return options.getContentRoot();
+	}
+
+	public Path getDebugDir() {
+		return options.getDebugDir();
+	}
+
+	public Boolean getEmbedFonts() {
+		return options.getEmbedFonts();
+	}
+
+	public Boolean getLinearizedPDF() {
+		return options.getLinearizedPDF();
+	}
+
+	public Locale getLocale() {
+		return options.getLocale();
+	}
+
+	public Boolean getRetainPDFFormState() {
+		return options.getRetainPDFFormState();
+	}
+
+	public Boolean getRetainUnsignedSignatureFields() {
+		return options.getRetainUnsignedSignatureFields();
+	}
+
+	public Boolean getTaggedPDF() {
+		return options.getTaggedPDF();
+	}
+
+	public Document getXci() {
+		return options.getXci();
+	}
+
+	// Used by AdobeOutputServiceAdapter, which copies the result for each render rather than modifying it.  Converting
+	// twice in a race is harmless, so no locking is needed.
+	/* package */ com.adobe.fd.output.api.PDFOutputOptions toAdobeOptions() throws IOException {
+		com.adobe.fd.output.api.PDFOutputOptions result = adobeOptions;
+		if (result == null) {
+			result = AdobeOutputServiceAdapter.convertPDFOutputOptions(options);
+			result.setContentRoot(null);		// Set on each render's copy.
+			adobeOptions = result;
+		}
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return "PDFOutputProfile(" + name + ")";
+	}
+
+	/**
+	 * Options for a single render, based on a profile.  Options that have not been set are read from the profile, so
+	 * creating and copying these is cheap.  An option cannot be set back to null once the profile provides a value.
+	 */
+	public static final class Options implements PDFOutputOptions {
+		private final PDFOutputProfile profile;
+		private PDFOutputOptionsImpl overrides;		// null until an option is set.
+
+		private Options(PDFOutputProfile profile, PDFOutputOptionsImpl overrides) {
+			this.profile = profile;
+			this.overrides = overrides;
+		}
+
+		public PDFOutputProfile getProfile() {
+			return profile;
+		}
+
+		/**
+		 * Returns true if any option other than the content root (which is set for each render) differs from the
+		 * profile.
+		 *
+		 * @return
+		 */
+		public boolean hasOverrides() {
+			return overrides != null && (
+					!Objects.equals(getAcrobatVersion(), profile.getAcrobatVersion()) ||
+					!Objects.equals(getDebugDir(), profile.getDebugDir()) ||
+					!Objects.equals(getEmbedFonts(), profile.getEmbedFonts()) ||
+					!Objects.equals(getLinearizedPDF(), profile.getLinearizedPDF()) ||
+					!Objects.equals(getLocale(), profile.getLocale()) ||
+					!Objects.equals(getRetainPDFFormState(), profile.getRetainPDFFormState()) ||
+					!Objects.equals(getRetainUnsignedSignatureFields(), profile.getRetainUnsignedSignatureFields()) ||
+					!Objects.equals(getTaggedPDF(), profile.getTaggedPDF()) ||
+					getXci() != profile.getXci());
+		}
+
+		/**
+		 * Returns a copy that shares the profile, so that the copy can be modified without affecting the original.
+		 *
+		 * @return
+		 */
+		public Options copy() {
+			if (overrides == null) {
+				return new Options(profile, null);
+			}
+			PDFOutputOptionsImpl overridesCopy = new PDFOutputOptionsImpl();
+			PDFOutputOptionsImpl.copy(overrides, overridesCopy);
+			return new Options(profile, overridesCopy);
+		}
+
+		private PDFOutputOptionsImpl overrides() {
+			if (overrides == null) {
+				overrides = new PDFOutputOptionsImpl();
+			}
+			return overrides;
+		}
+
+		private static <T> T either(T override, T base) {
+			return override != null ? override : base;
+		}
+
+		@Override
+		public AcrobatVersion getAcrobatVersion() {
+			return overrides == null ? profile.getAcrobatVersion() : either(overrides.getAcrobatVersion(), profile.getAcrobatVersion());
+		}
+
+		@Override
+		public PathOrUrl getContentRoot() {
+			return overrides == null ? profile.getContentRoot() : either(overrides.getContentRoot(), profile.getContentRoot());
+		}
+
+		@Override
+		public Path getDebugDir() {
+			return overrides == null ? profile.getDebugDir() : either(overrides.getDebugDir(), profile.getDebugDir());
+		}
+
+		@Override
+		public Boolean getEmbedFonts() {
+			return overrides == null ? profile.getEmbedFonts() : either(overrides.getEmbedFonts(), profile.getEmbedFonts());
+		}
+
+		@Override
+		public Boolean getLinearizedPDF() {
+			return overrides == null ? profile.getLinearizedPDF() : either(overrides.getLinearizedPDF(), profile.getLinearizedPDF());
+		}
+
+		@Override
+		public Locale getLocale() {
+			return overrides == null ? profile.getLocale() : either(overrides.getLocale(), profile.getLocale());
+		}
+
+		@Override
+		public Boolean getRetainPDFFormState() {
+			return overrides == null ? profile.getRetainPDFFormState() : either(overrides.getRetainPDFFormState(), profile.getRetainPDFFormState());
+		}
+
+		@Override
+		public Boolean getRetainUnsignedSignatureFields() {
+			return overrides == null ? profile.getRetainUnsignedSignatureFields() : either(overrides.getRetainUnsignedSignatureFields(), profile.getRetainUnsignedSignatureFields());
+		}
+
+		@Override
+		public Boolean getTaggedPDF() {
+			return overrides == null ? profile.getTaggedPDF() : either(overrides.getTaggedPDF(), profile.getTaggedPDF());
+		}
+
+		@Override
+		public Document getXci() {
+			return overrides == null ? profile.getXci() : either(overrides.getXci(), profile.getXci());
+		}
+
+		@Override
+		public Options setAcrobatVersion(AcrobatVersion acrobatVersion) {
+			overrides().setAcrobatVersion(acrobatVersion);
+			return this;
+		}
+
+		@Override
+		public Options setContentRoot(PathOrUrl contentRoot) {
+			overrides().setContentRoot(contentRoot);
+			return this;
+		}
+
+		@Override
+		public Options setDebugDir(Path debugDir) {
+			overrides().setDebugDir(debugDir);
+			return this;
+		}
+
+		@Override
+		public Options setEmbedFonts(boolean embedFonts) {
+			overrides().setEmbedFonts(embedFonts);
+			return this;
+		}
+
+		@Override
+		public Options setLinearizedPDF(boolean linearizedPDF) {
+			overrides().setLinearizedPDF(linearizedPDF);
+			return this;
+		}
+
+		@Override
+		public Options setLocale(Locale locale) {
+			overrides().setLocale(locale);
+			return this;
+		}
+
+		@Override
+		public Options setRetainPDFFormState(boolean retainFormState) {
+			overrides().setRetainPDFFormState(retainFormState);
+			return this;
+		}
+
+		@Override
+		public Options setRetainUnsignedSignatureFields(boolean retainUnsignedSignatureFields) {
+			overrides().setRetainUnsignedSignatureFields(retainUnsignedSignatureFields);
+			return this;
+		}
+
+		@Override
+		public Options setTaggedPDF(boolean isTagged) {
+			overrides().setTaggedPDF(isTagged);
+			return this;
+		}
+
+		@Override
+		public Options setXci(Document xci) {
+			overrides().setXci(xci);
+			return this;
+		}
+	}
+}
@@ -19,6 +19,32 @@ public class PrintedOutputOptionsImpl implements PrintedOutputOptions  {
 	private PrintConfig printConfig;
 	private Document xci;
 
+	/**
+	 * Creates a copy of a set of options, so that the copy can be modified without affecting the original.  Options
+	 * based on a PrintedOutputProfile are copied cheaply, and the copy still refers to the profile.
+	 *
+	 * @param options
+	 * @return
+	 */
+	public static PrintedOutputOptions copyOf(PrintedOutputOptions options) {
+		if (options instanceof PrintedOutputProfile.Options) {
+			return ((PrintedOutputProfile.Options)options).copy();
+		}
+		PrintedOutputOptionsImpl copy = new PrintedOutputOptionsImpl();
+		copy(options, copy);
+		return copy;
+	}
+
+	/* package */ static void copy(PrintedOutputOptions from, PrintedOutputOptionsImpl to) {
+		to.contentRoot = from.getContentRoot();
+		to.copies = from.getCopies();
+		to.debugDir = from.getDebugDir();
+		to.locale = from.getLocale();
+		to.paginationOverride = from.getPaginationOverride();
+		to.printConfig = from.getPrintConfig();
+		to.xci = from.getXci();
+	}
+
 	@Override
 	public PathOrUrl getContentRoot() {
 		return contentRoot;
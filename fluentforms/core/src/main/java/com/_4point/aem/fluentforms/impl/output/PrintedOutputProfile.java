@@ -0,0 +1,258 @@
+package com._4point.aem.fluentforms.impl.output;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Objects;
+
+import com._4point.aem.fluentforms.api.Document;
+import com._4point.aem.fluentforms.api.PathOrUrl;
+import com._4point.aem.fluentforms.api.output.PrintConfig;
+import com._4point.aem.fluentforms.api.output.PrintedOutputOptions;
+import com._4point.aem.fluentforms.impl.DocumentInterner;
+import com.adobe.fd.output.api.PaginationOverride;
+
+/**
+ * A named, immutable set of PrintedOutputOptions that is shared by many renders (e.g. a "zebra" profile that prints
+ * ZPL at 300 dpi).
+ *
+ * This works the same way as PDFOutputProfile: the profile is validated when it is created, converted to Adobe's
+ * PrintedOutputOptions on first use (without the content root), and renders that use newOptions() without changing
+ * anything but the content root reuse a copy of the converted options.
+ *
+ */
+public final class PrintedOutputProfile {
+
+	private final String name;
+	private final PrintedOutputOptionsImpl options;		// Never modified.
+	private volatile com.adobe.fd.output.api.PrintedOutputOptions adobeOptions;	// Converted on first use.
+
+	private PrintedOutputProfile(String name, PrintedOutputOptionsImpl options) {
+		this.name = name;
+		this.options = options;
+	}
+
+	/**
+	 * Creates a profile from a set of options.  The options are copied, so later changes to them do not affect the
+	 * profile.  The XCI (if any) is read into memory through the default DocumentInterner, so that every render receives
+	 * the same contents and profiles with the same XCI share it.
+	 *
+	 * @param name name of the profile (used in log messages).
+	 * @param options
+	 * @return
+	 * @throws IllegalArgumentException if the name is empty, the number of copies is less than 1 or the XCI cannot be read.
+	 */
+	public static PrintedOutputProfile of(String name, PrintedOutputOptions options) {
+		if (Objects.requireNonNull(name, "name cannot be null.").trim().isEmpty()) {
+			throw new IllegalArgumentException("Profile name cannot be empty.");
+		}
+		PrintedOutputOptionsImpl copy = new PrintedOutputOptionsImpl();
+		PrintedOutputOptionsImpl.copy(Objects.requireNonNull(options, "options cannot be null."), copy);
+		if (copy.getCopies() != null && copy.getCopies() < 1) {
+			throw new IllegalArgumentException("Profile '" + name + "' must print at least 1 copy (" + copy.getCopies() + ").");
+		}
+		Document xci = options.getXci();
+		if (xci != null) {
+			try {
+				copy.setXci(DocumentInterner.getDefault().intern(xci));
+			} catch (IOException e) {
+				throw new IllegalArgumentException("Unable to read the XCI for profile '" + name + "'.", e);
+			}
+		}
+		return new PrintedOutputProfile(name, copy);
+	}
+
+	/**
+	 * Returns a new set of options, based on this profile, that can be modified for a single render.
+	 *
+	 * @return
+	 */
+	public Options newOptions() {
+		return new Options(this, null);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public PathOrUrl getContentRoot() {
+		return options.getContentRoot();
+	}
+
+	public Integer getCopies() {
+		return options.getCopies();
+	}
+
+	public Path getDebugDir() {
+		return options.getDebugDir();
+	}
+
+	public Locale getLocale() {
+		return options.getLocale();
+	}
+
+	public PaginationOverride getPaginationOverride() {
+		return options.getPaginationOverride();
+	}
+
+	public PrintConfig getPrintConfig() {
+		return options.getPrintConfig();
+	}
+
+	public Document getXci() {
+		return options.getXci();
+	}
+
+	// Used by AdobeOutputServiceAdapter, which copies the result for each render rather than modifying it.  Converting
+	// twice in a race is harmless, so no locking is needed.
+	/* package */ com.adobe.fd.output.api.PrintedOutputOptions toAdobeOptions() throws IOException {
+		com.adobe.fd.output.api.PrintedOutputOptions result = adobeOptions;
+		if (result == null) {
+			result = AdobeOutputServiceAdapter.convertPrintedOutputOptions(options);
+			result.setContentRoot(null);		// Set on each render's copy.
+			adobeOptions = result;
+		}
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return "PrintedOutputProfile(" + name + ")";
+	}
+
+	/**
+	 * Options for a single render, based on a profile.  Options that have not been set are read from the profile, so
+	 * creating and copying these is cheap.  An option cannot be set back to null once the profile provides a value.
+	 */
+	public static final class Options implements PrintedOutputOptions {
+		private final PrintedOutputProfile profile;
+		private PrintedOutputOptionsImpl overrides;		// null until an option is set.
+
+		private Options(PrintedOutputProfile profile, PrintedOutputOptionsImpl overrides) {
+			this.profile = profile;
+			this.overrides = overrides;
+		}
+
+		public PrintedOutputProfile getProfile() {
+			return profile;
+		}
+
+		/**
+		 * Returns true if any option other than the content root (which is set for each render) differs from the
+		 * profile.
+		 *
+		 * @return
+		 */
+		public boolean hasOverrides() {
+			return overrides != null && (
+					!Objects.equals(getCopies(), profile.getCopies()) ||
+					!Objects.equals(getDebugDir(), profile.getDebugDir()) ||
+					!Objects.equals(getLocale(), profile.getLocale()) ||
+					!Objects.equals(getPaginationOverride(), profile.getPaginationOverride()) ||
+					!Objects.equals(getPrintConfig(), profile.getPrintConfig()) ||
+					getXci() != profile.getXci());
+		}
+
+		/**
+		 * Returns a copy that shares the profile, so that the copy can be modified without affecting the original.
+		 *
+		 * @return
+		 */
+		public Options copy() {
+			if (overrides == null) {
+				return new Options(profile, null);
+			}
+			PrintedOutputOptionsImpl overridesCopy = new PrintedOutputOptionsImpl();
+			PrintedOutputOptionsImpl.copy(overrides, overridesCopy);
+			return new Options(profile, overridesCopy);
+		}
+
+		private PrintedOutputOptionsImpl overrides() {
+			if (overrides == null) {
+				overrides = new PrintedOutputOptionsImpl();
+			}
+			return overrides;
+		}
+
+		private static <T> T either(T override, T base) {
+			return override != null ? override : base;
+		}
+
+		@Override
+		public PathOrUrl getContentRoot() {
+			return overrides == null ? profile.getContentRoot() : either(overrides.getContentRoot(), profile.getContentRoot());
+		}
+
+		@Override
+		public Integer getCopies() {
+			return overrides == null ? profile.getCopies() : either(overrides.getCopies(), profile.getCopies());
+		}
+
+		@Override
+		public Path getDebugDir() {
+			return overrides == null ? profile.getDebugDir() : either(overrides.getDebugDir(), profile.getDebugDir());
+		}
+
+		@Override
+		public Locale getLocale() {
+			return overrides == null ? profile.getLocale() : either(overrides.getLocale(), profile.getLocale());
+		}
+
+		@Override
+		public PaginationOverride getPaginationOverride() {
+			return overrides == null ? profile.getPaginationOverride() : either(overrides.getPaginationOverride(), profile.getPaginationOverride());
+		}
+
+		@Override
+		public PrintConfig getPrintConfig() {
+			return overrides == null ? profile.getPrintConfig() : either(overrides.getPrintConfig(), profile.getPrintConfig());
+		}
+
+		@Override
+		public Document getXci() {
+			return overrides == null ? profile.getXci() : either(overrides.getXci(), profile.getXci());
+		}
+
+		@Override
+		public Options setContentRoot(PathOrUrl contentRoot) {
+			overrides().setContentRoot(contentRoot);
+			return this;
+		}
+
+		@Override
+		public Options setCopies(int copies) {
+			overrides().setCopies(copies);
+			return this;
+		}
+
+		@Override
+		public Options setDebugDir(Path debugDir) {
+			overrides().setDebugDir(debugDir);
+			return this;
+		}
+
+		@Override
+		public Options setLocale(Locale locale) {
+			overrides().setLocale(locale);
+			return this;
+		}
+
+		@Override
+		public Options setPaginationOverride(PaginationOverride paginationOverride) {
+			overrides().setPaginationOverride(paginationOverride);
+			return this;
+		}
+
+		@Override
+		public Options setPrintConfig(PrintConfig printConfig) {
+			overrides().setPrintConfig(printConfig);
+			return this;
+		}
+
+		@Override
+		public Options setXci(Document xci) {
+			overrides().setXci(xci);
+			return this;
+		}
+	}
+}
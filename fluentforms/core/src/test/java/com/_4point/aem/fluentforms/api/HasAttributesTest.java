@@ -553,6 +553,73 @@ class HasAttributesTest {
 		}
 	}
 	
+	@Nested
+	class AsContentDigestTesting {
+		final ContentDigest testValue = new ContentDigest("SHA-256", new byte[] { 1, 2, 3 }, 23);
+		
+		HasAttributes contentDigestStub = new HasAttributes() {
+			ContentDigest curValue = testValue;
+			
+			@Override
+			public Object getAttribute(String name) {
+				return curValue;
+			}
+
+			@Override
+			public void setAttribute(String name, Object val) {
+				assertTrue(val instanceof ContentDigest);
+				curValue = (ContentDigest)val;
+			}
+			
+		};
+
+		HasAttributes nonContentDigestStub = new HasAttributes() {
+			Boolean curValue = Boolean.TRUE;
+			
+			@Override
+			public Object getAttribute(String name) {
+				return curValue;
+			}
+
+			@Override
+			public void setAttribute(String name, Object val) {
+				throw new IllegalStateException("This method should never be called.");
+			}
+			
+		};
+
+		@Test
+		void testGetOptionalAttribute() {
+			Optional<ContentDigest> returnedValue = contentDigestStub.getOptionalAttributeAsContentDigest(testAttributeName);
+			assertTrue(returnedValue.isPresent());
+			assertEquals(testValue, returnedValue.get());
+		}
+	
+		@Test
+		void testGetMandatoryAttribute() {
+			assertEquals(testValue, contentDigestStub.getMandatoryAttributeAsContentDigest(testAttributeName));
+		}
+		
+		@Test 
+		void testSetAttribute() {
+			final ContentDigest otherTestValue = new ContentDigest("SHA-256", new byte[] { 4, 5, 6 }, 42);
+			contentDigestStub.setAttributeAsContentDigest(testAttributeName, otherTestValue);
+			assertEquals(otherTestValue, contentDigestStub.getMandatoryAttributeAsContentDigest(testAttributeName));
+		}
+
+		@Test
+		void testGetOptionalAttributeInvalid() {
+			Optional<ContentDigest> returnedValue = nonContentDigestStub.getOptionalAttributeAsContentDigest(testAttributeName);
+			assertFalse(returnedValue.isPresent());
+		}
+	
+		@Test
+		void testGetMandatoryAttributeInvalid() {
+			NoSuchElementException ex = assertThrows(NoSuchElementException.class, ()->nonContentDigestStub.getMandatoryAttributeAsContentDigest(testAttributeName));
+			assertTrue(ex.getMessage().contains(testAttributeName));
+		}
+	}
+	
 	@Nested
 	class NullTesting {
 		HasAttributes nullStub = new HasAttributes() {
@@ -576,6 +643,7 @@ class HasAttributesTest {
 			assertFalse(nullStub.getOptionalAttributeAsLong(testAttributeName).isPresent());
 			assertFalse(nullStub.getOptionalAttributeAsShort(testAttributeName).isPresent());
 			assertFalse(nullStub.getOptionalAttributeAsString(testAttributeName).isPresent());
+			assertFalse(nullStub.getOptionalAttributeAsContentDigest(testAttributeName).isPresent());
 		}
 
 		@Test
@@ -596,6 +664,8 @@ class HasAttributesTest {
 			assertTrue(exShort.getMessage().contains(testAttributeName));
 			NoSuchElementException exString = assertThrows(NoSuchElementException.class, ()->nullStub.getMandatoryAttributeAsString(testAttributeName));
 			assertTrue(exString.getMessage().contains(testAttributeName));
+			NoSuchElementException exContentDigest = assertThrows(NoSuchElementException.class, ()->nullStub.getMandatoryAttributeAsContentDigest(testAttributeName));
+			assertTrue(exContentDigest.getMessage().contains(testAttributeName));
 		}
 
 
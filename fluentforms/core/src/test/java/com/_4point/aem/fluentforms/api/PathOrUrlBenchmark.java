@@ -0,0 +1,66 @@
+package com._4point.aem.fluentforms.api;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the original PathOrUrl.from(String) parsing (try an URL, catch the exception, then try a Path) with the
+ * scheme-sniffing parse() and with the interned from(String).
+ *
+ * This is not run as part of the unit tests.  Run main() to execute it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PathOrUrlBenchmark {
+
+	@Param({ "forms/sample/sampleForm.xdp", "C:\\forms\\sample\\sampleForm.xdp", "http://example.com/forms/sample/sampleForm.xdp" })
+	public String pathOrUrl;
+
+	@Benchmark
+	public Object exceptionDrivenParse() {
+		String trimmedPathOrUrl = pathOrUrl.trim();
+		try {
+			return new URL(trimmedPathOrUrl);
+		} catch (MalformedURLException e) {
+			return Paths.get(trimmedPathOrUrl);
+		}
+	}
+
+	@Benchmark
+	public PathOrUrl schemeSniffingParse() {
+		return PathOrUrl.parse(pathOrUrl.trim(), pathOrUrl);
+	}
+
+	@Benchmark
+	public PathOrUrl internedFrom() {
+		return PathOrUrl.from(pathOrUrl);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(PathOrUrlBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.build()).run();
+	}
+}
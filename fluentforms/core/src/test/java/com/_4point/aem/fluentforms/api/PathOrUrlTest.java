@@ -89,6 +89,36 @@ class PathOrUrlTest {
 	void testFromString_Null() {
 		assertThrows(NullPointerException.class, ()->PathOrUrl.from((String)null));
 	}
+
+	@ParameterizedTest
+	@ValueSource(strings = { "foo/bar", "C:/foo/bar", "http://example.com/foo/bar", "crx:/foo/bar" })
+	void testFromString_Interned(String str) {
+		PathOrUrl first = PathOrUrl.from(str);
+		assertSame(first, PathOrUrl.from(str), "Expected the same string to return the same instance.");
+		assertSame(first, PathOrUrl.from(" " + str + " "), "Expected surrounding whitespace to be ignored.");
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = { "foo/bar", "C:\\foo\\bar", "\\\\foo\\bar", "http://example.com/foo/bar", "file:///~/calendar", "crx:/foo/bar", "url:http://example.com/foo" })
+	void testParse_MatchesUrlFirstParsing(String str) {
+		// parse() avoids trying to create an URL when the string cannot be one, the result must be what trying the URL first would give.
+		PathOrUrl result = PathOrUrl.parse(str, str);
+		URL url = null;
+		try {
+			url = new URL(str);
+		} catch (MalformedURLException e) {
+			// Not an URL
+		}
+		if (result.isCrxUrl()) {
+			assertEquals(str, result.getCrxUrl());
+		} else if (url != null) {
+			assertTrue(result.isUrl(), "Expected '" + str + "' to be an URL.");
+			assertEquals(url.toString(), result.getUrl().toString());
+		} else {
+			assertTrue(result.isPath(), "Expected '" + str + "' to be a Path.");
+			assertEquals(Paths.get(str), result.getPath());
+		}
+	}
 	
 	private enum FilenameScenario {
 		HAPPY_PATH("/foo/bar/test.txt", "test.txt", TestType.PATH),
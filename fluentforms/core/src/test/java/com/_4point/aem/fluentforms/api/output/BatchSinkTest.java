@@ -0,0 +1,50 @@
+package com._4point.aem.fluentforms.api.output;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com._4point.aem.fluentforms.api.Document;
+import com._4point.aem.fluentforms.impl.SimpleDocumentFactoryImpl;
+
+class BatchSinkTest {
+
+	@TempDir
+	Path outputDir;
+
+	@Test
+	void testToDirectory() throws Exception {
+		BatchSink underTest = BatchSink.toDirectory(outputDir, ".pdf");
+
+		underTest.accept("record1", doc("contents"));
+
+		assertEquals("contents", new String(Files.readAllBytes(outputDir.resolve("record1.pdf")), StandardCharsets.UTF_8));
+		assertThrows(IOException.class, ()->underTest.accept("../record2", doc("contents")));
+		assertThrows(IOException.class, ()->underTest.accept("sub/record3", doc("contents")));
+	}
+
+	@Test
+	void testToOutputStreams() throws Exception {
+		Map<String, ByteArrayOutputStream> streams = new HashMap<>();
+		BatchSink underTest = BatchSink.toOutputStreams(name->streams.computeIfAbsent(name, n->new ByteArrayOutputStream()));
+
+		underTest.accept("record1", doc("contents1"));
+		underTest.accept("record2", doc("contents2"));
+
+		assertEquals("contents1", new String(streams.get("record1").toByteArray(), StandardCharsets.UTF_8));
+		assertEquals("contents2", new String(streams.get("record2").toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	private static Document doc(String contents) {
+		return SimpleDocumentFactoryImpl.getFactory().create(contents.getBytes(StandardCharsets.UTF_8));
+	}
+}
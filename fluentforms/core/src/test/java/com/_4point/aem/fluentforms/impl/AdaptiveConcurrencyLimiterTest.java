@@ -0,0 +1,187 @@
+package com._4point.aem.fluentforms.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com._4point.aem.fluentforms.api.output.OutputService.OutputServiceException;
+import com._4point.aem.fluentforms.impl.AdaptiveConcurrencyLimiter.LimitExceededException;
+
+class AdaptiveConcurrencyLimiterTest {
+
+	private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+	private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(100);
+
+	private final AtomicLong clock = new AtomicLong();
+
+	@Test
+	@DisplayName("The limit grows while calls are fast and is cut when they slow down, but not below the minimum.")
+	void testLimitAdjustment() throws Exception {
+		AdaptiveConcurrencyLimiter underTest = new AdaptiveConcurrencyLimiter(2, 1, 4, 0, 0, clock::get);
+
+		for (int i = 0; i < 10; i++) {
+			call(underTest, FAST);
+		}
+		// A single caller only uses the limit while it is 2 or less, so the limit stops growing at 3.
+		assertEquals(3, underTest.getLimit());
+
+		call(underTest, SLOW);
+		assertEquals(2, underTest.getLimit());
+
+		for (int i = 0; i < 10; i++) {
+			call(underTest, SLOW);
+		}
+		assertEquals(1, underTest.getLimit());
+		assertEquals(0, underTest.getInFlight());
+		assertEquals(0, underTest.getRejectedCount());
+	}
+
+	@Test
+	@DisplayName("Calls are rejected when the queue is full, and queued calls are rejected after the maximum wait.")
+	void testRejection() throws Exception {
+		AdaptiveConcurrencyLimiter underTest = new AdaptiveConcurrencyLimiter(1, 1, 1, 1, 500);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<String> running = executor.submit(()->underTest.execute(()->{
+				started.countDown();
+				release.await(5, TimeUnit.SECONDS);
+				return "first";
+			}));
+			assertTrue(started.await(5, TimeUnit.SECONDS));
+
+			Future<String> queued = executor.submit(()->underTest.execute(()->"second"));
+			awaitQueueDepth(underTest, 1);
+			assertThrows(LimitExceededException.class, ()->underTest.execute(()->"third"));
+			assertEquals(1, underTest.getRejectedCount());
+
+			Exception ex = assertThrows(Exception.class, ()->queued.get(5, TimeUnit.SECONDS));
+			assertTrue(ex.getCause() instanceof LimitExceededException);
+			assertEquals(2, underTest.getRejectedCount());
+			assertEquals(0, underTest.getQueueDepth());
+
+			release.countDown();
+			assertEquals("first", running.get(5, TimeUnit.SECONDS));
+			assertEquals("second again", underTest.execute(()->"second again"));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	@DisplayName("Queued calls proceed once a call in progress completes.")
+	void testQueuedCallProceeds() throws Exception {
+		AdaptiveConcurrencyLimiter underTest = new AdaptiveConcurrencyLimiter(1, 1, 1, 1, 5000);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			executor.submit(()->underTest.execute(()->{
+				started.countDown();
+				release.await(5, TimeUnit.SECONDS);
+				return "first";
+			}));
+			assertTrue(started.await(5, TimeUnit.SECONDS));
+			Future<String> queued = executor.submit(()->underTest.execute(()->"second"));
+			awaitQueueDepth(underTest, 1);
+			assertEquals(1, underTest.getInFlight());
+
+			release.countDown();
+			assertEquals("second", queued.get(5, TimeUnit.SECONDS));
+			assertEquals(0, underTest.getRejectedCount());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	@DisplayName("Exceptions thrown by the call are passed through and release the call's place.")
+	void testExecute_Exception() throws Exception {
+		AdaptiveConcurrencyLimiter underTest = new AdaptiveConcurrencyLimiter(1, 1, 1, 0, 0);
+
+		OutputServiceException ex = assertThrows(OutputServiceException.class, ()->underTest.execute(()->{ throw new OutputServiceException("Render failed."); }));
+
+		assertEquals("Render failed.", ex.getMessage());
+		assertEquals(0, underTest.getInFlight());
+		assertEquals("next", underTest.execute(()->"next"));
+	}
+
+	@Test
+	@DisplayName("Calls that fail quickly don't lower the baseline, so normal calls after them are not treated as slow.")
+	void testFailuresDontUpdateBaseline() throws Exception {
+		AdaptiveConcurrencyLimiter underTest = new AdaptiveConcurrencyLimiter(2, 1, 4, 0, 0, clock::get);
+
+		for (int i = 0; i < 5; i++) {
+			fail(underTest, 1);
+		}
+		call(underTest, FAST);
+		call(underTest, FAST);
+
+		assertEquals(2, underTest.getLimit());
+		assertEquals(0, underTest.getInFlight());
+	}
+
+	@Test
+	@DisplayName("A steady mix of quick and lengthy operations doesn't cut the limit, but an operation slowing down does.")
+	void testMixedOperations() throws Exception {
+		AdaptiveConcurrencyLimiter underTest = new AdaptiveConcurrencyLimiter(2, 1, 4, 0, 0, clock::get);
+
+		for (int i = 0; i < 50; i++) {
+			call(underTest, "fast", FAST);
+			call(underTest, "slow", SLOW);
+		}
+		assertEquals(3, underTest.getLimit());
+
+		call(underTest, "slow", 3 * SLOW);
+		assertEquals(2, underTest.getLimit());
+		assertEquals(0, underTest.getInFlight());
+	}
+
+	@Test
+	void testConstructor_BadArguments() throws Exception {
+		assertThrows(IllegalArgumentException.class, ()->new AdaptiveConcurrencyLimiter(1, 0, 1, 0, 0));
+		assertThrows(IllegalArgumentException.class, ()->new AdaptiveConcurrencyLimiter(2, 2, 1, 0, 0));
+		assertThrows(IllegalArgumentException.class, ()->new AdaptiveConcurrencyLimiter(5, 1, 4, 0, 0));
+		assertThrows(IllegalArgumentException.class, ()->new AdaptiveConcurrencyLimiter(1, 1, 4, -1, 0));
+		assertThrows(IllegalArgumentException.class, ()->new AdaptiveConcurrencyLimiter(1, 1, 4, 0, -1));
+	}
+
+	// Makes a call that takes the given time on the test clock.
+	private void call(AdaptiveConcurrencyLimiter limiter, long latencyNanos) throws Exception {
+		clock.incrementAndGet();
+		limiter.execute(()->clock.addAndGet(latencyNanos));
+	}
+
+	// Makes a call for an operation that takes the given time on the test clock.
+	private void call(AdaptiveConcurrencyLimiter limiter, String operation, long latencyNanos) throws Exception {
+		clock.incrementAndGet();
+		limiter.execute(operation, ()->clock.addAndGet(latencyNanos));
+	}
+
+	// Makes a call that fails after the given time on the test clock.
+	private void fail(AdaptiveConcurrencyLimiter limiter, long latencyNanos) {
+		clock.incrementAndGet();
+		assertThrows(OutputServiceException.class, ()->limiter.execute(()->{
+			clock.addAndGet(latencyNanos);
+			throw new OutputServiceException("Rejected.");
+		}));
+	}
+
+	private static void awaitQueueDepth(AdaptiveConcurrencyLimiter limiter, int expected) {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (limiter.getQueueDepth() < expected && System.nanoTime() < deadline) {
+			LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+		}
+		assertEquals(expected, limiter.getQueueDepth());
+	}
+}
@@ -0,0 +1,112 @@
+package com._4point.aem.fluentforms.impl;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com._4point.aem.fluentforms.api.AttributeKey;
+import com._4point.aem.fluentforms.api.Document;
+
+/**
+ * Compares the TreeMap that Documents used to hold their attributes with AttributeStore.
+ *
+ * This is not run as part of the unit tests.  Run main() to execute it.  The GC profiler's gc.alloc.rate.norm
+ * figures give the number of bytes allocated per operation, i.e. the per-Document footprint of each approach.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AttributeStoreBenchmark {
+	private static final byte[] DOCUMENT_CONTENTS = new byte[0];
+	private static final String ATTRIBUTE_NAME = "attributeName";
+	private static final AttributeKey<String> ATTRIBUTE_KEY = AttributeKey.of(ATTRIBUTE_NAME, String.class);
+	private static final String OTHER_ATTRIBUTE_NAME = "otherAttributeName";
+
+	private Map<String, Object> populatedTreeMap;
+	private AttributeStore populatedAttributeStore;
+	private Document populatedDocument;
+
+	@Setup
+	public void setup() {
+		populatedTreeMap = new TreeMap<>();
+		populatedTreeMap.put(ATTRIBUTE_NAME, "value");
+		populatedTreeMap.put(OTHER_ATTRIBUTE_NAME, Integer.valueOf(23));
+		populatedAttributeStore = new AttributeStore();
+		populatedAttributeStore.put(ATTRIBUTE_NAME, "value");
+		populatedAttributeStore.put(OTHER_ATTRIBUTE_NAME, Integer.valueOf(23));
+		populatedDocument = SimpleDocumentFactoryImpl.createShared(DOCUMENT_CONTENTS);
+		populatedDocument.setAttribute(ATTRIBUTE_KEY, "value");
+	}
+
+	@Benchmark
+	public Map<String, Object> emptyTreeMap() {
+		return new TreeMap<>();
+	}
+
+	@Benchmark
+	public Object emptyAttributeStore() {
+		return new AttributeStore();
+	}
+
+	@Benchmark
+	public Map<String, Object> treeMapWithTwoAttributes() {
+		Map<String, Object> attributes = new TreeMap<>();
+		attributes.put(ATTRIBUTE_NAME, "value");
+		attributes.put(OTHER_ATTRIBUTE_NAME, Integer.valueOf(23));
+		return attributes;
+	}
+
+	@Benchmark
+	public Object attributeStoreWithTwoAttributes() {
+		AttributeStore attributes = new AttributeStore();
+		attributes.put(ATTRIBUTE_NAME, "value");
+		attributes.put(OTHER_ATTRIBUTE_NAME, Integer.valueOf(23));
+		return attributes;
+	}
+
+	@Benchmark
+	public Document documentWithoutAttributes() {
+		return SimpleDocumentFactoryImpl.createShared(DOCUMENT_CONTENTS);
+	}
+
+	@Benchmark
+	public Object treeMapLookup() {
+		return populatedTreeMap.get(OTHER_ATTRIBUTE_NAME);
+	}
+
+	@Benchmark
+	public Object attributeStoreLookup() {
+		return populatedAttributeStore.get(OTHER_ATTRIBUTE_NAME);
+	}
+
+	@Benchmark
+	public Optional<String> typedDocumentLookup() {
+		return populatedDocument.getOptionalAttribute(ATTRIBUTE_KEY);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(AttributeStoreBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.build()).run();
+	}
+}
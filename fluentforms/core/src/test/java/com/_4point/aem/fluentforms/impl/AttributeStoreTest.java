@@ -0,0 +1,64 @@
+package com._4point.aem.fluentforms.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.NoSuchElementException;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com._4point.aem.fluentforms.api.AttributeKey;
+import com._4point.aem.fluentforms.api.Document;
+
+class AttributeStoreTest {
+
+	private final AttributeStore underTest = new AttributeStore();
+
+	@Test
+	@DisplayName("Attributes can be set, replaced and retrieved.")
+	void testPutAndGet() throws Exception {
+		assertNull(underTest.get("name0"));
+		for (int i = 0; i < 10; i++) {		// More than the initial capacity.
+			underTest.put("name" + i, Integer.valueOf(i));
+		}
+		underTest.put("name3", "replaced");
+
+		assertEquals(10, underTest.size());
+		assertEquals(Integer.valueOf(0), underTest.get("name0"));
+		assertEquals("replaced", underTest.get(new String("name3")));	// Lookups must not depend on String identity.
+		assertEquals(Integer.valueOf(9), underTest.get("name9"));
+	}
+
+	@Test
+	@DisplayName("Removing an attribute, or setting it to null, leaves the other attributes intact.")
+	void testRemove() throws Exception {
+		underTest.put("name0", "value0");
+		underTest.put("name1", "value1");
+		underTest.put("name2", "value2");
+
+		underTest.remove("name0");
+		underTest.put("name2", null);
+		underTest.remove("nonExistentName");
+
+		assertEquals(1, underTest.size());
+		assertNull(underTest.get("name0"));
+		assertEquals("value1", underTest.get("name1"));
+		assertNull(underTest.get("name2"));
+	}
+
+	@Test
+	@DisplayName("Typed AttributeKeys work with Document attributes.")
+	void testAttributeKey() throws Exception {
+		AttributeKey<Integer> integerKey = AttributeKey.of("integerAttribute", Integer.class);
+		AttributeKey<String> stringKey = AttributeKey.of("integerAttribute", String.class);
+		Document doc = SimpleDocumentFactoryImpl.getFactory().create(new byte[0]);
+
+		doc.setAttribute(integerKey, Integer.valueOf(23));
+
+		assertEquals(Integer.valueOf(23), doc.getMandatoryAttribute(integerKey));
+		assertEquals(Integer.valueOf(23), doc.getMandatoryAttributeAsInteger("integerAttribute"));
+		assertFalse(doc.getOptionalAttribute(stringKey).isPresent(), "Expected value of a different type not to be returned.");
+		NoSuchElementException ex = assertThrows(NoSuchElementException.class, ()->doc.getMandatoryAttribute(stringKey));
+		assertTrue(ex.getMessage().contains("integerAttribute"));
+	}
+}
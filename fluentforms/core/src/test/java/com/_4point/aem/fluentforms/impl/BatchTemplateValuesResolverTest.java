@@ -0,0 +1,90 @@
+package com._4point.aem.fluentforms.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com._4point.aem.fluentforms.api.PathOrUrl;
+
+class BatchTemplateValuesResolverTest {
+
+	@TempDir
+	Path contentRoot;
+
+	@Test
+	@DisplayName("Batch results match determineTemplateValues() for each template.")
+	void testResolve() throws Exception {
+		Files.createDirectories(contentRoot.resolve("sub"));
+		Files.write(contentRoot.resolve("top.xdp"), new byte[0]);
+		Files.write(contentRoot.resolve("sub").resolve("nested.xdp"), new byte[0]);
+		PathOrUrl top = PathOrUrl.from(Paths.get("top.xdp"));
+		PathOrUrl nested = PathOrUrl.from(Paths.get("sub", "nested.xdp"));
+		PathOrUrl missing = PathOrUrl.from(Paths.get("sub", "missing.xdp"));
+		PathOrUrl url = PathOrUrl.from("http://example.com/templates/remote.xdp");
+		PathOrUrl crx = PathOrUrl.from("crx:/content/dam/formsanddocuments/crx.xdp");
+
+		BatchTemplateValuesResolver.Result<PathOrUrl> result = new BatchTemplateValuesResolver(UsageContext.SERVER_SIDE, 4)
+				.resolve(Arrays.asList(top, nested, missing, url, crx), PathOrUrl.from(contentRoot));
+
+		assertEquals(Arrays.asList(top, nested), new ArrayList<>(result.getResolved().keySet()));
+		TemplateValues expected = TemplateValues.determineTemplateValues(nested.getPath(), PathOrUrl.from(contentRoot), UsageContext.SERVER_SIDE);
+		assertEquals(expected.getContentRoot().toString(), result.getResolved().get(nested).getContentRoot().toString());
+		assertEquals(expected.getTemplate(), result.getResolved().get(nested).getTemplate());
+		assertEquals(1, result.getMissing().size());
+		assertTrue(result.getMissing().containsKey(missing));
+		assertFalse(result.isComplete());
+		assertEquals(2, result.getPassThrough().size());
+	}
+
+	@Test
+	@DisplayName("Each directory and each template is only checked once.")
+	void testResolve_ChecksDeduplicated() throws Exception {
+		AtomicInteger dirChecks = new AtomicInteger();
+		AtomicInteger fileChecks = new AtomicInteger();
+		BatchTemplateValuesResolver underTest = new BatchTemplateValuesResolver(UsageContext.SERVER_SIDE, 4,
+				d->{ dirChecks.incrementAndGet(); return !d.endsWith("gone"); },
+				f->{ fileChecks.incrementAndGet(); return true; });
+		Map<String, PathOrUrl> templates = new LinkedHashMap<>();
+		templates.put("a1", PathOrUrl.from(Paths.get("a", "one.xdp")));
+		templates.put("a2", PathOrUrl.from(Paths.get("a", "two.xdp")));
+		templates.put("a1 again", PathOrUrl.from(Paths.get("a", "one.xdp")));
+		templates.put("b1", PathOrUrl.from(Paths.get("b", "one.xdp")));
+		templates.put("gone1", PathOrUrl.from(Paths.get("gone", "one.xdp")));
+		templates.put("gone2", PathOrUrl.from(Paths.get("gone", "two.xdp")));
+
+		BatchTemplateValuesResolver.Result<String> result = underTest.resolve(templates, PathOrUrl.from(Paths.get("templates")));
+
+		assertEquals(3, dirChecks.get());
+		assertEquals(3, fileChecks.get(), "Expected templates in missing directories not to be checked.");
+		assertEquals(Arrays.asList("a1", "a2", "a1 again", "b1"), new ArrayList<>(result.getResolved().keySet()));
+		assertEquals(Arrays.asList("gone1", "gone2"), new ArrayList<>(result.getMissing().keySet()));
+	}
+
+	@Test
+	@DisplayName("Nothing is checked on the client side.")
+	void testResolve_ClientSide() throws Exception {
+		BatchTemplateValuesResolver underTest = new BatchTemplateValuesResolver(UsageContext.CLIENT_SIDE, 4,
+				d->{ throw new AssertionError("Unexpected check."); }, f->{ throw new AssertionError("Unexpected check."); });
+
+		BatchTemplateValuesResolver.Result<PathOrUrl> result = underTest.resolve(Arrays.asList(PathOrUrl.from(Paths.get("a", "one.xdp"))), PathOrUrl.from(contentRoot));
+
+		assertEquals(1, result.getResolved().size());
+		assertTrue(result.isComplete());
+	}
+
+	@Test
+	void testConstructor_BadThreads() throws Exception {
+		assertThrows(IllegalArgumentException.class, ()->new BatchTemplateValuesResolver(UsageContext.SERVER_SIDE, 0));
+	}
+}
@@ -0,0 +1,130 @@
+package com._4point.aem.fluentforms.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.FileNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com._4point.aem.fluentforms.api.PathOrUrl;
+
+class CachingTemplateValuesResolverTest {
+
+	private static final Path TEMPLATE = Paths.get("foo", "bar.xdp");
+	private static final PathOrUrl CONTENT_ROOT = PathOrUrl.from("http://example.com/templates");
+	private static final Duration TTL = Duration.ofSeconds(10);
+
+	private final AtomicLong clock = new AtomicLong();
+	private final AtomicInteger delegateCalls = new AtomicInteger();
+	private final TemplateValuesResolver countingResolver = (template, contentRoot, usageContext)->{
+		delegateCalls.incrementAndGet();
+		return TemplateValuesResolver.DIRECT.resolve(template, contentRoot, usageContext);
+	};
+	private final CachingTemplateValuesResolver underTest = new CachingTemplateValuesResolver(countingResolver, TTL, null, clock::get);
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	@DisplayName("Results are cached until the ttl expires.")
+	void testResolveCaches() throws Exception {
+		TemplateValues first = underTest.resolve(TEMPLATE, CONTENT_ROOT, UsageContext.SERVER_SIDE);
+		clock.addAndGet(TTL.toNanos() - 1);
+		TemplateValues second = underTest.resolve(TEMPLATE, CONTENT_ROOT, UsageContext.SERVER_SIDE);
+
+		assertSame(first, second);
+		assertEquals(1, delegateCalls.get());
+		assertEquals(1, underTest.getHitCount());
+		assertEquals(1, underTest.getMissCount());
+		assertEquals("http://example.com/templates/foo", first.getContentRoot().toString());
+
+		clock.addAndGet(1);
+		underTest.resolve(TEMPLATE, CONTENT_ROOT, UsageContext.SERVER_SIDE);
+		assertEquals(2, delegateCalls.get(), "Expected the entry to have expired.");
+	}
+
+	@Test
+	@DisplayName("Each combination of template, content root and usage context is cached separately.")
+	void testResolveKeys() throws Exception {
+		underTest.resolve(TEMPLATE, CONTENT_ROOT, UsageContext.SERVER_SIDE);
+		underTest.resolve(TEMPLATE, CONTENT_ROOT, UsageContext.CLIENT_SIDE);
+		underTest.resolve(TEMPLATE, PathOrUrl.from("http://example.com/other"), UsageContext.SERVER_SIDE);
+		underTest.resolve(Paths.get("other.xdp"), CONTENT_ROOT, UsageContext.SERVER_SIDE);
+		underTest.resolve(TEMPLATE, null, UsageContext.CLIENT_SIDE);		// Client side, so that the template does not need to exist.
+		underTest.resolve(TEMPLATE, PathOrUrl.from("http://example.com/templates"), UsageContext.SERVER_SIDE);
+
+		assertEquals(5, delegateCalls.get());
+		assertEquals(5, underTest.size());
+	}
+
+	@Test
+	@DisplayName("Templates that are not found are not cached.")
+	void testResolveNotFoundIsNotCached() throws Exception {
+		PathOrUrl missingDir = PathOrUrl.from(Paths.get("nonExistentDir"));
+
+		assertThrows(FileNotFoundException.class, ()->underTest.resolve(TEMPLATE, missingDir, UsageContext.SERVER_SIDE));
+		assertThrows(FileNotFoundException.class, ()->underTest.resolve(TEMPLATE, missingDir, UsageContext.SERVER_SIDE));
+
+		assertEquals(2, delegateCalls.get());
+		assertEquals(0, underTest.size());
+	}
+
+	@Test
+	@DisplayName("invalidateAll() discards all cached entries.")
+	void testInvalidateAll() throws Exception {
+		underTest.resolve(TEMPLATE, CONTENT_ROOT, UsageContext.SERVER_SIDE);
+		underTest.invalidateAll();
+		underTest.resolve(TEMPLATE, CONTENT_ROOT, UsageContext.SERVER_SIDE);
+
+		assertEquals(2, delegateCalls.get());
+	}
+
+	@Test
+	@DisplayName("A result is not cached if entries are discarded while it is being resolved.")
+	void testInvalidatedWhileResolving() throws Exception {
+		AtomicReference<CachingTemplateValuesResolver> resolver = new AtomicReference<>();
+		resolver.set(new CachingTemplateValuesResolver((template, contentRoot, usageContext)->{
+			TemplateValues values = countingResolver.resolve(template, contentRoot, usageContext);
+			resolver.get().invalidateAll();		// As if the template's directory changed after it was checked.
+			return values;
+		}, TTL, null, clock::get));
+
+		resolver.get().resolve(TEMPLATE, CONTENT_ROOT, UsageContext.SERVER_SIDE);
+		assertEquals(0, resolver.get().size());
+		resolver.get().resolve(TEMPLATE, CONTENT_ROOT, UsageContext.SERVER_SIDE);
+		assertEquals(2, delegateCalls.get());
+	}
+
+	@Test
+	@DisplayName("When watching is enabled, entries are discarded when their template's directory changes.")
+	void testWatchForChanges() throws Exception {
+		Path template = Paths.get("template.xdp");
+		Files.write(tempDir.resolve(template), new byte[10]);
+		PathOrUrl contentRoot = PathOrUrl.from(tempDir);
+
+		try (CachingTemplateValuesResolver watching = new CachingTemplateValuesResolver(Duration.ofHours(1), true)) {
+			watching.resolve(template, contentRoot, UsageContext.SERVER_SIDE);
+			assertEquals(1, watching.size());
+
+			Files.delete(tempDir.resolve(template));
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+			while (watching.size() > 0 && System.nanoTime() < deadline) {
+				LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+			}
+
+			assertEquals(0, watching.size(), "Expected the entry to be discarded when the template was deleted.");
+			assertThrows(FileNotFoundException.class, ()->watching.resolve(template, contentRoot, UsageContext.SERVER_SIDE));
+		}
+	}
+}
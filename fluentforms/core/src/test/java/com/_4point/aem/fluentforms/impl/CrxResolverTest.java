@@ -0,0 +1,85 @@
+package com._4point.aem.fluentforms.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CrxResolverTest {
+
+	@TempDir
+	Path mirrorDir;
+
+	@AfterEach
+	void tearDown() throws Exception {
+		CrxUrlHandler.setCrxResolver(null);
+	}
+
+	@Test
+	@DisplayName("crx: locations are read from the mirror directory.")
+	void testMirror() throws Exception {
+		Path dir = Files.createDirectories(mirrorDir.resolve("content/dam/formsanddocuments"));
+		Files.write(dir.resolve("sample.xdp"), "sample".getBytes(StandardCharsets.UTF_8));
+		CrxResolver.MirrorDirectory underTest = CrxResolver.mirror(mirrorDir, 1000);
+
+		assertEquals("sample", new String(underTest.read("crx:/content/dam/formsanddocuments/sample.xdp"), StandardCharsets.UTF_8));
+		assertEquals("sample", new String(underTest.read("/content/dam/formsanddocuments/sample.xdp"), StandardCharsets.UTF_8));
+		assertEquals(1, underTest.getContentCache().getHitCount());
+		assertTrue(underTest.exists("crx:/content/dam/formsanddocuments/sample.xdp"));
+		assertFalse(underTest.exists("crx:/content/dam/formsanddocuments/missing.xdp"));
+		assertThrows(FileNotFoundException.class, ()->underTest.read("crx:/content/dam/formsanddocuments/missing.xdp"));
+	}
+
+	@Test
+	@DisplayName("crx: locations outside of the mirror directory are rejected.")
+	void testMirror_OutsideMirrorDir() throws Exception {
+		CrxResolver.MirrorDirectory underTest = CrxResolver.mirror(mirrorDir.resolve("mirror"), 1000);
+		Files.write(mirrorDir.resolve("secret.txt"), "secret".getBytes(StandardCharsets.UTF_8));
+
+		assertThrows(FileNotFoundException.class, ()->underTest.read("crx:/../secret.txt"));
+		assertFalse(underTest.exists("crx:/../secret.txt"));
+	}
+
+	@Test
+	@DisplayName("crx: locations are read from memory.")
+	void testInMemory() throws Exception {
+		CrxResolver.InMemory underTest = CrxResolver.inMemory().put("crx:/content/dam/sample.xdp", "sample".getBytes(StandardCharsets.UTF_8));
+
+		assertEquals("sample", new String(underTest.read("/content/dam/sample.xdp"), StandardCharsets.UTF_8));
+		assertTrue(underTest.exists("crx:/content/dam/sample.xdp"));
+
+		underTest.remove("content/dam/sample.xdp");
+		assertFalse(underTest.exists("crx:/content/dam/sample.xdp"));
+		assertThrows(FileNotFoundException.class, ()->underTest.read("crx:/content/dam/sample.xdp"));
+	}
+
+	@Test
+	@DisplayName("crx: URLs can be opened once a resolver is installed.")
+	void testCrxUrlHandler() throws Exception {
+		CrxUrlHandler.enableCrxProtocol(CrxResolver.inMemory().put("crx:/content/dam/sample.xdp", "sample".getBytes(StandardCharsets.UTF_8)));
+
+		try (InputStream is = new URL("crx:/content/dam/sample.xdp").openStream()) {
+			ByteArrayOutputStream os = new ByteArrayOutputStream();
+			byte[] buffer = new byte[1024];
+			int count;
+			while ((count = is.read(buffer)) >= 0) {
+				os.write(buffer, 0, count);
+			}
+			assertEquals("sample", new String(os.toByteArray(), StandardCharsets.UTF_8));
+		}
+		assertThrows(FileNotFoundException.class, ()->new URL("crx:/content/dam/missing.xdp").openStream());
+
+		CrxUrlHandler.setCrxResolver(null);
+		assertThrows(UnsupportedOperationException.class, ()->new URL("crx:/content/dam/sample.xdp").openStream());
+	}
+}
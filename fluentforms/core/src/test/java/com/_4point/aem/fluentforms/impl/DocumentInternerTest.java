@@ -0,0 +1,75 @@
+package com._4point.aem.fluentforms.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com._4point.aem.fluentforms.api.Document;
+
+class DocumentInternerTest {
+
+	private static final byte[] TEST_DATA = "Test Document Data".getBytes(StandardCharsets.UTF_8);
+	private static final byte[] OTHER_TEST_DATA = "Other Test Document Data".getBytes(StandardCharsets.UTF_8);
+
+	@Test
+	@DisplayName("Interning identical contents counts hits and misses.")
+	void testIntern() throws Exception {
+		DocumentInterner underTest = new DocumentInterner(1024);
+
+		try (Document doc1 = underTest.intern(TEST_DATA.clone()); Document doc2 = underTest.intern(TEST_DATA.clone()); Document doc3 = underTest.intern(OTHER_TEST_DATA)) {
+			assertArrayEquals(TEST_DATA, doc1.getInlineData());
+			assertArrayEquals(TEST_DATA, doc2.getInlineData());
+			assertArrayEquals(OTHER_TEST_DATA, doc3.getInlineData());
+			assertEquals(1, underTest.getHitCount());
+			assertEquals(2, underTest.getMissCount());
+			assertEquals(2, underTest.getEntryCount());
+			assertEquals(TEST_DATA.length + OTHER_TEST_DATA.length, underTest.getRetainedBytes());
+		}
+	}
+
+	@Test
+	@DisplayName("Interned Documents are not affected by changes to the original data or by each other.")
+	void testInternIsImmutable() throws Exception {
+		DocumentInterner underTest = new DocumentInterner(1024);
+		byte[] data = TEST_DATA.clone();
+
+		Document doc1 = underTest.intern(data);
+		data[0] = 'X';
+		doc1.getInlineData()[1] = 'X';
+		doc1.dispose();
+		Document doc2 = underTest.intern(TEST_DATA);
+
+		assertArrayEquals(TEST_DATA, doc2.getInlineData());
+		assertEquals(1, underTest.getHitCount());
+	}
+
+	@Test
+	@DisplayName("Least recently used contents are evicted once the size cap is reached.")
+	void testEviction() throws Exception {
+		DocumentInterner underTest = new DocumentInterner(OTHER_TEST_DATA.length);
+
+		underTest.intern(TEST_DATA);
+		underTest.intern(OTHER_TEST_DATA);
+		assertEquals(1, underTest.getEvictionCount());
+		assertEquals(1, underTest.getEntryCount());
+
+		underTest.intern(OTHER_TEST_DATA);
+		assertEquals(1, underTest.getHitCount());
+	}
+
+	@Test
+	@DisplayName("Interning a Document preserves its content type.")
+	void testInternDocument() throws Exception {
+		DocumentInterner underTest = new DocumentInterner(1024);
+		Document original = SimpleDocumentFactoryImpl.getFactory().create(TEST_DATA);
+		original.setContentType(Document.CONTENT_TYPE_PDF);
+
+		Document result = underTest.intern(original);
+
+		assertArrayEquals(TEST_DATA, result.getInlineData());
+		assertEquals(Document.CONTENT_TYPE_PDF, result.getContentType());
+	}
+}
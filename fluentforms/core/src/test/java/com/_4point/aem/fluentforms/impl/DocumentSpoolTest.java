@@ -0,0 +1,145 @@
+package com._4point.aem.fluentforms.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DocumentSpoolTest {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	@DisplayName("Spool file is deleted once all references to it are released.")
+	void testReferenceCounting() throws Exception {
+		DocumentSpool underTest = new DocumentSpool(tempDir, DocumentSpool.UNLIMITED);
+		DocumentSpool.SpoolFile file = underTest.newFile();
+		try (OutputStream os = file.newOutputStream()) {
+			os.write(new byte[100]);
+		}
+		assertEquals(1, underTest.getFileCount());
+		assertEquals(100, underTest.getUsedBytes());
+
+		InputStream is = file.newInputStream();
+		file.release();
+		assertTrue(Files.exists(file.getPath()), "Expected file to exist while an InputStream is open.");
+		is.close();
+
+		assertFalse(Files.exists(file.getPath()), "Expected file to be deleted once the InputStream is closed.");
+		assertEquals(0, underTest.getFileCount());
+		assertEquals(0, underTest.getUsedBytes());
+	}
+
+	@Test
+	@DisplayName("Writing beyond the spool's quota throws an IOException.")
+	void testQuota() throws Exception {
+		DocumentSpool underTest = new DocumentSpool(tempDir, 150);
+		DocumentSpool.SpoolFile file1 = underTest.newFile();
+		try (OutputStream os = file1.newOutputStream()) {
+			os.write(new byte[100]);
+		}
+
+		DocumentSpool.SpoolFile file2 = underTest.newFile();
+		try (OutputStream os = file2.newOutputStream()) {
+			IOException ex = assertThrows(IOException.class, ()->os.write(new byte[100]));
+			assertTrue(ex.getMessage().contains("quota"), ()->"'" + ex.getMessage() + "' does not contain 'quota'");
+		}
+		assertEquals(100, underTest.getUsedBytes());
+	}
+
+	@Test
+	@DisplayName("Closing the spool deletes all of its files.")
+	void testClose() throws Exception {
+		DocumentSpool underTest = new DocumentSpool(tempDir, DocumentSpool.UNLIMITED);
+		Path path1 = underTest.newFile().getPath();
+		Path path2 = underTest.newFile().getPath();
+
+		underTest.close();
+
+		assertFalse(Files.exists(path1));
+		assertFalse(Files.exists(path2));
+		assertEquals(0, underTest.getFileCount());
+		assertThrows(IOException.class, ()->underTest.newFile());
+	}
+
+	@Test
+	@DisplayName("A temporary spool creates its own directory and deletes it when closed.")
+	void testCreateTemporary() throws Exception {
+		DocumentSpool underTest = DocumentSpool.createTemporary(DocumentSpool.UNLIMITED);
+		Path directory = underTest.getDirectory();
+		Path path = underTest.newFile().getPath();
+		assertEquals(directory, path.getParent());
+
+		underTest.close();
+
+		assertFalse(Files.exists(path));
+		assertFalse(Files.exists(directory), "Expected the spool's own directory to be deleted.");
+	}
+
+	@Test
+	@DisplayName("Files whose SpoolFile is garbage collected without being released are deleted.")
+	void testAbandonedFile() throws Exception {
+		DocumentSpool underTest = new DocumentSpool(tempDir, DocumentSpool.UNLIMITED);
+		Path path = writeAbandonedFile(underTest);
+
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (underTest.getFileCount() > 0 && System.nanoTime() < deadline) {
+			System.gc();
+			Thread.sleep(10);
+		}
+
+		assertEquals(0, underTest.getFileCount());
+		assertEquals(0, underTest.getUsedBytes());
+		assertFalse(Files.exists(path));
+	}
+
+	@Test
+	@DisplayName("Creating a spool in a non-existent directory throws a FileNotFoundException.")
+	void testDirectoryNotFound() throws Exception {
+		Path directory = tempDir.resolve("nonExistentDir");
+		assertThrows(FileNotFoundException.class, ()->new DocumentSpool(directory, DocumentSpool.UNLIMITED));
+	}
+
+	@Test
+	@DisplayName("setDefault() closes the spool it replaces and closeDefault() closes the current one.")
+	void testDefaultSpoolIsClosed() throws Exception {
+		DocumentSpool first = DocumentSpool.createTemporary(DocumentSpool.UNLIMITED);
+		DocumentSpool second = DocumentSpool.createTemporary(DocumentSpool.UNLIMITED);
+		try {
+			DocumentSpool.setDefault(first);
+			Path path = writeAbandonedFile(first);
+
+			DocumentSpool.setDefault(second);
+			assertSame(second, DocumentSpool.getDefault());
+			assertFalse(Files.exists(path), "Expected the replaced spool's files to be deleted.");
+			assertFalse(Files.exists(first.getDirectory()), "Expected the replaced spool's directory to be deleted.");
+
+			DocumentSpool.closeDefault();
+			assertFalse(Files.exists(second.getDirectory()), "Expected the default spool's directory to be deleted.");
+			assertNotSame(second, DocumentSpool.getDefault());
+		} finally {
+			DocumentSpool.closeDefault();
+			first.close();
+			second.close();
+		}
+	}
+
+	// Writes a spool file and drops the SpoolFile without releasing it.
+	private static Path writeAbandonedFile(DocumentSpool spool) throws IOException {
+		DocumentSpool.SpoolFile file = spool.newFile();
+		try (OutputStream os = file.newOutputStream()) {
+			os.write(new byte[100]);
+		}
+		return file.getPath();
+	}
+}
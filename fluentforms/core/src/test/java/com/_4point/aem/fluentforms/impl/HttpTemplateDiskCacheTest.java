@@ -0,0 +1,155 @@
+package com._4point.aem.fluentforms.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com._4point.aem.fluentforms.api.PathOrUrl;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+class HttpTemplateDiskCacheTest {
+
+	@TempDir
+	Path cacheDir;
+
+	private HttpServer server;
+	private final Map<String, String> templates = new ConcurrentHashMap<>();	// path -> contents, the ETag is the contents' hashCode.
+	private final AtomicInteger fullResponses = new AtomicInteger();
+
+	@BeforeEach
+	void setUp() throws Exception {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/", this::handle);
+		server.start();
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		server.stop(0);
+	}
+
+	@Test
+	@DisplayName("Unchanged templates are revalidated rather than downloaded again.")
+	void testVersionAndLoad_Revalidates() throws Exception {
+		templates.put("/template.xdp", "version 1");
+		PathOrUrl location = PathOrUrl.from(url("/template.xdp"));
+		HttpTemplateDiskCache underTest = new HttpTemplateDiskCache(cacheDir, 1000);
+
+		String version1 = underTest.version(location);
+		assertEquals("version 1", new String(underTest.load(location), StandardCharsets.UTF_8));
+		assertEquals(version1, underTest.version(location));
+
+		assertEquals(1, fullResponses.get());
+		assertEquals(1, underTest.getDownloadCount());
+		assertEquals(1, underTest.getRevalidatedCount());
+
+		templates.put("/template.xdp", "version 2");
+		assertNotEquals(version1, underTest.version(location));
+		assertEquals("version 2", new String(underTest.load(location), StandardCharsets.UTF_8));
+		assertEquals(2, fullResponses.get());
+	}
+
+	@Test
+	@DisplayName("A template whose cached copy has been deleted is downloaded again.")
+	void testFetch_BodyDeleted() throws Exception {
+		templates.put("/template.xdp", "contents");
+		URL url = url("/template.xdp");
+		HttpTemplateDiskCache underTest = new HttpTemplateDiskCache(cacheDir, 1000);
+		Files.delete(underTest.fetch(url));
+
+		Path body = underTest.fetch(url);
+
+		assertEquals("contents", new String(Files.readAllBytes(body), StandardCharsets.UTF_8));
+		assertEquals(2, fullResponses.get());
+		assertEquals(2, underTest.getDownloadCount());
+		assertEquals(1, underTest.size());
+		assertEquals(8, underTest.getTotalBytes());
+	}
+
+	@Test
+	@DisplayName("Cached templates survive a restart.")
+	void testRestart() throws Exception {
+		templates.put("/template.xdp", "contents");
+		URL url = url("/template.xdp");
+		new HttpTemplateDiskCache(cacheDir, 1000).fetch(url);
+
+		HttpTemplateDiskCache underTest = new HttpTemplateDiskCache(cacheDir, 1000);
+		Path body = underTest.fetch(url);
+
+		assertEquals("contents", new String(Files.readAllBytes(body), StandardCharsets.UTF_8));
+		assertEquals(1, fullResponses.get(), "Expected the restarted cache to revalidate its existing copy.");
+		assertEquals(1, underTest.getRevalidatedCount());
+	}
+
+	@Test
+	@DisplayName("The least recently used templates are deleted once the size limit is exceeded.")
+	void testEviction() throws Exception {
+		templates.put("/template1.xdp", new String(new char[400]));
+		templates.put("/template2.xdp", new String(new char[400]));
+		templates.put("/template3.xdp", new String(new char[400]));
+		HttpTemplateDiskCache underTest = new HttpTemplateDiskCache(cacheDir, 1000);
+
+		Path body1 = underTest.fetch(url("/template1.xdp"));
+		underTest.fetch(url("/template2.xdp"));
+		underTest.fetch(url("/template3.xdp"));
+
+		assertEquals(2, underTest.size());
+		assertEquals(800, underTest.getTotalBytes());
+		assertEquals(1, underTest.getEvictionCount());
+		assertFalse(Files.exists(body1));
+	}
+
+	@Test
+	@DisplayName("Missing templates throw FileNotFoundException and other locations are passed to the default loader.")
+	void testNotFoundAndNonHttp() throws Exception {
+		HttpTemplateDiskCache underTest = new HttpTemplateDiskCache(cacheDir, 1000);
+		Path file = Files.write(cacheDir.resolve("local.xdp"), "local".getBytes(StandardCharsets.UTF_8));
+
+		assertThrows(FileNotFoundException.class, ()->underTest.version(PathOrUrl.from(url("/missing.xdp"))));
+		assertEquals("local", new String(underTest.load(PathOrUrl.from(file)), StandardCharsets.UTF_8));
+		assertEquals(TemplateCache.DEFAULT_LOADER.version(PathOrUrl.from(file)), underTest.version(PathOrUrl.from(file)));
+	}
+
+	private URL url(String path) throws Exception {
+		return new URL("http://localhost:" + server.getAddress().getPort() + path);
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		String contents = templates.get(exchange.getRequestURI().getPath());
+		if (contents == null) {
+			exchange.sendResponseHeaders(404, -1);
+			exchange.close();
+			return;
+		}
+		String etag = "\"" + contents.hashCode() + "\"";
+		exchange.getResponseHeaders().add("ETag", etag);
+		if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+			exchange.sendResponseHeaders(304, -1);
+			exchange.close();
+			return;
+		}
+		fullResponses.incrementAndGet();
+		byte[] body = contents.getBytes(StandardCharsets.UTF_8);
+		exchange.sendResponseHeaders(200, body.length);
+		try (OutputStream os = exchange.getResponseBody()) {
+			os.write(body);
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package com._4point.aem.fluentforms.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com._4point.aem.fluentforms.api.Document;
+import com._4point.aem.fluentforms.api.DocumentFactory;
+
+class OffHeapDocumentFactoryImplTest {
+
+	private static final byte[] TEST_DATA = "Test Document Data".getBytes(StandardCharsets.UTF_8);
+
+	private final DocumentFactory underTest = DocumentFactory.getOffHeap();
+
+	@Test
+	@DisplayName("Off-heap Documents return their contents.")
+	void testCreate() throws Exception {
+		byte[] largeData = new byte[100000];
+		for (int i = 0; i < largeData.length; i++) {
+			largeData[i] = (byte)i;
+		}
+		try (Document byteArrayDoc = underTest.create(TEST_DATA); Document streamDoc = underTest.create(new ByteArrayInputStream(largeData))) {
+			assertEquals(TEST_DATA.length, byteArrayDoc.length());
+			assertArrayEquals(TEST_DATA, byteArrayDoc.getInlineData());
+			assertEquals(ByteBuffer.wrap(TEST_DATA), byteArrayDoc.asReadOnlyBuffer());
+
+			assertEquals(largeData.length, streamDoc.length());
+			assertArrayEquals(largeData, streamDoc.getInlineData());
+			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			assertEquals(largeData.length, streamDoc.transferTo(bos));
+			assertArrayEquals(largeData, bos.toByteArray());
+		}
+	}
+
+	@Test
+	@DisplayName("Closing an off-heap Document releases its memory.")
+	void testDispose() throws Exception {
+		int initialCount = OffHeapDocumentFactoryImpl.getOutstandingDocumentCount();
+
+		Document doc = underTest.create(TEST_DATA);
+		assertEquals(initialCount + 1, OffHeapDocumentFactoryImpl.getOutstandingDocumentCount());
+		doc.close();
+		doc.dispose();	// Disposing twice should be harmless.
+
+		assertEquals(initialCount, OffHeapDocumentFactoryImpl.getOutstandingDocumentCount());
+		assertEquals(0, doc.length());
+		assertArrayEquals(new byte[0], doc.getInlineData());
+	}
+
+	@Test
+	@DisplayName("Streams and buffers obtained from a Document keep its contents after it is disposed, even when the memory is reused.")
+	void testViewsOutliveDocument() throws Exception {
+		byte[] otherData = new byte[TEST_DATA.length];
+
+		Document doc = underTest.create(TEST_DATA);
+		InputStream stream = doc.getInputStream();
+		ByteBuffer buffer = doc.asReadOnlyBuffer();
+		doc.dispose();
+		try (Document other = underTest.create(otherData); Document another = underTest.create(otherData)) {
+			assertArrayEquals(TEST_DATA, readAll(stream));
+			assertEquals(ByteBuffer.wrap(TEST_DATA), buffer);
+		}
+		stream.close();
+	}
+
+	@Test
+	@DisplayName("A Document's memory is reused once the Document and its streams have been closed.")
+	void testStreamReleasesMemory() throws Exception {
+		Document doc = underTest.create(TEST_DATA);
+		InputStream stream = doc.getInputStream();
+		doc.dispose();
+		stream.close();
+		stream.close();		// Closing twice should be harmless.
+
+		try (Document other = underTest.create(new byte[TEST_DATA.length])) {
+			assertArrayEquals(new byte[TEST_DATA.length], other.getInlineData());
+		}
+	}
+
+	@Test
+	@DisplayName("DirectBufferPool reuses released buffers.")
+	void testBufferPoolReuse() throws Exception {
+		DirectBufferPool pool = new DirectBufferPool(1024 * 1024);
+
+		ByteBuffer buffer1 = pool.acquire(5000);
+		assertTrue(buffer1.isDirect());
+		assertEquals(5000, buffer1.limit());
+		pool.release(buffer1);
+		assertEquals(buffer1.capacity(), pool.getRetainedBytes());
+
+		ByteBuffer buffer2 = pool.acquire(6000);
+		assertSame(buffer1, buffer2, "Expected the released buffer to be reused.");
+		assertEquals(6000, buffer2.limit());
+		assertEquals(0, pool.getRetainedBytes());
+	}
+
+	@Test
+	@DisplayName("DirectBufferPool does not retain more than its limit.")
+	void testBufferPoolLimit() throws Exception {
+		DirectBufferPool pool = new DirectBufferPool(8192);
+
+		ByteBuffer buffer1 = pool.acquire(8192);
+		ByteBuffer buffer2 = pool.acquire(8192);
+		pool.release(buffer1);
+		pool.release(buffer2);
+
+		assertEquals(8192, pool.getRetainedBytes());
+	}
+
+	private static byte[] readAll(InputStream is) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		byte[] buffer = new byte[1024];
+		int len;
+		while ((len = is.read(buffer)) != -1) {
+			bos.write(buffer, 0, len);
+		}
+		return bos.toByteArray();
+	}
+}
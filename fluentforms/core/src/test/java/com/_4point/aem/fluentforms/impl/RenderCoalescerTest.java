@@ -0,0 +1,167 @@
+package com._4point.aem.fluentforms.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com._4point.aem.fluentforms.api.ContentDigest;
+import com._4point.aem.fluentforms.api.Document;
+import com._4point.aem.fluentforms.api.output.OutputService.OutputServiceException;
+
+class RenderCoalescerTest {
+
+	@TempDir
+	Path tempDir;
+
+	private static final int CALLERS = 5;
+
+	@Test
+	@DisplayName("Concurrent identical renders share one call, the caller that rendered gets the original Document and each other caller gets its own.")
+	void testRender() throws Exception {
+		RenderCoalescer underTest = new RenderCoalescer(SimpleDocumentFactoryImpl.getFactory());
+		ContentDigest key = RenderResultCache.key("op").add("template", "form.xdp").build();
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger calls = new AtomicInteger();
+		AtomicReference<Document> rendered = new AtomicReference<>();
+		ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+		try {
+			List<Future<Document>> results = new ArrayList<>();
+			for (int i = 0; i < CALLERS; i++) {
+				results.add(executor.submit(()->underTest.render(key, ()->{
+					calls.incrementAndGet();
+					release.await(5, TimeUnit.SECONDS);
+					Document doc = doc("result");
+					doc.setContentType("application/pdf");
+					rendered.set(doc);
+					return doc;
+				})));
+			}
+			awaitCoalesced(underTest, CALLERS - 1);
+			release.countDown();
+
+			HashSet<Document> docs = new HashSet<>();
+			for (Future<Document> result : results) {
+				Document doc = result.get(5, TimeUnit.SECONDS);
+				assertEquals("result", new String(doc.getInlineData(), StandardCharsets.UTF_8));
+				assertEquals("application/pdf", doc.getContentType());
+				docs.add(doc);
+			}
+			assertEquals(1, calls.get());
+			assertEquals(CALLERS, docs.size(), "Expected each caller to get its own Document.");
+			assertTrue(docs.contains(rendered.get()), "Expected the caller that rendered to get the original Document.");
+			assertEquals(0, underTest.getInFlightCount());
+		} finally {
+			release.countDown();
+			executor.shutdown();
+		}
+
+		// Once complete, the next render is performed again.  With no one sharing it, its result is passed straight back.
+		Document again = doc("again");
+		assertSame(again, underTest.render(key, ()->again));
+		assertEquals(2, underTest.getRenderCount());
+	}
+
+	@Test
+	@DisplayName("Every caller receives the exception thrown by the shared render.")
+	void testRender_Exception() throws Exception {
+		RenderCoalescer underTest = new RenderCoalescer(SimpleDocumentFactoryImpl.getFactory());
+		ContentDigest key = RenderResultCache.key("op").build();
+		CountDownLatch release = new CountDownLatch(1);
+		OutputServiceException expected = new OutputServiceException("Render failed.");
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<Document> leader = executor.submit(()->underTest.render(key, ()->{
+				release.await(5, TimeUnit.SECONDS);
+				throw expected;
+			}));
+			awaitInFlight(underTest);
+			Future<Document> follower = executor.submit(()->underTest.render(key, ()->doc("unexpected")));
+			awaitCoalesced(underTest, 1);
+			release.countDown();
+
+			assertSame(expected, assertThrows(ExecutionException.class, ()->leader.get(5, TimeUnit.SECONDS)).getCause());
+			assertSame(expected, assertThrows(ExecutionException.class, ()->follower.get(5, TimeUnit.SECONDS)).getCause());
+		} finally {
+			release.countDown();
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	@DisplayName("Renders with different keys are not coalesced.")
+	void testRender_DifferentKeys() throws Exception {
+		RenderCoalescer underTest = new RenderCoalescer(SimpleDocumentFactoryImpl.getFactory());
+
+		underTest.render(RenderResultCache.key("op").add("n", 1).build(), ()->doc("1"));
+		underTest.render(RenderResultCache.key("op").add("n", 2).build(), ()->doc("2"));
+
+		assertEquals(2, underTest.getRenderCount());
+		assertEquals(0, underTest.getCoalescedCount());
+	}
+
+	@Test
+	@DisplayName("Requests are coalesced if their Documents already have ContentDigests or are short, without reading them to find out.")
+	void testCanCoalesce() throws Exception {
+		RenderCoalescer underTest = new RenderCoalescer(SimpleDocumentFactoryImpl.getFactory(), 4);
+		Path file = Files.write(tempDir.resolve("data.xml"), "contents".getBytes(StandardCharsets.UTF_8));
+		Document fileDoc = SimpleDocumentFactoryImpl.getFactory().create(file);
+
+		assertTrue(underTest.canCoalesce(doc("tmpl"), null, doc("data")));
+		assertTrue(underTest.canCoalesce(withoutDigest(4)), "Expected a short Document without a digest (as on the server) to be coalesced.");
+		assertFalse(underTest.canCoalesce(doc("tmpl"), withoutDigest(5)));
+		assertFalse(underTest.canCoalesce(fileDoc));
+		assertFalse(SimpleDocumentFactoryImpl.knownContentDigest(fileDoc).isPresent(), "Expected the file not to have been read.");
+		assertTrue(underTest.canCoalesce(SimpleDocumentFactoryImpl.getFactory().create(new ByteArrayInputStream(new byte[100]))), "Expected a stream's digest to be computed while it is read.");
+	}
+
+	// A Document (like the server's) that has no ContentDigest.  It can't be read, only measured.
+	private static Document withoutDigest(long length) {
+		return (Document) Proxy.newProxyInstance(Document.class.getClassLoader(), new Class<?>[] { Document.class }, (proxy, method, args)->{
+			if (method.getName().equals("getContentDigest")) {
+				return Optional.empty();
+			} else if (method.getName().equals("length")) {
+				return length;
+			}
+			throw new UnsupportedOperationException(method.getName());
+		});
+	}
+
+	private static void awaitCoalesced(RenderCoalescer coalescer, int count) {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (coalescer.getCoalescedCount() < count && System.nanoTime() < deadline) {
+			LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+		}
+	}
+
+	private static void awaitInFlight(RenderCoalescer coalescer) {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (coalescer.getInFlightCount() == 0 && System.nanoTime() < deadline) {
+			LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+		}
+	}
+
+	private static Document doc(String contents) {
+		return SimpleDocumentFactoryImpl.getFactory().create(contents.getBytes(StandardCharsets.UTF_8));
+	}
+}
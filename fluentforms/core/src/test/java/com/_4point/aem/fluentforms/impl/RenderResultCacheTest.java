@@ -0,0 +1,178 @@
+package com._4point.aem.fluentforms.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com._4point.aem.fluentforms.api.ContentDigest;
+import com._4point.aem.fluentforms.api.Document;
+import com._4point.aem.fluentforms.api.PathOrUrl;
+
+class RenderResultCacheTest {
+
+	@TempDir
+	Path cacheDir;
+
+	@Test
+	@DisplayName("Keys depend on every value, and on whether a value is null.")
+	void testKey() throws Exception {
+		ContentDigest key = RenderResultCache.key("op").add("template", "form.xdp").add("data", doc("data")).add("locale", Locale.CANADA).build();
+
+		assertEquals(key, RenderResultCache.key("op").add("template", "form.xdp").add("data", doc("data")).add("locale", Locale.CANADA).build());
+		assertNotEquals(key, RenderResultCache.key("op2").add("template", "form.xdp").add("data", doc("data")).add("locale", Locale.CANADA).build());
+		assertNotEquals(key, RenderResultCache.key("op").add("template", "form.xdp").add("data", doc("data2")).add("locale", Locale.CANADA).build());
+		assertNotEquals(key, RenderResultCache.key("op").add("template", "form.xdp").add("data", doc("data")).add("locale", Locale.FRANCE).build());
+		assertNotEquals(RenderResultCache.key("op").add("a", (Object)null).build(), RenderResultCache.key("op").add("a", "").build());
+		assertNotEquals(RenderResultCache.key("op").add("a", "bc").add("d", "").build(), RenderResultCache.key("op").add("a", "b").add("d", "c").build());
+	}
+
+	@Test
+	@DisplayName("A Document's existing ContentDigest gives the same key as reading its contents.")
+	void testKey_ExistingDigest() throws Exception {
+		Document withDigest = SimpleDocumentFactoryImpl.getFactory().create(new ByteArrayInputStream("data".getBytes(StandardCharsets.UTF_8)));
+		withDigest.getInlineData();
+
+		assertEquals(RenderResultCache.key("op").add("data", doc("data")).build(), RenderResultCache.key("op").add("data", withDigest).build());
+	}
+
+	@Test
+	@DisplayName("Templates passed by location are keyed by their resolved location and their version.")
+	void testKey_TemplateLocation() throws Exception {
+		Path template = writeXdp("templates/form.xdp", "<subform/>");
+		PathOrUrl contentRoot = PathOrUrl.from(template.getParent());
+
+		RenderResultCache.KeyBuilder keyBuilder = RenderResultCache.key("op", "form.xdp", contentRoot).get();
+		ContentDigest key = keyBuilder.build();
+		assertEquals(template.toAbsolutePath().normalize(), keyBuilder.getTemplateFile());
+		assertEquals(key, RenderResultCache.key("op", template.toString(), null).get().build());
+
+		writeXdp("templates/form.xdp", "<subform name=\"changed\"/>");
+		assertNotEquals(key, RenderResultCache.key("op", "form.xdp", contentRoot).get().build());
+
+		assertFalse(RenderResultCache.key("op", "missing.xdp", contentRoot).isPresent());
+		assertFalse(RenderResultCache.key("op", "crx:/content/dam/formsanddocuments/form.xdp", null).isPresent());
+		assertFalse(RenderResultCache.key("op", "form.xdp", PathOrUrl.from("crx:/content/dam/formsanddocuments")).isPresent());
+	}
+
+	@Test
+	void testGetAndPut() throws Exception {
+		RenderResultCache underTest = new RenderResultCache(10, SimpleDocumentFactoryImpl.getFactory());
+		ContentDigest key1 = RenderResultCache.key("op").add("n", 1).build();
+		ContentDigest key2 = RenderResultCache.key("op").add("n", 2).build();
+		Document result = doc("12345");
+		result.setContentType("application/pdf");
+
+		assertFalse(underTest.get(key1).isPresent());
+		Document returned = underTest.put(key1, result);
+		Document cached = underTest.get(key1).get();
+
+		assertSame(result, returned);
+		assertEquals("12345", contents(cached));
+		assertEquals("application/pdf", cached.getContentType());
+		assertEquals(1, underTest.getHitCount());
+		assertEquals(1, underTest.getMissCount());
+		assertEquals(0.5, underTest.getHitRatio());
+
+		underTest.put(key2, doc("678901"));		// Evicts key1.
+		assertFalse(underTest.get(key1).isPresent());
+		assertEquals(1, underTest.getEvictionCount());
+		assertEquals(6, underTest.getTotalBytes());
+
+		Document tooBig = doc("12345678901");
+		assertSame(tooBig, underTest.put(key1, tooBig));
+		assertEquals(1, underTest.size());
+	}
+
+	@Test
+	@DisplayName("Results evicted from memory are written to disk and read back.")
+	void testDiskTier() throws Exception {
+		RenderResultCache underTest = new RenderResultCache(10, cacheDir, 1000, SimpleDocumentFactoryImpl.getFactory());
+		ContentDigest key1 = RenderResultCache.key("op").add("n", 1).build();
+		ContentDigest key2 = RenderResultCache.key("op").add("n", 2).build();
+		Document result = doc("12345");
+		result.setContentType("application/pdf");
+		underTest.put(key1, result);
+		underTest.put(key2, doc("678901"));		// Moves key1 to disk.
+
+		assertEquals(1, underTest.getDiskSize());
+		Document fromDisk = underTest.get(key1).get();
+		assertEquals("12345", contents(fromDisk));
+		assertEquals("application/pdf", fromDisk.getContentType());
+		assertEquals(1, underTest.getDiskHitCount());
+
+		// Results on disk survive a restart, but results written in the old format (without the template) are deleted.
+		Path oldResult = Files.write(cacheDir.resolve("0123.result"), "old".getBytes(StandardCharsets.UTF_8));
+		RenderResultCache restarted = new RenderResultCache(10, cacheDir, 1000, SimpleDocumentFactoryImpl.getFactory());
+		assertEquals(2, restarted.getDiskSize());
+		assertFalse(Files.exists(oldResult));
+		assertEquals("678901", contents(restarted.get(key2).get()));
+
+		restarted.invalidateAll();
+		assertEquals(0, restarted.getDiskSize());
+		assertFalse(restarted.get(key1).isPresent());
+	}
+
+	@Test
+	@DisplayName("When a fragment changes, only the results of templates that use it (and of templates passed as Documents) are discarded.")
+	void testInvalidateOn() throws Exception {
+		Path contentRoot = cacheDir.resolve("content");
+		writeXdp("content/templateA.xdp", "<subform usehref=\"fragments/header.xdp#Header\"/>");
+		writeXdp("content/templateB.xdp", "<subform/>");
+		writeXdp("content/fragments/header.xdp", "<subform name=\"Header\"/>");
+		RenderResultCache underTest = new RenderResultCache(1000, cacheDir.resolve("results"), 1000, SimpleDocumentFactoryImpl.getFactory());
+		XdpDependencyIndex index = new XdpDependencyIndex(contentRoot);
+		underTest.invalidateOn(index);
+		RenderResultCache.KeyBuilder keyA = RenderResultCache.key("op", "templateA.xdp", PathOrUrl.from(contentRoot)).get();
+		RenderResultCache.KeyBuilder keyB = RenderResultCache.key("op", "templateB.xdp", PathOrUrl.from(contentRoot)).get();
+		ContentDigest a = keyA.build();
+		ContentDigest b = keyB.build();
+		ContentDigest document = RenderResultCache.key("op").add("template", doc("template")).build();
+		underTest.put(a, doc("resultA"), keyA.getTemplateFile());
+		underTest.put(b, doc("resultB"), keyB.getTemplateFile());
+		underTest.put(document, doc("resultDoc"));
+
+		index.invalidate(Paths.get("fragments/header.xdp"));
+
+		assertFalse(underTest.get(a).isPresent());
+		assertEquals("resultB", contents(underTest.get(b).get()));
+		assertFalse(underTest.get(document).isPresent());
+		assertEquals(1, underTest.size());
+	}
+
+	@Test
+	void testBadArguments() throws Exception {
+		assertThrows(IllegalArgumentException.class, ()->new RenderResultCache(0));
+		assertThrows(IllegalArgumentException.class, ()->new RenderResultCache(1, cacheDir, 0));
+		assertThrows(NullPointerException.class, ()->new RenderResultCache(1, null, 1));
+		assertThrows(NullPointerException.class, ()->RenderResultCache.key(null));
+		assertThrows(NullPointerException.class, ()->RenderResultCache.key("op").add(null, Paths.get("foo")));
+	}
+
+	private Path writeXdp(String filename, String templateContents) throws IOException {
+		String xdp = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+				+ "<xdp:xdp xmlns:xdp=\"http://ns.adobe.com/xdp/\">\n"
+				+ "<template xmlns=\"http://www.xfa.org/schema/xfa-template/3.6/\">" + templateContents + "</template>\n"
+				+ "</xdp:xdp>\n";
+		Path file = cacheDir.resolve(filename);
+		Files.createDirectories(file.getParent());
+		return Files.write(file, xdp.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static Document doc(String contents) {
+		return SimpleDocumentFactoryImpl.getFactory().create(contents.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String contents(Document doc) throws Exception {
+		return new String(doc.getInlineData(), StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,333 @@
+package com._4point.aem.fluentforms.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com._4point.aem.fluentforms.api.ContentDigest;
+import com._4point.aem.fluentforms.api.Document;
+import com._4point.aem.fluentforms.api.DocumentFactory;
+
+class SimpleDocumentFactoryImplTest {
+
+	private static final byte[] TEST_DATA = "Test Document Data".getBytes(StandardCharsets.UTF_8);
+
+	private final DocumentFactory underTest = SimpleDocumentFactoryImpl.getFactory();
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	@DisplayName("File backed Document returns the file's contents.")
+	void testCreatePath() throws Exception {
+		Path testFile = Files.write(tempDir.resolve("testFile.pdf"), TEST_DATA);
+		
+		try (Document doc = underTest.create(testFile)) {
+			assertEquals(TEST_DATA.length, doc.length());
+			assertArrayEquals(TEST_DATA, doc.getInlineData());
+			assertArrayEquals(TEST_DATA, readAll(doc.getInputStream()));
+			assertArrayEquals(TEST_DATA, readAll(doc.getInputStream()), "Expected Document to be readable more than once.");
+		}
+		assertTrue(Files.exists(testFile), "Expected file to still exist if the Document does not own it.");
+	}
+
+	@Test
+	@DisplayName("File backed Document deletes the file on dispose() when it owns it.")
+	void testCreateFileOwned() throws Exception {
+		Path testFile = Files.write(tempDir.resolve("testFile.pdf"), TEST_DATA);
+		
+		Document doc = underTest.create(testFile.toFile(), true);
+		assertArrayEquals(TEST_DATA, doc.getInlineData());
+		doc.dispose();
+		
+		assertFalse(Files.exists(testFile), "Expected file to be deleted when the Document owns it.");
+		assertEquals(0, doc.length());
+	}
+
+	@Test
+	@DisplayName("Creating a Document from a non-existent file throws an IllegalArgumentException.")
+	void testCreateFileNotFound() throws Exception {
+		Path testFile = tempDir.resolve("nonExistentFile.pdf");
+		
+		IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, ()->underTest.create(testFile));
+		assertTrue(ex.getMessage().contains(testFile.toString()), ()->"'" + ex.getMessage() + "' does not contain '" + testFile.toString() + "'");
+	}
+
+	@Test
+	@DisplayName("InputStream backed Document does not read the stream until it is accessed.")
+	void testCreateInputStreamIsLazy() throws Exception {
+		TrackingInputStream is = new TrackingInputStream(TEST_DATA);
+		
+		try (Document doc = underTest.create(is)) {
+			assertFalse(is.wasRead, "Expected the stream not to be read when the Document is created.");
+			assertEquals(TEST_DATA.length, doc.length());
+			assertTrue(is.wasRead, "Expected the stream to be read when the Document is accessed.");
+			assertTrue(is.wasClosed, "Expected the stream to be closed once it has been read.");
+			assertArrayEquals(TEST_DATA, doc.getInlineData());
+			assertArrayEquals(TEST_DATA, readAll(doc.getInputStream()));
+		}
+	}
+
+	@Test
+	@DisplayName("InputStream backed Document larger than maxInlineSize is spilled to disk.")
+	void testCreateInputStreamSpillsToDisk() throws Exception {
+		TrackingInputStream is = new TrackingInputStream(TEST_DATA);
+		
+		try (Document doc = underTest.create(is)) {
+			doc.setMaxInlineSize(TEST_DATA.length - 1);
+			assertEquals(TEST_DATA.length, doc.length());
+			assertArrayEquals(TEST_DATA, doc.getInlineData());
+			assertArrayEquals(TEST_DATA, readAll(doc.getInputStream()));
+		}
+	}
+
+	@Test
+	@DisplayName("A failure while reading an InputStream backed Document is reported on every access, not just the first.")
+	void testCreateInputStreamReadFailure() throws Exception {
+		InputStream failing = new InputStream() {
+			@Override
+			public int read() throws IOException {
+				throw new IOException("Connection reset");
+			}
+		};
+
+		try (Document doc = underTest.create(failing)) {
+			IOException first = assertThrows(IOException.class, ()->doc.getInlineData());
+			assertEquals("Connection reset", first.getMessage());
+			IOException second = assertThrows(IOException.class, ()->doc.getInlineData());
+			assertSame(first, second.getCause());
+			assertThrows(IOException.class, ()->doc.length());
+			assertThrows(IOException.class, ()->doc.getInputStream());
+		}
+	}
+
+	@Test
+	@DisplayName("Disposing an unread InputStream backed Document closes the stream.")
+	void testCreateInputStreamDispose() throws Exception {
+		TrackingInputStream is = new TrackingInputStream(TEST_DATA);
+		
+		Document doc = underTest.create(is);
+		doc.dispose();
+
+		assertFalse(is.wasRead, "Expected the stream not to be read when the Document is disposed.");
+		assertTrue(is.wasClosed, "Expected the stream to be closed when the Document is disposed.");
+		assertEquals(0, doc.length());
+	}
+
+	@Test
+	@DisplayName("passivate() moves the Document's contents to the spool.")
+	void testPassivate() throws Exception {
+		DocumentSpool spool = DocumentSpool.getDefault();
+		int initialFileCount = spool.getFileCount();
+		
+		try (Document doc = underTest.create(TEST_DATA)) {
+			doc.passivate();
+			assertEquals(initialFileCount + 1, spool.getFileCount(), "Expected the Document's contents to be spooled.");
+			assertEquals(TEST_DATA.length, doc.length());
+			assertArrayEquals(TEST_DATA, doc.getInlineData());
+			assertArrayEquals(TEST_DATA, readAll(doc.getInputStream()));
+		}
+		assertEquals(initialFileCount, spool.getFileCount(), "Expected the spool file to be deleted when the Document is closed.");
+	}
+
+	@Test
+	@DisplayName("asReadOnlyBuffer() returns independent read-only views of the Document's contents.")
+	void testAsReadOnlyBuffer() throws Exception {
+		Path testFile = Files.write(tempDir.resolve("testFile.pdf"), TEST_DATA);
+		
+		try (Document byteArrayDoc = underTest.create(TEST_DATA); Document fileDoc = underTest.create(testFile); Document streamDoc = underTest.create(new ByteArrayInputStream(TEST_DATA))) {
+			for (Document doc : new Document[] { byteArrayDoc, fileDoc, streamDoc }) {
+				ByteBuffer buffer1 = doc.asReadOnlyBuffer();
+				ByteBuffer buffer2 = doc.asReadOnlyBuffer();
+				assertTrue(buffer1.isReadOnly(), "Expected buffer to be read-only.");
+				assertEquals(ByteBuffer.wrap(TEST_DATA), buffer1);
+				buffer1.get();
+				assertEquals(0, buffer2.position(), "Expected each buffer to have its own position.");
+			}
+		}
+	}
+
+	@Test
+	@DisplayName("Document created from part of a ByteBuffer shares the buffer's storage.")
+	void testCreateByteBufferSlice() throws Exception {
+		byte[] backingArray = ("Prefix" + new String(TEST_DATA, StandardCharsets.UTF_8) + "Suffix").getBytes(StandardCharsets.UTF_8);
+		ByteBuffer buffer = ByteBuffer.wrap(backingArray);
+		buffer.position(3);
+		
+		try (Document doc = underTest.create(buffer, 6, TEST_DATA.length)) {
+			assertEquals(TEST_DATA.length, doc.length());
+			assertArrayEquals(TEST_DATA, doc.getInlineData());
+			assertArrayEquals(TEST_DATA, readAll(doc.getInputStream()));
+			assertEquals(3, buffer.position(), "Expected the buffer's position to be unchanged.");
+			
+			backingArray[6] = 'X';
+			assertEquals('X', doc.asReadOnlyBuffer().get(0), "Expected the Document to share the buffer's storage.");
+		}
+	}
+
+	@Test
+	@DisplayName("Creating a Document from outside of a ByteBuffer throws an IllegalArgumentException.")
+	void testCreateByteBufferSliceOutOfBounds() throws Exception {
+		ByteBuffer buffer = ByteBuffer.wrap(TEST_DATA);
+		
+		assertThrows(IllegalArgumentException.class, ()->underTest.create(buffer, 1, TEST_DATA.length));
+		assertThrows(IllegalArgumentException.class, ()->underTest.create(buffer, -1, 1));
+	}
+
+	@Test
+	@DisplayName("transferTo() and copyToFile() write the Document's contents.")
+	void testTransferTo() throws Exception {
+		Path testFile = Files.write(tempDir.resolve("testFile.pdf"), TEST_DATA);
+		Document spilledDoc = underTest.create(new ByteArrayInputStream(TEST_DATA));
+		spilledDoc.setMaxInlineSize(0);
+		
+		try (Document byteArrayDoc = underTest.create(TEST_DATA); Document fileDoc = underTest.create(testFile); Document streamDoc = underTest.create(new ByteArrayInputStream(TEST_DATA)); Document spilled = spilledDoc) {
+			int i = 0;
+			for (Document doc : new Document[] { byteArrayDoc, fileDoc, streamDoc, spilled }) {
+				ByteArrayOutputStream streamTarget = new ByteArrayOutputStream();
+				assertEquals(TEST_DATA.length, doc.transferTo(streamTarget));
+				assertArrayEquals(TEST_DATA, streamTarget.toByteArray());
+
+				ByteArrayOutputStream channelTarget = new ByteArrayOutputStream();
+				assertEquals(TEST_DATA.length, doc.transferTo(Channels.newChannel(channelTarget)));
+				assertArrayEquals(TEST_DATA, channelTarget.toByteArray());
+
+				Path copy = tempDir.resolve("copy" + i++ + ".pdf");
+				Files.write(copy, new byte[TEST_DATA.length * 2]);	// Make sure any existing contents are replaced.
+				doc.copyToFile(copy.toFile());
+				assertArrayEquals(TEST_DATA, Files.readAllBytes(copy));
+			}
+		}
+	}
+
+	@Test
+	@DisplayName("transferTo() stops, rather than spinning, if the file shrinks while it is being copied.")
+	void testTransferTo_FileShrinks() throws Exception {
+		Path testFile = Files.write(tempDir.resolve("testFile.pdf"), new byte[256 * 1024]);
+		ByteArrayOutputStream received = new ByteArrayOutputStream();
+		WritableByteChannel truncatingTarget = new WritableByteChannel() {
+			private final WritableByteChannel target = Channels.newChannel(received);
+			@Override
+			public int write(ByteBuffer src) throws IOException {
+				if (received.size() == 0) {
+					try (FileChannel channel = FileChannel.open(testFile, StandardOpenOption.WRITE)) {
+						channel.truncate(1024);
+					}
+				}
+				return target.write(src);
+			}
+			@Override
+			public boolean isOpen() {
+				return true;
+			}
+			@Override
+			public void close() {
+			}
+		};
+
+		try (Document doc = underTest.create(testFile)) {
+			long count = assertTimeoutPreemptively(Duration.ofSeconds(5), ()->doc.transferTo(truncatingTarget));
+			assertEquals(received.size(), count);
+			assertTrue(count < 256 * 1024, ()->"Expected the copy to stop early, but " + count + " bytes were copied.");
+		}
+	}
+
+	@Test
+	@DisplayName("Documents expose a ContentDigest of their contents.")
+	void testContentDigest() throws Exception {
+		ContentDigest expected = new ContentDigest("SHA-256", MessageDigest.getInstance("SHA-256").digest(TEST_DATA), TEST_DATA.length);
+		Path testFile = Files.write(tempDir.resolve("testFile.pdf"), TEST_DATA);
+		Document spilledDoc = underTest.create(new ByteArrayInputStream(TEST_DATA));
+		spilledDoc.setMaxInlineSize(0);
+		
+		try (Document byteArrayDoc = underTest.create(TEST_DATA); Document fileDoc = underTest.create(testFile); Document streamDoc = underTest.create(new ByteArrayInputStream(TEST_DATA)); Document spilled = spilledDoc) {
+			for (Document doc : new Document[] { byteArrayDoc, fileDoc, streamDoc, spilled }) {
+				assertEquals(expected, doc.getContentDigest().get());
+				assertEquals(expected, doc.getMandatoryAttributeAsContentDigest(Document.CONTENT_DIGEST_ATTRIBUTE));
+			}
+		}
+	}
+
+	@Test
+	@DisplayName("Concurrent readers of the ContentDigest all get the same digest.")
+	void testContentDigest_Concurrent() throws Exception {
+		ContentDigest expected = new ContentDigest("SHA-256", MessageDigest.getInstance("SHA-256").digest(TEST_DATA), TEST_DATA.length);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			for (int i = 0; i < 20; i++) {
+				try (Document doc = underTest.create(TEST_DATA)) {
+					CountDownLatch start = new CountDownLatch(1);
+					List<Future<Object>> results = new ArrayList<>();
+					for (int t = 0; t < 8; t++) {
+						results.add(executor.submit(()->{ start.await(); return doc.getAttribute(Document.CONTENT_DIGEST_ATTRIBUTE); }));
+					}
+					start.countDown();
+					Object first = results.get(0).get();
+					assertEquals(expected, first);
+					for (Future<Object> result : results) {
+						assertSame(first, result.get());
+					}
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static class TrackingInputStream extends ByteArrayInputStream {
+		boolean wasRead = false;
+		boolean wasClosed = false;
+
+		private TrackingInputStream(byte[] buf) {
+			super(buf);
+		}
+
+		@Override
+		public synchronized int read(byte[] b, int off, int len) {
+			wasRead = true;
+			return super.read(b, off, len);
+		}
+
+		@Override
+		public void close() throws IOException {
+			wasClosed = true;
+			super.close();
+		}
+	}
+
+	// Reads and closes a stream.
+	private static byte[] readAll(InputStream is) throws IOException {
+		try (InputStream in = is) {
+			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			byte[] buffer = new byte[1024];
+			int len;
+			while ((len = in.read(buffer)) != -1) {
+				bos.write(buffer, 0, len);
+			}
+			return bos.toByteArray();
+		}
+	}
+}
@@ -0,0 +1,132 @@
+package com._4point.aem.fluentforms.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com._4point.aem.fluentforms.api.Document;
+import com._4point.aem.fluentforms.api.PathOrUrl;
+
+class TemplateCacheTest {
+
+	@TempDir
+	Path tempDir;
+
+	private final AtomicInteger loadCount = new AtomicInteger();
+	private final TemplateCache.Loader countingLoader = new TemplateCache.Loader() {
+		@Override
+		public String version(PathOrUrl location) throws IOException {
+			return TemplateCache.DEFAULT_LOADER.version(location);
+		}
+
+		@Override
+		public byte[] load(PathOrUrl location) throws IOException {
+			loadCount.incrementAndGet();
+			return TemplateCache.DEFAULT_LOADER.load(location);
+		}
+	};
+
+	@Test
+	@DisplayName("A template is only loaded once while it is unchanged.")
+	void testGet_Hit() throws Exception {
+		Path template = writeTemplate("template.xdp", 100);
+		TemplateCache underTest = new TemplateCache(1000, countingLoader, SimpleDocumentFactoryImpl.getFactory());
+
+		Document first = underTest.get(PathOrUrl.from(template)).get();
+		Document second = underTest.get(TemplateValues.determineTemplateValues(template, null, UsageContext.SERVER_SIDE)).get();
+
+		assertEquals(1, loadCount.get());
+		assertNotSame(first, second, "Each request should get its own Document.");
+		assertArrayEquals(first.getInlineData(), second.getInlineData());
+		assertEquals(1, underTest.getHitCount());
+		assertEquals(1, underTest.getMissCount());
+		assertEquals(0.5, underTest.getHitRatio());
+	}
+
+	@Test
+	@DisplayName("A template is reloaded when it changes.")
+	void testGet_Changed() throws Exception {
+		Path template = writeTemplate("template.xdp", 100);
+		TemplateCache underTest = new TemplateCache(1000, countingLoader, SimpleDocumentFactoryImpl.getFactory());
+		underTest.get(PathOrUrl.from(template));
+
+		Files.write(template, new byte[150]);
+		Files.setLastModifiedTime(template, FileTime.fromMillis(Files.getLastModifiedTime(template).toMillis() + 10000));
+		Document result = underTest.get(PathOrUrl.from(template)).get();
+
+		assertEquals(2, loadCount.get());
+		assertEquals(150, result.getInlineData().length);
+		assertEquals(150, underTest.getTotalBytes());
+	}
+
+	@Test
+	@DisplayName("The least recently used templates are evicted once the size limit is exceeded.")
+	void testGet_Eviction() throws Exception {
+		PathOrUrl template1 = PathOrUrl.from(writeTemplate("template1.xdp", 400));
+		PathOrUrl template2 = PathOrUrl.from(writeTemplate("template2.xdp", 400));
+		PathOrUrl template3 = PathOrUrl.from(writeTemplate("template3.xdp", 400));
+		PathOrUrl tooBig = PathOrUrl.from(writeTemplate("tooBig.xdp", 1001));
+		TemplateCache underTest = new TemplateCache(1000, countingLoader, SimpleDocumentFactoryImpl.getFactory());
+
+		underTest.get(template1);
+		underTest.get(template2);
+		underTest.get(template1);		// template2 is now the least recently used.
+		underTest.get(template3);
+
+		assertEquals(2, underTest.size());
+		assertEquals(800, underTest.getTotalBytes());
+		assertEquals(1, underTest.getEvictionCount());
+
+		underTest.get(template1);
+		assertEquals(3, loadCount.get(), "Expected template1 to still be cached.");
+		underTest.get(template2);
+		assertEquals(4, loadCount.get(), "Expected template2 to have been evicted.");
+
+		assertTrue(underTest.get(tooBig).isPresent(), "Templates too big to cache are still returned.");
+		assertEquals(800, underTest.getTotalBytes());
+	}
+
+	@Test
+	@DisplayName("Templates that cannot be cached return an empty Optional.")
+	void testGet_NotCacheable() throws Exception {
+		TemplateCache underTest = new TemplateCache(1000, countingLoader, SimpleDocumentFactoryImpl.getFactory());
+
+		assertFalse(underTest.get(PathOrUrl.from(tempDir.resolve("nonExistent.xdp"))).isPresent());
+		assertFalse(underTest.get(TemplateValues.determineTemplateValues(tempDir.resolve("nonExistent.xdp"), null, UsageContext.CLIENT_SIDE)).isPresent());
+		Optional<Document> noContentRoot = underTest.get(TemplateValues.determineTemplateValues(Paths.get("template.xdp"), null, UsageContext.CLIENT_SIDE));
+		assertFalse(noContentRoot.isPresent());
+		assertEquals(0, loadCount.get());
+		assertEquals(0.0, underTest.getHitRatio());
+	}
+
+	@Test
+	@DisplayName("Identical templates at different locations share their contents through the interner.")
+	void testGet_Interned() throws Exception {
+		DocumentInterner interner = new DocumentInterner(1000);
+		PathOrUrl template1 = PathOrUrl.from(writeTemplate("template1.xdp", 100));
+		PathOrUrl template2 = PathOrUrl.from(writeTemplate("template2.xdp", 100));
+		TemplateCache underTest = new TemplateCache(1000, countingLoader, SimpleDocumentFactoryImpl.getFactory(), interner);
+
+		underTest.get(template1);
+		underTest.get(template2);
+
+		assertEquals(2, loadCount.get());
+		assertEquals(1, interner.getMissCount());
+		assertEquals(1, interner.getHitCount());
+		assertEquals(1, interner.getEntryCount());
+	}
+
+	private Path writeTemplate(String filename, int size) throws IOException {
+		return Files.write(tempDir.resolve(filename), new byte[size]);
+	}
+}
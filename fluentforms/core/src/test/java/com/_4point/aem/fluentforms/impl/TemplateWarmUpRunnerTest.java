@@ -0,0 +1,109 @@
+package com._4point.aem.fluentforms.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com._4point.aem.fluentforms.api.Document;
+import com._4point.aem.fluentforms.impl.TemplateWarmUpRunner.Report;
+import com._4point.aem.fluentforms.impl.TemplateWarmUpRunner.Result;
+import com._4point.aem.fluentforms.impl.forms.FormsServiceImpl;
+import com._4point.aem.fluentforms.impl.output.OutputServiceImpl;
+import com._4point.aem.fluentforms.testing.forms.ExceptionalMockTraditionalFormsService;
+import com._4point.aem.fluentforms.testing.output.MockTraditionalOutputService;
+
+class TemplateWarmUpRunnerTest {
+
+	@TempDir
+	Path contentRoot;
+
+	@Test
+	@DisplayName("Every template (but not fragments) is rendered and reported.")
+	void testRun() throws Exception {
+		writeXdp("templateA.xdp", "<subform usehref=\"fragments/header.xdp#Header\"/>");
+		writeXdp("sub/templateB.xdp", "<subform usehref=\"fragments/footer.xdp#Footer\"/>");	// Resolved against sub.
+		writeXdp("fragments/header.xdp", "");
+		writeXdp("sub/fragments/footer.xdp", "");
+		Files.write(contentRoot.resolve("notAnXdp.txt"), new byte[0]);
+		Document renderResult = SimpleDocumentFactoryImpl.getFactory().create(new byte[0]);
+		MockTraditionalOutputService outputService = MockTraditionalOutputService.createDocumentMock(renderResult);
+		TemplateWarmUpRunner underTest = new TemplateWarmUpRunner(new OutputServiceImpl(outputService, UsageContext.SERVER_SIDE), null, 2);
+		assertFalse(underTest.isComplete());
+
+		Report report = underTest.run(contentRoot);
+
+		List<Path> templates = report.getResults().stream().map(Result::getTemplate).collect(Collectors.toList());
+		assertEquals(2, templates.size(), ()->"Unexpected templates " + templates);
+		assertTrue(templates.contains(Paths.get("templateA.xdp")));
+		assertTrue(templates.contains(Paths.get("sub", "templateB.xdp")));
+		assertEquals(0, report.getFailureCount());
+		for (Result result : report.getResults()) {
+			assertTrue(result.getOutputLatency(TimeUnit.NANOSECONDS).isPresent());
+			assertFalse(result.getFormsLatency(TimeUnit.NANOSECONDS).isPresent());
+		}
+		assertTrue(underTest.isComplete());
+		assertSame(report, underTest.getReport().get());
+	}
+
+	@Test
+	@DisplayName("Failures are reported and do not stop the warm-up.")
+	void testRun_Failure() throws Exception {
+		writeXdp("templateA.xdp", "");
+		writeXdp("templateB.xdp", "");
+		TemplateWarmUpRunner underTest = new TemplateWarmUpRunner(null, new FormsServiceImpl(ExceptionalMockTraditionalFormsService.create("Render failed."), UsageContext.SERVER_SIDE), 1);
+
+		Report report = underTest.start(contentRoot).get();
+
+		assertEquals(2, report.getResults().size());
+		assertEquals(2, report.getFailureCount());
+		assertTrue(report.toString().contains("Render failed."), ()->"Expected the report to contain the failure. " + report);
+	}
+
+	@Test
+	@DisplayName("stop() interrupts the templates being rendered and cancels the warm-up.")
+	void testStop() throws Exception {
+		writeXdp("templateA.xdp", "");
+		writeXdp("templateB.xdp", "");
+		CountDownLatch rendering = new CountDownLatch(1);
+		CountDownLatch interrupted = new CountDownLatch(1);
+		Document renderResult = SimpleDocumentFactoryImpl.getFactory().create(new byte[0]);
+		TemplateWarmUpRunner underTest = new TemplateWarmUpRunner(new OutputServiceImpl(MockTraditionalOutputService.createDocumentMock(renderResult), UsageContext.SERVER_SIDE), null, 1, t->{
+			rendering.countDown();
+			try {
+				Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+			} catch (InterruptedException e) {
+				interrupted.countDown();
+			}
+			return null;
+		});
+		CompletableFuture<Report> warmUp = underTest.start(contentRoot);
+		assertTrue(rendering.await(5, TimeUnit.SECONDS));
+
+		underTest.stop();
+
+		assertTrue(interrupted.await(5, TimeUnit.SECONDS), "Expected the template being rendered to be interrupted.");
+		assertThrows(CancellationException.class, ()->warmUp.get(5, TimeUnit.SECONDS));
+		assertFalse(underTest.isComplete());
+	}
+
+	private void writeXdp(String filename, String templateContents) throws Exception {
+		String xdp = "<xdp:xdp xmlns:xdp=\"http://ns.adobe.com/xdp/\"><template xmlns=\"http://www.xfa.org/schema/xfa-template/3.6/\">"
+				+ templateContents + "</template></xdp:xdp>";
+		Path file = contentRoot.resolve(filename);
+		Files.createDirectories(file.getParent());
+		Files.write(file, xdp.getBytes(StandardCharsets.UTF_8));
+	}
+}
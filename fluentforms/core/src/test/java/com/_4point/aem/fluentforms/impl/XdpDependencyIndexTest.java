@@ -0,0 +1,151 @@
+package com._4point.aem.fluentforms.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com._4point.aem.fluentforms.api.TestUtils;
+
+class XdpDependencyIndexTest {
+
+	@TempDir
+	Path contentRoot;
+
+	private XdpDependencyIndex underTest;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		// templateA -> fragments/header.xdp -> fragments/logo.xdp -> images/logo.png
+		// templateB -> fragments/footer.xdp
+		// templateC -> fragments/header.xdp, fragments/footer.xdp
+		writeXdp("templateA.xdp", "<subform usehref=\"fragments/header.xdp#som($template.#subform[0])\"/>");
+		writeXdp("templateB.xdp", "<subform usehref=\"fragments/footer.xdp#Footer\"/>");
+		writeXdp("templateC.xdp", "<subform usehref=\"fragments/header.xdp#som($template.#subform[0])\"/><subform usehref=\"fragments/footer.xdp#Footer\"/>");
+		writeXdp("fragments/header.xdp", "<subform usehref=\"fragments/logo.xdp#Logo\"/><subform usehref=\"#Internal\"/>");
+		writeXdp("fragments/logo.xdp", "<draw><value><image href=\"images/logo.png\"/></value></draw><draw><value><image href=\"http://example.com/remote.png\"/></value></draw>");
+		writeXdp("fragments/footer.xdp", "<subform name=\"Footer\"/>");
+		underTest = new XdpDependencyIndex(contentRoot);
+	}
+
+	@Test
+	@DisplayName("The scanner finds fragment and image references, ignoring internal and absolute references.")
+	void testScan() throws Exception {
+		try (InputStream is = Files.newInputStream(contentRoot.resolve("fragments/logo.xdp"))) {
+			XdpReferenceScanner.References references = XdpReferenceScanner.scan(is);
+			assertTrue(references.getFragments().isEmpty());
+			assertEquals(new HashSet<>(Arrays.asList("images/logo.png")), references.getImages());
+		}
+		try (InputStream is = Files.newInputStream(TestUtils.SAMPLE_FORM)) {
+			XdpReferenceScanner.References references = XdpReferenceScanner.scan(is);
+			assertTrue(references.getFragments().isEmpty());
+			assertTrue(references.getImages().isEmpty());
+		}
+	}
+
+	@Test
+	@DisplayName("Dependencies include everything reachable through fragments.")
+	void testGetDependencies() throws Exception {
+		assertEquals(paths("fragments/header.xdp", "fragments/logo.xdp", "images/logo.png"), underTest.getDependencies(Paths.get("templateA.xdp")));
+		assertEquals(paths("fragments/footer.xdp"), underTest.getDependencies(contentRoot.resolve("templateB.xdp")));
+	}
+
+	@Test
+	@DisplayName("Invalidating a shared fragment affects exactly the templates that depend on it.")
+	void testInvalidate() throws Exception {
+		underTest.getDependencies(Paths.get("templateA.xdp"));
+		underTest.getDependencies(Paths.get("templateB.xdp"));
+		underTest.getDependencies(Paths.get("templateC.xdp"));
+		List<Set<Path>> notifications = new ArrayList<>();
+		underTest.addInvalidationListener(notifications::add);
+
+		Set<Path> affected = underTest.invalidate(Paths.get("images/logo.png"));
+
+		assertEquals(paths("images/logo.png", "fragments/logo.xdp", "fragments/header.xdp", "templateA.xdp", "templateC.xdp"), affected);
+		assertEquals(paths("templateB.xdp", "templateC.xdp"), underTest.getDependents(Paths.get("fragments/footer.xdp")));
+		assertEquals(1, notifications.size());
+		assertEquals(affected, notifications.get(0));
+	}
+
+	@Test
+	@DisplayName("References in a template in a subdirectory (and in its fragments) are resolved against that subdirectory.")
+	void testTemplateInSubdirectory() throws Exception {
+		// sub/templateD -> sub/fragments/header.xdp -> sub/fragments/logo.xdp
+		writeXdp("sub/templateD.xdp", "<subform usehref=\"fragments/header.xdp#som($template.#subform[0])\"/>");
+		writeXdp("sub/fragments/header.xdp", "<subform usehref=\"fragments/logo.xdp#Logo\"/>");
+		writeXdp("sub/fragments/logo.xdp", "<subform name=\"Logo\"/>");
+		underTest.getDependencies(Paths.get("templateA.xdp"));
+
+		assertEquals(paths("sub/fragments/header.xdp", "sub/fragments/logo.xdp"), underTest.getDependencies(Paths.get("sub", "templateD.xdp")));
+		assertEquals(paths("sub/fragments/header.xdp", "sub/templateD.xdp"), underTest.getDependents(Paths.get("sub", "fragments", "logo.xdp")));
+		assertEquals(paths("fragments/header.xdp", "templateA.xdp"), underTest.getDependents(Paths.get("fragments", "logo.xdp")));
+	}
+
+	@Test
+	@DisplayName("Changed XDPs are re-scanned.")
+	void testRescan() throws Exception {
+		underTest.getDependencies(Paths.get("templateB.xdp"));
+
+		Path footer = writeXdp("fragments/footer.xdp", "<subform usehref=\"fragments/logo.xdp#Logo\"/>");
+		Files.setLastModifiedTime(footer, FileTime.fromMillis(Files.getLastModifiedTime(footer).toMillis() + 10000));
+
+		assertEquals(paths("fragments/footer.xdp", "fragments/logo.xdp", "images/logo.png"), underTest.getDependencies(Paths.get("templateB.xdp")));
+		assertEquals(paths("fragments/footer.xdp", "templateB.xdp"), underTest.getDependents(Paths.get("fragments/logo.xdp")));
+	}
+
+	@Test
+	@DisplayName("When watching is enabled, changing a fragment invalidates the templates that depend on it.")
+	void testWatchForChanges() throws Exception {
+		try (XdpDependencyIndex watching = new XdpDependencyIndex(contentRoot, true)) {
+			watching.getDependencies(Paths.get("templateB.xdp"));
+			watching.getDependencies(Paths.get("templateC.xdp"));
+			BlockingQueue<Set<Path>> notifications = new LinkedBlockingQueue<>();
+			watching.addInvalidationListener(notifications::add);
+
+			writeXdp("fragments/footer.xdp", "<subform name=\"NewFooter\"/>");
+
+			Set<Path> affected;
+			do {
+				affected = notifications.poll(30, TimeUnit.SECONDS);
+				assertNotNull(affected, "Expected the change to be noticed.");
+			} while (!affected.contains(contentRoot.resolve("fragments/footer.xdp").toAbsolutePath().normalize()));
+			assertEquals(paths("fragments/footer.xdp", "templateB.xdp", "templateC.xdp"), affected);
+		}
+	}
+
+	private Path writeXdp(String filename, String templateContents) throws IOException {
+		String xdp = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+				+ "<xdp:xdp xmlns:xdp=\"http://ns.adobe.com/xdp/\">\n"
+				+ "<template xmlns=\"http://www.xfa.org/schema/xfa-template/3.6/\">" + templateContents + "</template>\n"
+				+ "</xdp:xdp>\n";
+		Path file = contentRoot.resolve(filename);
+		Files.createDirectories(file.getParent());
+		return Files.write(file, xdp.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private Set<Path> paths(String... filenames) {
+		Set<Path> paths = new HashSet<>();
+		for (String filename : filenames) {
+			paths.add(contentRoot.resolve(filename).toAbsolutePath().normalize());
+		}
+		return paths;
+	}
+}
@@ -2,10 +2,16 @@ package com._4point.aem.fluentforms.impl.output;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import com._4point.aem.fluentforms.api.Document;
 import com._4point.aem.fluentforms.api.PathOrUrl;
+import com._4point.aem.fluentforms.impl.SimpleDocumentFactoryImpl;
 import com._4point.aem.fluentforms.impl.output.AdobeOutputServiceAdapter.PrintConfigMapping;
 import com.adobe.fd.output.api.RenderType;
 
@@ -54,4 +60,67 @@ class AdobeOutputServiceAdapterTest {
 		assertNull(AdobeOutputServiceAdapter.toAdobePrintConfig(null));
 	}
 
+	@Test
+	void testToAdobePDFOutputOptions_Profile() throws Exception {
+		PDFOutputProfile profile = PDFOutputProfile.of("tagged", new PDFOutputOptionsImpl().setTaggedPDF(true).setLocale(Locale.CANADA));
+
+		com.adobe.fd.output.api.PDFOutputOptions converted = AdobeOutputServiceAdapter.toAdobePDFOutputOptions(profile.newOptions());
+		com.adobe.fd.output.api.PDFOutputOptions overridden = AdobeOutputServiceAdapter.toAdobePDFOutputOptions(profile.newOptions().setLocale(Locale.CANADA_FRENCH));
+
+		assertSame(profile.toAdobeOptions(), profile.toAdobeOptions(), "Expected the profile to be converted once.");
+		assertNotSame(converted, AdobeOutputServiceAdapter.toAdobePDFOutputOptions(profile.newOptions()), "Expected each render to get its own copy.");
+		assertEquals(Boolean.TRUE, converted.getTaggedPDF());
+		assertEquals("en-CA", converted.getLocale());
+		assertNotSame(converted, overridden);
+		assertEquals("fr-CA", overridden.getLocale());
+		assertEquals(Boolean.TRUE, overridden.getTaggedPDF());
+	}
+
+	@Test
+	void testToAdobePrintedOutputOptions_Profile() throws Exception {
+		PrintedOutputProfile profile = PrintedOutputProfile.of("zebra", new PrintedOutputOptionsImpl().setPrintConfig(PrintConfigImpl.ZPL300));
+
+		com.adobe.fd.output.api.PrintedOutputOptions converted = AdobeOutputServiceAdapter.toAdobePrintedOutputOptions(profile.newOptions());
+
+		assertSame(profile.toAdobeOptions(), profile.toAdobeOptions(), "Expected the profile to be converted once.");
+		assertNotSame(converted, AdobeOutputServiceAdapter.toAdobePrintedOutputOptions(profile.newOptions()), "Expected each render to get its own copy.");
+		assertEquals(com.adobe.fd.output.api.PrintConfig.ZPL300, converted.getPrintConfig());
+		assertNotSame(converted, AdobeOutputServiceAdapter.toAdobePrintedOutputOptions(profile.newOptions().setCopies(2)));
+	}
+
+	@Test
+	@DisplayName("Setting the content root (as OutputServiceImpl does for each render) doesn't stop a profile's converted options being used.")
+	void testToAdobeOutputOptions_ProfileContentRoot() throws Exception {
+		PDFOutputProfile pdfProfile = PDFOutputProfile.of("tagged", new PDFOutputOptionsImpl().setTaggedPDF(true).setContentRoot(PathOrUrl.from("/templates")));
+		PrintedOutputProfile printedProfile = PrintedOutputProfile.of("zebra", new PrintedOutputOptionsImpl().setPrintConfig(PrintConfigImpl.ZPL300));
+		PDFOutputProfile.Options pdfOptions = pdfProfile.newOptions().setContentRoot(PathOrUrl.from("/templates/sub"));
+		PrintedOutputProfile.Options printedOptions = printedProfile.newOptions().setContentRoot(PathOrUrl.from("/templates/sub"));
+
+		assertFalse(pdfOptions.hasOverrides());
+		assertFalse(printedOptions.hasOverrides());
+		com.adobe.fd.output.api.PDFOutputOptions pdfConverted = AdobeOutputServiceAdapter.toAdobePDFOutputOptions(pdfOptions);
+		com.adobe.fd.output.api.PrintedOutputOptions printedConverted = AdobeOutputServiceAdapter.toAdobePrintedOutputOptions(printedOptions);
+		assertEquals(PathOrUrl.from("/templates/sub").toString(), pdfConverted.getContentRoot());
+		assertEquals(Boolean.TRUE, pdfConverted.getTaggedPDF());
+		assertEquals(PathOrUrl.from("/templates/sub").toString(), printedConverted.getContentRoot());
+		assertEquals(com.adobe.fd.output.api.PrintConfig.ZPL300, printedConverted.getPrintConfig());
+		assertEquals(PathOrUrl.from("/templates").toString(), AdobeOutputServiceAdapter.toAdobePDFOutputOptions(pdfProfile.newOptions()).getContentRoot());
+		assertNull(pdfProfile.toAdobeOptions().getContentRoot(), "Expected the shared converted options not to have a content root.");
+		assertNull(printedProfile.toAdobeOptions().getContentRoot(), "Expected the shared converted options not to have a content root.");
+	}
+
+	@Test
+	@DisplayName("A profile's XCI (which is interned as a SimpleDocument) is passed to Adobe.")
+	void testToAdobeOutputOptions_ProfileXci() throws Exception {
+		Document xci = SimpleDocumentFactoryImpl.getFactory().create("<xci/>".getBytes(StandardCharsets.UTF_8));
+		PDFOutputProfile pdfProfile = PDFOutputProfile.of("xci", new PDFOutputOptionsImpl().setXci(xci));
+		PrintedOutputProfile printedProfile = PrintedOutputProfile.of("xci", new PrintedOutputOptionsImpl().setXci(xci));
+
+		assertNotNull(AdobeOutputServiceAdapter.toAdobePDFOutputOptions(pdfProfile.newOptions()).getXci());
+		assertNotNull(AdobeOutputServiceAdapter.toAdobePDFOutputOptions(pdfProfile.newOptions().setLocale(Locale.CANADA_FRENCH)).getXci());
+		assertNotNull(AdobeOutputServiceAdapter.toAdobePrintedOutputOptions(printedProfile.newOptions()).getXci());
+		assertNotNull(AdobeOutputServiceAdapter.toAdobePrintedOutputOptions(printedProfile.newOptions().setCopies(2)).getXci());
+		assertNotNull(AdobeOutputServiceAdapter.toAdobePDFOutputOptions(new PDFOutputOptionsImpl().setXci(xci)).getXci());
+	}
+
 }
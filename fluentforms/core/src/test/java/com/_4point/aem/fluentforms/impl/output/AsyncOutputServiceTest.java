@@ -0,0 +1,118 @@
+package com._4point.aem.fluentforms.impl.output;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com._4point.aem.fluentforms.api.Document;
+import com._4point.aem.fluentforms.api.PathOrUrl;
+import com._4point.aem.fluentforms.api.output.OutputService.OutputServiceException;
+import com._4point.aem.fluentforms.impl.SimpleDocumentFactoryImpl;
+import com._4point.aem.fluentforms.impl.UsageContext;
+import com._4point.aem.fluentforms.testing.output.ExceptionalMockTraditionalOutputService;
+import com._4point.aem.fluentforms.testing.output.MockTraditionalOutputService;
+
+class AsyncOutputServiceTest {
+
+	private static final PathOrUrl TEMPLATE = PathOrUrl.from("http://example.com/templates/form.xdp");
+
+	@Test
+	@DisplayName("PDFs are generated on the service's executor.")
+	void testGeneratePDFOutput() throws Exception {
+		Document expected = SimpleDocumentFactoryImpl.getFactory().create(new byte[0]);
+		AtomicReference<String> threadName = new AtomicReference<>();
+		AsyncOutputService underTest = new AsyncOutputService(MockTraditionalOutputService.createDocumentMock(expected), UsageContext.SERVER_SIDE,
+				r->new Thread(()->{ threadName.set(Thread.currentThread().getName()); r.run(); }, "test executor").start());
+
+		Document result = underTest.generatePDFOutput(TEMPLATE, null, new PDFOutputOptionsImpl()).get(5, TimeUnit.SECONDS);
+
+		assertSame(expected, result);
+		assertEquals("test executor", threadName.get());
+	}
+
+	@Test
+	@DisplayName("Builders run on the service's executor and report exceptions through the future.")
+	void testExecuteOnAsync() throws Exception {
+		AsyncOutputService underTest = new AsyncOutputService(ExceptionalMockTraditionalOutputService.create("Render failed."), UsageContext.SERVER_SIDE, 1, 1, AsyncOutputService.RejectionPolicy.ABORT);
+
+		CompletableFuture<Document> result = underTest.generatePDFOutput().setEmbedFonts(true).executeOnAsync(TEMPLATE, null);
+
+		ExecutionException ex = assertThrows(ExecutionException.class, ()->result.get(5, TimeUnit.SECONDS));
+		assertTrue(ex.getCause() instanceof OutputServiceException);
+		assertEquals("Render failed.", ex.getCause().getMessage());
+	}
+
+	@Test
+	@DisplayName("Closing the service shuts down its own executor but not one that was passed in.")
+	void testClose() throws Exception {
+		AsyncOutputService owning = new AsyncOutputService(ExceptionalMockTraditionalOutputService.create("Render failed."), UsageContext.SERVER_SIDE, 1, 1, AsyncOutputService.RejectionPolicy.ABORT);
+		owning.close();
+
+		assertTrue(((ThreadPoolExecutor) owning.getExecutor()).isShutdown());
+		ExecutionException ex = assertThrows(ExecutionException.class, ()->owning.generatePDFOutput(TEMPLATE, null, new PDFOutputOptionsImpl()).get(5, TimeUnit.SECONDS));
+		assertTrue(ex.getCause() instanceof RejectedExecutionException);
+
+		ThreadPoolExecutor executor = AsyncOutputService.newBoundedExecutor(1, 1, AsyncOutputService.RejectionPolicy.ABORT);
+		try {
+			new AsyncOutputService(ExceptionalMockTraditionalOutputService.create("Render failed."), UsageContext.SERVER_SIDE, executor).close();
+			assertFalse(executor.isShutdown());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	@DisplayName("Requests beyond the queue limit are rejected through the future.")
+	void testSubmit_Rejected() throws Exception {
+		ThreadPoolExecutor executor = AsyncOutputService.newBoundedExecutor(1, 1, AsyncOutputService.RejectionPolicy.ABORT);
+		CountDownLatch release = new CountDownLatch(1);
+		try {
+			CompletableFuture<Boolean> running = AsyncOutputService.submit(executor, ()->release.await(5, TimeUnit.SECONDS));
+			CompletableFuture<Boolean> queued = AsyncOutputService.submit(executor, ()->true);
+			CompletableFuture<Boolean> rejected = AsyncOutputService.submit(executor, ()->true);
+
+			ExecutionException ex = assertThrows(ExecutionException.class, ()->rejected.get(5, TimeUnit.SECONDS));
+			assertTrue(ex.getCause() instanceof RejectedExecutionException);
+
+			release.countDown();
+			assertTrue(running.get(5, TimeUnit.SECONDS));
+			assertTrue(queued.get(5, TimeUnit.SECONDS));
+		} finally {
+			release.countDown();
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	@DisplayName("With CALLER_RUNS, requests beyond the queue limit run on the caller's thread.")
+	void testSubmit_CallerRuns() throws Exception {
+		ThreadPoolExecutor executor = AsyncOutputService.newBoundedExecutor(1, 1, AsyncOutputService.RejectionPolicy.CALLER_RUNS);
+		CountDownLatch release = new CountDownLatch(1);
+		try {
+			AsyncOutputService.submit(executor, ()->release.await(5, TimeUnit.SECONDS));
+			AsyncOutputService.submit(executor, ()->true);
+			CompletableFuture<Thread> overflow = AsyncOutputService.submit(executor, Thread::currentThread);
+
+			assertTrue(overflow.isDone());
+			assertSame(Thread.currentThread(), overflow.get());
+		} finally {
+			release.countDown();
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void testNewBoundedExecutor_BadArguments() throws Exception {
+		assertThrows(IllegalArgumentException.class, ()->AsyncOutputService.newBoundedExecutor(0, 1, AsyncOutputService.RejectionPolicy.ABORT));
+		assertThrows(IllegalArgumentException.class, ()->AsyncOutputService.newBoundedExecutor(1, 0, AsyncOutputService.RejectionPolicy.ABORT));
+	}
+}
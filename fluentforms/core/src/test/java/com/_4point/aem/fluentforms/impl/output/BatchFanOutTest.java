@@ -0,0 +1,319 @@
+package com._4point.aem.fluentforms.impl.output;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com._4point.aem.fluentforms.api.Document;
+import com._4point.aem.fluentforms.api.output.BatchResult;
+import com._4point.aem.fluentforms.api.output.BatchSink;
+import com._4point.aem.fluentforms.api.output.OutputService.OutputServiceException;
+import com._4point.aem.fluentforms.impl.SimpleDocumentFactoryImpl;
+
+class BatchFanOutTest {
+
+	@Test
+	@DisplayName("Each record is rendered with its own template, and failures do not stop the batch.")
+	void testGenerate() throws Exception {
+		Map<String, String> templates = new LinkedHashMap<>();
+		templates.put("a", "templateA");
+		templates.put("b", "templateB");
+		Map<String, Document> data = new LinkedHashMap<>();
+		data.put("a", doc("dataA"));
+		data.put("b", doc("dataB"));
+		data.put("c", doc("dataC"));
+
+		BatchResult result = new BatchFanOut(2).generate(templates, data, (template, record)->{
+			if (template.equals("templateB")) {
+				throw new IllegalStateException("B failed");
+			}
+			return doc(template + "+" + new String(record.getInlineData(), StandardCharsets.UTF_8));
+		});
+
+		assertEquals(1, result.getGeneratedDocs().size());
+		assertEquals("templateA+dataA", new String(result.getGeneratedDocs().get(0).getInlineData(), StandardCharsets.UTF_8));
+		assertEquals(Arrays.asList("b", "c"), new ArrayList<>(result.getFailures().keySet()));
+		assertTrue(result.getFailures().get("b").getCause() instanceof IllegalStateException);
+		assertTrue(result.getFailures().get("c").getMessage().contains("No template"), ()->result.getFailures().get("c").getMessage());
+	}
+
+	@Test
+	@DisplayName("A single template is used for every record, and results are in record order.")
+	void testGenerate_SingleTemplate() throws Exception {
+		Map<String, Document> data = new LinkedHashMap<>();
+		for (int i = 0; i < 20; i++) {
+			data.put("record" + i, doc(Integer.toString(i)));
+		}
+
+		BatchResult result = new BatchFanOut(4).generate(Collections.singletonMap("only", "template"), data, (template, record)->{
+			Thread.sleep(20 - Integer.parseInt(new String(record.getInlineData(), StandardCharsets.UTF_8)));	// Finish out of order.
+			return record;
+		});
+
+		List<Document> expected = new ArrayList<>(data.values());
+		assertEquals(expected, result.getGeneratedDocs());
+		assertTrue(result.getFailures().isEmpty());
+	}
+
+	@Test
+	@DisplayName("Each template is rendered once when there is no data.")
+	void testGenerate_NoData() throws Exception {
+		Map<String, String> templates = new LinkedHashMap<>();
+		templates.put("a", "templateA");
+		templates.put("b", "templateB");
+
+		BatchResult result = new BatchFanOut(2).generate(templates, null, (template, record)->{
+			assertNull(record);
+			return doc(template);
+		});
+
+		assertEquals(2, result.getGeneratedDocs().size());
+		assertEquals("templateB", new String(result.getGeneratedDocs().get(1).getInlineData(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	@DisplayName("No more than the configured number of records are rendered at once.")
+	void testGenerate_Bounded() throws Exception {
+		Map<String, Document> data = new LinkedHashMap<>();
+		for (int i = 0; i < 12; i++) {
+			data.put("record" + i, doc(Integer.toString(i)));
+		}
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+		CountDownLatch started = new CountDownLatch(3);
+
+		new BatchFanOut(3).generate(Collections.singletonMap("only", "template"), data, (template, record)->{
+			maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+			started.countDown();
+			started.await(5, TimeUnit.SECONDS);
+			Thread.sleep(5);
+			running.decrementAndGet();
+			return record;
+		});
+
+		assertEquals(3, maxRunning.get());
+	}
+
+	@Test
+	@DisplayName("No more than maxPending records of a batch are queued on the executor.")
+	void testGenerate_BoundedQueue() throws Exception {
+		Map<String, Document> data = new LinkedHashMap<>();
+		for (int i = 0; i < 20; i++) {
+			data.put("record" + i, doc(Integer.toString(i)));
+		}
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+		AtomicInteger maxQueued = new AtomicInteger();
+
+		BatchResult result = new BatchFanOut(executor, 2).generate(Collections.singletonMap("only", "template"), data, (template, record)->{
+			maxQueued.accumulateAndGet(executor.getQueue().size(), Math::max);
+			return record;
+		});
+
+		executor.shutdown();
+		assertEquals(new ArrayList<>(data.values()), result.getGeneratedDocs());
+		assertTrue(maxQueued.get() <= 1, ()->"Expected no more than 1 record to be queued behind the one rendering, but there were " + maxQueued.get());
+	}
+
+	@Test
+	@DisplayName("If interrupted, the outstanding records are cancelled and every rendered document is disposed.")
+	void testGenerate_Interrupted() throws Exception {
+		Map<String, Document> data = new LinkedHashMap<>();
+		for (int i = 0; i < 20; i++) {
+			data.put("record" + i, doc(Integer.toString(i)));
+		}
+		Thread caller = Thread.currentThread();
+		AtomicInteger rendered = new AtomicInteger();
+		AtomicInteger disposed = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+
+		try {
+			assertThrows(OutputServiceException.class, ()->new BatchFanOut(executor, 4).generate(Collections.singletonMap("only", "template"), data, (template, record)->{
+				int index = Integer.parseInt(new String(record.getInlineData(), StandardCharsets.UTF_8));
+				if (index >= 3) {
+					if (index == 3) {
+						caller.interrupt();
+					}
+					Thread.sleep(TimeUnit.MINUTES.toMillis(1));		// Until cancelled.
+				}
+				rendered.incrementAndGet();
+				return disposeCounting(record, disposed);
+			}));
+		} finally {
+			Thread.interrupted();		// Clear the interrupt, in case generate() didn't see it.
+		}
+
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+		assertEquals(3, rendered.get());
+		assertEquals(3, disposed.get());
+	}
+
+	@Test
+	void testGenerate_BadArguments() throws Exception {
+		BatchFanOut underTest = new BatchFanOut(1);
+		assertThrows(IllegalArgumentException.class, ()->underTest.generate(Collections.<String, String>emptyMap(), null, (t, d)->d));
+		assertThrows(NullPointerException.class, ()->underTest.generate(null, null, (t, d)->d));
+		assertThrows(IllegalArgumentException.class, ()->new BatchFanOut(0));
+	}
+
+	@Test
+	void testFailureIsOutputServiceException() throws Exception {
+		OutputServiceException expected = new OutputServiceException("Expected");
+
+		BatchResult result = new BatchFanOut(1).generate(Collections.singletonMap("a", "template"), null, (t, d)->{ throw expected; });
+
+		assertSame(expected, result.getFailures().get("a"));
+	}
+
+	@Test
+	@DisplayName("Streamed results are passed to the sink as they complete, followed by the metadata.")
+	void testStream() throws Exception {
+		Map<String, String> templates = new LinkedHashMap<>();
+		templates.put("a", "templateA");
+		templates.put("b", "templateB");
+		templates.put("c & d", "templateC");
+		RecordingSink sink = new RecordingSink();
+
+		BatchResult result = new BatchFanOut(2).stream(templates, null, (template, record)->{
+			if (template.equals("templateB")) {
+				throw new OutputServiceException("B failed");
+			}
+			return doc(template);
+		}, sink);
+
+		assertEquals(new HashSet<>(Arrays.asList("a", "c & d")), sink.accepted.keySet());
+		assertEquals(Arrays.asList("b"), sink.failed);
+		assertTrue(result.getGeneratedDocs().isEmpty());
+		assertEquals(Arrays.asList("b"), new ArrayList<>(result.getFailures().keySet()));
+		assertSame(result.getMetaDataDoc(), sink.metaData);
+		String metaData = new String(sink.metaData.getInlineData(), StandardCharsets.UTF_8);
+		assertTrue(metaData.contains("name=\"c &amp; d\""), metaData);
+		assertTrue(metaData.contains("status=\"failed\" message=\"B failed\""), metaData);
+		assertEquals(3, metaData.split("<record ").length - 1, metaData);
+	}
+
+	@Test
+	@DisplayName("A slow sink limits how many records are rendered ahead of it.")
+	void testStream_Backpressure() throws Exception {
+		Map<String, Document> data = new LinkedHashMap<>();
+		for (int i = 0; i < 20; i++) {
+			data.put("record" + i, doc(Integer.toString(i)));
+		}
+		AtomicInteger rendered = new AtomicInteger();
+		AtomicInteger maxAhead = new AtomicInteger();
+		AtomicInteger delivered = new AtomicInteger();
+
+		new BatchFanOut(Executors.newFixedThreadPool(2), 3).stream(Collections.singletonMap("only", "template"), data, (template, record)->{
+			maxAhead.accumulateAndGet(rendered.incrementAndGet() - delivered.get(), Math::max);
+			return record;
+		}, (name, doc)->{
+			LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(2));	// A slow sink.
+			delivered.incrementAndGet();
+		});
+
+		assertEquals(20, delivered.get());
+		assertTrue(maxAhead.get() <= 3, ()->"Expected no more than 3 records to be waiting for the sink, but there were " + maxAhead.get());
+	}
+
+	@Test
+	@DisplayName("A sink failure stops the batch.")
+	void testStream_SinkFails() throws Exception {
+		Map<String, Document> data = new LinkedHashMap<>();
+		for (int i = 0; i < 20; i++) {
+			data.put("record" + i, doc(Integer.toString(i)));
+		}
+		AtomicInteger rendered = new AtomicInteger();
+
+		OutputServiceException ex = assertThrows(OutputServiceException.class, ()->new BatchFanOut(Executors.newFixedThreadPool(1), 2).stream(Collections.singletonMap("only", "template"), data, (template, record)->{
+			rendered.incrementAndGet();
+			return record;
+		}, (name, doc)->{ throw new IOException("Disk full"); }));
+
+		assertEquals("Disk full", ex.getCause().getMessage());
+		assertTrue(rendered.get() < 20, "Expected the remaining records not to be rendered.");
+	}
+
+	@Test
+	@DisplayName("If the sink throws, the outstanding records are cancelled and any rendered documents not passed to the sink are disposed.")
+	void testStream_SinkThrows() throws Exception {
+		Map<String, Document> data = new LinkedHashMap<>();
+		for (int i = 0; i < 20; i++) {
+			data.put("record" + i, doc(Integer.toString(i)));
+		}
+		AtomicInteger rendered = new AtomicInteger();
+		AtomicInteger disposed = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+
+		IllegalStateException ex = assertThrows(IllegalStateException.class, ()->new BatchFanOut(executor, 4).stream(Collections.singletonMap("only", "template"), data, (template, record)->{
+			rendered.incrementAndGet();
+			return disposeCounting(record, disposed);
+		}, (name, doc)->{ throw new IllegalStateException("Sink closed"); }));
+
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+		assertEquals("Sink closed", ex.getMessage());
+		assertTrue(rendered.get() < 20, "Expected the remaining records not to be rendered.");
+		// Everything rendered is disposed, except the one document passed to the sink.
+		assertEquals(rendered.get() - 1, disposed.get());
+	}
+
+	private static class RecordingSink implements BatchSink {
+		private final Map<String, Document> accepted = new LinkedHashMap<>();
+		private final List<String> failed = new ArrayList<>();
+		private Document metaData;
+
+		@Override
+		public void accept(String name, Document doc) {
+			accepted.put(name, doc);
+		}
+
+		@Override
+		public void failed(String name, OutputServiceException e) {
+			failed.add(name);
+		}
+
+		@Override
+		public void complete(Document metaDataDoc) {
+			this.metaData = metaDataDoc;
+		}
+	}
+
+	// Wraps a document so that calls to dispose() are counted.
+	private static Document disposeCounting(Document doc, AtomicInteger disposed) {
+		return (Document) Proxy.newProxyInstance(Document.class.getClassLoader(), new Class<?>[] { Document.class }, (proxy, method, args)->{
+			if (method.getName().equals("dispose")) {
+				disposed.incrementAndGet();
+			}
+			try {
+				return method.invoke(doc, args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+		});
+	}
+
+	private static Document doc(String contents) {
+		return SimpleDocumentFactoryImpl.getFactory().create(contents.getBytes(StandardCharsets.UTF_8));
+	}
+}
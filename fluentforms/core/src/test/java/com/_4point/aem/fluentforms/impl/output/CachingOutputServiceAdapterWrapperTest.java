@@ -0,0 +1,88 @@
+package com._4point.aem.fluentforms.impl.output;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com._4point.aem.fluentforms.api.Document;
+import com._4point.aem.fluentforms.api.PathOrUrl;
+import com._4point.aem.fluentforms.api.output.PDFOutputOptions;
+import com._4point.aem.fluentforms.impl.RenderResultCache;
+import com._4point.aem.fluentforms.impl.SimpleDocumentFactoryImpl;
+import com._4point.aem.fluentforms.testing.output.MockTraditionalOutputService;
+
+class CachingOutputServiceAdapterWrapperTest {
+
+	@TempDir
+	Path contentRoot;
+
+	@Test
+	@DisplayName("Identical requests are answered from the cache until the template changes.")
+	void testGeneratePDFOutput() throws Exception {
+		Files.write(contentRoot.resolve("form.xdp"), "template".getBytes(StandardCharsets.UTF_8));
+		PDFOutputOptions options = new PDFOutputOptionsImpl().setContentRoot(PathOrUrl.from(contentRoot));
+		MockTraditionalOutputService mock = MockTraditionalOutputService.createDocumentMock(doc("first"));
+		CachingOutputServiceAdapterWrapper underTest = new CachingOutputServiceAdapterWrapper(mock, new RenderResultCache(RenderResultCache.DEFAULT_MAX_BYTES, SimpleDocumentFactoryImpl.getFactory()));
+
+		assertEquals("first", contents(underTest.generatePDFOutput("form.xdp", doc("data"), options)));
+		mock.setResult(doc("second"));
+		assertEquals("first", contents(underTest.generatePDFOutput("form.xdp", doc("data"), options)));
+		assertEquals("second", contents(underTest.generatePDFOutput("form.xdp", doc("other data"), options)));
+		assertEquals("second", contents(underTest.generatePDFOutput(doc("form.xdp"), doc("data"), options)));
+
+		Files.write(contentRoot.resolve("form.xdp"), "changed template".getBytes(StandardCharsets.UTF_8));
+		assertEquals("second", contents(underTest.generatePDFOutput("form.xdp", doc("data"), options)));
+
+		assertEquals(1, underTest.getCache().getHitCount());
+		assertEquals(4, underTest.getCache().getMissCount());
+	}
+
+	@Test
+	@DisplayName("Results of templates that can't be versioned are not cached.")
+	void testGeneratePDFOutput_Unversioned() throws Exception {
+		MockTraditionalOutputService mock = MockTraditionalOutputService.createDocumentMock(doc("first"));
+		CachingOutputServiceAdapterWrapper underTest = new CachingOutputServiceAdapterWrapper(mock, new RenderResultCache(RenderResultCache.DEFAULT_MAX_BYTES, SimpleDocumentFactoryImpl.getFactory()));
+
+		assertEquals("first", contents(underTest.generatePDFOutput("crx:/content/dam/formsanddocuments/form.xdp", doc("data"), new PDFOutputOptionsImpl())));
+		mock.setResult(doc("second"));
+		assertEquals("second", contents(underTest.generatePDFOutput("crx:/content/dam/formsanddocuments/form.xdp", doc("data"), new PDFOutputOptionsImpl())));
+		assertEquals(0, underTest.getCache().size());
+	}
+
+	@Test
+	@DisplayName("Every PDFOutputOptions setting is part of the key.")
+	void testAddOptions() throws Exception {
+		String base = key(new PDFOutputOptionsImpl());
+
+		assertNotEquals(base, key(new PDFOutputOptionsImpl().setContentRoot(PathOrUrl.from(Paths.get("root")))));
+		assertNotEquals(base, key(new PDFOutputOptionsImpl().setDebugDir(Paths.get("debug"))));
+		assertNotEquals(base, key(new PDFOutputOptionsImpl().setEmbedFonts(true)));
+		assertNotEquals(base, key(new PDFOutputOptionsImpl().setLinearizedPDF(true)));
+		assertNotEquals(base, key(new PDFOutputOptionsImpl().setLocale(Locale.CANADA_FRENCH)));
+		assertNotEquals(base, key(new PDFOutputOptionsImpl().setRetainPDFFormState(true)));
+		assertNotEquals(base, key(new PDFOutputOptionsImpl().setRetainUnsignedSignatureFields(true)));
+		assertNotEquals(base, key(new PDFOutputOptionsImpl().setTaggedPDF(true)));
+		assertNotEquals(base, key(new PDFOutputOptionsImpl().setXci(doc("xci"))));
+		assertEquals(base, key(new PDFOutputOptionsImpl()));
+	}
+
+	private static String key(PDFOutputOptions options) throws Exception {
+		return CachingOutputServiceAdapterWrapper.addOptions(RenderResultCache.key("test"), null, options).build().toHexString();
+	}
+
+	private static Document doc(String contents) {
+		return SimpleDocumentFactoryImpl.getFactory().create(contents.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String contents(Document doc) throws Exception {
+		return new String(doc.getInlineData(), StandardCharsets.UTF_8);
+	}
+}
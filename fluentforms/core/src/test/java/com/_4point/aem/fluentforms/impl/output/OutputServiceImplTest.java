@@ -4,9 +4,14 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.FileNotFoundException;
 import java.net.URL;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.Locale;
+import java.util.Map;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
@@ -21,10 +26,15 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import com._4point.aem.fluentforms.api.Document;
 import com._4point.aem.fluentforms.api.PathOrUrl;
 import com._4point.aem.fluentforms.api.TestUtils;
+import com._4point.aem.fluentforms.api.output.BatchResult;
 import com._4point.aem.fluentforms.api.output.OutputService;
 import com._4point.aem.fluentforms.api.output.OutputService.OutputServiceException;
 import com._4point.aem.fluentforms.api.output.PDFOutputOptions;
 import com._4point.aem.fluentforms.api.output.PrintedOutputOptions;
+import com._4point.aem.fluentforms.impl.AdobeDocumentFactoryImpl;
+import com._4point.aem.fluentforms.impl.SimpleDocumentFactoryImpl;
+import com._4point.aem.fluentforms.impl.TemplateCache;
+import com._4point.aem.fluentforms.impl.TemplateValuesResolver;
 import com._4point.aem.fluentforms.impl.UsageContext;
 import com.adobe.fd.output.api.AcrobatVersion;
 
@@ -109,6 +119,50 @@ class OutputServiceImplTest {
 		assertTrue(result == svc.getResult(), "Expected the Document returned by AEM would match the Document result.");
 	}
 
+	@Test
+	@DisplayName("Test GeneratePDFOutput(Path,...) with a TemplateCache passes the template contents to AEM.")
+	void testGeneratePDFOutputPath_TemplateCache() throws Exception {
+		MockPdfOutputService svc = new MockPdfOutputService();
+		TemplateCache templateCache = new TemplateCache(TemplateCache.DEFAULT_MAX_BYTES, TemplateCache.DEFAULT_LOADER, SimpleDocumentFactoryImpl.getFactory());
+		OutputService underTest = new OutputServiceImpl(adobeOutputService, UsageContext.SERVER_SIDE, TemplateValuesResolver.DIRECT, templateCache);
+		
+		Path filename = TestUtils.SAMPLE_FORM;
+		Document data = Mockito.mock(Document.class);
+		PDFOutputOptions options = Mockito.mock(PDFOutputOptions.class);
+		Document result = underTest.generatePDFOutput(filename, data, options);
+		underTest.generatePDFOutput(filename, data, options);
+		
+		// Verify that all the results are correct.
+		assertArrayEquals(Files.readAllBytes(filename), svc.getTemplateDocArg().getInlineData(), "Expected the template contents passed to AEM would match the template used.");
+		assertTrue(svc.getDataArg() == data, "Expected the data Document passed to AEM would match the data Docyment used.");
+		assertTrue(result == svc.getResult(), "Expected the Document returned by AEM would match the Document result.");
+		assertEquals(1, templateCache.getHitCount(), "Expected the second call to be served from the cache.");
+	}
+
+	@Test
+	@DisplayName("Test GeneratePDFOutput(Path,...) with a TemplateCache passes the cached template through the AdobeOutputServiceAdapter to AEM.")
+	void testGeneratePDFOutputPath_TemplateCache_AdobeAdapter() throws Exception {
+		com.adobe.fd.output.api.OutputService aemOutputService = Mockito.mock(com.adobe.fd.output.api.OutputService.class);
+		Mockito.when(aemOutputService.generatePDFOutput(Mockito.any(com.adobe.aemfd.docmanager.Document.class), Mockito.any(), Mockito.any())).thenReturn(Mockito.mock(com.adobe.aemfd.docmanager.Document.class));
+		TemplateCache templateCache = new TemplateCache(TemplateCache.DEFAULT_MAX_BYTES, TemplateCache.DEFAULT_LOADER, AdobeDocumentFactoryImpl.getFactory());
+		OutputService underTest = new OutputServiceImpl(new AdobeOutputServiceAdapter(aemOutputService, AdobeDocumentFactoryImpl.getFactory()), UsageContext.SERVER_SIDE, TemplateValuesResolver.DIRECT, templateCache);
+
+		underTest.generatePDFOutput(TestUtils.SAMPLE_FORM, null, new PDFOutputOptionsImpl());
+		underTest.generatePDFOutput(TestUtils.SAMPLE_FORM, null, new PDFOutputOptionsImpl());
+
+		ArgumentCaptor<com.adobe.aemfd.docmanager.Document> templateArg = ArgumentCaptor.forClass(com.adobe.aemfd.docmanager.Document.class);
+		Mockito.verify(aemOutputService, Mockito.times(2)).generatePDFOutput(templateArg.capture(), Mockito.any(), Mockito.any());
+		templateArg.getAllValues().forEach(t->assertNotNull(t, "Expected the cached template to be passed to AEM as an Adobe Document."));
+		assertEquals(1, templateCache.getHitCount(), "Expected the second call to be served from the cache.");
+	}
+
+	@Test
+	@DisplayName("Test that a TemplateCache cannot be used client side.")
+	void testTemplateCache_ClientSide() throws Exception {
+		TemplateCache templateCache = new TemplateCache();
+		assertThrows(IllegalArgumentException.class, ()->new OutputServiceImpl(adobeOutputService, UsageContext.CLIENT_SIDE, TemplateValuesResolver.DIRECT, templateCache));
+	}
+
 	@Test
 	@DisplayName("Test GeneratePDFOutput(Path,...) null arguments.")
 	void testGeneratePDFOutputPath_nullArguments() throws Exception {
@@ -401,9 +455,41 @@ class OutputServiceImplTest {
 		PDFOutputOptionsImplTest.assertNotEmpty(svc.getOptionsArg());
 	}
 
-	@Disabled
-	void testGeneratePDFOutputBatch() {
-		fail("Not yet implemented");
+	@Test
+	@DisplayName("Test GeneratePDFOutputBatch() renders each record separately when generating many files.")
+	void testGeneratePDFOutputBatch_ManyFiles() throws Exception {
+		Document result1 = Mockito.mock(Document.class);
+		Mockito.when(adobeOutputService.generatePDFOutput(Mockito.eq("http://example.com/form1.xdp"), Mockito.any(), Mockito.any())).thenReturn(result1);
+		Mockito.when(adobeOutputService.generatePDFOutput(Mockito.eq("http://example.com/form2.xdp"), Mockito.any(), Mockito.any())).thenThrow(new OutputServiceException("form2 failed"));
+		Map<String, PathOrUrl> templates = new LinkedHashMap<>();
+		templates.put("form1", PathOrUrl.from("http://example.com/form1.xdp"));
+		templates.put("form2", PathOrUrl.from("http://example.com/form2.xdp"));
+		Map<String, Document> data = new LinkedHashMap<>();
+		data.put("form1", Mockito.mock(Document.class));
+		data.put("form2", Mockito.mock(Document.class));
+		data.put("form3", Mockito.mock(Document.class));
+
+		BatchResult result = underTest.generatePDFOutputBatch(templates, data, new PDFOutputOptionsImpl(), BatchOptionsImpl.create(true));
+
+		assertEquals(Arrays.asList(result1), result.getGeneratedDocs());
+		assertEquals(Arrays.asList("form2", "form3"), new ArrayList<>(result.getFailures().keySet()), "Expected the failures not to stop the rest of the batch.");
+		assertEquals("form2 failed", result.getFailures().get("form2").getMessage());
+	}
+
+	@Test
+	@DisplayName("Test GeneratePDFOutputBatch() passes the batch to AEM when generating a single file.")
+	void testGeneratePDFOutputBatch_SingleFile() throws Exception {
+		BatchResult expectedResult = BatchResultImpl.create(Arrays.asList(Mockito.mock(Document.class)), null);
+		@SuppressWarnings("unchecked")
+		ArgumentCaptor<Map<String, String>> templatesCaptor = ArgumentCaptor.forClass(Map.class);
+		Mockito.when(adobeOutputService.generatePDFOutputBatch(templatesCaptor.capture(), Mockito.any(), Mockito.any(), Mockito.any())).thenReturn(expectedResult);
+		Map<String, PathOrUrl> templates = new LinkedHashMap<>();
+		templates.put("form1", PathOrUrl.from("crx:/content/dam/formsanddocuments/form1.xdp"));
+
+		BatchResult result = underTest.generatePDFOutputBatch(templates, null, new PDFOutputOptionsImpl(), BatchOptionsImpl.create(false));
+
+		assertSame(expectedResult, result);
+		assertEquals("crx:/content/dam/formsanddocuments/form1.xdp", templatesCaptor.getValue().get("form1"));
 	}
 
 	@Disabled
@@ -2,6 +2,7 @@ package com._4point.aem.fluentforms.impl.output;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.IOException;
 import java.nio.file.Paths;
 import java.util.Locale;
 
@@ -19,12 +20,12 @@ class PDFOutputOptionsImplTest {
 
 	@Test
 	@DisplayName("Make sure that if nothing was initialized, then the resulting options are the same as an empty options object.")
-	void testToAdobePDFOutputOptions_NoChanges() {
+	void testToAdobePDFOutputOptions_NoChanges() throws Exception {
 		
 		assertEmpty(underTest, null);
 	}
 
-	private static void assertEmpty(PDFOutputOptionsImpl pdfOutputOptions, String contentRoot) {
+	private static void assertEmpty(PDFOutputOptionsImpl pdfOutputOptions, String contentRoot) throws IOException {
 		com.adobe.fd.output.api.PDFOutputOptions adobePDFOutputOptions = AdobeOutputServiceAdapter.toAdobePDFOutputOptions(pdfOutputOptions);
 		assertEquals(emptyPDFOutputOptions.getAcrobatVersion(), adobePDFOutputOptions.getAcrobatVersion());
 		assertEquals(contentRoot, adobePDFOutputOptions.getContentRoot());	// We modify the content root, so we expect it to be different than the empty version (which would be null).
@@ -40,7 +41,7 @@ class PDFOutputOptionsImplTest {
 	
 	@Test
 	@DisplayName("Make sure that if everything was initialized, then the resulting options are the not same as an empty options object.")
-	void testToAdobePDFOutputOptions_AllChanges() {
+	void testToAdobePDFOutputOptions_AllChanges() throws Exception {
 
 		underTest.setAcrobatVersion(AcrobatVersion.Acrobat_10_1);
 		underTest.setContentRoot(Paths.get("foo", "bar"));
@@ -57,7 +58,7 @@ class PDFOutputOptionsImplTest {
 		assertNotEmpty(underTest);
 	}
 
-	/* package */ static void assertNotEmpty(PDFOutputOptions pdfOutputOptions) {
+	/* package */ static void assertNotEmpty(PDFOutputOptions pdfOutputOptions) throws IOException {
 		com.adobe.fd.output.api.PDFOutputOptions adobePDFOutputOptions = AdobeOutputServiceAdapter.toAdobePDFOutputOptions(pdfOutputOptions);
 		assertNotEquals(emptyPDFOutputOptions.getAcrobatVersion(), adobePDFOutputOptions.getAcrobatVersion());
 		assertNotEquals(emptyPDFOutputOptions.getContentRoot(), adobePDFOutputOptions.getContentRoot());
@@ -0,0 +1,91 @@
+package com._4point.aem.fluentforms.impl.output;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com._4point.aem.fluentforms.api.Document;
+import com._4point.aem.fluentforms.api.PathOrUrl;
+import com._4point.aem.fluentforms.api.output.PDFOutputOptions;
+import com._4point.aem.fluentforms.impl.SimpleDocumentFactoryImpl;
+
+class PDFOutputProfileTest {
+
+	private static final PathOrUrl CONTENT_ROOT = PathOrUrl.from(Paths.get("content", "root"));
+
+	@Test
+	@DisplayName("A profile is a snapshot of the options it was created from.")
+	void testOf() throws Exception {
+		PDFOutputOptionsImpl source = new PDFOutputOptionsImpl().setEmbedFonts(true).setTaggedPDF(true).setXci(doc("xci"));
+		PDFOutputProfile underTest = PDFOutputProfile.of("tagged", source);
+		source.setEmbedFonts(false).setLocale(Locale.CANADA);
+
+		assertEquals("tagged", underTest.getName());
+		assertTrue(underTest.getEmbedFonts());
+		assertTrue(underTest.getTaggedPDF());
+		assertNull(underTest.getLocale());
+		assertNotSame(source.getXci(), underTest.getXci());
+		assertEquals("xci", new String(underTest.getXci().getInlineData(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	@DisplayName("Options read through to the profile, and overrides only affect the options they are set on.")
+	void testNewOptions() throws Exception {
+		PDFOutputProfile profile = PDFOutputProfile.of("tagged", new PDFOutputOptionsImpl().setTaggedPDF(true).setLocale(Locale.CANADA));
+
+		PDFOutputProfile.Options underTest = profile.newOptions();
+		assertTrue(underTest.getTaggedPDF());
+		assertEquals(Locale.CANADA, underTest.getLocale());
+		assertFalse(underTest.hasOverrides());
+
+		underTest.setLocale(Locale.CANADA_FRENCH);
+		assertEquals(Locale.CANADA_FRENCH, underTest.getLocale());
+		assertTrue(underTest.getTaggedPDF());
+		assertTrue(underTest.hasOverrides());
+		assertEquals(Locale.CANADA, profile.getLocale());
+		assertEquals(Locale.CANADA, profile.newOptions().getLocale());
+	}
+
+	@Test
+	@DisplayName("Setting an option to the profile's value is not an override.")
+	void testHasOverrides_SameValue() throws Exception {
+		PDFOutputProfile profile = PDFOutputProfile.of("root", new PDFOutputOptionsImpl().setContentRoot(CONTENT_ROOT));
+
+		PDFOutputProfile.Options underTest = profile.newOptions().setContentRoot(CONTENT_ROOT);
+
+		assertFalse(underTest.hasOverrides());
+		assertTrue(underTest.setEmbedFonts(false).hasOverrides());
+	}
+
+	@Test
+	@DisplayName("Copies keep the profile and can be modified independently.")
+	void testCopyOf() throws Exception {
+		PDFOutputProfile profile = PDFOutputProfile.of("linearized", new PDFOutputOptionsImpl().setLinearizedPDF(true));
+		PDFOutputProfile.Options original = profile.newOptions().setLocale(Locale.CANADA);
+
+		PDFOutputOptions copy = PDFOutputOptionsImpl.copyOf(original);
+		copy.setLocale(Locale.FRANCE);
+
+		assertTrue(copy instanceof PDFOutputProfile.Options);
+		assertSame(profile, ((PDFOutputProfile.Options)copy).getProfile());
+		assertTrue(copy.getLinearizedPDF());
+		assertEquals(Locale.FRANCE, copy.getLocale());
+		assertEquals(Locale.CANADA, original.getLocale());
+	}
+
+	@Test
+	void testOf_BadArguments() throws Exception {
+		assertThrows(NullPointerException.class, ()->PDFOutputProfile.of(null, new PDFOutputOptionsImpl()));
+		assertThrows(IllegalArgumentException.class, ()->PDFOutputProfile.of(" ", new PDFOutputOptionsImpl()));
+		assertThrows(NullPointerException.class, ()->PDFOutputProfile.of("name", null));
+	}
+
+	private static Document doc(String contents) {
+		return SimpleDocumentFactoryImpl.getFactory().create(contents.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -2,6 +2,7 @@ package com._4point.aem.fluentforms.impl.output;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.IOException;
 import java.nio.file.Paths;
 import java.util.Locale;
 
@@ -18,12 +19,12 @@ class PrintedOutputOptionsImplTest {
 
 	@Test
 	@DisplayName("Make sure that if nothing was initialized, then the resulting options are the same as an empty options object.")
-	void testToAdobePrintedOutputOptions_NoChanges() {
+	void testToAdobePrintedOutputOptions_NoChanges() throws Exception {
 		
 		assertEmpty(underTest, null);
 	}
 
-	private static void assertEmpty(PrintedOutputOptionsImpl printedOutputOptions, String contentRoot) {
+	private static void assertEmpty(PrintedOutputOptionsImpl printedOutputOptions, String contentRoot) throws IOException {
 		com.adobe.fd.output.api.PrintedOutputOptions adobePrintedOutputOptions = AdobeOutputServiceAdapter.toAdobePrintedOutputOptions(printedOutputOptions);
 		assertEquals(contentRoot, adobePrintedOutputOptions.getContentRoot());	// We modify the content root, so we expect it to be different than the empty version (which would be null).
 		assertEquals(emptyPrintedOutputOptions.getCopies(), adobePrintedOutputOptions.getCopies());
@@ -36,7 +37,7 @@ class PrintedOutputOptionsImplTest {
 	
 	@Test
 	@DisplayName("Make sure that if everything was initialized, then the resulting options are the not same as an empty options object.")
-	void testToAdobePrintedOutputOptions_AllChanges() {
+	void testToAdobePrintedOutputOptions_AllChanges() throws Exception {
 
 		underTest.setContentRoot(Paths.get("foo", "bar"));
 		underTest.setCopies(2);
@@ -50,7 +51,7 @@ class PrintedOutputOptionsImplTest {
 		assertNotEmpty(underTest);
 	}
 
-	/* package */ static void assertNotEmpty(PrintedOutputOptionsImpl printedOutputOptions) {
+	/* package */ static void assertNotEmpty(PrintedOutputOptionsImpl printedOutputOptions) throws IOException {
 		com.adobe.fd.output.api.PrintedOutputOptions adobePrintedOutputOptions = AdobeOutputServiceAdapter.toAdobePrintedOutputOptions(printedOutputOptions);
 		assertNotEquals(emptyPrintedOutputOptions.getContentRoot(), adobePrintedOutputOptions.getContentRoot());
 		assertNotEquals(emptyPrintedOutputOptions.getCopies(), adobePrintedOutputOptions.getCopies());
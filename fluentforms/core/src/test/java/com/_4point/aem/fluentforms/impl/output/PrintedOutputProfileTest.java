@@ -0,0 +1,52 @@
+package com._4point.aem.fluentforms.impl.output;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Locale;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com._4point.aem.fluentforms.api.output.PrintedOutputOptions;
+
+class PrintedOutputProfileTest {
+
+	@Test
+	@DisplayName("Options read through to the profile, and overrides only affect the options they are set on.")
+	void testNewOptions() throws Exception {
+		PrintedOutputOptionsImpl source = new PrintedOutputOptionsImpl().setPrintConfig(PrintConfigImpl.ZPL300).setCopies(2);
+		PrintedOutputProfile profile = PrintedOutputProfile.of("zebra", source);
+		source.setCopies(5);
+
+		PrintedOutputProfile.Options underTest = profile.newOptions();
+		assertSame(PrintConfigImpl.ZPL300, underTest.getPrintConfig());
+		assertEquals(Integer.valueOf(2), underTest.getCopies());
+		assertFalse(underTest.hasOverrides());
+
+		underTest.setCopies(3).setLocale(Locale.CANADA);
+		assertEquals(Integer.valueOf(3), underTest.getCopies());
+		assertTrue(underTest.hasOverrides());
+		assertEquals(Integer.valueOf(2), profile.getCopies());
+		assertNull(profile.getLocale());
+	}
+
+	@Test
+	@DisplayName("Copies keep the profile and can be modified independently.")
+	void testCopyOf() throws Exception {
+		PrintedOutputProfile profile = PrintedOutputProfile.of("zebra", new PrintedOutputOptionsImpl().setPrintConfig(PrintConfigImpl.ZPL300));
+		PrintedOutputProfile.Options original = profile.newOptions().setCopies(2);
+
+		PrintedOutputOptions copy = PrintedOutputOptionsImpl.copyOf(original);
+		copy.setCopies(4);
+
+		assertSame(profile, ((PrintedOutputProfile.Options)copy).getProfile());
+		assertEquals(Integer.valueOf(4), copy.getCopies());
+		assertEquals(Integer.valueOf(2), original.getCopies());
+	}
+
+	@Test
+	void testOf_BadArguments() throws Exception {
+		assertThrows(IllegalArgumentException.class, ()->PrintedOutputProfile.of("", new PrintedOutputOptionsImpl()));
+		assertThrows(IllegalArgumentException.class, ()->PrintedOutputProfile.of("none", new PrintedOutputOptionsImpl().setCopies(0)));
+	}
+}
@@ -155,6 +155,7 @@ public class RestServicesDocAssuranceServiceAdapter extends RestServicesServiceA
 			}
 			
 			Document resultDoc = SimpleDocumentFactoryImpl.getFactory().create((InputStream) result.getEntity());
+			resultDoc.length();		// create(InputStream) reads lazily, so read the response now to release the connection.
 			resultDoc.setContentType(APPLICATION_PDF.toString());
 			return resultDoc;
 			
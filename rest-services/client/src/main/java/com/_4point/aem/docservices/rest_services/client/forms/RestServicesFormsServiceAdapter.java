@@ -102,6 +102,7 @@ public class RestServicesFormsServiceAdapter extends RestServicesServiceAdapter
 			}
 
 			Document resultDoc = SimpleDocumentFactoryImpl.getFactory().create((InputStream) result.getEntity());
+			resultDoc.length();		// create(InputStream) reads lazily, so read the response now to release the connection.
 			resultDoc.setContentType(APPLICATION_PDF.toString());
 			return resultDoc;
 			
@@ -189,6 +190,7 @@ public class RestServicesFormsServiceAdapter extends RestServicesServiceAdapter
 			}
 
 			Document resultDoc = SimpleDocumentFactoryImpl.getFactory().create((InputStream) result.getEntity());
+			resultDoc.length();		// create(InputStream) reads lazily, so read the response now to release the connection.
 			resultDoc.setContentType(APPLICATION_PDF.toString());
 			return resultDoc;
 		} catch (IOException e) {
@@ -30,6 +30,7 @@ import com._4point.aem.fluentforms.api.output.OutputService.OutputServiceExcepti
 import com._4point.aem.fluentforms.api.output.PDFOutputOptions;
 import com._4point.aem.fluentforms.api.output.PrintedOutputOptions;
 import com._4point.aem.fluentforms.impl.SimpleDocumentFactoryImpl;
+import com._4point.aem.fluentforms.impl.output.BatchFanOut;
 import com._4point.aem.fluentforms.impl.output.TraditionalOutputService;
 import com.adobe.fd.output.api.AcrobatVersion;
 
@@ -50,14 +51,18 @@ public class RestServicesOutputServiceAdapter extends RestServicesServiceAdapter
 	private static final String TAGGED_PDF_PARAM = "outputOptions.taggedPdf";
 	private static final String XCI_PARAM = "outputOptions.xci";
 
+	private final BatchFanOut batchFanOut;
+
 	// Only callable from Builder
 	private RestServicesOutputServiceAdapter(WebTarget baseTarget) {
 		super(baseTarget);
+		this.batchFanOut = BatchFanOut.getDefault();
 	}
 
 	// Only callable from Builder
-	private RestServicesOutputServiceAdapter(WebTarget baseTarget, Supplier<String> correlationIdFn) {
+	private RestServicesOutputServiceAdapter(WebTarget baseTarget, Supplier<String> correlationIdFn, BatchFanOut batchFanOut) {
 		super(baseTarget, correlationIdFn);
+		this.batchFanOut = batchFanOut;
 	}
 
 	@Override
@@ -145,6 +150,7 @@ public class RestServicesOutputServiceAdapter extends RestServicesServiceAdapter
 			}
 
 			Document resultDoc = SimpleDocumentFactoryImpl.getFactory().create((InputStream) result.getEntity());
+			resultDoc.length();		// create(InputStream) reads lazily, so read the response now to release the connection.
 			resultDoc.setContentType(APPLICATION_PDF.toString());
 			return resultDoc;
 		} catch (IOException e) {
@@ -158,8 +164,12 @@ public class RestServicesOutputServiceAdapter extends RestServicesServiceAdapter
 	@Override
 	public BatchResult generatePDFOutputBatch(Map<String, String> templates, Map<String, Document> data, PDFOutputOptions pdfOutputOptions, BatchOptions batchOptions)
 			throws OutputServiceException {
-		// TODO Auto-generated method stub
-		return null;
+		Objects.requireNonNull(pdfOutputOptions, "PdfOutputOptions Argument cannot be null.");
+		if (!Boolean.TRUE.equals(Objects.requireNonNull(batchOptions, "BatchOptions Argument cannot be null.").getGenerateManyFiles())) {
+			throw new OutputServiceException("Generating a batch into a single file is not supported by the REST client.  Set generateManyFiles to true.");
+		}
+		// The server generates one PDF per call, so each record is sent as a separate request.
+		return batchFanOut.generate(templates, data, (template, record)->generatePDFOutput(template, record, pdfOutputOptions));
 	}
 
 	@Override
@@ -192,6 +202,7 @@ public class RestServicesOutputServiceAdapter extends RestServicesServiceAdapter
 
 	public static class OutputServiceBuilder implements Builder {
 		private BuilderImpl builder = new BuilderImpl();
+		private BatchFanOut batchFanOut = BatchFanOut.getDefault();
 		
 		@Override
 		public OutputServiceBuilder machineName(String machineName) {
@@ -239,8 +250,20 @@ public class RestServicesOutputServiceAdapter extends RestServicesServiceAdapter
 			return builder.createLocalTarget();
 		}
 		
+		/**
+		 * Sets the BatchFanOut used to send the records of a batch to the server in parallel.  By default,
+		 * BatchFanOut.getDefault() is used.
+		 * 
+		 * @param batchFanOut
+		 * @return
+		 */
+		public OutputServiceBuilder batchFanOut(BatchFanOut batchFanOut) {
+			this.batchFanOut = Objects.requireNonNull(batchFanOut, "batchFanOut cannot be null.");
+			return this;
+		}
+
 		public RestServicesOutputServiceAdapter build() {
-			return new RestServicesOutputServiceAdapter(this.createLocalTarget(), this.getCorrelationIdFn());
+			return new RestServicesOutputServiceAdapter(this.createLocalTarget(), this.getCorrelationIdFn(), this.batchFanOut);
 		}
 	}
 }
@@ -0,0 +1,20 @@
+package com._4point.aem.docservices.rest_services.server;
+
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+
+import com._4point.aem.fluentforms.impl.DocumentSpool;
+
+/**
+ * Closes the default DocumentSpool (deleting its temporary files) when this bundle is stopped.  It has no references,
+ * so it stays active for as long as the bundle does.
+ *
+ */
+@Component(service=DocumentSpoolCleanup.class, immediate=true)
+public class DocumentSpoolCleanup {
+
+	@Deactivate
+	protected void deactivate() {
+		DocumentSpool.closeDefault();
+	}
+}
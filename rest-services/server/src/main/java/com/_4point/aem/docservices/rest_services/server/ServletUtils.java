@@ -1,8 +1,5 @@
 package com._4point.aem.docservices.rest_services.server;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.util.Arrays;
 import java.util.List;
 
@@ -23,15 +20,4 @@ public class ServletUtils {
 		}
 	}
 
-	public static void transfer(InputStream in, OutputStream out) throws IOException {
-		byte[] buffer = new byte[1024];
-		int len;
-
-		// read bytes from the input stream and store them in buffer
-		while ((len = in.read(buffer)) != -1) {
-			// write bytes from the buffer into output stream
-			out.write(buffer, 0, len);
-		}
-	}
-
 }
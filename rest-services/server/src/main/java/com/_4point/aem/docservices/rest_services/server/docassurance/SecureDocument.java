@@ -116,7 +116,7 @@ public class SecureDocument extends SlingAllMethodsServlet {
 				ServletUtils.validateAcceptHeader(request.getHeader(AcceptHeaders.ACCEPT_HEADER_STR), contentType);
 				response.setContentType(contentType);
 				response.setContentLength((int)result.length());
-				ServletUtils.transfer(result.getInputStream(), response.getOutputStream());
+				result.transferTo(response.getOutputStream());
 			}
 		} catch (FileNotFoundException | NullPointerException ex1) {
 			throw new BadRequestException("Bad request parameter while reader extending a PDF. " + ex1.getMessage(), ex1);
@@ -90,7 +90,7 @@ public class ImportData extends SlingAllMethodsServlet {
 				ServletUtils.validateAcceptHeader(request.getHeader(AcceptHeaders.ACCEPT_HEADER_STR), contentType);
 				response.setContentType(contentType);
 //				response.setContentLength((int)result.length());	// Setting the content length seems to throw an UnsupportedOperation exception.
-				ServletUtils.transfer(result.getInputStream(), response.getOutputStream());
+				result.transferTo(response.getOutputStream());
 			}
 		} catch (FormsServiceException | IOException ex1) {
 			throw new InternalServerErrorException("Internal Error while importing data", ex1);
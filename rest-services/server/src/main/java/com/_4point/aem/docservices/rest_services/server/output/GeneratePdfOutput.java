@@ -111,7 +111,7 @@ public class GeneratePdfOutput extends SlingAllMethodsServlet {
 				ServletUtils.validateAcceptHeader(request.getHeader(AcceptHeaders.ACCEPT_HEADER_STR), contentType);
 				response.setContentType(contentType);
 				response.setContentLength((int)result.length());
-				ServletUtils.transfer(result.getInputStream(), response.getOutputStream());
+				result.transferTo(response.getOutputStream());
 			}
 		} catch (FileNotFoundException fnfex) {
 			throw new BadRequestException("Bad request parameter while rendering PDF (" + fnfex.getMessage() + ").", fnfex);
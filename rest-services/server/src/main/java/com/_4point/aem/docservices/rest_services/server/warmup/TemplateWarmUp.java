@@ -0,0 +1,127 @@
+package com._4point.aem.docservices.rest_services.server.warmup;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com._4point.aem.fluentforms.impl.TemplateWarmUpRunner;
+import com._4point.aem.fluentforms.impl.TemplateWarmUpRunner.Report;
+import com._4point.aem.fluentforms.impl.UsageContext;
+import com._4point.aem.fluentforms.impl.forms.AdobeFormsServiceAdapter;
+import com._4point.aem.fluentforms.impl.forms.FormsServiceImpl;
+import com._4point.aem.fluentforms.impl.forms.TraditionalFormsService;
+import com._4point.aem.fluentforms.impl.output.AdobeOutputServiceAdapter;
+import com._4point.aem.fluentforms.impl.output.OutputServiceImpl;
+import com._4point.aem.fluentforms.impl.output.TraditionalOutputService;
+
+/**
+ * Renders the templates in a configured content root when the bundle starts, so that the first real request for each
+ * template does not pay the start-up costs.  The WarmUpStatus servlet reports whether this has completed.
+ *
+ */
+@Component(service=TemplateWarmUp.class, immediate=true)
+@Designate(ocd=TemplateWarmUp.Configuration.class)
+public class TemplateWarmUp {
+
+	private static final Logger log = LoggerFactory.getLogger(TemplateWarmUp.class);
+	private final Supplier<TraditionalOutputService> outputServiceFactory = this::getAdobeOutputService;
+	private final Supplier<TraditionalFormsService> formsServiceFactory = this::getAdobeFormsService;
+
+	@Reference
+	private com.adobe.fd.output.api.OutputService adobeOutputService;
+
+	@Reference
+	private com.adobe.fd.forms.api.FormsService adobeFormsService;
+
+	private volatile CompletableFuture<Report> warmUp = null;	// null if warm-up is disabled.
+	private TemplateWarmUpRunner runner = null;		// Guarded by this, null if warm-up is disabled.
+
+	@ObjectClassDefinition(name = "FluentForms Template Warm-up", description = "Renders the templates in a directory at start-up.")
+	public @interface Configuration {
+		@AttributeDefinition(name = "Content Root", description = "Directory containing the templates to warm up.  Leave empty to disable warm-up.")
+		String contentRoot() default "";
+
+		@AttributeDefinition(name = "Threads", description = "Maximum number of templates rendered at once.")
+		int threads() default 2;
+
+		@AttributeDefinition(name = "Warm up Output Service", description = "Generate PDF output from each template.")
+		boolean warmUpOutputService() default true;
+
+		@AttributeDefinition(name = "Warm up Forms Service", description = "Render a PDF form from each template.")
+		boolean warmUpFormsService() default true;
+	}
+
+	@Activate
+	@Modified
+	protected synchronized void activate(Configuration config) {
+		stop();		// Stop any warm-up started with the previous configuration.
+		String contentRoot = config.contentRoot().trim();
+		if (contentRoot.isEmpty()) {
+			log.info("Template warm-up is disabled (no content root is configured).");
+			this.warmUp = null;
+			return;
+		}
+		Path contentRootPath = Paths.get(contentRoot);
+		TemplateWarmUpRunner runner = new TemplateWarmUpRunner(
+				config.warmUpOutputService() ? new OutputServiceImpl(outputServiceFactory.get(), UsageContext.SERVER_SIDE) : null,
+				config.warmUpFormsService() ? new FormsServiceImpl(formsServiceFactory.get(), UsageContext.SERVER_SIDE) : null,
+				config.threads()
+				);
+		this.runner = runner;
+		this.warmUp = runner.start(contentRootPath);
+	}
+
+	@Deactivate
+	protected synchronized void deactivate() {
+		stop();
+	}
+
+	// Must be called while holding the lock.
+	private void stop() {
+		if (runner != null) {
+			runner.stop();
+			runner = null;
+		}
+	}
+
+	/**
+	 * Returns true if warm-up has finished (successfully or not) or is disabled.
+	 *
+	 * @return
+	 */
+	public boolean isReady() {
+		CompletableFuture<Report> current = this.warmUp;
+		return current == null || current.isDone();
+	}
+
+	/**
+	 * Returns the warm-up report, if warm-up has completed successfully.
+	 *
+	 * @return
+	 */
+	public Optional<Report> getReport() {
+		CompletableFuture<Report> current = this.warmUp;
+		return current != null && current.isDone() && !current.isCompletedExceptionally() ? Optional.of(current.join()) : Optional.empty();
+	}
+
+	private TraditionalOutputService getAdobeOutputService() {
+		return new AdobeOutputServiceAdapter(adobeOutputService);
+	}
+
+	private TraditionalFormsService getAdobeFormsService() {
+		return new AdobeFormsServiceAdapter(adobeFormsService);
+	}
+}
@@ -0,0 +1,49 @@
+package com._4point.aem.docservices.rest_services.server.warmup;
+
+import java.io.IOException;
+import java.util.Optional;
+
+import javax.servlet.Servlet;
+import javax.servlet.ServletException;
+
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.SlingHttpServletResponse;
+import org.apache.sling.api.servlets.HttpConstants;
+import org.apache.sling.api.servlets.SlingSafeMethodsServlet;
+import org.apache.sling.servlets.annotations.SlingServletPaths;
+import org.osgi.framework.Constants;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+
+import com._4point.aem.docservices.rest_services.server.ContentType;
+import com._4point.aem.fluentforms.impl.TemplateWarmUpRunner.Report;
+
+/**
+ * Reports whether template warm-up has completed.  Returns 503 (Service Unavailable) while warm-up is in progress and
+ * 200 (with the warm-up report, if there is one) once it is done, so it can be used as a readiness check.
+ *
+ */
+@SuppressWarnings("serial")
+@Component(service=Servlet.class, property={Constants.SERVICE_DESCRIPTION + "=Template Warm-up Status Service",
+		"sling.servlet.methods=" + HttpConstants.METHOD_GET})
+@SlingServletPaths("/services/WarmUp/Status")
+public class WarmUpStatus extends SlingSafeMethodsServlet {
+
+	private static final String RETRY_AFTER_HEADER = "Retry-After";
+	private static final String RETRY_AFTER_SECONDS = "10";
+
+	@Reference
+	private TemplateWarmUp templateWarmUp;
+
+	@Override
+	protected void doGet(SlingHttpServletRequest request, SlingHttpServletResponse response) throws ServletException, IOException {
+		if (!templateWarmUp.isReady()) {
+			response.setHeader(RETRY_AFTER_HEADER, RETRY_AFTER_SECONDS);
+			response.sendError(SlingHttpServletResponse.SC_SERVICE_UNAVAILABLE, "Template warm-up is in progress.");
+			return;
+		}
+		Optional<Report> report = templateWarmUp.getReport();
+		response.setContentType(ContentType.TEXT_PLAIN.getContentTypeStr());
+		response.getWriter().write(report.map(Report::toString).orElse("Ready."));
+	}
+}
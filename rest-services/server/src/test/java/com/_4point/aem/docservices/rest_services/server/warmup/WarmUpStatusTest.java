@@ -0,0 +1,52 @@
+package com._4point.aem.docservices.rest_services.server.warmup;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.sling.api.SlingHttpServletResponse;
+import org.apache.sling.testing.mock.sling.servlet.MockSlingHttpServletRequest;
+import org.apache.sling.testing.mock.sling.servlet.MockSlingHttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import io.wcm.testing.mock.aem.junit5.AemContext;
+import io.wcm.testing.mock.aem.junit5.AemContextExtension;
+
+@ExtendWith(AemContextExtension.class)
+class WarmUpStatusTest {
+
+	private final WarmUpStatus underTest = new WarmUpStatus();
+	private final TemplateWarmUp templateWarmUp = new TemplateWarmUp();
+
+	private final AemContext aemContext = new AemContext();
+
+	@BeforeEach
+	void setUp() throws Exception {
+		junitx.util.PrivateAccessor.setField(underTest, "templateWarmUp", templateWarmUp);
+	}
+
+	@Test
+	void testDoGet_WarmUpDisabled() throws Exception {
+		MockSlingHttpServletRequest request = new MockSlingHttpServletRequest(aemContext.bundleContext());
+		MockSlingHttpServletResponse response = new MockSlingHttpServletResponse();
+
+		underTest.doGet(request, response);
+
+		assertEquals(SlingHttpServletResponse.SC_OK, response.getStatus());
+		assertEquals("Ready.", response.getOutputAsString());
+	}
+
+	@Test
+	void testDoGet_WarmUpInProgress() throws Exception {
+		junitx.util.PrivateAccessor.setField(templateWarmUp, "warmUp", new CompletableFuture<>());
+		MockSlingHttpServletRequest request = new MockSlingHttpServletRequest(aemContext.bundleContext());
+		MockSlingHttpServletResponse response = new MockSlingHttpServletResponse();
+
+		underTest.doGet(request, response);
+
+		assertEquals(SlingHttpServletResponse.SC_SERVICE_UNAVAILABLE, response.getStatus());
+		assertNotNull(response.getHeader("Retry-After"));
+	}
+}